@@ -32,7 +32,11 @@ import org.eclipse.dltk.ast.Modifiers;
  * modifiers bit flags {@link Modifiers}.
  * 
  * @author Michal Niewrzal, Bartlomiej Laczkowski
+ * @deprecated scans the doc values of all the candidate documents, the
+ *             search engine queries the {@link IndexFields#F_FLAG} terms
+ *             instead
  */
+@Deprecated
 public class BitFlagsQuery extends Query {
 
 	private final int fTrueFlags;
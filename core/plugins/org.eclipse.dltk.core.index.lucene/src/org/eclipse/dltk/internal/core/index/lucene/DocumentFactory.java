@@ -19,6 +19,7 @@ import static org.eclipse.dltk.internal.core.index.lucene.IndexFields.BDV_PATH;
 import static org.eclipse.dltk.internal.core.index.lucene.IndexFields.BDV_QUALIFIER;
 import static org.eclipse.dltk.internal.core.index.lucene.IndexFields.F_CC_NAME;
 import static org.eclipse.dltk.internal.core.index.lucene.IndexFields.F_ELEMENT_NAME_LC;
+import static org.eclipse.dltk.internal.core.index.lucene.IndexFields.F_FLAG;
 import static org.eclipse.dltk.internal.core.index.lucene.IndexFields.F_PARENT;
 import static org.eclipse.dltk.internal.core.index.lucene.IndexFields.F_PATH;
 import static org.eclipse.dltk.internal.core.index.lucene.IndexFields.F_QUALIFIER;
@@ -49,11 +50,20 @@ import org.eclipse.dltk.core.index2.IIndexingRequestor.ReferenceInfo;
  * search purposes while numeric and binary document values are used to retrieve
  * the related data for particular search matches.
  * </p>
+ * <p>
+ * The factory reuses its documents, so the returned document is valid until
+ * the next call only and the instance must not be shared by the concurrent
+ * writers.
+ * </p>
  * 
  * @author Bartlomiej Laczkowski
  */
-public enum DocumentFactory {
-	INSTANCE;
+public final class DocumentFactory {
+
+	/**
+	 * Factory used by the indexer outside of the batch.
+	 */
+	public static final DocumentFactory INSTANCE = new DocumentFactory();
 
 	private String EMPTY = new String();
 
@@ -79,6 +89,7 @@ public enum DocumentFactory {
 	private StringField declarationFParent;
 	private StringField declarationFElementNameLC;
 	private StringField declarationFElementNameCC;
+	private StringField[] declarationFFlags;
 	private NumericDocValuesField declarationNDVOffset;
 	private NumericDocValuesField declarationNDVLength;
 	private NumericDocValuesField declarationNDVNameOffset;
@@ -92,7 +103,7 @@ public enum DocumentFactory {
 	private BinaryDocValuesField declarationBParent;
 	private BinaryDocValuesField declarationBDoc;
 
-	private DocumentFactory() {
+	DocumentFactory() {
 		timestampPath = addStringEntry(timestamp, F_PATH, true);
 		timestampValue = addLongEntry(timestamp, NDV_TIMESTAMP);
 
@@ -117,6 +128,12 @@ public enum DocumentFactory {
 				F_ELEMENT_NAME_LC, false);
 		declarationFElementNameCC = addStringEntry(declaration, F_CC_NAME,
 				false);
+		// Set modifier bits are added per document
+		declarationFFlags = new StringField[Integer.SIZE];
+		for (int bit = 0; bit < Integer.SIZE; ++bit) {
+			declarationFFlags[bit] = new StringField(F_FLAG,
+					flagValue(bit), Field.Store.NO);
+		}
 		// Add numeric doc values
 		declarationNDVOffset = addLongEntry(declaration, NDV_OFFSET);
 		declarationNDVLength = addLongEntry(declaration, NDV_LENGTH);
@@ -178,6 +195,11 @@ public enum DocumentFactory {
 		declarationFElementNameLC
 				.setStringValue(info.elementName.toLowerCase());
 		declarationFElementNameCC.setStringValue(ccValue(info.elementName));
+		declaration.removeFields(F_FLAG);
+		for (int flags = info.flags; flags != 0; flags &= flags - 1) {
+			declaration.add(
+					declarationFFlags[Integer.numberOfTrailingZeros(flags)]);
+		}
 		// Add numeric doc values
 
 		declarationNDVOffset.setLongValue(info.offset);
@@ -219,6 +241,18 @@ public enum DocumentFactory {
 		return this.timestamp;
 	}
 
+	/**
+	 * Returns the value of the {@link IndexFields#F_FLAG} field for the given
+	 * modifier bit.
+	 * 
+	 * @param bit
+	 *            index of the bit
+	 * @return the field value
+	 */
+	public static String flagValue(int bit) {
+		return Integer.toString(bit);
+	}
+
 	private NumericDocValuesField addLongEntry(Document doc, String category) {
 		NumericDocValuesField f = new NumericDocValuesField(category, 0L);
 		doc.add(f);
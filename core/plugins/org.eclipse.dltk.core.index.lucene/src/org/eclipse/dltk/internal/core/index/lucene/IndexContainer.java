@@ -25,7 +25,10 @@ import org.apache.lucene.index.IndexNotFoundException;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.index.LiveIndexWriterConfig;
+import org.apache.lucene.index.MergePolicy;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TieredMergePolicy;
 import org.apache.lucene.search.SearcherFactory;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.store.Directory;
@@ -86,12 +89,38 @@ class IndexContainer {
 
 	private static final String TIMESTAMPS_DIR = "timestamps"; //$NON-NLS-1$
 
+	/*
+	 * Writers tuning, the values could be overridden by the system properties
+	 * prefixed with the plug-in ID.
+	 */
+	private static final double RAM_BUFFER_SIZE_MB = getTuning(
+			"ramBufferSizeMB", IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB); //$NON-NLS-1$
+	private static final double BULK_RAM_BUFFER_SIZE_MB = getTuning(
+			"bulkRamBufferSizeMB", 32); //$NON-NLS-1$
+	private static final double SEGMENTS_PER_TIER = getTuning(
+			"segmentsPerTier", 10); //$NON-NLS-1$
+	private static final double BULK_SEGMENTS_PER_TIER = getTuning(
+			"bulkSegmentsPerTier", 30); //$NON-NLS-1$
+
+	static double getTuning(String name, double defaultValue) {
+		String value = System.getProperty(LucenePlugin.ID + '.' + name);
+		if (value != null) {
+			try {
+				return Double.parseDouble(value);
+			} catch (NumberFormatException e) {
+				Logger.logException(e);
+			}
+		}
+		return defaultValue;
+	}
+
 	private final String fIndexRoot;
 	private final String fContainerId;
 	private IndexWriter fTimestampsWriter;
 	private SearcherManager fTimestampsSearcher;
 	private Map<IndexType, Map<Integer, IndexWriter>> fIndexWriters;
 	private Map<IndexType, Map<Integer, SearcherManager>> fIndexSearchers;
+	private volatile boolean fBulkMode;
 
 	public IndexContainer(String indexRoot, String containerId) {
 		fIndexRoot = indexRoot;
@@ -139,10 +168,61 @@ class IndexContainer {
 		config.setUseCompoundFile(false);
 		config.setOpenMode(OpenMode.CREATE_OR_APPEND);
 		config.setCommitOnClose(false);
+		config.setMergePolicy(new TieredMergePolicy());
+		tune(config, fBulkMode);
 		IndexWriter writer = new IndexWriter(indexDir, config);
 		return writer;
 	}
 
+	private static void tune(LiveIndexWriterConfig config, boolean bulk) {
+		config.setRAMBufferSizeMB(
+				bulk ? BULK_RAM_BUFFER_SIZE_MB : RAM_BUFFER_SIZE_MB);
+		MergePolicy mergePolicy = config.getMergePolicy();
+		if (mergePolicy instanceof TieredMergePolicy) {
+			((TieredMergePolicy) mergePolicy).setSegmentsPerTier(
+					bulk ? BULK_SEGMENTS_PER_TIER : SEGMENTS_PER_TIER);
+		}
+	}
+
+	/**
+	 * Switches the writers of this container to the bulk mode, used while the
+	 * whole container is being indexed: the larger RAM buffer makes the
+	 * writers flush fewer segments and the merges are less eager. The merges
+	 * postponed in the bulk mode are requested when it is switched off.
+	 * 
+	 * @param bulk
+	 */
+	public void setBulkMode(boolean bulk) {
+		if (fBulkMode == bulk) {
+			return;
+		}
+		fBulkMode = bulk;
+		List<IndexWriter> writers = new LinkedList<>();
+		synchronized (fIndexWriters) {
+			for (Map<Integer, IndexWriter> dataWriters : fIndexWriters
+					.values()) {
+				for (IndexWriter writer : dataWriters.values()) {
+					if (writer != null) {
+						writers.add(writer);
+					}
+				}
+			}
+		}
+		if (fTimestampsWriter != null) {
+			writers.add(fTimestampsWriter);
+		}
+		for (IndexWriter writer : writers) {
+			tune(writer.getConfig(), bulk);
+			if (!bulk) {
+				try {
+					writer.maybeMerge();
+				} catch (IOException e) {
+					Logger.logException(e);
+				}
+			}
+		}
+	}
+
 	private IndexWriter getWriter(Path path) {
 		IndexWriter indexWriter = null;
 		try {
@@ -230,6 +310,7 @@ class IndexContainer {
 								new SearcherFactory());
 						fIndexSearchers.get(dataType).put(elementType,
 								searcher);
+						SearcherRefresher.INSTANCE.register(searcher);
 					}
 
 				}
@@ -276,8 +357,10 @@ class IndexContainer {
 			for (Map<Integer, SearcherManager> dataSearchers : fIndexSearchers
 					.values()) {
 				for (SearcherManager searcher : dataSearchers.values()) {
-					if (searcher != null)
+					if (searcher != null) {
+						SearcherRefresher.INSTANCE.unregister(searcher);
 						searcher.close();
+					}
 				}
 			}
 			// Close all data writers
@@ -329,28 +412,15 @@ class IndexContainer {
 		}
 	}
 
+	/**
+	 * Requests the searchers of this container to be reopened in background,
+	 * does not wait for the reopen.
+	 * 
+	 * @return this container
+	 */
 	public IndexContainer refresh() {
-		List<SearcherManager> managers = new LinkedList<>();
-		synchronized (fIndexSearchers) {
-			for (Map<Integer, SearcherManager> searcher : fIndexSearchers
-					.values()) {
-				for (SearcherManager man : searcher.values()) {
-					if (man != null) {
-						managers.add(man);
-					}
-				}
-			}
-		}
-		for (SearcherManager man : managers) {
-			try {
-				man.maybeRefreshBlocking();
-			} catch (IOException e) {
-				Logger.logException(e);
-			}
-		}
-
+		SearcherRefresher.INSTANCE.requestRefresh();
 		return this;
-
 	}
 
 }
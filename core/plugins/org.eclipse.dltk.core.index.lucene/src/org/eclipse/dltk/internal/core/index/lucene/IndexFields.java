@@ -28,6 +28,11 @@ public final class IndexFields {
 	public static final String F_CC_NAME = "ccName"; //$NON-NLS-1$
 	public static final String F_QUALIFIER = "qualifier"; //$NON-NLS-1$
 	public static final String F_PARENT = "parent"; //$NON-NLS-1$
+	/**
+	 * Multi-valued field with the indexes of the declaration modifier bits
+	 * which are set, e.g. <code>"0"</code> for the bit <code>1 << 0</code>.
+	 */
+	public static final String F_FLAG = "flag"; //$NON-NLS-1$
 	// Numeric doc values
 	public static final String NDV_TIMESTAMP = "timestampNDV"; //$NON-NLS-1$
 	public static final String NDV_OFFSET = "offsetNDV"; //$NON-NLS-1$
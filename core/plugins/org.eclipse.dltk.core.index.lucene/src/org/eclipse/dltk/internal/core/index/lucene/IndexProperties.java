@@ -26,7 +26,7 @@ public final class IndexProperties {
 	public static final String KEY_MODEL_VERSION = PREFIX + "model.version"; //$NON-NLS-1$
 	public static final String KEY_LUCENE_VERSION = PREFIX + "lucene.version"; //$NON-NLS-1$
 
-	public static final String MODEL_VERSION = "1.0"; //$NON-NLS-1$
+	public static final String MODEL_VERSION = "1.1"; //$NON-NLS-1$
 	public static final String LUCENE_VERSION = Version.LATEST.toString();
 
 }
\ No newline at end of file
@@ -12,10 +12,15 @@
 package org.eclipse.dltk.internal.core.index.lucene;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.apache.lucene.document.Document;
 import org.apache.lucene.index.BinaryDocValues;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.LeafReader;
@@ -36,6 +41,7 @@ import org.eclipse.dltk.core.ISourceModule;
 import org.eclipse.dltk.core.environment.EnvironmentPathUtils;
 import org.eclipse.dltk.core.environment.IFileHandle;
 import org.eclipse.dltk.core.index2.AbstractIndexer;
+import org.eclipse.dltk.core.index2.RecordingIndexingRequestor;
 import org.eclipse.dltk.core.index2.search.ISearchEngine;
 import org.eclipse.dltk.internal.core.ExternalSourceModule;
 import org.eclipse.dltk.internal.core.SourceModule;
@@ -88,8 +94,130 @@ public class LuceneIndexer extends AbstractIndexer {
 
 	}
 
+	/**
+	 * Document to be added to the index when the batch is flushed.
+	 */
+	private static final class PendingDocument {
+
+		final String fFile;
+		final IndexType fType;
+		final ReferenceInfo fInfo;
+		final long fTimestamp;
+
+		/**
+		 * @param file
+		 * @param type
+		 *            <code>null</code> for the time stamp document
+		 * @param info
+		 * @param timestamp
+		 */
+		PendingDocument(String file, IndexType type, ReferenceInfo info,
+				long timestamp) {
+			this.fFile = file;
+			this.fType = type;
+			this.fInfo = info;
+			this.fTimestamp = timestamp;
+		}
+
+		Document create(DocumentFactory factory) {
+			if (fType == null) {
+				return factory.createForTimestamp(fFile, fTimestamp);
+			} else if (fType == IndexType.DECLARATIONS) {
+				return factory.createForDeclaration(fFile,
+						(DeclarationInfo) fInfo);
+			} else {
+				return factory.createForReference(fFile, fInfo);
+			}
+		}
+	}
+
+	/**
+	 * Documents of the container being indexed in bulk. The documents are
+	 * buffered per index writer and added by
+	 * {@link IndexWriter#addDocuments(Iterable)} in blocks, reusing the
+	 * documents of the batch's own {@link DocumentFactory}.
+	 */
+	private static final class Batch {
+
+		/**
+		 * Number of the documents buffered for the writer before they are
+		 * added as a block.
+		 */
+		private static final int BLOCK_SIZE = 1000;
+
+		final String container;
+		private final Set<String> fIndexedDocuments;
+		private final DocumentFactory fFactory = new DocumentFactory();
+		private final Map<IndexWriter, List<PendingDocument>> fPending = new LinkedHashMap<>();
+
+		/**
+		 * @param container
+		 * @param indexedDocuments
+		 *            documents indexed before or <code>null</code> if unknown
+		 */
+		Batch(String container, Map<String, Long> indexedDocuments) {
+			this.container = container;
+			this.fIndexedDocuments = indexedDocuments != null
+					? indexedDocuments.keySet()
+					: null;
+		}
+
+		boolean mayBeIndexed(String file) {
+			return fIndexedDocuments == null
+					|| fIndexedDocuments.contains(file);
+		}
+
+		void add(PendingDocument document) {
+			final IndexWriter writer = document.fType == null
+					? LuceneManager.INSTANCE.findTimestampsWriter(container)
+					: LuceneManager.INSTANCE.findIndexWriter(container,
+							document.fType, document.fInfo.elementType);
+			List<PendingDocument> documents = fPending.get(writer);
+			if (documents == null) {
+				documents = new ArrayList<>();
+				fPending.put(writer, documents);
+			}
+			documents.add(document);
+			if (documents.size() >= BLOCK_SIZE) {
+				addDocuments(writer, documents);
+				documents.clear();
+			}
+		}
+
+		void flush() {
+			for (Map.Entry<IndexWriter, List<PendingDocument>> entry : fPending
+					.entrySet()) {
+				addDocuments(entry.getKey(), entry.getValue());
+			}
+			fPending.clear();
+		}
+
+		private void addDocuments(IndexWriter writer,
+				List<PendingDocument> documents) {
+			if (documents.isEmpty()) {
+				return;
+			}
+			// Writer consumes the documents one by one, so reuse is safe
+			final Iterable<Document> block = () -> documents.stream()
+					.map(document -> document.create(fFactory)).iterator();
+			try {
+				writer.addDocuments(block);
+			} catch (Exception e) {
+				// The whole block is discarded, add the documents separately
+				for (PendingDocument document : documents) {
+					try {
+						writer.addDocument(document.create(fFactory));
+					} catch (Exception ex) {
+						Logger.logException(ex);
+					}
+				}
+			}
+		}
+	}
+
 	private String fFile;
 	private String fContainer;
+	private Batch fBatch;
 
 	@Override
 	public ISearchEngine createSearchEngine() {
@@ -98,8 +226,12 @@ public class LuceneIndexer extends AbstractIndexer {
 
 	@Override
 	public Map<String, Long> getDocuments(IPath containerPath) {
+		Map<String, Long> documents = findDocuments(containerPath.toString());
+		return documents != null ? documents : Collections.emptyMap();
+	}
+
+	private Map<String, Long> findDocuments(String container) {
 		IndexSearcher indexSearcher = null;
-		String container = containerPath.toString();
 		try {
 			final Map<String, Long> result = new HashMap<>();
 			indexSearcher = LuceneManager.INSTANCE
@@ -119,11 +251,43 @@ public class LuceneIndexer extends AbstractIndexer {
 				}
 			}
 		}
-		return Collections.emptyMap();
+		return null;
+	}
+
+	@Override
+	public void beginBatch(IPath containerPath) {
+		endBatch();
+		String container = containerPath.toString();
+		LuceneManager.INSTANCE.setBulkMode(container, true);
+		fBatch = new Batch(container, findDocuments(container));
+	}
+
+	@Override
+	public void endBatch() {
+		final Batch batch = fBatch;
+		if (batch == null) {
+			return;
+		}
+		fBatch = null;
+		try {
+			batch.flush();
+		} finally {
+			LuceneManager.INSTANCE.setBulkMode(batch.container, false);
+			LuceneManager.INSTANCE.commit(batch.container);
+		}
+	}
+
+	private boolean isBatched() {
+		return fBatch != null && fBatch.container.equals(fContainer);
 	}
 
 	@Override
 	public void addDeclaration(DeclarationInfo info) {
+		if (isBatched()) {
+			fBatch.add(new PendingDocument(fFile, IndexType.DECLARATIONS,
+					info, 0));
+			return;
+		}
 		IndexWriter writer = LuceneManager.INSTANCE.findIndexWriter(fContainer,
 				IndexType.DECLARATIONS, info.elementType);
 		try {
@@ -136,6 +300,11 @@ public class LuceneIndexer extends AbstractIndexer {
 
 	@Override
 	public void addReference(ReferenceInfo info) {
+		if (isBatched()) {
+			fBatch.add(
+					new PendingDocument(fFile, IndexType.REFERENCES, info, 0));
+			return;
+		}
 		IndexWriter writer = LuceneManager.INSTANCE.findIndexWriter(fContainer,
 				IndexType.REFERENCES, info.elementType);
 		try {
@@ -148,6 +317,18 @@ public class LuceneIndexer extends AbstractIndexer {
 
 	@Override
 	public void indexDocument(ISourceModule sourceModule) {
+		indexDocument(sourceModule, null);
+	}
+
+	@Override
+	public boolean isParallelParsingSupported() {
+		// elements are recorded without touching the writers
+		return true;
+	}
+
+	@Override
+	public void indexDocument(ISourceModule sourceModule,
+			RecordingIndexingRequestor recording) {
 		final IFileHandle fileHandle = EnvironmentPathUtils
 				.getFile(sourceModule);
 		IDLTKLanguageToolkit toolkit = DLTKLanguageManager
@@ -156,27 +337,62 @@ public class LuceneIndexer extends AbstractIndexer {
 			return;
 		}
 		resetDocument(sourceModule, toolkit);
+		// Saved contents replace the reconciled ones
+		ReconcileOverlay.INSTANCE.remove(fContainer, fFile);
 		long lastModified = fileHandle == null ? 0 : fileHandle.lastModified();
-		// Cleanup and write new info...
-		LuceneManager.INSTANCE.delete(fContainer, fFile);
-		IndexWriter indexWriter = LuceneManager.INSTANCE
-				.findTimestampsWriter(fContainer);
-		try {
-			indexWriter.addDocument(DocumentFactory.INSTANCE
-					.createForTimestamp(fFile, lastModified));
-		} catch (Exception e) {
-			Logger.logException(e);
+		if (isBatched()) {
+			// Cleanup only if indexed before, new info is written in blocks
+			if (fBatch.mayBeIndexed(fFile)) {
+				LuceneManager.INSTANCE.delete(fContainer, fFile);
+			}
+			fBatch.add(new PendingDocument(fFile, null, null, lastModified));
+		} else {
+			// Cleanup and write new info...
+			LuceneManager.INSTANCE.delete(fContainer, fFile);
+			IndexWriter indexWriter = LuceneManager.INSTANCE
+					.findTimestampsWriter(fContainer);
+			try {
+				indexWriter.addDocument(DocumentFactory.INSTANCE
+						.createForTimestamp(fFile, lastModified));
+			} catch (Exception e) {
+				Logger.logException(e);
+			}
+		}
+		if (recording != null) {
+			recording.replay(this);
+		} else {
+			super.indexDocument(sourceModule);
 		}
-		super.indexDocument(sourceModule);
+	}
+
+	@Override
+	public void reconcileDocument(IPath containerPath, String relativePath,
+			ISourceModule workingCopy) {
+		IDLTKLanguageToolkit toolkit = DLTKLanguageManager
+				.getLanguageToolkit(workingCopy);
+		if (toolkit == null) {
+			return;
+		}
+		resetDocument(workingCopy, toolkit);
+		// Persisted index is updated on save only
+		ReconcileOverlay.INSTANCE.update(fContainer, fFile, workingCopy,
+				prepareDocument(workingCopy));
 	}
 
 	@Override
 	public void removeContainer(IPath containerPath) {
+		ReconcileOverlay.INSTANCE.remove(containerPath.toString());
 		LuceneManager.INSTANCE.delete(containerPath.toString());
 	}
 
 	@Override
 	public void removeDocument(IPath containerPath, String sourceModulePath) {
+		if (fBatch != null) {
+			// Buffered documents must be deleted too
+			fBatch.flush();
+		}
+		ReconcileOverlay.INSTANCE.remove(containerPath.toString(),
+				sourceModulePath);
 		LuceneManager.INSTANCE.delete(containerPath.toString(),
 				sourceModulePath);
 
@@ -198,6 +198,33 @@ public enum LuceneManager {
 		}
 	}
 
+	/**
+	 * Switches the writers of given container to/from the bulk mode.
+	 * 
+	 * @param container
+	 * @param bulk
+	 */
+	public final void setBulkMode(String container, boolean bulk) {
+		getIndexContainer(container).setBulkMode(bulk);
+	}
+
+	/**
+	 * Commits the changes of given container and refreshes its searchers.
+	 * 
+	 * @param container
+	 */
+	public final void commit(String container) {
+		IndexContainer indexContainer = getIndexContainer(container);
+		try {
+			if (indexContainer.hasChanges()) {
+				indexContainer.commit();
+				indexContainer.refresh();
+			}
+		} catch (Exception e) {
+			Logger.logException(e);
+		}
+	}
+
 	private List<IndexContainer> getDirtyContainers() {
 		List<IndexContainer> uncommittedContainers = new ArrayList<>();
 		synchronized (fIndexContainers) {
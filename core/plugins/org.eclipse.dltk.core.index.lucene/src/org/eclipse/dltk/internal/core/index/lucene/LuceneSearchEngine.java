@@ -19,6 +19,7 @@ import static org.eclipse.dltk.internal.core.index.lucene.IndexFields.BDV_PATH;
 import static org.eclipse.dltk.internal.core.index.lucene.IndexFields.BDV_QUALIFIER;
 import static org.eclipse.dltk.internal.core.index.lucene.IndexFields.F_CC_NAME;
 import static org.eclipse.dltk.internal.core.index.lucene.IndexFields.F_ELEMENT_NAME_LC;
+import static org.eclipse.dltk.internal.core.index.lucene.IndexFields.F_FLAG;
 import static org.eclipse.dltk.internal.core.index.lucene.IndexFields.F_PARENT;
 import static org.eclipse.dltk.internal.core.index.lucene.IndexFields.F_PATH;
 import static org.eclipse.dltk.internal.core.index.lucene.IndexFields.F_QUALIFIER;
@@ -32,11 +33,14 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
-import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
 
 import org.apache.lucene.index.BinaryDocValues;
 import org.apache.lucene.index.LeafReader;
@@ -45,6 +49,7 @@ import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.LeafCollector;
@@ -56,6 +61,7 @@ import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.util.BytesRef;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -113,6 +119,124 @@ public class LuceneSearchEngine implements ISearchEngineExtension {
 
 	}
 
+	/**
+	 * Matches collected from the single index segment.
+	 */
+	private static final class Matches {
+
+		final List<SearchMatch> fMatches;
+		final boolean fReferences;
+
+		Matches(List<SearchMatch> matches, boolean references) {
+			this.fMatches = matches;
+			this.fReferences = references;
+		}
+	}
+
+	/**
+	 * Matches of the search tasks, delivered to the search requestor by the
+	 * thread which started the search as soon as each index segment is
+	 * collected, instead of waiting for all the tasks to complete.
+	 */
+	private static final class SearchResults {
+
+		/**
+		 * Marker of the completed task.
+		 */
+		private static final Matches DONE = new Matches(
+				Collections.emptyList(), false);
+
+		private final BlockingQueue<Matches> fQueue = new LinkedBlockingQueue<>();
+		private final IProgressMonitor fMonitor;
+		private volatile boolean fStopped;
+
+		SearchResults(IProgressMonitor monitor) {
+			this.fMonitor = monitor;
+		}
+
+		/**
+		 * Returns <code>true</code> if no more matches are needed, i.e. the
+		 * limit is reached or the search is canceled.
+		 */
+		boolean isStopped() {
+			if (!fStopped && fMonitor != null && fMonitor.isCanceled()) {
+				fStopped = true;
+			}
+			return fStopped;
+		}
+
+		void add(Matches matches) {
+			if (!matches.fMatches.isEmpty() && !isStopped()) {
+				fQueue.add(matches);
+			}
+		}
+
+		void done() {
+			fQueue.add(DONE);
+		}
+
+		/**
+		 * Passes the matches to the handler until the given number of tasks
+		 * is completed or no more matches are needed.
+		 */
+		void deliver(int tasks, int limit, SearchMatchHandler handler) {
+			int count = 0;
+			while (tasks > 0 && !isStopped()) {
+				final Matches matches = take();
+				if (matches == null) {
+					fStopped = true;
+				} else if (matches == DONE) {
+					--tasks;
+				} else {
+					for (SearchMatch match : matches.fMatches) {
+						if (handler.handle(match, matches.fReferences)
+								&& limit > 0 && ++count >= limit) {
+							fStopped = true;
+							break;
+						}
+					}
+				}
+			}
+		}
+
+		private Matches take() {
+			final QueueBlocker blocker = new QueueBlocker(fQueue);
+			try {
+				// Allows to wait in the pool thread, e.g. if the search is
+				// started from the other fork/join task
+				ForkJoinPool.managedBlock(blocker);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
+			return blocker.fMatches;
+		}
+	}
+
+	private static final class QueueBlocker
+			implements ForkJoinPool.ManagedBlocker {
+
+		private final BlockingQueue<Matches> fQueue;
+		Matches fMatches;
+
+		QueueBlocker(BlockingQueue<Matches> queue) {
+			this.fQueue = queue;
+		}
+
+		@Override
+		public boolean block() throws InterruptedException {
+			if (fMatches == null) {
+				fMatches = fQueue.take();
+			}
+			return true;
+		}
+
+		@Override
+		public boolean isReleasable() {
+			return fMatches != null || (fMatches = fQueue.poll()) != null;
+		}
+	}
+
 	private static final class ResultsCollector implements Collector {
 
 		private static final String[] NUMERIC_FIELDS = new String[] {
@@ -121,19 +245,36 @@ public class LuceneSearchEngine implements ISearchEngineExtension {
 		private static final String[] BINARY_FIELDS = new String[] { BDV_PATH,
 				BDV_ELEMENT_NAME, BDV_QUALIFIER, BDV_PARENT, BDV_METADATA,
 				BDV_DOC };
+		/**
+		 * Limit or cancellation is checked once per this number of
+		 * documents.
+		 */
+		private static final int CHECK_STOPPED_MASK = 0xFF;
 		private Map<String, NumericDocValues> fDocNumericValues;
 		private Map<String, BinaryDocValues> fDocBinaryValues;
 		private String fContainer;
 		private int fElementType;
-		private List<SearchMatch> fResult = new LinkedList<>();
+		private final boolean fReferences;
+		private final SearchResults fResults;
+		private List<SearchMatch> fLeafMatches = new ArrayList<>();
+		private int fCollected;
 
-		public ResultsCollector(String container, int elementType) {
+		public ResultsCollector(String container, int elementType,
+				boolean references, SearchResults results) {
 			this.fContainer = container;
 			this.fElementType = elementType;
+			this.fReferences = references;
+			this.fResults = results;
 		}
 
-		public List<SearchMatch> getfResult() {
-			return fResult;
+		/**
+		 * Passes the matches of the last collected segment to the results.
+		 */
+		public void flush() {
+			if (!fLeafMatches.isEmpty()) {
+				fResults.add(new Matches(fLeafMatches, fReferences));
+				fLeafMatches = new ArrayList<>();
+			}
 		}
 
 		@Override
@@ -144,6 +285,11 @@ public class LuceneSearchEngine implements ISearchEngineExtension {
 		@Override
 		public LeafCollector getLeafCollector(final LeafReaderContext context)
 				throws IOException {
+			flush();
+			if (fResults.isStopped()) {
+				// Skips the remaining segments
+				throw new CollectionTerminatedException();
+			}
 			final LeafReader reader = context.reader();
 			fDocNumericValues = new HashMap<>();
 			for (String field : NUMERIC_FIELDS) {
@@ -167,13 +313,17 @@ public class LuceneSearchEngine implements ISearchEngineExtension {
 
 				@Override
 				public void collect(int docId) throws IOException {
+					if ((++fCollected & CHECK_STOPPED_MASK) == 0
+							&& fResults.isStopped()) {
+						throw new CollectionTerminatedException();
+					}
 					addResult(docId);
 				}
 			};
 		}
 
 		private void addResult(int docId) {
-			fResult.add(new SearchMatch(fContainer, fElementType,
+			fLeafMatches.add(new SearchMatch(fContainer, fElementType,
 					getNumericValue(NDV_OFFSET, docId),
 					getNumericValue(NDV_LENGTH, docId),
 					getNumericValue(NDV_NAME_OFFSET, docId),
@@ -242,32 +392,28 @@ public class LuceneSearchEngine implements ISearchEngineExtension {
 		boolean searchForRefs = searchFor == SearchFor.REFERENCES
 				|| searchFor == SearchFor.ALL_OCCURRENCES;
 
-		List<SearchTask> tasks = new LinkedList<>();
+		List<SearchTask> tasks = new ArrayList<>();
 		List<String> containers = SearchScope.getContainers(scope);
 		List<String> scripts = SearchScope.getScripts(scope);
 		final SearchMatchHandler searchMatchHandler = new SearchMatchHandler(
 				scope, requestor);
+		final SearchResults results = new SearchResults(monitor);
 		if (searchForRefs) {
 			for (String container : containers) {
 				tasks.add(new SearchTask(elementType, qualifier, elementName,
 						parent, trueFlags, falseFlags, true, matchRule, scripts,
-						container));
+						container, results));
 			}
-			tasks.stream().map(ForkJoinTask::fork).forEach(t -> t.join()
-					.stream().forEach(m -> searchMatchHandler.handle(m, true)));
-
 		}
 		if (searchForDecls) {
-			tasks.clear();
 			for (String container : containers) {
 				tasks.add(new SearchTask(elementType, qualifier, elementName,
 						parent, trueFlags, falseFlags, false, matchRule,
-						scripts, container));
+						scripts, container, results));
 			}
-			tasks.stream().map(ForkJoinTask::fork)
-					.forEach(t -> t.join().stream()
-							.forEach(m -> searchMatchHandler.handle(m, false)));
 		}
+		tasks.forEach(ForkJoinTask::fork);
+		results.deliver(tasks.size(), limit, searchMatchHandler);
 	}
 
 	private Query createQuery(final String elementName, final String qualifier,
@@ -311,15 +457,47 @@ public class LuceneSearchEngine implements ISearchEngineExtension {
 			queryBuilder.add(new TermQuery(new Term(F_PARENT, parent)),
 					Occur.FILTER);
 		}
-		if (trueFlags != 0 || falseFlags != 0) {
-			queryBuilder.add(new BitFlagsQuery(trueFlags, falseFlags),
-					Occur.FILTER);
+		if (trueFlags != 0) {
+			queryBuilder.add(createFlagsQuery(trueFlags), Occur.FILTER);
+		}
+		if (falseFlags != 0) {
+			if (queryBuilder.build().clauses().isEmpty()) {
+				// Pure negative query does not match anything
+				queryBuilder.add(new MatchAllDocsQuery(), Occur.FILTER);
+			}
+			for (int flags = falseFlags; flags != 0; flags &= flags - 1) {
+				queryBuilder.add(createFlagQuery(flags), Occur.MUST_NOT);
+			}
 		}
 		BooleanQuery query = queryBuilder.build();
 		return query.clauses().isEmpty() ? null : query;
 	}
 
-	private class SearchTask extends RecursiveTask<List<SearchMatch>> {
+	/**
+	 * Creates query matching the declarations having any of the given
+	 * modifier bits set, by the union of the related postings.
+	 */
+	private Query createFlagsQuery(int flags) {
+		if ((flags & (flags - 1)) == 0) {
+			return createFlagQuery(flags);
+		}
+		BooleanQuery.Builder flagsQueryBuilder = new BooleanQuery.Builder();
+		for (; flags != 0; flags &= flags - 1) {
+			flagsQueryBuilder.add(createFlagQuery(flags), Occur.SHOULD);
+		}
+		return flagsQueryBuilder.build();
+	}
+
+	/**
+	 * Creates query matching the declarations having the lowest of the given
+	 * modifier bits set.
+	 */
+	private Query createFlagQuery(int flags) {
+		return new TermQuery(new Term(F_FLAG, DocumentFactory
+				.flagValue(Integer.numberOfTrailingZeros(flags))));
+	}
+
+	private class SearchTask extends RecursiveAction {
 		int elementType;
 		String qualifier;
 		String elementName;
@@ -330,11 +508,13 @@ public class LuceneSearchEngine implements ISearchEngineExtension {
 		MatchRule matchRule;
 		List<String> scripts;
 		String container;
+		SearchResults results;
 
 		private SearchTask(int elementType, String qualifier,
 				String elementName, String parent, int trueFlags,
 				final int falseFlags, boolean searchForRefs,
-				MatchRule matchRule, List<String> scripts, String container) {
+				MatchRule matchRule, List<String> scripts, String container,
+				SearchResults results) {
 			this.elementType = elementType;
 			this.qualifier = qualifier;
 			this.elementName = elementName;
@@ -345,33 +525,64 @@ public class LuceneSearchEngine implements ISearchEngineExtension {
 			this.matchRule = matchRule;
 			this.scripts = scripts;
 			this.container = container;
+			this.results = results;
 		}
 
 		@Override
-		protected List<SearchMatch> compute() {
-			SearcherManager searcherManager = LuceneManager.INSTANCE
-					.findIndexSearcher(container,
-							searchForRefs ? IndexType.REFERENCES
-									: IndexType.DECLARATIONS,
-							elementType);
+		protected void compute() {
+			try {
+				search();
+			} finally {
+				results.done();
+			}
+		}
+
+		private void search() {
+			if (results.isStopped()) {
+				return;
+			}
+			IndexType dataType = searchForRefs ? IndexType.REFERENCES
+					: IndexType.DECLARATIONS;
+			Query query = createQuery(elementName, qualifier, parent,
+					trueFlags, falseFlags, searchForRefs, matchRule, scripts);
+			if (query == null) {
+				query = new MatchAllDocsQuery();
+			}
+			ResultsCollector collector = new ResultsCollector(container,
+					elementType, searchForRefs, results);
+			Set<String> shadowed = ReconcileOverlay.INSTANCE
+					.getShadowedFiles(container);
+			Query persistedQuery = query;
+			if (!shadowed.isEmpty()) {
+				// Hide persisted documents of the reconciled working copies
+				BooleanQuery.Builder builder = new BooleanQuery.Builder();
+				builder.add(query, Occur.FILTER);
+				for (String file : shadowed) {
+					builder.add(new TermQuery(
+							new Term(F_PATH, file)),
+							Occur.MUST_NOT);
+				}
+				persistedQuery = builder.build();
+			}
+			search(LuceneManager.INSTANCE.findIndexSearcher(container,
+					dataType, elementType), persistedQuery, collector);
+			if (!shadowed.isEmpty() && !results.isStopped()) {
+				search(ReconcileOverlay.INSTANCE.findIndexSearcher(container,
+						dataType, elementType), query, collector);
+			}
+		}
+
+		private void search(SearcherManager searcherManager, Query query,
+				ResultsCollector collector) {
 			if (searcherManager == null) {
-				return Collections.emptyList();
+				return;
 			}
 			IndexSearcher indexSearcher = null;
 			try {
 				indexSearcher = searcherManager.acquire();
-				Query query = createQuery(elementName, qualifier, parent,
-						trueFlags, falseFlags, searchForRefs, matchRule,
-						scripts);
-				ResultsCollector collector = new ResultsCollector(container,
-						elementType);
-				if (query != null) {
-					indexSearcher.search(query, collector);
-				} else {
-					indexSearcher.search(new MatchAllDocsQuery(), collector);
-				}
-				return collector.getfResult();
-			} catch (IOException e) {
+				indexSearcher.search(query, collector);
+				collector.flush();
+			} catch (IOException | AlreadyClosedException e) {
 				Logger.logException(e);
 			} finally {
 				if (indexSearcher != null) {
@@ -382,7 +593,6 @@ public class LuceneSearchEngine implements ISearchEngineExtension {
 					}
 				}
 			}
-			return Collections.emptyList();
 		}
 	}
 
@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.core.index.lucene;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.analysis.core.SimpleAnalyzer;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.core.index2.IIndexingRequestor;
+import org.eclipse.dltk.core.index2.RecordingIndexingRequestor;
+
+/**
+ * <p>
+ * In-memory index of the reconciled working copies contents, kept for the
+ * session only. The persisted index is not touched while the working copy is
+ * edited, the search engine merges the overlay results with the persisted ones
+ * hiding the persisted documents of the reconciled files.
+ * </p>
+ * <p>
+ * The overlay document is dropped when the source module is indexed again
+ * (e.g. after save) or removed from the index, or when the working copy is
+ * discarded.
+ * </p>
+ */
+public enum ReconcileOverlay {
+
+	/**
+	 * Overlay instance.
+	 */
+	INSTANCE;
+
+	/**
+	 * In-memory index for the given data type and model element.
+	 */
+	private static final class OverlayIndex {
+
+		final IndexWriter fWriter;
+		final SearcherManager fSearcher;
+
+		OverlayIndex() throws IOException {
+			IndexWriterConfig config = new IndexWriterConfig(
+					new SimpleAnalyzer());
+			config.setCommitOnClose(false);
+			fWriter = new IndexWriter(new ByteBuffersDirectory(), config);
+			fSearcher = new SearcherManager(fWriter, new SearcherFactory());
+		}
+
+		void close() {
+			try {
+				fSearcher.close();
+				fWriter.close();
+			} catch (IOException e) {
+				Logger.logException(e);
+			}
+		}
+	}
+
+	/**
+	 * Reconciled files of the container.
+	 */
+	private static final class OverlayContainer {
+
+		final Map<String, ISourceModule> fFiles = new HashMap<>();
+		final Map<IndexType, Map<Integer, OverlayIndex>> fIndexes = new HashMap<>();
+
+		OverlayIndex getIndex(IndexType dataType, int elementType)
+				throws IOException {
+			Map<Integer, OverlayIndex> indexes = fIndexes.get(dataType);
+			if (indexes == null) {
+				indexes = new HashMap<>();
+				fIndexes.put(dataType, indexes);
+			}
+			OverlayIndex index = indexes.get(elementType);
+			if (index == null) {
+				index = new OverlayIndex();
+				indexes.put(elementType, index);
+			}
+			return index;
+		}
+
+		void delete(String file) throws IOException {
+			Term term = new Term(IndexFields.F_PATH, file);
+			for (Map<Integer, OverlayIndex> indexes : fIndexes.values()) {
+				for (OverlayIndex index : indexes.values()) {
+					index.fWriter.deleteDocuments(term);
+				}
+			}
+		}
+
+		void refresh() throws IOException {
+			for (Map<Integer, OverlayIndex> indexes : fIndexes.values()) {
+				for (OverlayIndex index : indexes.values()) {
+					index.fSearcher.maybeRefreshBlocking();
+				}
+			}
+		}
+
+		void close() {
+			for (Map<Integer, OverlayIndex> indexes : fIndexes.values()) {
+				for (OverlayIndex index : indexes.values()) {
+					index.close();
+				}
+			}
+			fIndexes.clear();
+		}
+	}
+
+	private final Map<String, OverlayContainer> fContainers = new HashMap<>();
+
+	/**
+	 * Replaces the overlay document of the reconciled working copy with the
+	 * recorded elements.
+	 *
+	 * @param container
+	 * @param file
+	 * @param workingCopy
+	 * @param elements
+	 */
+	public synchronized void update(String container, String file,
+			ISourceModule workingCopy, RecordingIndexingRequestor elements) {
+		OverlayContainer overlay = fContainers.get(container);
+		if (overlay == null) {
+			overlay = new OverlayContainer();
+			fContainers.put(container, overlay);
+		}
+		final OverlayContainer target = overlay;
+		try {
+			target.delete(file);
+			target.fFiles.put(file, workingCopy);
+			final DocumentFactory factory = new DocumentFactory();
+			elements.replay(new IIndexingRequestor() {
+				@Override
+				public void addDeclaration(DeclarationInfo info) {
+					try {
+						target.getIndex(IndexType.DECLARATIONS,
+								info.elementType).fWriter.addDocument(
+										factory.createForDeclaration(file,
+												info));
+					} catch (Exception e) {
+						Logger.logException(e);
+					}
+				}
+
+				@Override
+				public void addReference(ReferenceInfo info) {
+					try {
+						target.getIndex(IndexType.REFERENCES,
+								info.elementType).fWriter.addDocument(
+										factory.createForReference(file,
+												info));
+					} catch (Exception e) {
+						Logger.logException(e);
+					}
+				}
+			});
+			target.refresh();
+		} catch (IOException e) {
+			Logger.logException(e);
+		}
+	}
+
+	/**
+	 * Drops the overlay document of given file, if any.
+	 *
+	 * @param container
+	 * @param file
+	 */
+	public synchronized void remove(String container, String file) {
+		OverlayContainer overlay = fContainers.get(container);
+		if (overlay != null && overlay.fFiles.remove(file) != null) {
+			if (overlay.fFiles.isEmpty()) {
+				overlay.close();
+				fContainers.remove(container);
+				return;
+			}
+			try {
+				overlay.delete(file);
+				overlay.refresh();
+			} catch (IOException e) {
+				Logger.logException(e);
+			}
+		}
+	}
+
+	/**
+	 * Drops all the overlay documents of given container.
+	 *
+	 * @param container
+	 */
+	public synchronized void remove(String container) {
+		OverlayContainer overlay = fContainers.remove(container);
+		if (overlay != null) {
+			overlay.close();
+		}
+	}
+
+	/**
+	 * Returns the files of given container having the overlay documents, the
+	 * persisted documents of these files are shadowed. The files of the
+	 * discarded working copies are dropped.
+	 *
+	 * @param container
+	 * @return files having the overlay documents
+	 */
+	public synchronized Set<String> getShadowedFiles(String container) {
+		OverlayContainer overlay = fContainers.get(container);
+		if (overlay == null) {
+			return Collections.emptySet();
+		}
+		Set<String> discarded = null;
+		for (Iterator<Map.Entry<String, ISourceModule>> i = overlay.fFiles
+				.entrySet().iterator(); i.hasNext();) {
+			Map.Entry<String, ISourceModule> entry = i.next();
+			if (!entry.getValue().isWorkingCopy()) {
+				if (discarded == null) {
+					discarded = new HashSet<>();
+				}
+				discarded.add(entry.getKey());
+			}
+		}
+		if (discarded != null) {
+			for (String file : discarded) {
+				remove(container, file);
+			}
+			if (!fContainers.containsKey(container)) {
+				return Collections.emptySet();
+			}
+		}
+		return new HashSet<>(overlay.fFiles.keySet());
+	}
+
+	/**
+	 * Returns the overlay index searcher for given container, data type and
+	 * model element or <code>null</code> if there is no such overlay index.
+	 *
+	 * @param container
+	 * @param dataType
+	 * @param elementType
+	 * @return overlay index searcher or <code>null</code>
+	 */
+	public synchronized SearcherManager findIndexSearcher(String container,
+			IndexType dataType, int elementType) {
+		OverlayContainer overlay = fContainers.get(container);
+		if (overlay == null) {
+			return null;
+		}
+		Map<Integer, OverlayIndex> indexes = overlay.fIndexes.get(dataType);
+		OverlayIndex index = indexes != null ? indexes.get(elementType) : null;
+		return index != null ? index.fSearcher : null;
+	}
+}
@@ -88,8 +88,10 @@ public class SearchMatchHandler {
 	 * 
 	 * @param match
 	 * @param isReference
+	 * @return <code>true</code> if the match was passed to the requestor,
+	 *         <code>false</code> if it is filtered out
 	 */
-	public void handle(SearchMatch match, boolean isReference) {
+	public boolean handle(SearchMatch match, boolean isReference) {
 		String containerPath = match.container;
 		IDLTKLanguageToolkit toolkit = ((DLTKSearchScope) fScope)
 				.getLanguageToolkit();
@@ -117,10 +119,10 @@ public class SearchMatchHandler {
 			fProjectFragmentCache.put(containerPath, projectFragment);
 		}
 		if (projectFragment == null) {
-			return;
+			return false;
 		}
 		if (!fScope.encloses(resourcePath)) {
-			return;
+			return false;
 		}
 		ISourceModule sourceModule = fSourceModuleCache.get(resourcePath);
 		if (sourceModule == null) {
@@ -155,7 +157,7 @@ public class SearchMatchHandler {
 		}
 		String name = match.elementName;
 		if (name == null) {
-			return;
+			return false;
 		}
 		ModelManager modelManager = ModelManager.getModelManager();
 		name = modelManager.intern(name);
@@ -164,7 +166,7 @@ public class SearchMatchHandler {
 				match.length, match.nameOffset, match.nameLength, name,
 				match.metadata, match.doc, match.qualifier, match.parent,
 				sourceModule, isReference);
-
+		return true;
 	}
 
 }
\ No newline at end of file
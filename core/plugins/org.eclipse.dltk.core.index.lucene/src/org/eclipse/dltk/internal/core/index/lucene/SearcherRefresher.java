@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.core.index.lucene;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.store.AlreadyClosedException;
+
+/**
+ * <p>
+ * Background refresher shared by the index searchers of all the containers,
+ * similar to the Lucene's <code>ControlledRealTimeReopenThread</code> but with
+ * the single thread for any number of searchers. The registered searchers are
+ * reopened at most {@link #getMaxStaleness()} milliseconds after the changes
+ * are made, or as soon as possible when the refresh is requested after a
+ * commit, so the searches never pay for the reopen themselves.
+ * </p>
+ * <p>
+ * The thread is started when the first searcher is registered and stops when
+ * the last one is unregistered.
+ * </p>
+ */
+final class SearcherRefresher {
+
+	/**
+	 * The shared refresher instance.
+	 */
+	static final SearcherRefresher INSTANCE = new SearcherRefresher(
+			(long) IndexContainer.getTuning("maxStaleMillis", 1000)); //$NON-NLS-1$
+
+	private final Set<ReferenceManager<?>> fManagers = new LinkedHashSet<>();
+	private final long fMaxStaleNanos;
+	private Thread fThread;
+	private boolean fRequested;
+
+	SearcherRefresher(long maxStaleMillis) {
+		this.fMaxStaleNanos = TimeUnit.MILLISECONDS
+				.toNanos(Math.max(1, maxStaleMillis));
+	}
+
+	/**
+	 * Returns the maximum time in milliseconds the searchers could lag behind
+	 * the writers.
+	 */
+	long getMaxStaleness() {
+		return TimeUnit.NANOSECONDS.toMillis(fMaxStaleNanos);
+	}
+
+	/**
+	 * Registers the searcher to be refreshed in background.
+	 *
+	 * @param manager
+	 */
+	synchronized void register(ReferenceManager<?> manager) {
+		if (fManagers.add(manager) && fThread == null) {
+			fThread = new Thread(this::run, "DLTK Lucene Searcher Refresher"); //$NON-NLS-1$
+			fThread.setDaemon(true);
+			fThread.start();
+		}
+	}
+
+	/**
+	 * Unregisters the searcher, must be called before the searcher is closed.
+	 *
+	 * @param manager
+	 */
+	synchronized void unregister(ReferenceManager<?> manager) {
+		if (fManagers.remove(manager) && fManagers.isEmpty()) {
+			fThread = null;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Requests the registered searchers to be refreshed without waiting for
+	 * the maximum staleness to elapse, e.g. after a commit. Does not block.
+	 */
+	synchronized void requestRefresh() {
+		fRequested = true;
+		notifyAll();
+	}
+
+	private void run() {
+		final Thread current = Thread.currentThread();
+		while (true) {
+			final List<ReferenceManager<?>> managers;
+			synchronized (this) {
+				long deadline = System.nanoTime() + fMaxStaleNanos;
+				while (fThread == current && !fRequested) {
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						break;
+					}
+					try {
+						TimeUnit.NANOSECONDS.timedWait(this, remaining);
+					} catch (InterruptedException e) {
+						fThread = null;
+						return;
+					}
+				}
+				if (fThread != current) {
+					return;
+				}
+				fRequested = false;
+				managers = new ArrayList<>(fManagers);
+			}
+			for (ReferenceManager<?> manager : managers) {
+				try {
+					// Does nothing if the searcher is current or is being
+					// refreshed by another thread
+					manager.maybeRefresh();
+				} catch (AlreadyClosedException e) {
+					// Container is being closed
+				} catch (IOException e) {
+					Logger.logException(e);
+				}
+			}
+		}
+	}
+}
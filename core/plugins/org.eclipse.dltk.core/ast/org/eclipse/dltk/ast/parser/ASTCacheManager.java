@@ -13,33 +13,44 @@ public class ASTCacheManager {
 	private static SimpleClassDLTKExtensionManager manager = new SimpleClassDLTKExtensionManager(
 			DLTKCore.PLUGIN_ID + ".astCache");
 
-	private static Map<String, IASTCache[]> providers = null;
+	/**
+	 * Published once completely built, so the readers never see the partially
+	 * filled map.
+	 */
+	private static volatile Map<String, IASTCache[]> providers = null;
 
 	public static IASTCache[] getProviders(String lang) {
-		if (providers == null) {
+		Map<String, IASTCache[]> result = providers;
+		if (result == null) {
 			synchronized (ASTCacheManager.class) {
-				providers = new HashMap<>();
-
-				ElementInfo[] infos = manager.getElementInfos();
-				Map<String, List<IASTCache>> langToElementList = new HashMap<>();
-				// Fill element names and sort elements by language
-				for (int i = 0; i < infos.length; i++) {
-					String langauge = infos[i].getConfig().getAttribute("language");
-					List<IASTCache> elements = langToElementList.get(langauge);
-					if (elements == null) {
-						elements = new ArrayList<>();
-						langToElementList.put(langauge, elements);
-					}
-					elements.add((IASTCache) manager.getInitObject(infos[i]));
-				}
-				for (Map.Entry<String, List<IASTCache>> entry : langToElementList.entrySet()) {
-					List<IASTCache> list = entry.getValue();
-					IASTCache[] result = list.toArray(new IASTCache[list.size()]);
-					providers.put(entry.getKey(), result);
+				result = providers;
+				if (result == null) {
+					result = loadProviders();
+					providers = result;
 				}
 			}
+		}
+		return result.get(lang);
+	}
 
+	private static Map<String, IASTCache[]> loadProviders() {
+		final Map<String, IASTCache[]> result = new HashMap<>();
+		ElementInfo[] infos = manager.getElementInfos();
+		Map<String, List<IASTCache>> langToElementList = new HashMap<>();
+		// Fill element names and sort elements by language
+		for (int i = 0; i < infos.length; i++) {
+			String langauge = infos[i].getConfig().getAttribute("language");
+			List<IASTCache> elements = langToElementList.get(langauge);
+			if (elements == null) {
+				elements = new ArrayList<>();
+				langToElementList.put(langauge, elements);
+			}
+			elements.add((IASTCache) manager.getInitObject(infos[i]));
+		}
+		for (Map.Entry<String, List<IASTCache>> entry : langToElementList.entrySet()) {
+			List<IASTCache> list = entry.getValue();
+			result.put(entry.getKey(), list.toArray(new IASTCache[list.size()]));
 		}
-		return providers.get(lang);
+		return result;
 	}
 }
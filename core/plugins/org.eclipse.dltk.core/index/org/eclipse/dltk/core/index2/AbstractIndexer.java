@@ -12,6 +12,7 @@
  *******************************************************************************/
 package org.eclipse.dltk.core.index2;
 
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.dltk.core.DLTKLanguageManager;
 import org.eclipse.dltk.core.IDLTKLanguageToolkit;
 import org.eclipse.dltk.core.ISourceModule;
@@ -34,6 +35,96 @@ public abstract class AbstractIndexer implements IIndexer, IIndexingRequestor {
 
 	@Override
 	public void indexDocument(ISourceModule sourceModule) {
+		parseDocument(sourceModule, this);
+	}
+
+	/**
+	 * Notifies the indexer that the following calls are for the documents of
+	 * the specified container, so the changes could be buffered and written
+	 * in bulk until {@link #endBatch()} is called. Does nothing by default.
+	 * 
+	 * @since 6.2
+	 */
+	public void beginBatch(IPath containerPath) {
+	}
+
+	/**
+	 * Writes and commits the changes buffered since
+	 * {@link #beginBatch(IPath)}. Does nothing by default.
+	 * 
+	 * @since 6.2
+	 */
+	public void endBatch() {
+	}
+
+	/**
+	 * Indexes the reconciled contents of the working copy. By default the
+	 * document is replaced in the index, indexers could keep the unsaved
+	 * contents separately until the source module is indexed again after
+	 * save.
+	 * 
+	 * @param containerPath
+	 *            Container path
+	 * @param relativePath
+	 *            Document path relative to the container path
+	 * @param workingCopy
+	 *            the reconciled working copy
+	 * @since 6.2
+	 */
+	public void reconcileDocument(IPath containerPath, String relativePath,
+			ISourceModule workingCopy) {
+		removeDocument(containerPath, relativePath);
+		indexDocument(workingCopy);
+	}
+
+	/**
+	 * Answers if {@link #prepareDocument(ISourceModule)} could be called
+	 * concurrently for the different source modules.
+	 * 
+	 * @since 6.2
+	 */
+	public boolean isParallelParsingSupported() {
+		return false;
+	}
+
+	/**
+	 * Parses the source module recording the reported elements without
+	 * modifying the index. The result is passed to
+	 * {@link #indexDocument(ISourceModule, RecordingIndexingRequestor)} later.
+	 * 
+	 * @since 6.2
+	 */
+	public RecordingIndexingRequestor prepareDocument(
+			ISourceModule sourceModule) {
+		final RecordingIndexingRequestor recording = new RecordingIndexingRequestor();
+		parseDocument(sourceModule, recording);
+		return recording;
+	}
+
+	/**
+	 * Indexes the source module using the elements recorded by
+	 * {@link #prepareDocument(ISourceModule)}, if <code>recording</code> is
+	 * <code>null</code> then the source module is parsed.
+	 * 
+	 * @since 6.2
+	 */
+	public void indexDocument(ISourceModule sourceModule,
+			RecordingIndexingRequestor recording) {
+		if (recording != null) {
+			recording.replay(this);
+		} else {
+			indexDocument(sourceModule);
+		}
+	}
+
+	/**
+	 * Parses the source module reporting the elements to the specified
+	 * requestor.
+	 * 
+	 * @since 6.2
+	 */
+	protected void parseDocument(ISourceModule sourceModule,
+			IIndexingRequestor requestor) {
 		IDLTKLanguageToolkit toolkit = DLTKLanguageManager
 				.getLanguageToolkit(sourceModule);
 		if (toolkit == null) {
@@ -44,7 +135,7 @@ public abstract class AbstractIndexer implements IIndexer, IIndexingRequestor {
 		if (participant != null) {
 			IIndexingParser parser = participant.getIndexingParser();
 			if (parser != null) {
-				parser.parseSourceModule(sourceModule, this);
+				parser.parseSourceModule(sourceModule, requestor);
 			}
 		}
 	}
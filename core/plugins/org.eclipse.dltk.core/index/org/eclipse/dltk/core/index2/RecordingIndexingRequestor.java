@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.index2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Indexing requestor remembering the reported elements, so they could be
+ * passed to the indexer later, e.g. when the source modules are parsed
+ * concurrently while the index is updated by the single thread.
+ *
+ * @since 6.2
+ */
+public class RecordingIndexingRequestor implements IIndexingRequestor {
+
+	private final List<ReferenceInfo> elements = new ArrayList<>();
+
+	@Override
+	public void addDeclaration(DeclarationInfo info) {
+		elements.add(info);
+	}
+
+	@Override
+	public void addReference(ReferenceInfo info) {
+		elements.add(info);
+	}
+
+	/**
+	 * Reports the recorded elements to the specified requestor in the original
+	 * order.
+	 */
+	public void replay(IIndexingRequestor requestor) {
+		for (ReferenceInfo info : elements) {
+			if (info instanceof DeclarationInfo) {
+				requestor.addDeclaration((DeclarationInfo) info);
+			} else {
+				requestor.addReference(info);
+			}
+		}
+	}
+}
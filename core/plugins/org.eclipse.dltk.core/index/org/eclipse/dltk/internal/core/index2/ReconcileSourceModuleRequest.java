@@ -18,6 +18,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.dltk.core.IModelElement;
 import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.core.index2.AbstractIndexer;
 import org.eclipse.dltk.core.index2.IIndexer;
 import org.eclipse.dltk.core.index2.ProjectIndexer2;
 import org.eclipse.dltk.internal.core.SourceModule;
@@ -54,6 +55,12 @@ public class ReconcileSourceModuleRequest extends AddSourceModuleRequest {
 		String relativePath = Util.relativePath(sourceModule.getPath(),
 				containerPath.segmentCount());
 
+		if (indexer instanceof AbstractIndexer) {
+			((AbstractIndexer) indexer).reconcileDocument(containerPath,
+					relativePath, sourceModule);
+			return;
+		}
+
 		indexer.removeDocument(containerPath, relativePath);
 
 		// Now index from scratch:
@@ -21,9 +21,13 @@ import java.util.Set;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.dltk.core.DLTKCore;
 import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.core.index2.AbstractIndexer;
 import org.eclipse.dltk.core.index2.IIndexer;
 import org.eclipse.dltk.core.index2.ProjectIndexer2;
+import org.eclipse.dltk.core.index2.RecordingIndexingRequestor;
+import org.eclipse.dltk.internal.core.ModelManager;
 
 /**
  * Request for re-indexing a set of source modules. First, source modules are
@@ -35,6 +39,12 @@ import org.eclipse.dltk.core.index2.ProjectIndexer2;
  */
 public class SourceModulesRequest extends AbstractIndexRequest {
 
+	/**
+	 * Number of the source modules parsed concurrently before they are passed
+	 * to the indexer.
+	 */
+	private static final int PARALLEL_BATCH_SIZE = 64;
+
 	private final IPath containerPath;
 	private final Set<ISourceModule> sourceModules;
 
@@ -64,6 +74,25 @@ public class SourceModulesRequest extends AbstractIndexRequest {
 		analyzeSourceModuleChanges(containerPath, sourceModules, toRemove,
 				toReindex);
 
+		if (toRemove.isEmpty() && toReindex.isEmpty()) {
+			return;
+		}
+
+		if (indexer instanceof AbstractIndexer) {
+			final AbstractIndexer abstractIndexer = (AbstractIndexer) indexer;
+			abstractIndexer.beginBatch(containerPath);
+			try {
+				updateDocuments(indexer, toRemove, toReindex);
+			} finally {
+				abstractIndexer.endBatch();
+			}
+		} else {
+			updateDocuments(indexer, toRemove, toReindex);
+		}
+	}
+
+	private void updateDocuments(IIndexer indexer, Set<String> toRemove,
+			List<ISourceModule> toReindex) {
 		for (final String path : toRemove) {
 			if (isCancelled)
 				return;
@@ -73,6 +102,20 @@ public class SourceModulesRequest extends AbstractIndexRequest {
 		Collections.sort(toReindex, (m1, m2) -> m1.getPath().toString()
 				.compareTo(m2.getPath().toString()));
 
+		if (indexer instanceof AbstractIndexer
+				&& ((AbstractIndexer) indexer).isParallelParsingSupported()
+				&& DLTKCore.ENABLED.equals(DLTKCore
+						.getOption(DLTKCore.INDEXER_PARALLEL_PARSING))) {
+			final AbstractIndexer abstractIndexer = (AbstractIndexer) indexer;
+			for (int start = 0; start < toReindex.size()
+					&& !isCancelled; start += PARALLEL_BATCH_SIZE) {
+				indexInParallel(abstractIndexer, toReindex.subList(start,
+						Math.min(start + PARALLEL_BATCH_SIZE,
+								toReindex.size())));
+			}
+			return;
+		}
+
 		for (final ISourceModule sourceModule : toReindex) {
 			if (isCancelled)
 				return;
@@ -81,6 +124,35 @@ public class SourceModulesRequest extends AbstractIndexRequest {
 		}
 	}
 
+	/**
+	 * Parses the source modules concurrently, then passes the recorded
+	 * elements to the indexer from the current thread.
+	 */
+	private void indexInParallel(AbstractIndexer indexer,
+			List<ISourceModule> sourceModules) {
+		final RecordingIndexingRequestor[] recordings = new RecordingIndexingRequestor[sourceModules
+				.size()];
+		ModelManager.getModelManager().getIndexManager()
+				.runInParallel(recordings.length, i -> {
+					if (isCancelled) {
+						return;
+					}
+					try {
+						recordings[i] = indexer.prepareDocument(sourceModules.get(i));
+					} catch (RuntimeException e) {
+						// the module is parsed again sequentially below
+						if (DLTKCore.DEBUG) {
+							e.printStackTrace();
+						}
+					}
+				});
+		for (int i = 0; i < recordings.length && !isCancelled; ++i) {
+			final ISourceModule sourceModule = sourceModules.get(i);
+			reportToProgress(sourceModule);
+			indexer.indexDocument(sourceModule, recordings[i]);
+		}
+	}
+
 	@Override
 	public boolean belongsTo(String jobFamily) {
 		return jobFamily.equals(containerPath.toString());
@@ -381,7 +381,39 @@ public class DLTKCore extends Plugin {
 	 * Possible configurable option ID.
 	 */
 	public static final String INDEXER_ID = PLUGIN_ID + ".indexer.id"; //$NON-NLS-1$
+
+	/**
+	 * Possible configurable option ID. Value is the maximum number of the
+	 * indexing requests for different containers executed at the same time,
+	 * <code>"1"</code> means all the requests are processed sequentially. The
+	 * value is applied when the indexer is started.
+	 * 
+	 * @since 6.2
+	 */
+	public static final String INDEXER_THREADS = PLUGIN_ID + ".indexer.threads"; //$NON-NLS-1$
+
+	/**
+	 * Possible configurable option ID. Value should be {@link #ENABLED} or
+	 * {@link #DISABLED}. When enabled the source modules of the container are
+	 * parsed concurrently, while the index is still updated by the single
+	 * thread. Applies to the indexers supporting it only.
+	 * 
+	 * @since 6.2
+	 */
+	public static final String INDEXER_PARALLEL_PARSING = PLUGIN_ID
+			+ ".indexer.parallelParsing"; //$NON-NLS-1$
 	
+	/**
+	 * Possible configurable option ID. Value is the heap budget in megabytes
+	 * for the ASTs and other information cached per source module, the size of
+	 * the entries is estimated from their source ranges. The value is applied
+	 * when the model is started.
+	 * 
+	 * @since 6.2
+	 */
+	public static final String SOURCE_MODULE_CACHE_SIZE = PLUGIN_ID
+			+ ".sourceModuleCache.size"; //$NON-NLS-1$
+
 	/**
 	 * Possible project configurable option ID. Value is the identifier of
 	 * contributed {@link org.eclipse.dltk.ast.parser.ISourceParser}.
@@ -23,7 +23,7 @@ import org.eclipse.dltk.core.environment.IFileHandle;
 
 public abstract class AbstractContentCache implements IContentCache {
 	@Override
-	public synchronized String getCacheEntryAttributeString(IFileHandle handle,
+	public String getCacheEntryAttributeString(IFileHandle handle,
 			String attribute) {
 		return getCacheEntryAttributeString(handle, attribute, false);
 	}
@@ -32,7 +32,7 @@ public abstract class AbstractContentCache implements IContentCache {
 	 * @since 2.0
 	 */
 	@Override
-	public synchronized String getCacheEntryAttributeString(IFileHandle handle,
+	public String getCacheEntryAttributeString(IFileHandle handle,
 			String attribute, boolean localonly) {
 		InputStream stream = getCacheEntryAttribute(handle, attribute,
 				localonly);
@@ -85,7 +85,7 @@ public abstract class AbstractContentCache implements IContentCache {
 	}
 
 	@Override
-	public synchronized long getCacheEntryAttributeLong(IFileHandle handle,
+	public long getCacheEntryAttributeLong(IFileHandle handle,
 			String attribute) {
 		return getCacheEntryAttributeLong(handle, attribute, false);
 	}
@@ -94,7 +94,7 @@ public abstract class AbstractContentCache implements IContentCache {
 	 * @since 2.0
 	 */
 	@Override
-	public synchronized long getCacheEntryAttributeLong(IFileHandle handle,
+	public long getCacheEntryAttributeLong(IFileHandle handle,
 			String attribute, boolean localonly) {
 		InputStream stream = getCacheEntryAttribute(handle, attribute,
 				localonly);
@@ -19,7 +19,15 @@ public class AbstractDataLoader {
 	}
 
 	protected void readStrings() throws IOException {
-		int stringCount = in.readInt();
+		readStrings(in.readInt());
+	}
+
+	/**
+	 * Reads the string index when its size has been already read.
+	 *
+	 * @since 6.2
+	 */
+	protected void readStrings(int stringCount) throws IOException {
 		for (int i = 0; i < stringCount; ++i) {
 			stringIndex.add(new String(Util.readUTF(in)));
 		}
@@ -13,7 +13,16 @@ public abstract class AbstractDataSaver {
 	private static final int MAX_STR = 65500;
 	protected DataOutputStream out;
 	private List<String> stringIndex = new ArrayList<>();
-	private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+	private final DataBuffer data = new DataBuffer();
+
+	private static class DataBuffer extends ByteArrayOutputStream {
+		void putInt(int position, int value) {
+			buf[position] = (byte) (value >>> 24);
+			buf[position + 1] = (byte) (value >>> 16);
+			buf[position + 2] = (byte) (value >>> 8);
+			buf[position + 3] = (byte) value;
+		}
+	}
 
 	/**
 	 * @since 2.0
@@ -86,6 +95,28 @@ public abstract class AbstractDataSaver {
 		}
 	}
 
+	/**
+	 * Returns the number of data bytes written so far.
+	 *
+	 * @since 6.2
+	 */
+	protected int dataSize() {
+		return data.size();
+	}
+
+	/**
+	 * Overwrites the int value previously written at the specified position
+	 * of the data.
+	 *
+	 * @since 6.2
+	 */
+	protected void patchInt(int position, int value) {
+		if (position < 0 || position + 4 > data.size()) {
+			throw new IndexOutOfBoundsException(String.valueOf(position));
+		}
+		data.putInt(position, value);
+	}
+
 	/**
 	 * @since 2.0
 	 */
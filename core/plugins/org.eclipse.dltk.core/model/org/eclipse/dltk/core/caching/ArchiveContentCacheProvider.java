@@ -13,11 +13,15 @@ package org.eclipse.dltk.core.caching;
 
 import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
@@ -33,6 +37,7 @@ import org.eclipse.dltk.core.caching.cache.CacheEntry;
 import org.eclipse.dltk.core.caching.cache.CacheEntryAttribute;
 import org.eclipse.dltk.core.caching.cache.CacheIndex;
 import org.eclipse.dltk.core.environment.IFileHandle;
+import org.eclipse.dltk.internal.core.ModelManager;
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
@@ -47,6 +52,12 @@ import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
  */
 public class ArchiveContentCacheProvider implements IContentCacheProvider {
 	private static final String CHECK_TIMEOUT = ".dltk.core.archive.cache.lastaccess";
+	private static final String TIMESTAMP = "timestamp"; //$NON-NLS-1$
+	/**
+	 * Prefix of the folder attribute with the checksum of the imported index
+	 * file.
+	 */
+	private static final String CHECKSUM = ".dltk.core.archive.cache.checksum:"; //$NON-NLS-1$
 	private IContentCache cache;
 	private static final long CACHE_UPDATE_TIMEOUT = 1000 * 60 * 60; // One hour
 
@@ -92,6 +103,10 @@ public class ArchiveContentCacheProvider implements IContentCacheProvider {
 		return null;
 	}
 
+	/**
+	 * Imports the index files of the folder, several files are processed in
+	 * parallel.
+	 */
 	public static void processFolderIndexes(IFileHandle folder,
 			IContentCache cache, IProgressMonitor monitor) {
 		// cache.get
@@ -111,12 +126,29 @@ public class ArchiveContentCacheProvider implements IContentCacheProvider {
 					monitor, 1);
 			processingIndexes.beginTask("Processing index files",
 					indexFiles.size());
-			for (IFileHandle fileHandle : indexFiles) {
-				processingIndexes
-						.subTask("Processing:" + fileHandle.toOSString());
-				processIndexFile(null, null, folder, fileHandle, cache);
-				processingIndexes.worked(1);
-			}
+			// the blocking I/O is executed by the pool of the indexer, which
+			// returns when all the started files are processed
+			ModelManager.getModelManager().getIndexManager()
+					.runInParallel(indexFiles.size(), i -> {
+						final IFileHandle indexFile = indexFiles.get(i);
+						synchronized (processingIndexes) {
+							if (processingIndexes.isCanceled()) {
+								return;
+							}
+							processingIndexes.subTask(
+									"Processing:" + indexFile.toOSString());
+						}
+						try {
+							processIndexFile(null, null, folder, indexFile,
+									cache);
+						} catch (RuntimeException e) {
+							DLTKCore.error("Error processing index file " //$NON-NLS-1$
+									+ indexFile.toOSString(), e);
+						}
+						synchronized (processingIndexes) {
+							processingIndexes.worked(1);
+						}
+					});
 			processingIndexes.done();
 		}
 	}
@@ -126,7 +158,7 @@ public class ArchiveContentCacheProvider implements IContentCacheProvider {
 			IContentCache cache) {
 		if (indexFile != null && indexFile.exists()) {
 			String stamp = cache.getCacheEntryAttributeString(indexFile,
-					"timestamp", true);
+					TIMESTAMP, true);
 			String fStamp = Long.toString(indexFile.lastModified() / 1000);
 			if (stamp != null) {
 				if (fStamp.equals(stamp)) {
@@ -146,68 +178,110 @@ public class ArchiveContentCacheProvider implements IContentCacheProvider {
 		return false;
 	}
 
+	/**
+	 * Returns the checksum of the index file contents.
+	 */
+	private static String checksumIndexFile(IFileHandle indexFile)
+			throws IOException {
+		final CRC32 crc = new CRC32();
+		long length = 0;
+		try (InputStream inp = new CheckedInputStream(
+				indexFile.openInputStream(new NullProgressMonitor()), crc)) {
+			final byte[] buffer = new byte[8192];
+			for (int n; (n = inp.read(buffer)) != -1;) {
+				length += n;
+			}
+		}
+		return Long.toString(crc.getValue()) + ':' + length;
+	}
+
+	/**
+	 * Copies the index file to the cache, replacing the previous copy.
+	 */
+	private static void copyIndexFile(IFileHandle indexFile,
+			File zipFileHandle) throws IOException {
+		InputStream inp = new BufferedInputStream(
+				indexFile.openInputStream(new NullProgressMonitor()), 4096);
+		PerformanceNode p = RuntimePerformanceMonitor.begin();
+		Util.copy(zipFileHandle, inp);
+		inp.close();
+		p.done("#", "Indexes read", zipFileHandle.length(),
+				indexFile.getEnvironment());
+	}
+
+	/**
+	 * Imports the entries of the index file into the cache. The index file
+	 * with the same checksum as the one imported before from the folder is
+	 * not imported again, as its entries are already in the cache. The
+	 * attribute values are copied directly to the files of the cache, the
+	 * files for the attributes of the same entry are allocated at once.
+	 */
 	public static boolean processIndexFile(IFileHandle handle, String attribute,
 			IFileHandle parent, IFileHandle indexFile, String fStamp,
 			IContentCache cache) throws IOException, ZipException {
-		File zipFileHandle = cache.getEntryAsFile(indexFile, "handle");
-
-		if (!zipFileHandle.exists()) {
-			BufferedInputStream inp = new BufferedInputStream(
-					indexFile.openInputStream(new NullProgressMonitor()), 4096);
-			PerformanceNode p = RuntimePerformanceMonitor.begin();
-			Util.copy(zipFileHandle, inp);
-			inp.close();
-			p.done("#", "Indexes read", zipFileHandle.length(),
-					indexFile.getEnvironment());
+		final String checksum = checksumIndexFile(indexFile);
+		final String checksumAttribute = CHECKSUM + indexFile.getName();
+		if (checksum.equals(cache.getCacheEntryAttributeString(parent,
+				checksumAttribute, true))) {
+			cache.setCacheEntryAttribute(indexFile, TIMESTAMP, fStamp);
+			return false;
 		}
-		ZipFile zipFile = new ZipFile(zipFileHandle);
-
-		ZipEntry entry = zipFile.getEntry(".index");
-		Resource indexResource = new XMIResourceImpl(
-				URI.createURI("dltk_cache://zipIndex"));
-		indexResource.load(
-				new BufferedInputStream(zipFile.getInputStream(entry), 8096),
-				null);
-		EList<EObject> contents = indexResource.getContents();
+		File zipFileHandle = cache.getEntryAsFile(indexFile, "handle");
+		copyIndexFile(indexFile, zipFileHandle);
 		boolean found = false;
-		for (EObject eObject : contents) {
-			CacheIndex cacheIndex = (CacheIndex) eObject;
-			EList<CacheEntry> entries = cacheIndex.getEntries();
-			for (CacheEntry cacheEntry : entries) {
-				String path = cacheEntry.getPath();
-				IFileHandle entryHandle = new WrapTimeStampHandle(
-						parent.getChild(path), cacheEntry.getTimestamp());
-				// cache.setCacheEntryAttribute(entryHandle, "timestamp",
-				// cacheEntry.getTimestamp());
-				EList<CacheEntryAttribute> attributes = cacheEntry
-						.getAttributes();
-				for (CacheEntryAttribute cacheEntryAttribute : attributes) {
-					if (handle != null && attribute != null) {
-						if (attribute.equals(cacheEntryAttribute.getName())
-								&& cacheEntry.getPath()
-										.equals(handle.getName())) {
-							found = true;
-						}
+		try (ZipFile zipFile = new ZipFile(zipFileHandle)) {
+			ZipEntry entry = zipFile.getEntry(".index");
+			Resource indexResource = new XMIResourceImpl(
+					URI.createURI("dltk_cache://zipIndex"));
+			try (InputStream indexStream = new BufferedInputStream(
+					zipFile.getInputStream(entry), 8096)) {
+				indexResource.load(indexStream, null);
+			}
+			EList<EObject> contents = indexResource.getContents();
+			final byte[] buffer = new byte[8192];
+			for (EObject eObject : contents) {
+				CacheIndex cacheIndex = (CacheIndex) eObject;
+				EList<CacheEntry> entries = cacheIndex.getEntries();
+				for (CacheEntry cacheEntry : entries) {
+					String path = cacheEntry.getPath();
+					IFileHandle entryHandle = new WrapTimeStampHandle(
+							parent.getChild(path), cacheEntry.getTimestamp());
+					EList<CacheEntryAttribute> attributes = cacheEntry
+							.getAttributes();
+					final List<String> names = new ArrayList<>(
+							attributes.size());
+					for (CacheEntryAttribute cacheEntryAttribute : attributes) {
+						names.add(cacheEntryAttribute.getName());
 					}
-					OutputStream stream = null;
-					stream = cache.getCacheEntryAttributeOutputStream(
-							entryHandle, cacheEntryAttribute.getName());
-					String location = cacheEntryAttribute.getLocation();
-					ZipEntry zipEntry = zipFile.getEntry(location);
-					InputStream inputStream;
-					try {
-						inputStream = new BufferedInputStream(
-								zipFile.getInputStream(zipEntry), 8096);
-						Util.copy(inputStream, stream);
-						stream.close();
-						inputStream.close();
-					} catch (IOException e) {
-						e.printStackTrace();
+					final Map<String, File> files = cache
+							.getEntryAsFiles(entryHandle, names);
+					for (CacheEntryAttribute cacheEntryAttribute : attributes) {
+						if (handle != null && attribute != null) {
+							if (attribute.equals(cacheEntryAttribute.getName())
+									&& cacheEntry.getPath()
+											.equals(handle.getName())) {
+								found = true;
+							}
+						}
+						ZipEntry zipEntry = zipFile
+								.getEntry(cacheEntryAttribute.getLocation());
+						try (InputStream inputStream = zipFile
+								.getInputStream(zipEntry);
+								OutputStream stream = new FileOutputStream(
+										files.get(cacheEntryAttribute
+												.getName()))) {
+							for (int n; (n = inputStream.read(buffer)) != -1;) {
+								stream.write(buffer, 0, n);
+							}
+						} catch (IOException e) {
+							e.printStackTrace();
+						}
 					}
 				}
 			}
 		}
-		cache.setCacheEntryAttribute(indexFile, "timestamp", fStamp);
+		cache.setCacheEntryAttribute(parent, checksumAttribute, checksum);
+		cache.setCacheEntryAttribute(indexFile, TIMESTAMP, fStamp);
 		return found;
 	}
 
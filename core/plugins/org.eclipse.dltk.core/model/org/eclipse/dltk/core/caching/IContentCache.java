@@ -3,6 +3,9 @@ package org.eclipse.dltk.core.caching;
 import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.eclipse.dltk.core.environment.IFileHandle;
 
@@ -46,6 +49,21 @@ public interface IContentCache {
 
 	public File getEntryAsFile(IFileHandle handle, String attribute);
 
+	/**
+	 * Returns the files of the several attributes of the entry by attribute
+	 * name, the values could be written to them directly.
+	 *
+	 * @since 6.2
+	 */
+	default Map<String, File> getEntryAsFiles(IFileHandle handle,
+			Collection<String> attributes) {
+		final Map<String, File> result = new HashMap<>();
+		for (String attribute : attributes) {
+			result.put(attribute, getEntryAsFile(handle, attribute));
+		}
+		return result;
+	}
+
 	public void clear();
 
 	public boolean setCacheEntryAttribute(IFileHandle entryHandle,
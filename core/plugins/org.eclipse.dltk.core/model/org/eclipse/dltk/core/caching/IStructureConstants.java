@@ -38,4 +38,22 @@ public interface IStructureConstants {
 	@Deprecated
 	static final int TAG_UPDATE_FIELD = 23;
 
+	/**
+	 * Marker written before the version of the format. The old unversioned
+	 * format starts with the size of the string index which is never
+	 * negative.
+	 *
+	 * @since 6.2
+	 */
+	int FORMAT_MAGIC = 0xD17C5300;
+
+	/**
+	 * The current version of the format. Since version 2 the type and method
+	 * entries are followed by the length in bytes of their members, so the
+	 * members could be skipped when reading.
+	 *
+	 * @since 6.2
+	 */
+	int FORMAT_VERSION = 2;
+
 }
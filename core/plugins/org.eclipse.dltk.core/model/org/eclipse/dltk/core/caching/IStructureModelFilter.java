@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.caching;
+
+import org.eclipse.dltk.compiler.IElementRequestor.ElementInfo;
+
+/**
+ * Optional interface of the requestor replayed by the
+ * {@link StructureModelProcessor}, selecting the types and methods which
+ * members should be replayed. For the other ones only the enter and exit
+ * events are reported, their members are skipped without decoding.
+ *
+ * @since 6.2
+ */
+public interface IStructureModelFilter {
+
+	/**
+	 * Called after the type or method was entered.
+	 *
+	 * @param info
+	 *            the type or method info
+	 * @param depth
+	 *            the number of enclosing types and methods
+	 * @return <code>true</code> if the members should be replayed
+	 */
+	boolean acceptMembers(ElementInfo info, int depth);
+}
@@ -22,10 +22,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 import java.util.zip.CRC32;
 
 import org.eclipse.core.runtime.IPath;
@@ -35,140 +34,130 @@ import org.eclipse.dltk.core.RuntimePerformanceMonitor;
 import org.eclipse.dltk.core.RuntimePerformanceMonitor.PerformanceNode;
 import org.eclipse.dltk.core.caching.cache.CacheEntry;
 import org.eclipse.dltk.core.caching.cache.CacheEntryAttribute;
-import org.eclipse.dltk.core.caching.cache.CacheFactory;
 import org.eclipse.dltk.core.caching.cache.CacheIndex;
 import org.eclipse.dltk.core.environment.EnvironmentManager;
 import org.eclipse.dltk.core.environment.IEnvironment;
 import org.eclipse.dltk.core.environment.IFileHandle;
-import org.eclipse.emf.common.util.EList;
+import org.eclipse.dltk.internal.core.caching.ContentCacheIndex;
+import org.eclipse.dltk.internal.core.caching.ContentCacheIndex.Entry;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
 
 /**
  * This class is designed to store any kind of information into metadata cache.
+ * <p>
+ * The attribute values are stored in the separate files, while their
+ * locations are kept in the {@link ContentCacheIndex}, which is updated per
+ * entry and loaded partially on demand. The index stored in the XMI format by
+ * the previous versions is imported on the first use.
+ * </p>
  */
 public class MetadataContentCache extends AbstractContentCache {
 	private static final int DAY_IN_MILIS = 60;// 1000 * 60 * 60 * 24;
 	private static final int SAVE_DELTA = 1000 * 60; // Minute
-	private Resource indexResource = null;
+	private volatile ContentCacheIndex index = null;
 	private long newSaveTime = 0;
 
-	private static class EntryKey {
-		private String environment;
-		private String path;
-
-		public EntryKey(String environment, String path) {
-			this.environment = environment;
-			this.path = path;
-		}
-
-		@Override
-		public int hashCode() {
-			final int prime = 31;
-			int result = 1;
-			result = prime * result
-					+ ((environment == null) ? 0 : environment.hashCode());
-			result = prime * result + ((path == null) ? 0 : path.hashCode());
-			return result;
-		}
-
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj)
-				return true;
-			if (obj == null)
-				return false;
-			if (getClass() != obj.getClass())
-				return false;
-			EntryKey other = (EntryKey) obj;
-			if (environment == null) {
-				if (other.environment != null)
-					return false;
-			} else if (!environment.equals(other.environment))
-				return false;
-			if (path == null) {
-				if (other.path != null)
-					return false;
-			} else if (!path.equals(other.path))
-				return false;
-			return true;
-		}
-	}
-
-	private Map<EntryKey, CacheEntry> entryCache = new HashMap<>();
 	private IPath cacheLocation;
-	private CRC32 checksum = new CRC32();
 
 	public MetadataContentCache(IPath cacheLocation) {
 		this.cacheLocation = cacheLocation;
 	}
 
-	private synchronized void initialize() {
-		if (indexResource == null) {
-			File file = new File(cacheLocation.toOSString());
-			if (!file.exists()) {
-				file.mkdir();
+	private ContentCacheIndex getIndex() {
+		ContentCacheIndex result = index;
+		if (result == null) {
+			synchronized (this) {
+				if (index == null) {
+					index = initialize();
+				}
+				result = index;
 			}
+		}
+		return result;
+	}
 
-			IPath indexFile = cacheLocation.append("index");
-			indexResource = new XMIResourceImpl();
-			indexFileHandle = new File(indexFile.toOSString());
-			if (indexFileHandle.exists()) {
-				try {
-					BufferedInputStream loadStream = new BufferedInputStream(
-							new FileInputStream(indexFileHandle), 4096);
-					indexResource.load(loadStream, null);
-					loadStream.close();
-				} catch (Exception e) {
-					save(false);
-					if (DLTKCore.DEBUG) {
-						// e.printStackTrace();
-					}
-				}
+	private ContentCacheIndex initialize() {
+		File file = new File(cacheLocation.toOSString());
+		if (!file.exists()) {
+			file.mkdir();
+		}
+		final ContentCacheIndex result = new ContentCacheIndex(
+				cacheLocation.append("index.db").toFile()); //$NON-NLS-1$
+		final File oldIndexFile = cacheLocation.append("index").toFile(); //$NON-NLS-1$
+		if (oldIndexFile.exists()) {
+			if (result.isNew()) {
+				importIndex(oldIndexFile, result);
+			}
+			oldIndexFile.delete();
+		}
+		return result;
+	}
+
+	/**
+	 * Imports the index stored in the XMI format by the previous versions.
+	 */
+	private static void importIndex(File file, ContentCacheIndex target) {
+		final Resource indexResource = new XMIResourceImpl();
+		try (InputStream loadStream = new BufferedInputStream(
+				new FileInputStream(file), 4096)) {
+			indexResource.load(loadStream, null);
+		} catch (Exception e) {
+			if (DLTKCore.DEBUG) {
+				e.printStackTrace();
 			}
-			EList<EObject> contents = indexResource.getContents();
-			for (EObject eObject : contents) {
-				CacheIndex index = (CacheIndex) eObject;
-				// String to entry cache.
-				EList<CacheEntry> entries = index.getEntries();
-				for (CacheEntry cacheEntry : entries) {
-					entryCache.put(makeKey(cacheEntry), cacheEntry);
+			return;
+		}
+		for (EObject eObject : indexResource.getContents()) {
+			final CacheIndex cacheIndex = (CacheIndex) eObject;
+			final String environment = cacheIndex.getEnvironment();
+			for (CacheEntry cacheEntry : cacheIndex.getEntries()) {
+				Entry entry = new Entry(environment, cacheEntry.getPath(),
+						cacheEntry.getTimestamp());
+				for (CacheEntryAttribute attribute : cacheEntry
+						.getAttributes()) {
+					entry = entry.withAttribute(attribute.getName(),
+							attribute.getLocation());
 				}
+				final Entry imported = entry;
+				target.update(environment, imported.getPath(),
+						current -> imported);
 			}
+			target.updateIndex(environment, cacheIndex.getLastIndex());
 		}
+		target.flush();
 	}
 
-	private synchronized CacheEntry getEntry(IFileHandle handle) {
-		initialize();
-		EntryKey key = makeKey(handle);
-		if (entryCache.containsKey(key)) {
-			CacheEntry entry = entryCache.get(key);
-			long accessTime = entry.getLastAccessTime();
-			long timeMillis = System.currentTimeMillis();
-			if (timeMillis - accessTime > DAY_IN_MILIS) {
-				long entryTimestamp = entry.getTimestamp() / 1000;
-				long handleTimestamp = getHandleLastModification(handle) / 1000;
-				if (entryTimestamp == handleTimestamp) {
-					entry.setLastAccessTime(timeMillis);
-					return entry;
-				} else {
-					entry.setLastAccessTime(timeMillis);
-					removeCacheEntry(entry, key);
-				}
-			} else {
+	private static String getPath(IFileHandle handle) {
+		return handle.getPath().toPortableString();
+	}
+
+	private Entry getEntry(IFileHandle handle) {
+		final ContentCacheIndex index = getIndex();
+		final String environment = handle.getEnvironmentId();
+		final String path = getPath(handle);
+		final long timeMillis = System.currentTimeMillis();
+		final Entry entry = index.get(environment, path);
+		if (entry != null) {
+			if (timeMillis - entry.getLastAccessTime() <= DAY_IN_MILIS) {
+				entry.setLastAccessTime(timeMillis);
+				return entry;
+			}
+			long entryTimestamp = entry.getTimestamp() / 1000;
+			long handleTimestamp = getHandleLastModification(handle) / 1000;
+			if (entryTimestamp == handleTimestamp) {
 				entry.setLastAccessTime(timeMillis);
 				return entry;
 			}
+			removeCacheEntry(index, entry);
 		}
-		CacheIndex index = getCacheIndex(handle.getEnvironmentId());
-		CacheEntry entry = CacheFactory.eINSTANCE.createCacheEntry();
-		entry.setPath(handle.getPath().toPortableString());
-		entry.setTimestamp(getHandleLastModification(handle));
-		index.getEntries().add(entry);
-		entry.setLastAccessTime(System.currentTimeMillis());
-		entryCache.put(key, entry);
-		return entry;
+		final long timestamp = getHandleLastModification(handle);
+		final Entry result = index.update(environment, path,
+				current -> current != null ? current
+						: new Entry(environment, path, timestamp));
+		result.setLastAccessTime(timeMillis);
+		return result;
 	}
 
 	private long getHandleLastModification(IFileHandle handle) {
@@ -190,38 +179,31 @@ public class MetadataContentCache extends AbstractContentCache {
 		return handle.lastModified();
 	}
 
-	private CacheIndex getCacheIndex(String environmentId) {
-		EList<EObject> contents = indexResource.getContents();
-		for (EObject eObject : contents) {
-			CacheIndex index = (CacheIndex) eObject;
-			if (index.getEnvironment().equals(environmentId)) {
-				return index;
+	/**
+	 * Removes the entry if it was not changed concurrently and deletes the
+	 * files of its attributes.
+	 */
+	private void removeCacheEntry(ContentCacheIndex index, Entry entry) {
+		final Entry[] removed = new Entry[1];
+		index.update(entry.getEnvironment(), entry.getPath(), current -> {
+			if (current == entry) {
+				removed[0] = current;
+				return null;
 			}
+			return current;
+		});
+		if (removed[0] != null) {
+			removeAttributes(removed[0]);
 		}
-		CacheIndex index = CacheFactory.eINSTANCE.createCacheIndex();
-		index.setEnvironment(environmentId);
-		index.setLastIndex(0);
-		contents.add(index);
-		return index;
 	}
 
-	private void removeCacheEntry(CacheEntry entry, EntryKey key) {
-		if (entry == null || key == null) {
-			return;
+	private void removeAttributes(Entry entry) {
+		for (String location : entry.getAttributes().values()) {
+			removeAttribute(location);
 		}
-		// We need to remove old files
-		EList<CacheEntryAttribute> attributes = entry.getAttributes();
-		for (CacheEntryAttribute attr : attributes) {
-			removeAttribute(attr);
-		}
-		attributes.clear();
-		CacheIndex index = (CacheIndex) entry.eContainer();
-		index.getEntries().remove(entry);
-		entryCache.remove(key);
 	}
 
-	private void removeAttribute(CacheEntryAttribute attr) {
-		String location = attr.getLocation();
+	private void removeAttribute(String location) {
 		IPath cacheEntryFile = cacheLocation.append(location);
 		File file = new File(cacheEntryFile.toOSString());
 		if (file.exists()) {
@@ -229,42 +211,23 @@ public class MetadataContentCache extends AbstractContentCache {
 		}
 	}
 
-	private EntryKey makeKey(CacheEntry entry) {
-		CacheIndex index = (CacheIndex) entry.eContainer();
-		return new EntryKey(index.getEnvironment(), entry.getPath());
-	}
-
-	private EntryKey makeKey(IFileHandle handle) {
-		return new EntryKey(handle.getEnvironmentId(),
-				handle.getPath().toString());
-	}
-
-	long changeCount = 0;
-	private File indexFileHandle;
-
-	public synchronized void save(boolean countSaves) {
-		if (indexResource == null) {
+	public void save(boolean countSaves) {
+		final ContentCacheIndex index = this.index;
+		if (index == null) {
 			return;
 		}
 		if (countSaves) {
-			long current = System.currentTimeMillis();
-			if (current > newSaveTime) {
-				newSaveTime = current + SAVE_DELTA;
-			} else {
-				return;
-			}
-		}
-		try {
-			Map<String, Object> options = new HashMap<>();
-			options.put(Resource.OPTION_SAVE_ONLY_IF_CHANGED, Boolean.TRUE);
-			BufferedOutputStream outStream = new BufferedOutputStream(
-					new FileOutputStream(indexFileHandle), 4096);
-			indexResource.save(outStream, options);
-			outStream.close();
-		} catch (IOException e) {
-			if (DLTKCore.DEBUG) {
-				e.printStackTrace();
+			synchronized (this) {
+				long current = System.currentTimeMillis();
+				if (current > newSaveTime) {
+					newSaveTime = current + SAVE_DELTA;
+				} else {
+					return;
+				}
 			}
+			index.flush();
+		} else {
+			index.close();
 		}
 	}
 
@@ -275,18 +238,9 @@ public class MetadataContentCache extends AbstractContentCache {
 			return null;
 		}
 		File file = null;
-		CacheEntry entry = null;
-		synchronized (this) {
-			entry = getEntry(handle);
-			EList<CacheEntryAttribute> attributes = entry.getAttributes();
-			for (CacheEntryAttribute cacheEntryAttribute : attributes) {
-				if (cacheEntryAttribute.getName().equals(attribute)) {
-					file = new File(cacheLocation
-							.append(cacheEntryAttribute.getLocation())
-							.toOSString());
-					break;
-				}
-			}
+		final String location = getEntry(handle).getAttribute(attribute);
+		if (location != null) {
+			file = new File(cacheLocation.append(location).toOSString());
 		}
 		if (file != null && file.exists()) {
 			try {
@@ -315,8 +269,8 @@ public class MetadataContentCache extends AbstractContentCache {
 	}
 
 	@Override
-	public synchronized OutputStream getCacheEntryAttributeOutputStream(
-			IFileHandle handle, String attribute) {
+	public OutputStream getCacheEntryAttributeOutputStream(IFileHandle handle,
+			String attribute) {
 		File file = getEntryAsFile(handle, attribute);
 		try {
 			return new BufferedOutputStream(new FileOutputStream(file), 4096);
@@ -333,32 +287,79 @@ public class MetadataContentCache extends AbstractContentCache {
 		if (handle == null) {
 			return null;
 		}
-		CacheEntry entry = getEntry(handle);
-		File file = null;
-		EList<CacheEntryAttribute> attributes = entry.getAttributes();
-		for (CacheEntryAttribute cacheEntryAttribute : attributes) {
-			if (cacheEntryAttribute.getName().equals(attribute)) {
-				file = new File(
-						cacheLocation.append(cacheEntryAttribute.getLocation())
-								.toOSString());
-				return file;
-			}
+		final Entry entry = getEntry(handle);
+		String location = entry.getAttribute(attribute);
+		if (location == null) {
+			final String newLocation = generateNewLocation(handle.getPath(),
+					handle.getEnvironmentId()).toPortableString();
+			final Entry updated = getIndex().update(entry.getEnvironment(),
+					entry.getPath(), current -> {
+						if (current == null) {
+							current = new Entry(entry.getEnvironment(),
+									entry.getPath(), entry.getTimestamp());
+						}
+						return current.getAttribute(attribute) != null
+								? current
+								: current.withAttribute(attribute, newLocation);
+					});
+			location = updated.getAttribute(attribute);
+			save(true);
 		}
+		return new File(cacheLocation.append(location).toOSString());
+	}
 
-		IPath location = generateNewLocation(handle.getPath(),
-				handle.getEnvironmentId());
-		CacheEntryAttribute attrEntry = CacheFactory.eINSTANCE
-				.createCacheEntryAttribute();
-		attrEntry.setLocation(location.toPortableString());
-		attrEntry.setName(attribute);
-		entry.getAttributes().add(attrEntry);
-		save(true);
-		file = new File(cacheLocation.append(location).toOSString());
-		return file;
+	/**
+	 * Adds the missing attributes to the entry with the single update.
+	 *
+	 * @since 6.2
+	 */
+	@Override
+	public Map<String, File> getEntryAsFiles(IFileHandle handle,
+			Collection<String> attributes) {
+		if (handle == null) {
+			return null;
+		}
+		final Entry entry = getEntry(handle);
+		final Map<String, String> newLocations = new HashMap<>();
+		for (String attribute : attributes) {
+			if (entry.getAttribute(attribute) == null) {
+				newLocations.put(attribute,
+						generateNewLocation(handle.getPath(),
+								handle.getEnvironmentId()).toPortableString());
+			}
+		}
+		Entry updated = entry;
+		if (!newLocations.isEmpty()) {
+			updated = getIndex().update(entry.getEnvironment(),
+					entry.getPath(), current -> {
+						if (current == null) {
+							current = new Entry(entry.getEnvironment(),
+									entry.getPath(), entry.getTimestamp());
+						}
+						for (Map.Entry<String, String> location : newLocations
+								.entrySet()) {
+							if (current.getAttribute(
+									location.getKey()) == null) {
+								current = current.withAttribute(
+										location.getKey(), location.getValue());
+							}
+						}
+						return current;
+					});
+			save(true);
+		}
+		final Map<String, File> result = new HashMap<>();
+		for (String attribute : attributes) {
+			result.put(attribute,
+					new File(cacheLocation
+							.append(updated.getAttribute(attribute))
+							.toOSString()));
+		}
+		return result;
 	}
 
 	private IPath generateNewLocation(IPath path, String environment) {
-		checksum.reset();
+		final CRC32 checksum = new CRC32();
 		checksum.update(environment.getBytes());
 		IPath indexPath = cacheLocation
 				.append(Long.toString(checksum.getValue()));
@@ -374,14 +375,13 @@ public class MetadataContentCache extends AbstractContentCache {
 		if (!folderFile.exists()) {
 			folderFile.mkdir();
 		}
-		CacheIndex index = getCacheIndex(environment);
-		IPath location = null;
-		long i = index.getLastIndex() + 1;
+		final ContentCacheIndex index = getIndex();
 		while (true) {
-			location = folder.append(Long.toString(i++) + ".idx");
+			IPath location = folder
+					.append(Long.toString(index.nextIndex(environment))
+							+ ".idx"); //$NON-NLS-1$
 			File file = new File(location.toOSString());
 			if (!file.exists()) {
-				index.setLastIndex(i);
 				return location
 						.removeFirstSegments(cacheLocation.segmentCount())
 						.setDevice(null);
@@ -390,42 +390,45 @@ public class MetadataContentCache extends AbstractContentCache {
 	}
 
 	@Override
-	public synchronized void removeCacheEntryAttributes(IFileHandle handle,
+	public void removeCacheEntryAttributes(IFileHandle handle,
 			String attribute) {
 		if (handle == null) {
 			return;
 		}
-		CacheEntry entry = getEntry(handle);
-		EList<CacheEntryAttribute> attributes = entry.getAttributes();
-		for (CacheEntryAttribute cacheEntryAttribute : attributes) {
-			if (cacheEntryAttribute.getName().equals(attribute)) {
-				removeAttribute(cacheEntryAttribute);
-				attributes.remove(cacheEntryAttribute);
-				save(true);
-				return;
-			}
+		final Entry entry = getEntry(handle);
+		final String[] removed = new String[1];
+		getIndex().update(entry.getEnvironment(), entry.getPath(),
+				current -> {
+					if (current == null) {
+						return null;
+					}
+					removed[0] = current.getAttribute(attribute);
+					return current.withoutAttribute(attribute);
+				});
+		if (removed[0] != null) {
+			removeAttribute(removed[0]);
+			save(true);
 		}
 	}
 
 	@Override
-	public synchronized void clearCacheEntryAttributes(IFileHandle handle) {
+	public void clearCacheEntryAttributes(IFileHandle handle) {
 		if (handle == null) {
 			return;
 		}
-		EntryKey key = makeKey(handle);
-		if (entryCache.containsKey(key)) {
-			CacheEntry entry = entryCache.get(key);
-			removeCacheEntry(entry, key);
+		final Entry removed = getIndex().remove(handle.getEnvironmentId(),
+				getPath(handle));
+		if (removed != null) {
+			removeAttributes(removed);
 			save(true);
 		}
 	}
 
 	@Override
-	public synchronized void clear() {
-		initialize();
-		Set<EntryKey> keySet = new HashSet<>(entryCache.keySet());
-		for (EntryKey k : keySet) {
-			removeCacheEntry(entryCache.get(k), k);
+	public void clear() {
+		final ContentCacheIndex index = getIndex();
+		for (Entry entry : index.getEntries()) {
+			removeCacheEntry(index, entry);
 		}
 		save(true);
 	}
@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.caching;
+
+import org.eclipse.dltk.ast.parser.IASTCache;
+import org.eclipse.dltk.ast.parser.IModuleDeclaration;
+import org.eclipse.dltk.compiler.problem.ProblemCollector;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.internal.core.ModelManager;
+import org.eclipse.dltk.internal.core.caching.PersistentASTCache;
+
+/**
+ * {@link IASTCache} storing the ASTs in the built-in persistent cache shared
+ * by the languages. Only the trees built from the core node classes are
+ * stored, so the language opts in by contributing this class to the
+ * <code>org.eclipse.dltk.core.astCache</code> extension point if its parser
+ * produces such trees:
+ *
+ * <pre>
+ * &lt;extension point=&quot;org.eclipse.dltk.core.astCache&quot;&gt;
+ *    &lt;astCache language=&quot;...&quot;
+ *       class=&quot;org.eclipse.dltk.core.caching.PersistentASTCacheProvider&quot;/&gt;
+ * &lt;/extension&gt;
+ * </pre>
+ *
+ * @see PersistentASTCache
+ * @since 6.2
+ */
+public class PersistentASTCacheProvider implements IASTCache {
+
+	@Override
+	public ASTCacheEntry restoreModule(ISourceModule module) {
+		return ModelManager.getModelManager().getASTCache()
+				.restoreModule(module);
+	}
+
+	@Override
+	public void storeModule(ISourceModule module,
+			IModuleDeclaration moduleDeclaration, ProblemCollector problems) {
+		ModelManager.getModelManager().getASTCache().storeModule(module,
+				moduleDeclaration, problems);
+	}
+}
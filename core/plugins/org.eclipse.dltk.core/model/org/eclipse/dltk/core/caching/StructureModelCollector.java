@@ -12,7 +12,10 @@
 package org.eclipse.dltk.core.caching;
 
 import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 import org.eclipse.dltk.compiler.ISourceElementRequestor;
 import org.eclipse.dltk.core.DLTKCore;
@@ -22,6 +25,12 @@ public class StructureModelCollector extends AbstractDataSaver implements
 
 	private ISourceElementRequestor baseRequestor;
 
+	/**
+	 * Positions of the member lengths of the entered types and methods, or
+	 * <code>-1</code> for the appended types.
+	 */
+	private final Deque<Integer> blocks = new ArrayDeque<>();
+
 	public StructureModelCollector(ISourceElementRequestor requestor) {
 		this.baseRequestor = requestor;
 	}
@@ -33,6 +42,26 @@ public class StructureModelCollector extends AbstractDataSaver implements
 		out.writeInt(tag);
 	}
 
+	/**
+	 * Reserves the length of the members of the entered type or method.
+	 */
+	private void beginBlock() throws IOException {
+		blocks.push(dataSize());
+		out.writeInt(0);
+	}
+
+	/**
+	 * Stores the length of the members of the exited type or method.
+	 */
+	private void endBlock() {
+		if (!blocks.isEmpty()) {
+			final int position = blocks.pop();
+			if (position >= 0) {
+				patchInt(position, dataSize() - position - 4);
+			}
+		}
+	}
+
 	private void writeString(String[] strs) throws IOException {
 		if (strs == null) {
 			out.writeInt(0);
@@ -172,6 +201,7 @@ public class StructureModelCollector extends AbstractDataSaver implements
 		try {
 			writeTag(TAG_ENTER_METHOD);
 			writeMethodInfo(info);
+			beginBlock();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -186,6 +216,7 @@ public class StructureModelCollector extends AbstractDataSaver implements
 		try {
 			writeTag(TAG_ENTER_METHOD_REMOVE_SAME);
 			writeMethodInfo(info);
+			beginBlock();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -220,6 +251,7 @@ public class StructureModelCollector extends AbstractDataSaver implements
 		try {
 			writeTag(TAG_ENTER_TYPE);
 			writeTypeInfo(info);
+			beginBlock();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -233,6 +265,9 @@ public class StructureModelCollector extends AbstractDataSaver implements
 			writeTag(TAG_ENTER_TYPE_APPEND);
 			writeString(fullName);
 			writeString(delimiter);
+			if (result) {
+				blocks.push(-1);
+			}
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -254,6 +289,7 @@ public class StructureModelCollector extends AbstractDataSaver implements
 	public void exitMethod(int declarationEnd) {
 		this.baseRequestor.exitMethod(declarationEnd);
 		try {
+			endBlock();
 			writeTag(TAG_EXIT_METHOD);
 			out.writeInt(declarationEnd);
 		} catch (IOException e) {
@@ -286,6 +322,7 @@ public class StructureModelCollector extends AbstractDataSaver implements
 	public void exitType(int declarationEnd) {
 		this.baseRequestor.exitType(declarationEnd);
 		try {
+			endBlock();
 			writeTag(TAG_EXIT_TYPE);
 			out.writeInt(declarationEnd);
 		} catch (IOException e) {
@@ -332,9 +369,17 @@ public class StructureModelCollector extends AbstractDataSaver implements
 		}
 	}
 
+	/**
+	 * Returns the collected structure in the {@link #FORMAT_VERSION current}
+	 * format.
+	 */
 	public byte[] getBytes() {
 		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
 		try {
+			final DataOutputStream header = new DataOutputStream(stream);
+			header.writeInt(FORMAT_MAGIC);
+			header.writeInt(FORMAT_VERSION);
+			header.flush();
 			saveTo(stream);
 		} catch (IOException e) {
 			if (DLTKCore.DEBUG) {
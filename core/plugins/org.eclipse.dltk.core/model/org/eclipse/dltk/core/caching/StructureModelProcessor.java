@@ -15,18 +15,82 @@ public class StructureModelProcessor extends AbstractDataLoader implements
 		IStructureConstants {
 
 	private ISourceElementRequestor requestor;
-
+	private IStructureModelFilter filter;
+	private int version;
+	private int depth;
+
+	/**
+	 * If the requestor implements {@link IStructureModelFilter} it is used to
+	 * select the members to replay.
+	 */
 	public StructureModelProcessor(InputStream stream,
 			ISourceElementRequestor requestor) {
 		super(stream);
 		this.requestor = requestor;
+		if (requestor instanceof IStructureModelFilter) {
+			this.filter = (IStructureModelFilter) requestor;
+		}
+	}
+
+	/**
+	 * Sets the filter selecting the types and methods which members are
+	 * replayed. The filter is ignored for the data in the old format without
+	 * the member lengths, everything is replayed then.
+	 *
+	 * @since 6.2
+	 */
+	public void setFilter(IStructureModelFilter filter) {
+		this.filter = filter;
 	}
 
 	public void perform() throws IOException {
-		readStrings();
+		int stringCount = in.readInt();
+		if (stringCount == FORMAT_MAGIC) {
+			version = in.readInt();
+			if (version > FORMAT_VERSION) {
+				throw new IOException(
+						"Unsupported structure format version " + version); //$NON-NLS-1$
+			}
+			stringCount = in.readInt();
+		} else {
+			version = 1;
+		}
+		readStrings(stringCount);
 		readData();
 	}
 
+	/**
+	 * Reads the length of the members of the entered type or method and skips
+	 * them if they are not accepted by the filter.
+	 */
+	private void enterBlock(ElementInfo info) throws IOException {
+		if (version >= 2) {
+			final int length = in.readInt();
+			if (filter != null && !filter.acceptMembers(info, depth)) {
+				skip(length);
+			}
+		}
+		++depth;
+	}
+
+	private void exitBlock() {
+		if (depth > 0) {
+			--depth;
+		}
+	}
+
+	private void skip(int length) throws IOException {
+		while (length > 0) {
+			final int skipped = in.skipBytes(length);
+			if (skipped > 0) {
+				length -= skipped;
+			} else {
+				in.readByte();
+				--length;
+			}
+		}
+	}
+
 	private void readData() {
 		while (true) {
 			try {
@@ -95,6 +159,12 @@ public class StructureModelProcessor extends AbstractDataLoader implements
 				case TAG_ACCEPT_IMPORT:
 					acceptImport();
 					break;
+				case TAG_ENTER_NAMESPACE:
+					enterNamespace();
+					break;
+				case TAG_EXIT_NAMESPACE:
+					this.requestor.exitNamespace();
+					break;
 				}
 			} catch (EOFException e) {
 				break;
@@ -266,6 +336,7 @@ public class StructureModelProcessor extends AbstractDataLoader implements
 			MethodInfo info = new MethodInfo();
 			readMethodInfo(info);
 			this.requestor.enterMethod(info);
+			enterBlock(info);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -276,6 +347,7 @@ public class StructureModelProcessor extends AbstractDataLoader implements
 			MethodInfo info = new MethodInfo();
 			readMethodInfo(info);
 			this.requestor.enterMethodRemoveSame(info);
+			enterBlock(info);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -310,6 +382,7 @@ public class StructureModelProcessor extends AbstractDataLoader implements
 			TypeInfo info = new TypeInfo();
 			readTypeInfo(info);
 			this.requestor.enterType(info);
+			enterBlock(info);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -319,7 +392,12 @@ public class StructureModelProcessor extends AbstractDataLoader implements
 		try {
 			String fullName = readString();
 			String delimiter = readString();
-			return this.requestor.enterTypeAppend(fullName, delimiter);
+			final boolean result = this.requestor.enterTypeAppend(fullName,
+					delimiter);
+			if (result) {
+				++depth;
+			}
+			return result;
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -336,6 +414,7 @@ public class StructureModelProcessor extends AbstractDataLoader implements
 
 	public void exitMethod() {
 		try {
+			exitBlock();
 			this.requestor.exitMethod(in.readInt());
 		} catch (IOException e) {
 			e.printStackTrace();
@@ -356,12 +435,21 @@ public class StructureModelProcessor extends AbstractDataLoader implements
 
 	public void exitType() {
 		try {
+			exitBlock();
 			this.requestor.exitType(in.readInt());
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 
+	private void enterNamespace() {
+		try {
+			this.requestor.enterNamespace(readDataStringsStr());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
 	private void acceptImport() {
 		try {
 			ImportInfo importInfo = new ImportInfo();
@@ -45,7 +45,14 @@ public class DLTKCorePreferenceInitializer
 		defaultOptionsMap.put(DLTKCore.CORE_ENABLE_BUILDPATH_EXCLUSION_PATTERNS,
 				DLTKCore.ENABLED);
 		defaultOptionsMap.put(DLTKCore.INDEXER_ENABLED, DLTKCore.ENABLED);
+		defaultOptionsMap.put(DLTKCore.INDEXER_THREADS,
+				Integer.toString(Math.max(1, Math.min(4,
+						Runtime.getRuntime().availableProcessors() / 2))));
+		defaultOptionsMap.put(DLTKCore.INDEXER_PARALLEL_PARSING,
+				DLTKCore.ENABLED);
 		defaultOptionsMap.put(DLTKCore.BUILDER_ENABLED, DLTKCore.ENABLED);
+		defaultOptionsMap.put(DLTKCore.SOURCE_MODULE_CACHE_SIZE, Long.toString(
+				SourceModuleInfoCache.getDefaultBudget() >> 20));
 		defaultOptionsMap.put(DLTKCore.CODEASSIST_CAMEL_CASE_MATCH,
 				DLTKCore.ENABLED);
 		defaultOptionsMap.put(DLTKCore.CODEASSIST_SUBSTRING_MATCH,
@@ -211,6 +211,11 @@ public class DeltaProcessor {
 	private final ModelUpdater modelUpdater = new ModelUpdater();
 	/* A set of IDLTKProject whose caches need to be reset */
 	private HashSet<IScriptProject> projectCachesToReset = new HashSet<>();
+	/*
+	 * A set of IScriptFolder which source modules were added or removed, so
+	 * the cached names of their source modules need to be reset
+	 */
+	private HashSet<IScriptFolder> sourceModuleNamesToReset = new HashSet<>();
 
 	/*
 	 * A table from IScriptProject to an array of IProjectFragment. This table
@@ -1099,6 +1104,12 @@ public class DeltaProcessor {
 				project = (ScriptProject) element.getScriptProject();
 				this.projectCachesToReset.add(project);
 				break;
+			case IModelElement.SOURCE_MODULE:
+				if (element.getParent() instanceof IScriptFolder) {
+					this.sourceModuleNamesToReset
+							.add((IScriptFolder) element.getParent());
+				}
+				break;
 			}
 		}
 	}
@@ -1190,6 +1201,12 @@ public class DeltaProcessor {
 			this.projectCachesToReset.add(project);
 			break;
 		}
+		case IModelElement.SOURCE_MODULE:
+			if (element.getParent() instanceof IScriptFolder) {
+				this.sourceModuleNamesToReset
+						.add((IScriptFolder) element.getParent());
+			}
+			break;
 		}
 	}
 
@@ -1669,12 +1686,14 @@ public class DeltaProcessor {
 			}
 			this.refreshProjectFragments();
 			this.resetProjectCaches();
+			this.resetSourceModuleNames();
 			this.executePostActions();
 			return this.currentDelta;
 		} finally {
 			this.currentDelta = null;
 			this.rootsToRefresh.clear();
 			this.projectCachesToReset.clear();
+			this.sourceModuleNamesToReset.clear();
 			this.postActions.clear();
 		}
 	}
@@ -1713,6 +1732,29 @@ public class DeltaProcessor {
 		}
 	}
 
+	/*
+	 * Traverse the set of folders which source modules were added or removed,
+	 * and reset the names of their source modules cached by the projects and
+	 * their dependents
+	 */
+	private void resetSourceModuleNames() {
+		if (this.sourceModuleNamesToReset.size() == 0) {
+			return;
+		}
+		HashMap projectDepencies = this.state.projectDependencies;
+		for (IScriptFolder folder : this.sourceModuleNamesToReset) {
+			IScriptProject project = folder.getScriptProject();
+			HashSet<IScriptProject> projects = new HashSet<>();
+			projects.add(project);
+			this.addDependentProjects(project, projectDepencies, projects);
+			for (IScriptProject p : projects) {
+				if (p instanceof ScriptProject) {
+					((ScriptProject) p).resetSourceModuleNames(folder);
+				}
+			}
+		}
+	}
+
 	/*
 	 * Refresh package fragment roots of projects that were affected
 	 */
@@ -10,6 +10,12 @@
  *******************************************************************************/
 package org.eclipse.dltk.internal.core;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
 import org.eclipse.dltk.core.IModelElement;
 import org.eclipse.dltk.core.IProjectFragment;
 import org.eclipse.dltk.core.IScriptFolder;
@@ -18,10 +24,36 @@ import org.eclipse.dltk.internal.core.util.LRUCache;
 
 /**
  * An LRU cache of <code>ModelElements</code>.
+ * <p>
+ * The cache is modified under the lock of the {@link ModelManager}, but the
+ * values could be read without it with {@link #getConcurrently(Object)} and
+ * {@link #peekConcurrently(Object)}: the values are published in the concurrent
+ * map, and the reads are recorded in the buffer which is applied to the LRU
+ * order before the cache is modified next time.
  */
 public class ElementCache extends OverflowingLRUCache {
+	private static final int READ_BUFFER_SIZE = 128;
+
 	private IModelElement spaceLimitParent = null;
 
+	/**
+	 * The values of the entries for the reads without the lock.
+	 */
+	private final Map<Object, Object> published = new ConcurrentHashMap<>();
+
+	/**
+	 * The keys read without the lock since the buffer was drained. The reads
+	 * exceeding the buffer size are not recorded.
+	 */
+	private final AtomicReferenceArray<Object> readBuffer = new AtomicReferenceArray<>(
+			READ_BUFFER_SIZE);
+	private final AtomicInteger readCount = new AtomicInteger();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder droppedReads = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
 	/**
 	 * Constructs a new element cache of the given size.
 	 */
@@ -61,6 +93,7 @@ public class ElementCache extends OverflowingLRUCache {
 				} else {
 					element.close();
 				}
+				evictions.increment();
 				return true;
 			}
 		} catch (ModelException npe) {
@@ -78,12 +111,108 @@ public class ElementCache extends OverflowingLRUCache {
 		int spaceNeeded = 1 + (int) ((1 + fLoadFactor) * (childrenSize + fOverflow));
 		if (fSpaceLimit < spaceNeeded) {
 			// parent is being opened with more children than the space limit
+			drainReads();
 			shrink(); // remove overflow
 			setSpaceLimit(spaceNeeded);
 			this.spaceLimitParent = parent;
 		}
 	}
 
+	/**
+	 * Returns the value without acquiring the lock, and records the read to
+	 * update the LRU order later.
+	 */
+	public Object getConcurrently(Object key) {
+		final Object value = published.get(key);
+		if (value == null) {
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		final int index = readCount.getAndIncrement();
+		if (index < READ_BUFFER_SIZE) {
+			readBuffer.set(index, key);
+		} else {
+			droppedReads.increment();
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the value without acquiring the lock and without changing the
+	 * LRU order.
+	 */
+	public Object peekConcurrently(Object key) {
+		return published.get(key);
+	}
+
+	/**
+	 * Applies the reads recorded by {@link #getConcurrently(Object)} to the LRU
+	 * order. Must be called with the lock before the entries are evicted, it is
+	 * done by {@link #ensureSpaceLimit(int, IModelElement)} and
+	 * {@link #resetSpaceLimit(int, IModelElement)} themselves.
+	 */
+	public void drainReads() {
+		final int count = Math.min(readCount.get(), READ_BUFFER_SIZE);
+		if (count == 0) {
+			return;
+		}
+		for (int i = 0; i < count; i++) {
+			final Object key = readBuffer.getAndSet(i, null);
+			if (key != null) {
+				final LRUCacheEntry entry = (LRUCacheEntry) fEntryTable
+						.get(key);
+				if (entry != null) {
+					updateTimestamp(entry);
+				}
+			}
+		}
+		readCount.set(0);
+	}
+
+	@Override
+	public Object put(Object key, Object value) {
+		super.put(key, value);
+		if (fEntryTable.get(key) != null) {
+			// the value of the existing entry could be replaced
+			published.put(key, value);
+		}
+		return value;
+	}
+
+	@Override
+	protected void privateAddEntry(LRUCacheEntry entry, boolean shuffle) {
+		super.privateAddEntry(entry, shuffle);
+		if (!shuffle) {
+			published.put(entry._fKey, entry._fValue);
+		}
+	}
+
+	@Override
+	protected void privateRemoveEntry(LRUCacheEntry entry, boolean shuffle,
+			boolean external) {
+		super.privateRemoveEntry(entry, shuffle, external);
+		if (!shuffle && fEntryTable.get(entry._fKey) == null) {
+			published.remove(entry._fKey);
+		}
+	}
+
+	@Override
+	public void flush() {
+		super.flush();
+		published.clear();
+	}
+
+	/**
+	 * Returns the statistics of the reads without the lock and of the
+	 * evictions.
+	 */
+	public String toStringStatistics() {
+		return "hits: " + hits.sum() + ", misses: " + misses.sum() //$NON-NLS-1$ //$NON-NLS-2$
+				+ ", dropped reads: " + droppedReads.sum() //$NON-NLS-1$
+				+ ", evictions: " + evictions.sum(); //$NON-NLS-1$
+	}
+
 	/*
 	 * Returns a new instance of the receiver.
 	 */
@@ -98,6 +227,7 @@ public class ElementCache extends OverflowingLRUCache {
 	 */
 	public void resetSpaceLimit(int defaultLimit, IModelElement parent) {
 		if (parent.equals(this.spaceLimitParent)) {
+			drainReads();
 			setSpaceLimit(defaultLimit);
 			this.spaceLimitParent = null;
 		}
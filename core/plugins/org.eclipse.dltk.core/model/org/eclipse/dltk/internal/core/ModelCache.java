@@ -11,14 +11,18 @@
 package org.eclipse.dltk.internal.core;
 
 import java.text.NumberFormat;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.dltk.core.DLTKCore;
 import org.eclipse.dltk.core.IModelElement;
 
 /**
  * The cache ofscriptelements to their respective info.
+ * <p>
+ * The cache is modified under the lock of the {@link ModelManager}, the infos
+ * are read with {@link #getInfo(IModelElement)} and
+ * {@link #peekAtInfo(IModelElement)} without it.
  */
 public class ModelCache {
 	public static final int DEFAULT_PROJECT_SIZE = 5; // average 25552 bytes
@@ -43,11 +47,11 @@ public class ModelCache {
 	/**
 	 * Active script Model Info
 	 */
-	protected ModelInfo modelInfo;
+	protected volatile ModelInfo modelInfo;
 	/**
 	 * Cache of open projects.
 	 */
-	protected HashMap projectCache;
+	protected Map projectCache;
 	/**
 	 * Cache of open package fragment roots.
 	 */
@@ -80,7 +84,7 @@ public class ModelCache {
 		// for
 		// most
 		// JInterpreter
-		this.projectCache = new HashMap(DEFAULT_PROJECT_SIZE); // NB: Don't use
+		this.projectCache = new ConcurrentHashMap(DEFAULT_PROJECT_SIZE); // NB: Don't use
 		// a LRUCache
 		// for projects
 		// as they are
@@ -92,7 +96,8 @@ public class ModelCache {
 		this.rootCache = new ElementCache((int) (DEFAULT_ROOT_SIZE * ratio));
 		this.pkgCache = new ElementCache((int) (DEFAULT_PKG_SIZE * ratio));
 		this.openableCache = new ElementCache((int) (DEFAULT_OPENABLE_SIZE * ratio));
-		this.childrenCache = new HashMap((int) (DEFAULT_CHILDREN_SIZE * ratio));
+		this.childrenCache = new ConcurrentHashMap(
+				(int) (DEFAULT_CHILDREN_SIZE * ratio));
 	}
 
 	/**
@@ -105,12 +110,12 @@ public class ModelCache {
 		case IModelElement.SCRIPT_PROJECT:
 			return this.projectCache.get(element);
 		case IModelElement.PROJECT_FRAGMENT:
-			return this.rootCache.get(element);
+			return this.rootCache.getConcurrently(element);
 		case IModelElement.SCRIPT_FOLDER:
-			return this.pkgCache.get(element);
+			return this.pkgCache.getConcurrently(element);
 		case IModelElement.SOURCE_MODULE:
 		case IModelElement.BINARY_MODULE:
-			return this.openableCache.get(element);
+			return this.openableCache.getConcurrently(element);
 		default:
 			return this.childrenCache.get(element);
 		}
@@ -126,12 +131,12 @@ public class ModelCache {
 		case IModelElement.SCRIPT_PROJECT:
 			return this.projectCache.get(element);
 		case IModelElement.PROJECT_FRAGMENT:
-			return this.rootCache.peek(element);
+			return this.rootCache.peekConcurrently(element);
 		case IModelElement.SCRIPT_FOLDER:
-			return this.pkgCache.peek(element);
+			return this.pkgCache.peekConcurrently(element);
 		case IModelElement.SOURCE_MODULE:
 		case IModelElement.BINARY_MODULE:
-			return this.openableCache.peek(element);
+			return this.openableCache.peekConcurrently(element);
 		default:
 			return this.childrenCache.get(element);
 		}
@@ -141,6 +146,10 @@ public class ModelCache {
 	 * Remember the info for the element.
 	 */
 	protected void putInfo(IModelElement element, Object info) {
+		if (info == null) {
+			removeInfo(element);
+			return;
+		}
 		switch (element.getElementType()) {
 		case IModelElement.SCRIPT_MODEL:
 			this.modelInfo = (ModelInfo) info;
@@ -150,15 +159,18 @@ public class ModelCache {
 			this.rootCache.ensureSpaceLimit(((ModelElementInfo) info).size(), element);
 			break;
 		case IModelElement.PROJECT_FRAGMENT:
+			this.rootCache.drainReads();
 			this.rootCache.put(element, info);
 			this.pkgCache.ensureSpaceLimit(((ModelElementInfo) info).size(), element);
 			break;
 		case IModelElement.SCRIPT_FOLDER:
+			this.pkgCache.drainReads();
 			this.pkgCache.put(element, info);
 			this.openableCache.ensureSpaceLimit(((ModelElementInfo) info).size(), element);
 			break;
 		case IModelElement.SOURCE_MODULE:
 		case IModelElement.BINARY_MODULE:
+			this.openableCache.drainReads();
 			this.openableCache.put(element, info);
 			break;
 		default:
@@ -220,6 +232,18 @@ public class ModelCache {
 		buffer.append("]: "); //$NON-NLS-1$
 		buffer.append(nf.format(this.openableCache.fillingRatio()));
 		buffer.append("%\n"); //$NON-NLS-1$
+		buffer.append(prefix);
+		buffer.append("Root cache statistics: "); //$NON-NLS-1$
+		buffer.append(this.rootCache.toStringStatistics());
+		buffer.append('\n');
+		buffer.append(prefix);
+		buffer.append("Folder cache statistics: "); //$NON-NLS-1$
+		buffer.append(this.pkgCache.toStringStatistics());
+		buffer.append('\n');
+		buffer.append(prefix);
+		buffer.append("Openable cache statistics: "); //$NON-NLS-1$
+		buffer.append(this.openableCache.toStringStatistics());
+		buffer.append('\n');
 		return buffer.toString();
 	}
 
@@ -92,6 +92,7 @@ import org.eclipse.dltk.core.environment.IFileHandle;
 import org.eclipse.dltk.core.search.indexing.IndexManager;
 import org.eclipse.dltk.internal.core.builder.ScriptBuilder;
 import org.eclipse.dltk.internal.core.caching.DLTKCoreCache;
+import org.eclipse.dltk.internal.core.caching.PersistentASTCache;
 import org.eclipse.dltk.internal.core.search.DLTKWorkspaceScope;
 import org.eclipse.dltk.internal.core.search.ProjectIndexerManager;
 import org.eclipse.dltk.internal.core.util.Messages;
@@ -502,6 +503,22 @@ public class ModelManager implements ISaveParticipant {
 		return coreCache;
 	}
 
+	private PersistentASTCache astCache = null;
+
+	/**
+	 * Returns the built-in persistent AST cache, stored in the state location
+	 * of the plugin.
+	 */
+	public synchronized PersistentASTCache getASTCache() {
+		if (astCache == null) {
+			astCache = new PersistentASTCache(
+					DLTKCore.getPlugin().getStateLocation().append("ast.cache") //$NON-NLS-1$
+							.toFile(),
+					PersistentASTCache.DEFAULT_MAX_SIZE);
+		}
+		return astCache;
+	}
+
 	/**
 	 * Listener on properties changes.
 	 */
@@ -543,9 +560,11 @@ public class ModelManager implements ISaveParticipant {
 	}
 
 	/**
-	 * Returns the info for the element.
+	 * Returns the info for the element. The cache is read without the lock,
+	 * if the info is not found it is read again with the lock, so the infos
+	 * being put or removed by other thread are not missed.
 	 */
-	public synchronized Object getInfo(IModelElement element) {
+	public Object getInfo(IModelElement element) {
 		HashMap tempCache = (HashMap) this.temporaryCache.get();
 		if (tempCache != null) {
 			Object result = tempCache.get(element);
@@ -553,13 +572,20 @@ public class ModelManager implements ISaveParticipant {
 				return result;
 			}
 		}
-		return this.cache.getInfo(element);
+		Object info = this.cache.getInfo(element);
+		if (info != null) {
+			return info;
+		}
+		synchronized (this) {
+			return this.cache.getInfo(element);
+		}
 	}
 
 	/**
 	 * Returns the info for this element without disturbing the cache ordering.
+	 * The cache is read without the lock as in {@link #getInfo(IModelElement)}.
 	 */
-	protected synchronized Object peekAtInfo(IModelElement element) {
+	protected Object peekAtInfo(IModelElement element) {
 		HashMap tempCache = (HashMap) this.temporaryCache.get();
 		if (tempCache != null) {
 			Object result = tempCache.get(element);
@@ -567,7 +593,13 @@ public class ModelManager implements ISaveParticipant {
 				return result;
 			}
 		}
-		return this.cache.peekAtInfo(element);
+		Object info = this.cache.peekAtInfo(element);
+		if (info != null) {
+			return info;
+		}
+		synchronized (this) {
+			return this.cache.peekAtInfo(element);
+		}
 	}
 
 	/*
@@ -1218,7 +1250,8 @@ public class ModelManager implements ISaveParticipant {
 					IResourceChangeEvent.PRE_BUILD | IResourceChangeEvent.POST_BUILD | IResourceChangeEvent.POST_CHANGE
 							| IResourceChangeEvent.PRE_DELETE | IResourceChangeEvent.PRE_CLOSE);
 			DLTKContentTypeManager.installListener();
-			sourceModuleInfoCache = new SourceModuleInfoCache();
+			sourceModuleInfoCache = new SourceModuleInfoCache(
+					getSourceModuleCacheBudget());
 			sourceModuleInfoCache.start();
 			startIndexing();
 			// process deltas since last activated in indexer thread so that
@@ -1479,6 +1512,9 @@ public class ModelManager implements ISaveParticipant {
 		if (coreCache != null) {
 			coreCache.stop();
 		}
+		if (astCache != null) {
+			astCache.close();
+		}
 		IWorkspace workspace = ResourcesPlugin.getWorkspace();
 		workspace.removeResourceChangeListener(this.deltaState);
 		DLTKContentTypeManager.uninstallListener();
@@ -3001,6 +3037,23 @@ public class ModelManager implements ISaveParticipant {
 		return sourceModuleInfoCache;
 	}
 
+	/**
+	 * Answers the heap budget of the source module info cache as configured by
+	 * the {@link DLTKCore#SOURCE_MODULE_CACHE_SIZE} option.
+	 */
+	private static long getSourceModuleCacheBudget() {
+		final String value = DLTKCore
+				.getOption(DLTKCore.SOURCE_MODULE_CACHE_SIZE);
+		if (value != null) {
+			try {
+				return Long.parseLong(value) << 20;
+			} catch (NumberFormatException e) {
+				// fall thru
+			}
+		}
+		return SourceModuleInfoCache.getDefaultBudget();
+	}
+
 	public static UserLibraryManager getUserLibraryManager() {
 		if (MANAGER.userLibraryManager == null) {
 			UserLibraryManager libraryManager = new UserLibraryManager();
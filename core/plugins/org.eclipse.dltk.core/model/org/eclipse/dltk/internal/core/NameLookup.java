@@ -130,6 +130,18 @@ public class NameLookup {
 	 */
 	protected HashMap typesInWorkingCopies;
 
+	/**
+	 * The names of the source modules by the script folder, shared by the
+	 * name lookups of the project. Possibly null.
+	 */
+	private final SourceModuleNameTable sourceModuleNames;
+
+	/**
+	 * The sorted names of the {@link #scriptFolders}. Null if not available or
+	 * if the working copies added the script folders.
+	 */
+	private ScriptFolderNameIndex scriptFolderNames;
+
 	public long timeSpentInSeekTypesInSourcePackage = 0;
 	public long timeSpentInSeekTypesInBinaryPackage = 0;
 
@@ -137,6 +149,17 @@ public class NameLookup {
 			HashtableOfArrayToObject ScriptFolders,
 			HashtableOfArrayToObject isPackage, ISourceModule[] workingCopies,
 			Map rootToResolvedEntries) {
+		this(ProjectFragments, ScriptFolders, isPackage, workingCopies,
+				rootToResolvedEntries, null, null);
+	}
+
+	NameLookup(IProjectFragment[] ProjectFragments,
+			HashtableOfArrayToObject ScriptFolders,
+			HashtableOfArrayToObject isPackage, ISourceModule[] workingCopies,
+			Map rootToResolvedEntries, SourceModuleNameTable sourceModuleNames,
+			ScriptFolderNameIndex scriptFolderNames) {
+		this.sourceModuleNames = sourceModuleNames;
+		this.scriptFolderNames = scriptFolderNames;
 		long start = -1;
 		if (VERBOSE) {
 			Util.verbose(" BUILDING NameLoopkup"); //$NON-NLS-1$
@@ -210,6 +233,8 @@ public class NameLookup {
 				Object existing = this.scriptFolders.get(pkgName);
 				if (existing == null) {
 					this.scriptFolders.put(pkgName, root);
+					// the sorted names do not contain the new package
+					this.scriptFolderNames = null;
 					// cache whether each package and its including packages
 					// (see
 					// https://bugs.eclipse.org/bugs/show_bug.cgi?id=119161)
@@ -847,6 +872,17 @@ public class NameLookup {
 		 * Util.verbose(" -> partial match:" + partialMatch); //$NON-NLS-1$ }
 		 */if (partialMatch) {
 			String[] splittedName = Util.splitOn('.', name, 0, name.length());
+			if (this.scriptFolderNames != null) {
+				String[][] pkgNames = this.scriptFolderNames
+						.getNamesStartingWith(splittedName);
+				for (int i = 0, length = pkgNames.length; i < length; i++) {
+					if (requestor.isCanceled())
+						return;
+					acceptScriptFolders(pkgNames[i],
+							this.scriptFolders.get(pkgNames[i]), requestor);
+				}
+				return;
+			}
 			Object[][] keys = this.scriptFolders.keyTable;
 			for (int i = 0, length = keys.length; i < length; i++) {
 				if (requestor.isCanceled())
@@ -854,39 +890,35 @@ public class NameLookup {
 				String[] pkgName = (String[]) keys[i];
 				if (pkgName != null
 						&& Util.startsWithIgnoreCase(pkgName, splittedName)) {
-					Object value = this.scriptFolders.valueTable[i];
-					if (value instanceof IProjectFragment) {
-						IProjectFragment root = (IProjectFragment) value;
-						requestor.acceptScriptFolder(root
-								.getScriptFolder(toPath(pkgName)));
-					} else {
-						IProjectFragment[] roots = (IProjectFragment[]) value;
-						for (int j = 0, length2 = roots.length; j < length2; j++) {
-							if (requestor.isCanceled())
-								return;
-							IProjectFragment root = roots[j];
-							requestor.acceptScriptFolder(root
-									.getScriptFolder(toPath(pkgName)));
-						}
-					}
+					acceptScriptFolders(pkgName,
+							this.scriptFolders.valueTable[i], requestor);
 				}
 			}
 		} else {
 			String[] splittedName = Util.splitOn('.', name, 0, name.length());
-			Object value = this.scriptFolders.get(splittedName);
-			if (value instanceof IProjectFragment) {
-				requestor.acceptScriptFolder(((IProjectFragment) value)
-						.getScriptFolder(toPath(splittedName)));
-			} else {
-				IProjectFragment[] roots = (IProjectFragment[]) value;
-				if (roots != null) {
-					for (int i = 0, length = roots.length; i < length; i++) {
-						if (requestor.isCanceled())
-							return;
-						IProjectFragment root = roots[i];
-						requestor.acceptScriptFolder(root
-								.getScriptFolder(toPath(splittedName)));
-					}
+			acceptScriptFolders(splittedName,
+					this.scriptFolders.get(splittedName), requestor);
+		}
+	}
+
+	/**
+	 * Notifies the given requestor of the package fragments with the given
+	 * name in the project fragment or project fragments.
+	 */
+	private void acceptScriptFolders(String[] pkgName, Object value,
+			IModelElementRequestor requestor) {
+		if (value instanceof IProjectFragment) {
+			requestor.acceptScriptFolder(((IProjectFragment) value)
+					.getScriptFolder(toPath(pkgName)));
+		} else {
+			IProjectFragment[] roots = (IProjectFragment[]) value;
+			if (roots != null) {
+				for (int i = 0, length = roots.length; i < length; i++) {
+					if (requestor.isCanceled())
+						return;
+					IProjectFragment root = roots[i];
+					requestor.acceptScriptFolder(root
+							.getScriptFolder(toPath(pkgName)));
 				}
 			}
 		}
@@ -977,7 +1009,10 @@ public class NameLookup {
 		if (VERBOSE)
 			start = System.currentTimeMillis();
 		try {
-			if (!partialMatch) {
+			if (this.sourceModuleNames != null) {
+				seekTypesInSourceModules(name, pkg, firstDot, partialMatch,
+						topLevelTypeName, acceptFlags, requestor);
+			} else if (!partialMatch) {
 				try {
 					IModelElement[] compilationUnits = pkg.getChildren();
 					for (int i = 0, length = compilationUnits.length; i < length; i++) {
@@ -1038,6 +1073,54 @@ public class NameLookup {
 		}
 	}
 
+	/**
+	 * Performs type search in the source modules of the package found by the
+	 * name in the {@link #sourceModuleNames}.
+	 */
+	private void seekTypesInSourceModules(String name, IScriptFolder pkg,
+			int firstDot, boolean partialMatch, String topLevelTypeName,
+			int acceptFlags, IModelElementRequestor requestor) {
+		SourceModuleNameTable.FolderNames folderNames;
+		try {
+			folderNames = this.sourceModuleNames.getFolderNames(pkg);
+		} catch (ModelException e) {
+			// package doesn't exist -> ignore
+			return;
+		}
+		if (!partialMatch) {
+			ISourceModule[] compilationUnits = folderNames
+					.getSourceModules(topLevelTypeName);
+			for (int i = 0, length = compilationUnits.length; i < length; i++) {
+				if (requestor.isCanceled())
+					return;
+				IType type = compilationUnits[i].getType(topLevelTypeName);
+				type = getMemberType(type, name, firstDot);
+				if (acceptType(type, acceptFlags, true/* a source type */)) {
+					requestor.acceptType(type);
+					break; // since an exact match was requested, no
+					// other matching type can exist
+				}
+			}
+		} else {
+			String cuPrefix = firstDot == -1 ? name : name.substring(0,
+					firstDot);
+			ISourceModule[] compilationUnits = folderNames
+					.getSourceModulesStartingWith(cuPrefix);
+			for (int i = 0, length = compilationUnits.length; i < length; i++) {
+				if (requestor.isCanceled())
+					return;
+				try {
+					IType[] types = compilationUnits[i].getTypes();
+					for (int j = 0, typeLength = types.length; j < typeLength; j++)
+						seekTypesInTopLevelType(name, firstDot, types[j],
+								requestor, acceptFlags);
+				} catch (ModelException e) {
+					// cu doesn't exist -> ignore
+				}
+			}
+		}
+	}
+
 	/**
 	 * Notifies the given requestor of all types (classes and interfaces) in the
 	 * given type with the given (possibly qualified) name. Checks the requestor
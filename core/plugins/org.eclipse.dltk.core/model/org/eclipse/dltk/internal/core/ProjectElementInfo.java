@@ -58,6 +58,26 @@ class ProjectElementInfo extends OpenableElementInfo {
 		public HashtableOfArrayToObject isPackageCache;
 
 		public Map<IProjectFragment, BuildpathEntry> rootToResolvedEntries;
+
+		/*
+		 * The names of the source modules of the script folders, updated as
+		 * the source modules are added or removed.
+		 */
+		final SourceModuleNameTable sourceModuleNames = new SourceModuleNameTable();
+
+		/*
+		 * The sorted names of the package fragments, computed on demand.
+		 */
+		private volatile ScriptFolderNameIndex folderNameIndex;
+
+		ScriptFolderNameIndex getFolderNameIndex() {
+			ScriptFolderNameIndex index = this.folderNameIndex;
+			if (index == null) {
+				index = new ScriptFolderNameIndex(this.allPkgFragmentsCache);
+				this.folderNameIndex = index;
+			}
+			return index;
+		}
 	}
 
 	ProjectCache projectCache;
@@ -75,6 +95,16 @@ class ProjectElementInfo extends OpenableElementInfo {
 		this.projectCache = null;
 	}
 
+	/*
+	 * Discards the names of the source modules of the folder.
+	 */
+	void resetSourceModuleNames(IScriptFolder folder) {
+		ProjectCache cache = this.projectCache;
+		if (cache != null) {
+			cache.sourceModuleNames.remove(folder);
+		}
+	}
+
 	void setForeignResources(Object[] resources) {
 
 		this.foreignResources = resources;
@@ -224,7 +254,8 @@ class ProjectElementInfo extends OpenableElementInfo {
 		ProjectCache cache = getProjectCache(project);
 		return new NameLookup(cache.allProjectFragmentCache,
 				cache.allPkgFragmentsCache, cache.isPackageCache, workingCopies,
-				cache.rootToResolvedEntries);
+				cache.rootToResolvedEntries, cache.sourceModuleNames,
+				cache.getFolderNameIndex());
 	}
 
 	ProjectCache getProjectCache(ScriptProject project) {
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.dltk.internal.core.util.HashtableOfArrayToObject;
+import org.eclipse.dltk.internal.core.util.Util;
+
+/**
+ * The immutable sorted names of the script folders of the project, used by the
+ * {@link NameLookup} to find the folders by the name prefix with the binary
+ * search instead of scanning the whole folder table.
+ */
+class ScriptFolderNameIndex {
+
+	/**
+	 * The lower case dot separated folder names, sorted.
+	 */
+	private final String[] lowerCaseNames;
+	private final String[][] names;
+
+	ScriptFolderNameIndex(HashtableOfArrayToObject scriptFolders) {
+		final List<String[]> keys = new ArrayList<>(scriptFolders.elementSize);
+		for (Object[] key : scriptFolders.keyTable) {
+			if (key != null) {
+				keys.add((String[]) key);
+			}
+		}
+		final String[] lowerCase = new String[keys.size()];
+		final Integer[] order = new Integer[lowerCase.length];
+		for (int i = 0; i < lowerCase.length; ++i) {
+			lowerCase[i] = toLowerCase(keys.get(i));
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> lowerCase[a].compareTo(lowerCase[b]));
+		this.lowerCaseNames = new String[order.length];
+		this.names = new String[order.length][];
+		for (int i = 0; i < order.length; ++i) {
+			lowerCaseNames[i] = lowerCase[order[i]];
+			names[i] = keys.get(order[i]);
+		}
+	}
+
+	private static String toLowerCase(String[] name) {
+		return Util.concatWith(name, '.').toLowerCase();
+	}
+
+	/**
+	 * Returns the names of the folders which all segments except the last one
+	 * are equal to the ones of the prefix ignoring case, and the last one
+	 * starts with the last one of the prefix.
+	 *
+	 * @see Util#startsWithIgnoreCase(String[], String[])
+	 */
+	String[][] getNamesStartingWith(String[] prefix) {
+		final String lowerCasePrefix = toLowerCase(prefix);
+		int start = Arrays.binarySearch(lowerCaseNames, lowerCasePrefix);
+		if (start < 0) {
+			start = -start - 1;
+		}
+		final List<String[]> result = new ArrayList<>();
+		for (int i = start; i < lowerCaseNames.length
+				&& lowerCaseNames[i].startsWith(lowerCasePrefix); ++i) {
+			if (prefix.length == 0
+					|| Util.startsWithIgnoreCase(names[i], prefix)) {
+				result.add(names[i]);
+			}
+		}
+		return result.toArray(new String[result.size()][]);
+	}
+}
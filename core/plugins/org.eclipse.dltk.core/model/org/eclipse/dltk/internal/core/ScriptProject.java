@@ -921,6 +921,18 @@ public class ScriptProject extends Openable
 		}
 	}
 
+	/*
+	 * Discards the names of the source modules of the folder cached by this
+	 * project
+	 */
+	void resetSourceModuleNames(IScriptFolder folder) {
+		ProjectElementInfo info = (ProjectElementInfo) ModelManager
+				.getModelManager().peekAtInfo(this);
+		if (info != null) {
+			info.resetSourceModuleNames(folder);
+		}
+	}
+
 	public BuildpathChange resetResolvedBuildpath() {
 		try {
 			return getPerProjectInfo().resetResolvedBuildpath();
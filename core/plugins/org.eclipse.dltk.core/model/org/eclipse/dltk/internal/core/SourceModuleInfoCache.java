@@ -9,8 +9,6 @@
  *******************************************************************************/
 package org.eclipse.dltk.internal.core;
 
-import java.lang.ref.ReferenceQueue;
-import java.lang.ref.SoftReference;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -25,40 +23,83 @@ import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.resources.IResourceDeltaVisitor;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.dltk.annotations.Internal;
+import org.eclipse.dltk.ast.ASTNode;
+import org.eclipse.dltk.compiler.problem.ProblemCollector;
 import org.eclipse.dltk.core.DLTKCore;
 import org.eclipse.dltk.core.ISourceModule;
 import org.eclipse.dltk.core.ISourceModuleInfoCache;
+import org.eclipse.dltk.core.RuntimePerformanceMonitor;
 
 /**
  * Used to cache some source module information. All information related to
  * source module are removed, then source module are changed.
+ * <p>
+ * The size of the entries is estimated from the values stored (mostly from
+ * the source ranges of the ASTs) and the total size is limited by the heap
+ * budget, besides the number of the entries limited by the
+ * {@link #capacity()}. The least recently used entries are evicted to fit the
+ * budget, except the ones used more often than the entry growing over the
+ * budget (according to the frequency sketch of the recent accesses). If that
+ * is not enough, the growing entry is not admitted instead. So the large
+ * modules used once do not push the frequently used ones out, and there is no
+ * mass eviction under memory pressure as with the soft references.
+ * </p>
  */
 public class SourceModuleInfoCache implements ISourceModuleInfoCache,
 		IResourceChangeListener, IResourceDeltaVisitor {
+
+	/**
+	 * Kinds of the {@link RuntimePerformanceMonitor} entries reported if it is
+	 * active, the value of the evictions is their estimated size.
+	 */
+	static final String HITS = "SourceModuleInfoCache hits"; //$NON-NLS-1$
+	static final String MISSES = "SourceModuleInfoCache misses"; //$NON-NLS-1$
+	static final String EVICTIONS = "SourceModuleInfoCache evictions"; //$NON-NLS-1$
+
+	/**
+	 * Estimated size of the entry itself and of the stored value.
+	 */
+	private static final int ENTRY_WEIGHT = 128;
+	private static final int VALUE_WEIGHT = 64;
+	/**
+	 * Estimated size of the AST per character of the source.
+	 */
+	private static final int AST_WEIGHT_PER_CHAR = 16;
+	private static final int PROBLEM_WEIGHT = 256;
+
 	@Internal
 	final int capacity = ModelCache.DEFAULT_ROOT_SIZE * 50;
 
-	private final ReferenceQueue<ISourceModuleInfo> queue = new ReferenceQueue<>();
+	private final long budget;
+	private long weight;
+
+	private final FrequencySketch sketch = new FrequencySketch(capacity);
+
+	private long hits;
+	private long misses;
+	private long evictions;
 
 	@SuppressWarnings("serial")
-	private final Map<ISourceModule, CacheReference> map = new LinkedHashMap<ISourceModule, CacheReference>(
+	private final Map<ISourceModule, CacheEntry> map = new LinkedHashMap<ISourceModule, CacheEntry>(
 			16, 0.9f, true) {
 		@Override
 		protected boolean removeEldestEntry(
-				Map.Entry<ISourceModule, CacheReference> eldest) {
-			return size() > capacity;
+				Map.Entry<ISourceModule, CacheEntry> eldest) {
+			if (size() > capacity) {
+				evicted(eldest.getValue());
+				return true;
+			}
+			return false;
 		}
 	};
 
-	private static class CacheReference
-			extends SoftReference<ISourceModuleInfo> {
+	private static class CacheEntry {
+		final SourceModuleInfo info;
 		final long modificationStamp;
-		final ISourceModule module;
+		long weight = ENTRY_WEIGHT;
 
-		public CacheReference(ISourceModule module, ISourceModuleInfo referent,
-				ReferenceQueue<? super ISourceModuleInfo> q) {
-			super(referent, q);
-			this.module = module;
+		public CacheEntry(ISourceModule module, SourceModuleInfo info) {
+			this.info = info;
 			this.modificationStamp = getModificationStamp(module);
 		}
 
@@ -76,6 +117,88 @@ public class SourceModuleInfoCache implements ISourceModuleInfoCache,
 
 	}
 
+	/**
+	 * Count-min sketch of the access frequencies with 4-bit counters, which are
+	 * halved periodically, so the old accesses are forgotten.
+	 */
+	private static class FrequencySketch {
+		private static final int[] SEEDS = { 0x97cb3127, 0xb8a8f4d1,
+				0x6c5c8b19, 0xe1b5a7e3 };
+		private static final int MAX_COUNT = 15;
+
+		private final byte[] counters;
+		private final int mask;
+		private final int sampleSize;
+		private int additions;
+
+		FrequencySketch(int capacity) {
+			final int size = Integer.highestOneBit(Math.max(capacity, 16) * 8);
+			counters = new byte[size];
+			mask = size - 1;
+			sampleSize = size * 10;
+		}
+
+		private int index(int hash, int i) {
+			int h = (hash ^ SEEDS[i]) * 0x9e3779b9;
+			h ^= h >>> 16;
+			return h & mask;
+		}
+
+		int frequency(Object key) {
+			final int hash = key.hashCode();
+			int result = MAX_COUNT;
+			for (int i = 0; i < SEEDS.length; ++i) {
+				result = Math.min(result, counters[index(hash, i)]);
+			}
+			return result;
+		}
+
+		void increment(Object key) {
+			final int hash = key.hashCode();
+			boolean added = false;
+			for (int i = 0; i < SEEDS.length; ++i) {
+				final int index = index(hash, i);
+				if (counters[index] < MAX_COUNT) {
+					++counters[index];
+					added = true;
+				}
+			}
+			if (added && ++additions == sampleSize) {
+				for (int i = 0; i < counters.length; ++i) {
+					counters[i] >>= 1;
+				}
+				additions /= 2;
+			}
+		}
+
+		void clear() {
+			for (int i = 0; i < counters.length; ++i) {
+				counters[i] = 0;
+			}
+			additions = 0;
+		}
+	}
+
+	/**
+	 * Returns the default heap budget: 1/16 of the maximum heap size, but at
+	 * least 16 MB.
+	 */
+	public static long getDefaultBudget() {
+		return Math.max(16L << 20, Runtime.getRuntime().maxMemory() / 16);
+	}
+
+	public SourceModuleInfoCache() {
+		this(getDefaultBudget());
+	}
+
+	/**
+	 * @param budget
+	 *            maximum estimated size of the cached information in bytes
+	 */
+	public SourceModuleInfoCache(long budget) {
+		this.budget = budget;
+	}
+
 	public void start() {
 		DLTKCore.addPreProcessingResourceChangedListener(this,
 				IResourceChangeEvent.POST_CHANGE);
@@ -85,34 +208,106 @@ public class SourceModuleInfoCache implements ISourceModuleInfoCache,
 		DLTKCore.removePreProcessingResourceChangedListener(this);
 	}
 
-	private void expungeStaleEntries() {
-		for (CacheReference r; (r = (CacheReference) queue.poll()) != null;) {
+	@Override
+	public synchronized ISourceModuleInfo get(ISourceModule module) {
+		sketch.increment(module);
+		final CacheEntry entry = map.get(module);
+		if (entry != null) {
+			if (entry.isValid(module)) {
+				++hits;
+				report(HITS, 1);
+				return entry.info;
+			}
+			removed(map.remove(module));
+		}
+		++misses;
+		report(MISSES, 1);
+		final SourceModuleInfo info = new SourceModuleInfo(this, module);
+		final CacheEntry newEntry = new CacheEntry(module, info);
+		weight += newEntry.weight;
+		map.put(module, newEntry);
+		return info;
+	}
+
+	private static void report(String kind, long value) {
+		if (RuntimePerformanceMonitor.isActive()) {
+			RuntimePerformanceMonitor.updateData(DLTKCore.PLUGIN_ID, kind, 0,
+					value);
+		}
+	}
+
+	/**
+	 * Called when the value of the info is changed, evicts the entries if the
+	 * budget is exceeded.
+	 */
+	synchronized void weightChanged(SourceModuleInfo info, long delta) {
+		final CacheEntry entry = map.get(info.module);
+		if (entry == null || entry.info != info) {
+			// already evicted
+			return;
+		}
+		entry.weight += delta;
+		weight += delta;
+		if (weight > budget) {
+			evict(info.module, entry);
+		}
+	}
+
+	private void evict(ISourceModule candidate, CacheEntry candidateEntry) {
+		final int frequency = sketch.frequency(candidate);
+		for (Iterator<Map.Entry<ISourceModule, CacheEntry>> i = map.entrySet()
+				.iterator(); weight > budget && i.hasNext();) {
+			final Map.Entry<ISourceModule, CacheEntry> victim = i.next();
+			if (victim.getValue() == candidateEntry) {
+				continue;
+			}
+			if (sketch.frequency(victim.getKey()) > frequency) {
+				// the victim is used more often than the candidate
+				continue;
+			}
 			if (DEBUG) {
 				System.out.println(
-						"[Cache] expunge " + r.module.getElementName());
+						"[Cache] evict " + victim.getKey().getElementName()); //$NON-NLS-1$
 			}
-			map.remove(r.module);
+			i.remove();
+			evicted(victim.getValue());
+		}
+		if (weight > budget) {
+			map.remove(candidate);
+			evicted(candidateEntry);
 		}
 	}
 
-	@Override
-	public synchronized ISourceModuleInfo get(ISourceModule module) {
-		expungeStaleEntries();
-		final CacheReference ref = map.get(module);
-		if (ref != null) {
-			final ISourceModuleInfo info = ref.get();
-			if (info != null && ref.isValid(module)) {
-				return info;
-			}
+	private void evicted(CacheEntry entry) {
+		removed(entry);
+		++evictions;
+		report(EVICTIONS, entry.weight);
+	}
+
+	private void removed(CacheEntry entry) {
+		if (entry != null) {
+			weight -= entry.weight;
+		}
+	}
+
+	/**
+	 * Returns the estimated size of the value stored in the info.
+	 */
+	static long estimateWeight(Object value) {
+		if (value instanceof ASTNode) {
+			final ASTNode node = (ASTNode) value;
+			return VALUE_WEIGHT + (long) AST_WEIGHT_PER_CHAR
+					* Math.max(0, node.sourceEnd() - node.sourceStart());
+		} else if (value instanceof ProblemCollector) {
+			return VALUE_WEIGHT + (long) PROBLEM_WEIGHT
+					* ((ProblemCollector) value).getProblems().size();
+		} else {
+			return VALUE_WEIGHT;
 		}
-		final ISourceModuleInfo info = new SourceModuleInfo();
-		map.put(module, new CacheReference(module, info, queue));
-		return info;
 	}
 
 	@Override
 	public synchronized void resourceChanged(IResourceChangeEvent event) {
-		expungeStaleEntries();
 		final IResourceDelta delta = event.getDelta();
 		try {
 			delta.accept(this);
@@ -166,8 +361,15 @@ public class SourceModuleInfoCache implements ISourceModuleInfoCache,
 
 	@Internal
 	static class SourceModuleInfo implements ISourceModuleInfo {
+		private final SourceModuleInfoCache owner;
+		final ISourceModule module;
 		private Map<Object, Object> map;
 
+		SourceModuleInfo(SourceModuleInfoCache owner, ISourceModule module) {
+			this.owner = owner;
+			this.module = module;
+		}
+
 		@Override
 		public synchronized Object get(String key) {
 			if (map == null) {
@@ -177,17 +379,34 @@ public class SourceModuleInfoCache implements ISourceModuleInfoCache,
 		}
 
 		@Override
-		public synchronized void put(String key, Object value) {
-			if (map == null) {
-				map = new HashMap<>();
+		public void put(String key, Object value) {
+			final Object oldValue;
+			synchronized (this) {
+				if (map == null) {
+					map = new HashMap<>();
+				}
+				oldValue = map.put(key, value);
 			}
-			map.put(key, value);
+			updateWeight(value, oldValue);
 		}
 
 		@Override
-		public synchronized void remove(String key) {
-			if (map != null) {
-				map.remove(key);
+		public void remove(String key) {
+			final Object oldValue;
+			synchronized (this) {
+				if (map == null) {
+					return;
+				}
+				oldValue = map.remove(key);
+			}
+			updateWeight(null, oldValue);
+		}
+
+		private void updateWeight(Object value, Object oldValue) {
+			final long delta = (value != null ? estimateWeight(value) : 0)
+					- (oldValue != null ? estimateWeight(oldValue) : 0);
+			if (delta != 0) {
+				owner.weightChanged(this, delta);
 			}
 		}
 
@@ -203,10 +422,12 @@ public class SourceModuleInfoCache implements ISourceModuleInfoCache,
 	 * synchronized.
 	 */
 	private void removeByProject(IProject project) {
-		for (Iterator<ISourceModule> i = map.keySet().iterator(); i
-				.hasNext();) {
-			final ISourceModule module = i.next();
-			if (project.equals(module.getScriptProject().getProject())) {
+		for (Iterator<Map.Entry<ISourceModule, CacheEntry>> i = map.entrySet()
+				.iterator(); i.hasNext();) {
+			final Map.Entry<ISourceModule, CacheEntry> entry = i.next();
+			if (project.equals(
+					entry.getKey().getScriptProject().getProject())) {
+				removed(entry.getValue());
 				i.remove();
 			}
 		}
@@ -221,17 +442,16 @@ public class SourceModuleInfoCache implements ISourceModuleInfoCache,
 		if (DEBUG) {
 			System.out.println("[Cache] remove " + module.getElementName()); //$NON-NLS-1$
 		}
-		map.remove(module);
+		removed(map.remove(module));
 	}
 
 	private static final boolean DEBUG = false;
 
 	@Override
 	public synchronized void clear() {
-		// clear out reference queue.
-		while (queue.poll() != null)
-			;
 		map.clear();
+		weight = 0;
+		sketch.clear();
 	}
 
 	@Override
@@ -244,4 +464,30 @@ public class SourceModuleInfoCache implements ISourceModuleInfoCache,
 		return capacity;
 	}
 
+	/**
+	 * Returns the maximum estimated size of the cached information in bytes.
+	 */
+	public long getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Returns the estimated size of the cached information in bytes.
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictions;
+	}
+
 }
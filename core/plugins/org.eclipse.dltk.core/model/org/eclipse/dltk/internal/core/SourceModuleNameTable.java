@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.dltk.core.IModelElement;
+import org.eclipse.dltk.core.IScriptFolder;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.core.ModelException;
+
+/**
+ * The names of the source modules of the script folders, used by the
+ * {@link NameLookup} to find the top level types without scanning the children
+ * of the folders. The names of a folder are computed when the folder is looked
+ * up first, and are discarded by the {@link DeltaProcessor} when the source
+ * modules are added to or removed from the folder.
+ */
+class SourceModuleNameTable {
+
+	private static final ISourceModule[] NO_SOURCE_MODULES = {};
+
+	/**
+	 * The immutable names of the source modules of one folder.
+	 */
+	static class FolderNames {
+		/**
+		 * The source modules by the name without extension, in the order of
+		 * the children of the folder.
+		 */
+		private final Map<String, ISourceModule[]> byName;
+		/**
+		 * The lower case names of the source modules, sorted.
+		 */
+		private final String[] lowerCaseNames;
+		/**
+		 * The positions of the {@link #lowerCaseNames} in the children of the
+		 * folder.
+		 */
+		private final int[] positions;
+		private final ISourceModule[] sourceModules;
+
+		FolderNames(IModelElement[] children) {
+			final List<ISourceModule> modules = new ArrayList<>(
+					children.length);
+			for (IModelElement child : children) {
+				if (child instanceof ISourceModule) {
+					modules.add((ISourceModule) child);
+				}
+			}
+			this.sourceModules = modules
+					.toArray(new ISourceModule[modules.size()]);
+			this.byName = new HashMap<>(sourceModules.length * 2);
+			final Integer[] order = new Integer[sourceModules.length];
+			final String[] names = new String[sourceModules.length];
+			for (int i = 0; i < sourceModules.length; ++i) {
+				final String name = sourceModules[i].getElementName();
+				final int lastDot = name.lastIndexOf('.');
+				if (lastDot != -1) {
+					byName.merge(name.substring(0, lastDot),
+							new ISourceModule[] { sourceModules[i] },
+							SourceModuleNameTable::concat);
+				}
+				names[i] = name.toLowerCase();
+				order[i] = i;
+			}
+			Arrays.sort(order, (a, b) -> names[a].compareTo(names[b]));
+			this.lowerCaseNames = new String[order.length];
+			this.positions = new int[order.length];
+			for (int i = 0; i < order.length; ++i) {
+				lowerCaseNames[i] = names[order[i]];
+				positions[i] = order[i];
+			}
+		}
+
+		/**
+		 * Returns the source modules which name without extension equals to
+		 * the specified one.
+		 */
+		ISourceModule[] getSourceModules(String name) {
+			final ISourceModule[] result = byName.get(name);
+			return result != null ? result : NO_SOURCE_MODULES;
+		}
+
+		/**
+		 * Returns the source modules which lower case name starts with the
+		 * specified prefix, in the order of the children of the folder.
+		 */
+		ISourceModule[] getSourceModulesStartingWith(String lowerCasePrefix) {
+			int start = Arrays.binarySearch(lowerCaseNames, lowerCasePrefix);
+			if (start < 0) {
+				start = -start - 1;
+			}
+			int end = start;
+			while (end < lowerCaseNames.length
+					&& lowerCaseNames[end].startsWith(lowerCasePrefix)) {
+				++end;
+			}
+			if (start == end) {
+				return NO_SOURCE_MODULES;
+			}
+			final int[] matches = Arrays.copyOfRange(positions, start, end);
+			Arrays.sort(matches);
+			final ISourceModule[] result = new ISourceModule[matches.length];
+			for (int i = 0; i < matches.length; ++i) {
+				result[i] = sourceModules[matches[i]];
+			}
+			return result;
+		}
+	}
+
+	private static ISourceModule[] concat(ISourceModule[] a,
+			ISourceModule[] b) {
+		final ISourceModule[] result = Arrays.copyOf(a, a.length + b.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
+
+	private final Map<IScriptFolder, FolderNames> folders = new ConcurrentHashMap<>();
+
+	/**
+	 * Incremented as the folders are removed, so the names computed from the
+	 * outdated children are not kept.
+	 */
+	private final AtomicInteger modificationCount = new AtomicInteger();
+
+	/**
+	 * Returns the names of the source modules of the folder.
+	 *
+	 * @throws ModelException
+	 *             if the folder does not exist
+	 */
+	FolderNames getFolderNames(IScriptFolder folder) throws ModelException {
+		FolderNames names = folders.get(folder);
+		if (names == null) {
+			final int count = modificationCount.get();
+			names = new FolderNames(folder.getChildren());
+			folders.put(folder, names);
+			if (modificationCount.get() != count) {
+				// the children could be changed meanwhile
+				folders.remove(folder, names);
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * Discards the names of the folder after its source modules changed.
+	 */
+	void remove(IScriptFolder folder) {
+		modificationCount.incrementAndGet();
+		folders.remove(folder);
+	}
+}
@@ -0,0 +1,395 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.core.caching;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.dltk.ast.ASTListNode;
+import org.eclipse.dltk.ast.ASTNode;
+import org.eclipse.dltk.ast.declarations.Argument;
+import org.eclipse.dltk.ast.declarations.Declaration;
+import org.eclipse.dltk.ast.declarations.FieldDeclaration;
+import org.eclipse.dltk.ast.declarations.MethodDeclaration;
+import org.eclipse.dltk.ast.declarations.ModuleDeclaration;
+import org.eclipse.dltk.ast.declarations.TypeDeclaration;
+import org.eclipse.dltk.ast.references.SimpleReference;
+import org.eclipse.dltk.ast.references.TypeReference;
+import org.eclipse.dltk.ast.statements.Block;
+
+/**
+ * Compact binary format of the {@link ModuleDeclaration} trees built from the
+ * core node classes (declarations, blocks, list nodes and simple references).
+ * The language specific node classes could have any state, so the trees
+ * containing them (or the subclasses of the core nodes) are not serialized.
+ * <p>
+ * The nodes referenced several times (e.g. both from the statements and the
+ * type list of the module) are written once and restored as the same
+ * instance.
+ * </p>
+ */
+public class ASTSerializer {
+
+	private static final int VERSION = 1;
+
+	private static final byte NULL = 0;
+	private static final byte REFERENCE = 1;
+	private static final byte MODULE = 2;
+	private static final byte TYPE = 3;
+	private static final byte METHOD = 4;
+	private static final byte FIELD = 5;
+	private static final byte ARGUMENT = 6;
+	private static final byte BLOCK = 7;
+	private static final byte LIST = 8;
+	private static final byte SIMPLE_REFERENCE = 9;
+	private static final byte TYPE_REFERENCE = 10;
+
+	@SuppressWarnings("serial")
+	private static class UnsupportedNodeException extends RuntimeException {
+		UnsupportedNodeException(Object node) {
+			super(String.valueOf(node != null ? node.getClass() : null));
+		}
+	}
+
+	private ASTSerializer() {
+	}
+
+	/**
+	 * Returns the serialized module or <code>null</code> if it contains the
+	 * nodes which are not supported.
+	 */
+	public static byte[] serialize(ModuleDeclaration module) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			final DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(VERSION);
+			new Writer(out).writeNode(module);
+			out.flush();
+		} catch (UnsupportedNodeException e) {
+			return null;
+		} catch (IOException e) {
+			// not expected for the in-memory stream
+			return null;
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Restores the module from the data returned by
+	 * {@link #serialize(ModuleDeclaration)}.
+	 *
+	 * @throws IOException
+	 *             if the data is corrupted or written by another version
+	 */
+	public static ModuleDeclaration deserialize(byte[] data)
+			throws IOException {
+		final DataInputStream in = new DataInputStream(
+				new ByteArrayInputStream(data));
+		if (in.readInt() != VERSION) {
+			throw new IOException("Unsupported AST format version"); //$NON-NLS-1$
+		}
+		try {
+			final ASTNode node = new Reader(in).readNode();
+			if (!(node instanceof ModuleDeclaration)) {
+				throw new IOException("Module expected"); //$NON-NLS-1$
+			}
+			return (ModuleDeclaration) node;
+		} catch (ClassCastException | IndexOutOfBoundsException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private static class Writer {
+		private final DataOutputStream out;
+		private final Map<ASTNode, Integer> ids = new IdentityHashMap<>();
+
+		Writer(DataOutputStream out) {
+			this.out = out;
+		}
+
+		void writeNode(Object object) throws IOException {
+			if (object == null) {
+				out.writeByte(NULL);
+				return;
+			}
+			final Integer id = ids.get(object);
+			if (id != null) {
+				out.writeByte(REFERENCE);
+				out.writeInt(id);
+				return;
+			}
+			final Class<?> clazz = object.getClass();
+			final ASTNode node = (ASTNode) object;
+			if (clazz == ModuleDeclaration.class) {
+				begin(MODULE, node);
+				final ModuleDeclaration module = (ModuleDeclaration) node;
+				writeNodes(module.getStatements());
+				writeNodes(module.getTypeList());
+				writeNodes(module.getFunctionList());
+				writeNodes(module.getVariablesList());
+			} else if (clazz == TypeDeclaration.class) {
+				final TypeDeclaration type = (TypeDeclaration) node;
+				// only the positions restored by the public setters
+				final Block body = type.getBody();
+				if (type.getParentStart() != 0 || type.getParentEnd() != 0
+						|| type.getBodyStart() != (body != null
+								? body.sourceStart()
+								: 0)
+						|| type.getBodyEnd() != (body != null
+								? body.sourceEnd()
+								: 0)) {
+					throw new UnsupportedNodeException(type);
+				}
+				begin(TYPE, node);
+				writeDeclaration(type);
+				writeString(type.getEnclosingTypeName());
+				writeNode(type.getSuperClasses());
+				writeNode(body);
+				writeNodes(type.getMethodList());
+				writeNodes(type.getTypeList());
+				writeNodes(type.getFieldList());
+			} else if (clazz == MethodDeclaration.class) {
+				final MethodDeclaration method = (MethodDeclaration) node;
+				if (method.getDecorators() != null
+						&& !method.getDecorators().isEmpty()) {
+					throw new UnsupportedNodeException(method);
+				}
+				begin(METHOD, node);
+				writeDeclaration(method);
+				writeString(method.getDeclaringTypeName());
+				writeNodes(method.getArguments());
+				writeNode(method.getBody());
+			} else if (clazz == FieldDeclaration.class) {
+				begin(FIELD, node);
+				writeDeclaration((Declaration) node);
+			} else if (clazz == Argument.class) {
+				begin(ARGUMENT, node);
+				writeDeclaration((Declaration) node);
+				writeNode(((Argument) node).getInitialization());
+			} else if (clazz == Block.class) {
+				begin(BLOCK, node);
+				writeNodes(((Block) node).getStatements());
+			} else if (clazz == ASTListNode.class) {
+				begin(LIST, node);
+				writeNodes(((ASTListNode) node).getChilds());
+			} else if (clazz == SimpleReference.class) {
+				begin(SIMPLE_REFERENCE, node);
+				writeString(((SimpleReference) node).getName());
+			} else if (clazz == TypeReference.class) {
+				begin(TYPE_REFERENCE, node);
+				writeString(((SimpleReference) node).getName());
+			} else {
+				throw new UnsupportedNodeException(object);
+			}
+		}
+
+		private void begin(byte kind, ASTNode node) throws IOException {
+			ids.put(node, ids.size());
+			out.writeByte(kind);
+			out.writeInt(node.sourceStart());
+			out.writeInt(node.sourceEnd());
+		}
+
+		private void writeDeclaration(Declaration declaration)
+				throws IOException {
+			out.writeInt(declaration.getModifiers());
+			writeString(declaration.getComments());
+			final SimpleReference ref = declaration.getRef();
+			if (ref == null) {
+				out.writeBoolean(false);
+			} else if (ref.getClass() == SimpleReference.class) {
+				out.writeBoolean(true);
+				writeString(ref.getName());
+				out.writeInt(ref.sourceStart());
+				out.writeInt(ref.sourceEnd());
+			} else {
+				throw new UnsupportedNodeException(ref);
+			}
+		}
+
+		private void writeNodes(List<?> nodes) throws IOException {
+			if (nodes == null) {
+				out.writeInt(-1);
+				return;
+			}
+			out.writeInt(nodes.size());
+			for (Object node : nodes) {
+				writeNode(node);
+			}
+		}
+
+		private void writeString(String value) throws IOException {
+			if (value == null) {
+				out.writeInt(-1);
+			} else {
+				out.writeInt(value.length());
+				out.writeChars(value);
+			}
+		}
+	}
+
+	private static class Reader {
+		private final DataInputStream in;
+		private final List<ASTNode> nodes = new ArrayList<>();
+
+		Reader(DataInputStream in) {
+			this.in = in;
+		}
+
+		ASTNode readNode() throws IOException {
+			final byte kind = in.readByte();
+			if (kind == NULL) {
+				return null;
+			} else if (kind == REFERENCE) {
+				return nodes.get(in.readInt());
+			}
+			final int start = in.readInt();
+			final int end = in.readInt();
+			switch (kind) {
+			case MODULE: {
+				final ModuleDeclaration module = register(
+						new ModuleDeclaration(end));
+				module.setStart(start);
+				for (ASTNode statement : readNodes()) {
+					module.addStatement(statement);
+				}
+				addAll(module.getTypeList(), readNodes());
+				addAll(module.getFunctionList(), readNodes());
+				addAll(module.getVariablesList(), readNodes());
+				return module;
+			}
+			case TYPE: {
+				final TypeDeclaration type = register(
+						new TypeDeclaration(null, 0, 0, start, end));
+				readDeclaration(type);
+				final String enclosingTypeName = readString();
+				if (enclosingTypeName != null) {
+					type.setEnclosingTypeName(enclosingTypeName);
+				}
+				type.setSuperClasses((ASTListNode) readNode());
+				type.setBody((Block) readNode());
+				addAll(type.getMethodList(), readNodes());
+				addAll(type.getTypeList(), readNodes());
+				addAll(type.getFieldList(), readNodes());
+				return type;
+			}
+			case METHOD: {
+				final MethodDeclaration method = register(
+						new MethodDeclaration(start, end));
+				readDeclaration(method);
+				method.setDeclaringTypeName(readString());
+				final List<ASTNode> arguments = readNodes();
+				method.acceptArguments(
+						arguments != null ? arguments : new ArrayList<>());
+				method.acceptBody((Block) readNode(), false);
+				return method;
+			}
+			case FIELD: {
+				final FieldDeclaration field = register(
+						new FieldDeclaration(null, 0, 0, start, end));
+				readDeclaration(field);
+				return field;
+			}
+			case ARGUMENT: {
+				final Argument argument = register(new Argument());
+				argument.setStart(start);
+				argument.setEnd(end);
+				readDeclaration(argument);
+				argument.setInitializationExpression(readNode());
+				return argument;
+			}
+			case BLOCK: {
+				final Block block = register(new Block(start, end));
+				final List<ASTNode> statements = readNodes();
+				if (statements != null) {
+					block.acceptStatements(statements);
+				}
+				return block;
+			}
+			case LIST: {
+				final ASTListNode list = register(new ASTListNode(start, end));
+				final List<ASTNode> childs = readNodes();
+				if (childs != null) {
+					list.setChilds(childs);
+				}
+				return list;
+			}
+			case SIMPLE_REFERENCE: {
+				final SimpleReference reference = register(
+						new SimpleReference(start, end, null));
+				reference.setName(readString());
+				return reference;
+			}
+			case TYPE_REFERENCE: {
+				final SimpleReference reference = register(
+						new TypeReference(start, end, null));
+				reference.setName(readString());
+				return reference;
+			}
+			default:
+				throw new IOException("Unknown node kind " + kind); //$NON-NLS-1$
+			}
+		}
+
+		private <T extends ASTNode> T register(T node) {
+			nodes.add(node);
+			return node;
+		}
+
+		private void readDeclaration(Declaration declaration)
+				throws IOException {
+			declaration.setModifiers(in.readInt());
+			declaration.setComments(readString());
+			if (in.readBoolean()) {
+				declaration.setName(readString());
+				declaration.setNameStart(in.readInt());
+				declaration.setNameEnd(in.readInt());
+			}
+		}
+
+		private List<ASTNode> readNodes() throws IOException {
+			final int size = in.readInt();
+			if (size < 0) {
+				return null;
+			}
+			final List<ASTNode> result = new ArrayList<>(size);
+			for (int i = 0; i < size; ++i) {
+				result.add(readNode());
+			}
+			return result;
+		}
+
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		private static void addAll(List target, List<ASTNode> nodes) {
+			if (nodes != null) {
+				target.addAll(nodes);
+			}
+		}
+
+		private String readString() throws IOException {
+			final int length = in.readInt();
+			if (length < 0) {
+				return null;
+			}
+			final char[] chars = new char[length];
+			for (int i = 0; i < length; ++i) {
+				chars[i] = in.readChar();
+			}
+			return new String(chars);
+		}
+	}
+}
@@ -0,0 +1,503 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.core.caching;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
+
+import org.eclipse.dltk.core.DLTKCore;
+
+/**
+ * Persistent index of the content cache entries: the attribute locations and
+ * the timestamp by the environment and path of the file.
+ * <p>
+ * The entries are divided between the fixed number of segments by the hash of
+ * the key. Each segment is an append-only log of the entry updates, loaded
+ * when any of its entries is accessed for the first time, so the load time
+ * depends on the entries used rather than on the size of the whole cache. The
+ * segment is compacted when loaded if most of its records are outdated.
+ * </p>
+ * <p>
+ * The entries are immutable, so the loaded segments are read without
+ * locking, while the updates are serialized per segment.
+ * </p>
+ */
+public class ContentCacheIndex {
+
+	private static final int SEGMENTS = 64;
+	private static final int COMPACT_THRESHOLD = 64;
+
+	private static final byte PUT = 1;
+	private static final byte REMOVE = 2;
+
+	private static final String COUNTERS_FILE = "counters"; //$NON-NLS-1$
+	private static final String SEGMENT_SUFFIX = ".log"; //$NON-NLS-1$
+
+	/**
+	 * Entry of the index, the updates return the new instances.
+	 */
+	public static final class Entry {
+		private final String environment;
+		private final String path;
+		private final long timestamp;
+		private final Map<String, String> attributes;
+		private volatile long lastAccessTime;
+
+		public Entry(String environment, String path, long timestamp) {
+			this(environment, path, timestamp,
+					Collections.<String, String> emptyMap());
+		}
+
+		private Entry(String environment, String path, long timestamp,
+				Map<String, String> attributes) {
+			this.environment = environment;
+			this.path = path;
+			this.timestamp = timestamp;
+			this.attributes = attributes;
+		}
+
+		public String getEnvironment() {
+			return environment;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		/**
+		 * Returns the last access time, which is not persisted.
+		 */
+		public long getLastAccessTime() {
+			return lastAccessTime;
+		}
+
+		public void setLastAccessTime(long lastAccessTime) {
+			this.lastAccessTime = lastAccessTime;
+		}
+
+		/**
+		 * Returns the location of the attribute or <code>null</code>.
+		 */
+		public String getAttribute(String name) {
+			return attributes.get(name);
+		}
+
+		/**
+		 * Returns the unmodifiable map of the attribute locations by name.
+		 */
+		public Map<String, String> getAttributes() {
+			return Collections.unmodifiableMap(attributes);
+		}
+
+		public Entry withAttribute(String name, String location) {
+			final Map<String, String> copy = new HashMap<>(attributes);
+			copy.put(name, location);
+			return copy(copy);
+		}
+
+		public Entry withoutAttribute(String name) {
+			if (!attributes.containsKey(name)) {
+				return this;
+			}
+			final Map<String, String> copy = new HashMap<>(attributes);
+			copy.remove(name);
+			return copy(copy);
+		}
+
+		private Entry copy(Map<String, String> attributes) {
+			final Entry entry = new Entry(environment, path, timestamp,
+					attributes);
+			entry.lastAccessTime = lastAccessTime;
+			return entry;
+		}
+	}
+
+	private static String makeKey(String environment, String path) {
+		return environment + '\0' + path;
+	}
+
+	private class Segment {
+		private final File file;
+		private volatile Map<String, Entry> entries;
+		private DataOutputStream output;
+
+		Segment(File file) {
+			this.file = file;
+		}
+
+		Map<String, Entry> getEntries() {
+			Map<String, Entry> result = entries;
+			if (result == null) {
+				synchronized (this) {
+					if (entries == null) {
+						entries = load();
+					}
+					result = entries;
+				}
+			}
+			return result;
+		}
+
+		private Map<String, Entry> load() {
+			final Map<String, Entry> result = new ConcurrentHashMap<>();
+			if (!file.exists()) {
+				return result;
+			}
+			int records = 0;
+			long validLength = 0;
+			try (DataInputStream in = new DataInputStream(
+					new BufferedInputStream(new FileInputStream(file), 8192))) {
+				for (;;) {
+					final int length;
+					try {
+						length = in.readInt();
+					} catch (EOFException e) {
+						break;
+					}
+					if (length <= 0 || length > file.length()) {
+						break;
+					}
+					final byte[] data = new byte[length];
+					in.readFully(data);
+					final CRC32 crc = new CRC32();
+					crc.update(data);
+					if (in.readInt() != (int) crc.getValue()) {
+						break;
+					}
+					apply(result, data);
+					++records;
+					validLength += 8 + length;
+				}
+			} catch (IOException e) {
+				// the partially written record, the valid part is loaded
+				if (DLTKCore.DEBUG) {
+					e.printStackTrace();
+				}
+			}
+			if (records - result.size() > COMPACT_THRESHOLD
+					&& records > 2 * result.size()) {
+				compact(result);
+			} else if (validLength < file.length()) {
+				truncate(validLength);
+			}
+			return result;
+		}
+
+		private void apply(Map<String, Entry> result, byte[] data)
+				throws IOException {
+			final DataInputStream in = new DataInputStream(
+					new ByteArrayInputStream(data));
+			final byte op = in.readByte();
+			final String environment = in.readUTF();
+			final String path = in.readUTF();
+			final String key = makeKey(environment, path);
+			if (op == REMOVE) {
+				result.remove(key);
+				return;
+			}
+			final long timestamp = in.readLong();
+			final int count = in.readInt();
+			final Map<String, String> attributes = new HashMap<>();
+			for (int i = 0; i < count; ++i) {
+				final String name = in.readUTF();
+				attributes.put(name, in.readUTF());
+			}
+			result.put(key,
+					new Entry(environment, path, timestamp, attributes));
+		}
+
+		private void truncate(long length) {
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) { //$NON-NLS-1$
+				raf.setLength(length);
+			} catch (IOException e) {
+				DLTKCore.error("Error truncating content cache index", e); //$NON-NLS-1$
+			}
+		}
+
+		private void compact(Map<String, Entry> result) {
+			final File temp = new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(temp),
+							8192))) {
+				for (Entry entry : result.values()) {
+					write(out, PUT, entry);
+				}
+			} catch (IOException e) {
+				DLTKCore.error("Error compacting content cache index", e); //$NON-NLS-1$
+				temp.delete();
+				return;
+			}
+			if (!file.delete() || !temp.renameTo(file)) {
+				DLTKCore.error("Error replacing content cache index " //$NON-NLS-1$
+						+ file);
+			}
+		}
+
+		/**
+		 * Appends the record, should be called with the segment locked.
+		 */
+		void append(byte op, Entry entry) {
+			try {
+				if (output == null) {
+					output = new DataOutputStream(new BufferedOutputStream(
+							new FileOutputStream(file, true), 8192));
+				}
+				write(output, op, entry);
+			} catch (IOException e) {
+				DLTKCore.error("Error writing content cache index", e); //$NON-NLS-1$
+			}
+		}
+
+		synchronized void flush(boolean close) {
+			if (output != null) {
+				try {
+					output.flush();
+					if (close) {
+						output.close();
+						output = null;
+					}
+				} catch (IOException e) {
+					DLTKCore.error("Error writing content cache index", e); //$NON-NLS-1$
+				}
+			}
+		}
+	}
+
+	private static void write(DataOutputStream output, byte op, Entry entry)
+			throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(op);
+		out.writeUTF(entry.environment);
+		out.writeUTF(entry.path);
+		if (op == PUT) {
+			out.writeLong(entry.timestamp);
+			out.writeInt(entry.attributes.size());
+			for (Map.Entry<String, String> attribute : entry.attributes
+					.entrySet()) {
+				out.writeUTF(attribute.getKey());
+				out.writeUTF(attribute.getValue());
+			}
+		}
+		out.flush();
+		final byte[] data = bytes.toByteArray();
+		final CRC32 crc = new CRC32();
+		crc.update(data);
+		output.writeInt(data.length);
+		output.write(data);
+		output.writeInt((int) crc.getValue());
+	}
+
+	private final File directory;
+	private final Segment[] segments = new Segment[SEGMENTS];
+	private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+	private volatile boolean countersLoaded;
+
+	public ContentCacheIndex(File directory) {
+		this.directory = directory;
+		for (int i = 0; i < SEGMENTS; ++i) {
+			segments[i] = new Segment(
+					new File(directory, Integer.toString(i) + SEGMENT_SUFFIX));
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if the index was not written yet.
+	 */
+	public boolean isNew() {
+		return !directory.exists();
+	}
+
+	private Segment getSegment(String key) {
+		int h = key.hashCode();
+		h ^= h >>> 16;
+		return segments[(h & 0x7fffffff) % SEGMENTS];
+	}
+
+	private void ensureDirectory() {
+		if (!directory.exists()) {
+			directory.mkdirs();
+		}
+	}
+
+	/**
+	 * Returns the entry or <code>null</code>.
+	 */
+	public Entry get(String environment, String path) {
+		final String key = makeKey(environment, path);
+		return getSegment(key).getEntries().get(key);
+	}
+
+	/**
+	 * Atomically replaces the entry with the result of the function, which is
+	 * called with the current entry or <code>null</code>. The function
+	 * returning <code>null</code> removes the entry.
+	 *
+	 * @return the new entry
+	 */
+	public Entry update(String environment, String path,
+			UnaryOperator<Entry> function) {
+		final String key = makeKey(environment, path);
+		final Segment segment = getSegment(key);
+		final Map<String, Entry> entries = segment.getEntries();
+		synchronized (segment) {
+			final Entry current = entries.get(key);
+			final Entry entry = function.apply(current);
+			if (entry == current) {
+				return entry;
+			}
+			ensureDirectory();
+			if (entry == null) {
+				entries.remove(key);
+				segment.append(REMOVE, current);
+			} else {
+				entries.put(key, entry);
+				segment.append(PUT, entry);
+			}
+			return entry;
+		}
+	}
+
+	/**
+	 * Removes the entry.
+	 *
+	 * @return the removed entry or <code>null</code>
+	 */
+	public Entry remove(String environment, String path) {
+		final Entry[] removed = new Entry[1];
+		update(environment, path, entry -> {
+			removed[0] = entry;
+			return null;
+		});
+		return removed[0];
+	}
+
+	/**
+	 * Returns all the entries, loading all the segments.
+	 */
+	public List<Entry> getEntries() {
+		final List<Entry> result = new ArrayList<>();
+		for (Segment segment : segments) {
+			result.addAll(segment.getEntries().values());
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the next value of the persistent counter of the environment.
+	 */
+	public long nextIndex(String environment) {
+		loadCounters();
+		return counters
+				.computeIfAbsent(environment, key -> new AtomicLong())
+				.incrementAndGet();
+	}
+
+	/**
+	 * Sets the counter of the environment, if it is less than the value.
+	 */
+	public void updateIndex(String environment, long value) {
+		loadCounters();
+		counters.computeIfAbsent(environment, key -> new AtomicLong())
+				.accumulateAndGet(value, Math::max);
+	}
+
+	private void loadCounters() {
+		if (countersLoaded) {
+			return;
+		}
+		synchronized (counters) {
+			if (countersLoaded) {
+				return;
+			}
+			final File file = new File(directory, COUNTERS_FILE);
+			if (file.exists()) {
+				try (DataInputStream in = new DataInputStream(
+						new BufferedInputStream(new FileInputStream(file)))) {
+					final int count = in.readInt();
+					for (int i = 0; i < count; ++i) {
+						counters.put(in.readUTF(), new AtomicLong(in.readLong()));
+					}
+				} catch (IOException e) {
+					// the locations are checked for existence anyway
+					if (DLTKCore.DEBUG) {
+						e.printStackTrace();
+					}
+				}
+			}
+			countersLoaded = true;
+		}
+	}
+
+	private void saveCounters() {
+		if (!countersLoaded) {
+			return;
+		}
+		ensureDirectory();
+		synchronized (counters) {
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(
+							new File(directory, COUNTERS_FILE))))) {
+				out.writeInt(counters.size());
+				for (Map.Entry<String, AtomicLong> entry : counters
+						.entrySet()) {
+					out.writeUTF(entry.getKey());
+					out.writeLong(entry.getValue().get());
+				}
+			} catch (IOException e) {
+				DLTKCore.error("Error writing content cache counters", e); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/**
+	 * Writes the pending updates to the disk.
+	 */
+	public void flush() {
+		for (Segment segment : segments) {
+			segment.flush(false);
+		}
+		saveCounters();
+	}
+
+	/**
+	 * Writes the pending updates and closes the files, they are opened again
+	 * when needed.
+	 */
+	public void close() {
+		for (Segment segment : segments) {
+			segment.flush(true);
+		}
+		saveCounters();
+	}
+}
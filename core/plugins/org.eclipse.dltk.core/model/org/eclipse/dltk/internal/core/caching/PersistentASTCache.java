@@ -0,0 +1,400 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.core.caching;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.dltk.ast.declarations.ModuleDeclaration;
+import org.eclipse.dltk.ast.parser.IASTCache;
+import org.eclipse.dltk.ast.parser.IModuleDeclaration;
+import org.eclipse.dltk.compiler.problem.ProblemCollector;
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.core.ModelException;
+
+/**
+ * Built-in {@link IASTCache} keeping the ASTs in the memory-mapped file, so
+ * the modules (e.g. the library ones) are not parsed again after restart or
+ * after the in-memory cache entries are cleared by GC.
+ * <p>
+ * The entries are keyed by the handle identifier of the module and the hash
+ * of its contents, so the changed modules are never restored. Only the ASTs
+ * without problems supported by the {@link ASTSerializer} are stored. The
+ * file is append-only, the overwritten entries are reclaimed when the file is
+ * opened or its maximum size is reached.
+ * </p>
+ * <p>
+ * The languages opt in by contributing the
+ * {@link org.eclipse.dltk.core.caching.PersistentASTCacheProvider}, as the
+ * ASTs of the other languages would be serialized for nothing.
+ * </p>
+ */
+public class PersistentASTCache implements IASTCache {
+
+	/**
+	 * Default maximum size of the file.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 256 << 20;
+
+	private static final long MAGIC = 0x444c544b41535431L; // DLTKAST1
+	private static final int HEADER_SIZE = 8;
+	private static final int INITIAL_SIZE = 1 << 20;
+
+	private final File file;
+	private final int maxSize;
+
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private boolean failed;
+
+	/**
+	 * Offsets of the entries by the key.
+	 */
+	private final Map<String, Integer> offsets = new HashMap<>();
+	private int end;
+	private int garbage;
+
+	/**
+	 * @param file
+	 *            the file, opened on the first access
+	 * @param maxSize
+	 *            maximum size of the file in bytes
+	 */
+	public PersistentASTCache(File file, int maxSize) {
+		this.file = file;
+		this.maxSize = Math.max(maxSize, INITIAL_SIZE);
+	}
+
+	@Override
+	public ASTCacheEntry restoreModule(ISourceModule module) {
+		if (module.isWorkingCopy()) {
+			return null;
+		}
+		final String key = module.getHandleIdentifier();
+		// the contents are read and hashed only if they could match
+		if (!contains(key)) {
+			return null;
+		}
+		final char[] contents = getContents(module);
+		if (contents == null) {
+			return null;
+		}
+		final ModuleDeclaration declaration = get(key, hash(contents));
+		if (declaration == null) {
+			return null;
+		}
+		final ASTCacheEntry entry = new ASTCacheEntry();
+		entry.module = declaration;
+		return entry;
+	}
+
+	@Override
+	public void storeModule(ISourceModule module,
+			IModuleDeclaration moduleDeclaration, ProblemCollector problems) {
+		if (module.isWorkingCopy()
+				|| !(moduleDeclaration instanceof ModuleDeclaration)
+				|| (problems != null && !problems.isEmpty())) {
+			return;
+		}
+		final char[] contents = getContents(module);
+		if (contents != null) {
+			put(module.getHandleIdentifier(), hash(contents),
+					(ModuleDeclaration) moduleDeclaration);
+		}
+	}
+
+	private static char[] getContents(ISourceModule module) {
+		try {
+			return module.getSourceAsCharArray();
+		} catch (ModelException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the 64-bit FNV-1a hash of the contents.
+	 */
+	public static long hash(char[] contents) {
+		long hash = 0xcbf29ce484222325L;
+		for (char c : contents) {
+			hash = (hash ^ c) * 0x100000001b3L;
+		}
+		return hash ^ contents.length;
+	}
+
+	/**
+	 * Returns whether any module is stored with the key.
+	 */
+	public synchronized boolean contains(String key) {
+		return open() && offsets.containsKey(key);
+	}
+
+	/**
+	 * Returns the module stored with the same key and hash or
+	 * <code>null</code>.
+	 */
+	public synchronized ModuleDeclaration get(String key, long hash) {
+		if (!open()) {
+			return null;
+		}
+		final Integer offset = offsets.get(key);
+		if (offset == null) {
+			return null;
+		}
+		int position = offset + 4;
+		position += 4 + 2 * buffer.getInt(position);
+		if (buffer.getLong(position) != hash) {
+			return null;
+		}
+		position += 8;
+		final byte[] data = new byte[buffer.getInt(position)];
+		position += 4;
+		for (int i = 0; i < data.length; ++i) {
+			data[i] = buffer.get(position + i);
+		}
+		try {
+			return ASTSerializer.deserialize(data);
+		} catch (IOException e) {
+			if (DLTKCore.DEBUG) {
+				e.printStackTrace();
+			}
+			offsets.remove(key);
+			garbage += recordSize(offset);
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the module with the key and hash if it is supported by the
+	 * {@link ASTSerializer}.
+	 *
+	 * @return <code>true</code> if the module was stored
+	 */
+	public synchronized boolean put(String key, long hash,
+			ModuleDeclaration module) {
+		final byte[] data = ASTSerializer.serialize(module);
+		if (data == null || !open()) {
+			return false;
+		}
+		final int length = 4 + 2 * key.length() + 8 + 4 + data.length;
+		if (!ensureCapacity(4 + length)) {
+			return false;
+		}
+		int position = end + 4;
+		buffer.putInt(position, key.length());
+		position += 4;
+		for (int i = 0; i < key.length(); ++i) {
+			buffer.putChar(position, key.charAt(i));
+			position += 2;
+		}
+		buffer.putLong(position, hash);
+		position += 8;
+		buffer.putInt(position, data.length);
+		position += 4;
+		for (int i = 0; i < data.length; ++i) {
+			buffer.put(position + i, data[i]);
+		}
+		// the stale bytes after the entry must not be read as the next one
+		buffer.putInt(end + 4 + length, 0);
+		// the length is written last, so the partially written entry is
+		// treated as the end of the file
+		buffer.putInt(end, length);
+		final Integer previous = offsets.put(key, end);
+		if (previous != null) {
+			garbage += recordSize(previous);
+		}
+		end += 4 + length;
+		return true;
+	}
+
+	public synchronized int size() {
+		return open() ? offsets.size() : 0;
+	}
+
+	/**
+	 * Removes all the entries.
+	 */
+	public synchronized void clear() {
+		if (open()) {
+			reset();
+		}
+	}
+
+	/**
+	 * Flushes the changes and closes the file, it is opened again on the next
+	 * access.
+	 */
+	public synchronized void close() {
+		if (channel != null) {
+			try {
+				buffer.force();
+				channel.close();
+			} catch (IOException e) {
+				DLTKCore.error("Error closing AST cache", e); //$NON-NLS-1$
+			}
+			channel = null;
+			buffer = null;
+			offsets.clear();
+		}
+	}
+
+	private boolean open() {
+		if (buffer != null) {
+			return true;
+		} else if (failed) {
+			return false;
+		}
+		try {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ,
+					StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+			final long fileSize = channel.size();
+			buffer = channel.map(MapMode.READ_WRITE, 0,
+					Math.min(Math.max(fileSize, INITIAL_SIZE), maxSize));
+			if (fileSize < HEADER_SIZE || buffer.getLong(0) != MAGIC) {
+				reset();
+			} else {
+				load();
+			}
+			return true;
+		} catch (IOException e) {
+			DLTKCore.error("Error opening AST cache", e); //$NON-NLS-1$
+			failed = true;
+			channel = null;
+			buffer = null;
+			return false;
+		} catch (RuntimeException e) {
+			// the contents are damaged, start from scratch
+			if (DLTKCore.DEBUG) {
+				e.printStackTrace();
+			}
+			if (buffer == null) {
+				failed = true;
+				channel = null;
+				return false;
+			}
+			reset();
+			return true;
+		}
+	}
+
+	private void reset() {
+		buffer.putLong(0, MAGIC);
+		buffer.putInt(HEADER_SIZE, 0);
+		offsets.clear();
+		end = HEADER_SIZE;
+		garbage = 0;
+	}
+
+	private void load() {
+		int position = HEADER_SIZE;
+		while (position + 4 <= buffer.capacity()) {
+			final int length = buffer.getInt(position);
+			if (length <= 0 || length > buffer.capacity() - position - 4) {
+				break;
+			}
+			final int keyLength = buffer.getInt(position + 4);
+			if (keyLength < 0 || 4 + 2L * keyLength + 8 + 4 > length) {
+				break;
+			}
+			final int dataLength = buffer
+					.getInt(position + 4 + 4 + 2 * keyLength + 8);
+			if (dataLength != length - (4 + 2 * keyLength + 8 + 4)) {
+				break;
+			}
+			final char[] key = new char[keyLength];
+			for (int i = 0; i < keyLength; ++i) {
+				key[i] = buffer.getChar(position + 8 + 2 * i);
+			}
+			final Integer previous = offsets.put(new String(key), position);
+			if (previous != null) {
+				garbage += recordSize(previous);
+			}
+			position += 4 + length;
+		}
+		end = position;
+		if (garbage > end / 2) {
+			compact();
+		}
+	}
+
+	private int recordSize(int offset) {
+		return 4 + buffer.getInt(offset);
+	}
+
+	/**
+	 * Moves the live entries to the beginning of the file.
+	 */
+	private void compact() {
+		final List<Map.Entry<String, Integer>> entries = new ArrayList<>(
+				offsets.entrySet());
+		Collections.sort(entries, (a, b) -> a.getValue() - b.getValue());
+		int position = HEADER_SIZE;
+		for (Map.Entry<String, Integer> entry : entries) {
+			final int offset = entry.getValue();
+			final int size = recordSize(offset);
+			if (offset != position) {
+				final byte[] record = new byte[size];
+				for (int i = 0; i < size; ++i) {
+					record[i] = buffer.get(offset + i);
+				}
+				for (int i = 0; i < size; ++i) {
+					buffer.put(position + i, record[i]);
+				}
+				entry.setValue(position);
+			}
+			position += size;
+		}
+		if (position + 4 <= buffer.capacity()) {
+			buffer.putInt(position, 0);
+		}
+		end = position;
+		garbage = 0;
+	}
+
+	private boolean ensureCapacity(int size) {
+		// keep the room for the terminating zero length
+		final long required = (long) end + size + 4;
+		if (required <= buffer.capacity()) {
+			return true;
+		}
+		if (required > maxSize) {
+			if (garbage > 0) {
+				compact();
+			}
+			if ((long) end + size + 4 > maxSize) {
+				reset();
+			}
+			if ((long) end + size + 4 > maxSize) {
+				return false;
+			}
+		}
+		final long capacity = Math.min(maxSize,
+				Math.max((long) buffer.capacity() * 2, (long) end + size + 4));
+		if (capacity > buffer.capacity()) {
+			try {
+				buffer = channel.map(MapMode.READ_WRITE, 0, capacity);
+			} catch (IOException e) {
+				DLTKCore.error("Error growing AST cache", e); //$NON-NLS-1$
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -31,7 +31,7 @@ public class ChangeCollector {
 	/*
 	 * A table from ITypes to TypeDeltas
 	 */
-	HashMap changes = new HashMap();
+	HashMap<IType, SimpleDelta> changes = new HashMap<>();
 
 	TypeHierarchy hierarchy;
 
@@ -77,7 +77,7 @@ public class ChangeCollector {
 			getAllTypesFromElement(cu, allTypes);
 			for (int i = 0, length = allTypes.size(); i < length; i++) {
 				IType type = (IType) allTypes.get(i);
-				addTypeAddition(type, (SimpleDelta) this.changes.get(type));
+				addTypeAddition(type, this.changes.get(type));
 			}
 			break;
 		case IModelElementDelta.REMOVED:
@@ -85,7 +85,7 @@ public class ChangeCollector {
 			getAllTypesFromHierarchy((ModelElement) cu, allTypes);
 			for (int i = 0, length = allTypes.size(); i < length; i++) {
 				IType type = (IType) allTypes.get(i);
-				addTypeRemoval(type, (SimpleDelta) this.changes.get(type));
+				addTypeRemoval(type, this.changes.get(type));
 			}
 			break;
 		case IModelElementDelta.CHANGED:
@@ -176,7 +176,7 @@ public class ChangeCollector {
 			getAllTypesFromElement(member, allTypes);
 			for (int i = 0, length = allTypes.size(); i < length; i++) {
 				IType innerType = (IType) allTypes.get(i);
-				addTypeAddition(innerType, (SimpleDelta) this.changes.get(innerType));
+				addTypeAddition(innerType, this.changes.get(innerType));
 			}
 			break;
 		case IModelElementDelta.REMOVED:
@@ -184,7 +184,7 @@ public class ChangeCollector {
 			getAllTypesFromHierarchy((ModelElement) member, allTypes);
 			for (int i = 0, length = allTypes.size(); i < length; i++) {
 				IType type = (IType) allTypes.get(i);
-				addTypeRemoval(type, (SimpleDelta) this.changes.get(type));
+				addTypeRemoval(type, this.changes.get(type));
 			}
 			break;
 		case IModelElementDelta.CHANGED:
@@ -198,7 +198,7 @@ public class ChangeCollector {
 	 */
 	private void addChange(IType type, IModelElementDelta newDelta) throws ModelException {
 		int newKind = newDelta.getKind();
-		SimpleDelta existingDelta = (SimpleDelta) this.changes.get(type);
+		SimpleDelta existingDelta = this.changes.get(type);
 		switch (newKind) {
 		case IModelElementDelta.ADDED:
 			addTypeAddition(type, existingDelta);
@@ -206,7 +206,7 @@ public class ChangeCollector {
 			getAllTypesFromElement(type, allTypes);
 			for (int i = 0, length = allTypes.size(); i < length; i++) {
 				IType innerType = (IType) allTypes.get(i);
-				addTypeAddition(innerType, (SimpleDelta) this.changes.get(innerType));
+				addTypeAddition(innerType, this.changes.get(innerType));
 			}
 			break;
 		case IModelElementDelta.REMOVED:
@@ -215,7 +215,7 @@ public class ChangeCollector {
 			getAllTypesFromHierarchy((ModelElement) type, allTypes);
 			for (int i = 0, length = allTypes.size(); i < length; i++) {
 				IType innerType = (IType) allTypes.get(i);
-				addTypeRemoval(innerType, (SimpleDelta) this.changes.get(innerType));
+				addTypeRemoval(innerType, this.changes.get(innerType));
 			}
 			break;
 		case IModelElementDelta.CHANGED:
@@ -416,6 +416,13 @@ public class ChangeCollector {
 		return existingFlags != newFlags;
 	}
 
+	/*
+	 * Returns the deltas of the types affecting the hierarchy collected so far.
+	 */
+	public Map<IType, SimpleDelta> getChanges() {
+		return this.changes;
+	}
+
 	/*
 	 * Whether the hierarchy needs refresh according to the changes collected so
 	 * far.
@@ -427,9 +434,10 @@ public class ChangeCollector {
 	@Override
 	public String toString() {
 		StringBuilder buffer = new StringBuilder();
-		Iterator iterator = this.changes.entrySet().iterator();
+		Iterator<Map.Entry<IType, SimpleDelta>> iterator = this.changes
+				.entrySet().iterator();
 		while (iterator.hasNext()) {
-			Map.Entry entry = (Map.Entry) iterator.next();
+			Map.Entry<IType, SimpleDelta> entry = iterator.next();
 			buffer.append(((ModelElement) entry.getKey()).toDebugString());
 			buffer.append(entry.getValue());
 			if (iterator.hasNext()) {
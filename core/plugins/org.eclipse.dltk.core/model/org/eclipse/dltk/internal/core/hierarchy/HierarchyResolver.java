@@ -8,6 +8,7 @@
  *******************************************************************************/
 package org.eclipse.dltk.internal.core.hierarchy;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -23,6 +24,7 @@ import org.eclipse.dltk.core.DLTKLanguageManager;
 import org.eclipse.dltk.core.IDLTKLanguageToolkit;
 import org.eclipse.dltk.core.IFileHierarchyInfo;
 import org.eclipse.dltk.core.IFileHierarchyResolver;
+import org.eclipse.dltk.core.IModelElementDelta;
 import org.eclipse.dltk.core.ISearchPatternProcessor;
 import org.eclipse.dltk.core.ISourceModule;
 import org.eclipse.dltk.core.IType;
@@ -36,6 +38,7 @@ import org.eclipse.dltk.core.search.SearchPattern;
 import org.eclipse.dltk.core.search.TypeNameRequestor;
 import org.eclipse.dltk.internal.core.ModelElement;
 import org.eclipse.dltk.internal.core.Openable;
+import org.eclipse.dltk.internal.core.SimpleDelta;
 import org.eclipse.dltk.internal.core.util.HandleFactory;
 
 public class HierarchyResolver {
@@ -155,9 +158,25 @@ public class HierarchyResolver {
 		final Map<String, List<String>> superTypeToExtender = new HashMap<>();
 		final String delimiter = getDelimiterReplacementString(focusType);
 
-		Map<String, Set<IType>> tmpCache = new HashMap<>();
-
 		IType[] types = findTypes(null, hierarchyBuilder.hierarchy.scope);
+		HashMap<String, IType[]> cache = collectExtenders(types,
+				superTypeToExtender, delimiter);
+
+		// Create file hierarchy resolver for filtering non-included elements
+		IFileHierarchyInfo hierarchyInfo = resolveDown(focusType);
+
+		computeSubtypesFor(focusType, superTypeToExtender, cache, hierarchyInfo,
+				new HashSet<IType>(), delimiter);
+	}
+
+	/**
+	 * Adds the qualified names of the specified types to the extenders of
+	 * their supertypes and returns the types by the qualified name.
+	 */
+	private static HashMap<String, IType[]> collectExtenders(IType[] types,
+			Map<String, List<String>> superTypeToExtender, String delimiter)
+			throws ModelException {
+		Map<String, Set<IType>> tmpCache = new HashMap<>();
 		for (IType type : types) {
 			String[] superTypes = type.getSuperClasses();
 			if (superTypes != null) {
@@ -191,19 +210,19 @@ public class HierarchyResolver {
 			cache.put(typeName,
 					typeElements.toArray(new IType[typeElements.size()]));
 		}
+		return cache;
+	}
 
-		// Create file hierarchy resolver for filtering non-included elements
+	private IFileHierarchyInfo resolveDown(IType focusType)
+			throws CoreException {
 		IFileHierarchyResolver fileHierarchyResolver = createFileHierarchyResolver(
 				focusType);
-		IFileHierarchyInfo hierarchyInfo = null;
 		if (fileHierarchyResolver != null) {
-			hierarchyInfo = fileHierarchyResolver.resolveDown(
+			return fileHierarchyResolver.resolveDown(
 					focusType.getSourceModule(),
 					hierarchyBuilder.hierarchy.progressMonitor);
 		}
-
-		computeSubtypesFor(focusType, superTypeToExtender, cache, hierarchyInfo,
-				new HashSet<IType>(), delimiter);
+		return null;
 	}
 
 	protected void computeSubtypesFor(IType focusType,
@@ -305,17 +324,33 @@ public class HierarchyResolver {
 			return cache.get(typeName);
 		}
 
-		final List<IType> result = new LinkedList<>();
-		final List<IType> filteredTypes = new LinkedList<>();
+		final List<IType> namedTypes = new LinkedList<>();
 
 		IType[] types = findTypes(typeName, hierarchyBuilder.hierarchy.scope);
 		for (IType type : types) {
 			String delimiter = getDelimiterReplacementString(type);
 			String qualifiedName = type.getTypeQualifiedName(delimiter);
-			if (!typeName.equalsIgnoreCase(qualifiedName)) {
-				continue;
+			if (typeName.equalsIgnoreCase(qualifiedName)) {
+				namedTypes.add(type);
 			}
+		}
+
+		types = filterTypes(namedTypes, hierarchyInfo);
+		if (cache != null) {
+			cache.put(typeName, types);
+		}
+		return types;
+	}
 
+	/**
+	 * Returns the types which source modules are included by the hierarchy
+	 * info.
+	 */
+	private static IType[] filterTypes(List<IType> types,
+			IFileHierarchyInfo hierarchyInfo) {
+		final List<IType> result = new LinkedList<>();
+		final List<IType> filteredTypes = new LinkedList<>();
+		for (IType type : types) {
 			if (hierarchyInfo != null
 					&& !hierarchyInfo.exists(type.getSourceModule())) {
 				filteredTypes.add(type);
@@ -330,12 +365,161 @@ public class HierarchyResolver {
 		if (result.isEmpty()) {
 			result.addAll(filteredTypes);
 		}
+		return result.toArray(new IType[result.size()]);
+	}
 
-		types = result.toArray(new IType[result.size()]);
-		if (cache != null) {
-			cache.put(typeName, types);
+	/**
+	 * Applies the collected changes of the types to the subtypes of the focus
+	 * type: the changed types are detached and attached again to the subtypes
+	 * they extend, the subtypes are computed only for the types newly attached
+	 * to the hierarchy, and the types no longer connected to the focus type
+	 * are removed. The extenders are matched by the qualified names in the
+	 * same way as {@link #computeSubtypes(IType)} does.
+	 *
+	 * @return <code>false</code> if the changes could not be applied and the
+	 *         hierarchy should be computed again
+	 */
+	public boolean update(Map<IType, SimpleDelta> changes)
+			throws CoreException {
+		final TypeHierarchy hierarchy = hierarchyBuilder.hierarchy;
+		final IType focusType = hierarchyBuilder.getType();
+		if (!hierarchy.computeSubtypes || focusType == null) {
+			return false;
+		}
+		final Set<IType> supertypes = new HashSet<>(
+				Arrays.asList(hierarchy.getAllSupertypes(focusType)));
+		final List<IType> changedTypes = new ArrayList<>();
+		final Set<IType> connected = new HashSet<>();
+		for (Map.Entry<IType, SimpleDelta> entry : changes.entrySet()) {
+			final IType type = entry.getKey();
+			if (type.equals(focusType) || supertypes.contains(type)) {
+				return false;
+			}
+			if (hierarchy.contains(type)) {
+				connected.add(type);
+			}
+			if (entry.getValue().getKind() == IModelElementDelta.REMOVED) {
+				hierarchy.detachType(type);
+			} else {
+				hierarchy.detachFromSuperclasses(type);
+				if (type.exists()) {
+					final String[] superClasses = type.getSuperClasses();
+					if (superClasses != null && superClasses.length != 0) {
+						changedTypes.add(type);
+					}
+				}
+			}
+		}
+
+		final String delimiter = getDelimiterReplacementString(focusType);
+		final IFileHierarchyInfo hierarchyInfo = resolveDown(focusType);
+		final Map<String, List<IType>> subtypes = new HashMap<>();
+		addByName(subtypes, focusType, delimiter);
+		for (IType subtype : hierarchy.getAllSubtypes(focusType)) {
+			addByName(subtypes, subtype, delimiter);
+		}
+		final Set<IType> processedTypes = new HashSet<>();
+		boolean attached = true;
+		while (attached && !changedTypes.isEmpty()) {
+			// the changed types could extend each other
+			attached = false;
+			final Map<String, List<IType>> extenders = new HashMap<>();
+			for (IType type : changedTypes) {
+				addByName(extenders, type, delimiter);
+			}
+			for (List<IType> types : extenders.values()) {
+				// all the types with the extender name are the subtypes, as
+				// computeSubtypesFor() finds them by the name
+				final Set<IType> superclasses = new HashSet<>();
+				for (IType type : types) {
+					for (String superClass : type.getSuperClasses()) {
+						final List<IType> matches = subtypes.get(superClass);
+						if (matches != null) {
+							superclasses.addAll(matches);
+						}
+					}
+				}
+				if (superclasses.isEmpty()) {
+					continue;
+				}
+				changedTypes.removeAll(types);
+				attached = true;
+				for (IType type : filterTypes(types, hierarchyInfo)) {
+					for (IType superclass : superclasses) {
+						hierarchy.addSubtype(superclass, type);
+					}
+					if (!connected.contains(type) && !computeSubtypesOf(type,
+							processedTypes, hierarchyInfo, delimiter)) {
+						return false;
+					}
+					addByName(subtypes, type, delimiter);
+					for (IType subtype : hierarchy.getAllSubtypes(type)) {
+						addByName(subtypes, subtype, delimiter);
+					}
+				}
+			}
+		}
+		hierarchy.retainConnectedTypes();
+		return true;
+	}
+
+	private static void addByName(Map<String, List<IType>> types, IType type,
+			String delimiter) {
+		final List<IType> named = types.computeIfAbsent(
+				type.getTypeQualifiedName(delimiter), k -> new ArrayList<>(1));
+		if (!named.contains(type)) {
+			named.add(type);
+		}
+	}
+
+	/**
+	 * Computes the subtypes of the type newly attached to the hierarchy,
+	 * returns <code>false</code> if the possible subtypes could not be found
+	 * in the index.
+	 */
+	private boolean computeSubtypesOf(IType type, Set<IType> processedTypes,
+			IFileHierarchyInfo hierarchyInfo, String delimiter)
+			throws CoreException {
+		final IDLTKLanguageToolkit toolkit = DLTKLanguageManager
+				.getLanguageToolkit(type);
+		if (toolkit == null || ModelAccess.getSearchEngine(toolkit) != null) {
+			// the supertype references are not in the index
+			return false;
+		}
+		final TypeHierarchy hierarchy = hierarchyBuilder.hierarchy;
+		final Set<String> paths = new HashSet<>();
+		IndexBasedHierarchyBuilder.searchAllPossibleSubTypes(type,
+				hierarchy.scope, new HashMap<>(),
+				(path, containsLocalTypes) -> paths.add(path),
+				IDLTKSearchConstants.WAIT_UNTIL_READY_TO_SEARCH,
+				hierarchy.progressMonitor);
+		if (paths.isEmpty()) {
+			return true;
+		}
+		final List<IType> types = new ArrayList<>();
+		final HandleFactory factory = new HandleFactory();
+		for (String path : paths) {
+			final Openable openable = factory.createOpenable(path,
+					hierarchy.scope);
+			if (openable instanceof ISourceModule) {
+				collectTypes(((ISourceModule) openable).getTypes(), types);
+			}
+		}
+		final Map<String, List<String>> superTypeToExtender = new HashMap<>();
+		final HashMap<String, IType[]> cache = collectExtenders(
+				types.toArray(new IType[types.size()]), superTypeToExtender,
+				delimiter);
+		computeSubtypesFor(type, superTypeToExtender, cache, hierarchyInfo,
+				processedTypes, delimiter);
+		return true;
+	}
+
+	private static void collectTypes(IType[] types, List<IType> result)
+			throws ModelException {
+		for (IType type : types) {
+			result.add(type);
+			collectTypes(type.getTypes(), result);
 		}
-		return types;
 	}
 
 	public void resolve(Openable[] openables, HashSet<String> localTypes) {
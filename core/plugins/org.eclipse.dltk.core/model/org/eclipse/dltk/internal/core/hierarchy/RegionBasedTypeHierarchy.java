@@ -105,6 +105,11 @@ protected void compute() throws ModelException, CoreException {
 	builder.build(this.computeSubtypes);
 }
 @Override
+protected boolean canRefreshIncrementally() {
+	// the region is computed again
+	return false;
+}
+@Override
 protected boolean isAffectedByOpenable(IModelElementDelta delta, IModelElement element) {
 	// change to working copy
 	if (element instanceof SourceModule && ((SourceModule)element).isWorkingCopy()) {
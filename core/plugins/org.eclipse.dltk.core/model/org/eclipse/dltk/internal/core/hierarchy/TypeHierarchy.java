@@ -13,6 +13,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
@@ -156,6 +157,12 @@ public class TypeHierarchy implements ITypeHierarchy, IElementChangedListener {
 	 */
 	protected ChangeCollector changeCollector;
 
+	/*
+	 * Whether all the changes since the last refresh were collected by the
+	 * change collector, so the hierarchy could be updated incrementally
+	 */
+	private boolean incrementalRefresh;
+
 	/**
 	 * Creates an empty TypeHierarchy
 	 */
@@ -338,6 +345,117 @@ public class TypeHierarchy implements ITypeHierarchy, IElementChangedListener {
 		} // else a RegionBasedTypeHierarchy should be used
 	}
 
+	/**
+	 * Whether this hierarchy could be updated from the collected changes
+	 * instead of being computed again.
+	 */
+	protected boolean canRefreshIncrementally() {
+		return this.focusType != null && this.computeSubtypes;
+	}
+
+	/**
+	 * Applies the collected changes of the types to this hierarchy, returns
+	 * <code>false</code> if the hierarchy should be computed again.
+	 */
+	private boolean refreshIncrementally() throws CoreException {
+		ChangeCollector collector = this.changeCollector;
+		if (!this.incrementalRefresh || collector == null
+				|| !canRefreshIncrementally()) {
+			return false;
+		}
+		HierarchyBuilder builder = new IndexBasedHierarchyBuilder(this,
+				this.scope);
+		if (!new HierarchyResolver(builder).update(collector.getChanges())) {
+			if (DEBUG) {
+				System.out.println(
+						"  incremental refresh not possible, computing again"); //$NON-NLS-1$
+			}
+			return false;
+		}
+		// the regions are initialized again from the updated types
+		this.projectRegion = new Region();
+		this.packageRegion = new Region();
+		this.files = new HashMap<>(5);
+		return true;
+	}
+
+	/**
+	 * Removes the type from the subtypes of its superclasses, the subtypes of
+	 * the type are kept.
+	 */
+	void detachFromSuperclasses(IType type) {
+		TypeVector superclasses = this.classToSuperclass.remove(type);
+		if (superclasses != null) {
+			for (IType superclass : superclasses.elements()) {
+				TypeVector subtypes = this.typeToSubtypes.get(superclass);
+				if (subtypes != null) {
+					removeEqual(subtypes, type);
+				}
+			}
+		}
+		removeEqual(this.rootClasses, type);
+		resetClassPaths();
+	}
+
+	/**
+	 * Removes the type from this hierarchy, its subtypes are detached from it.
+	 */
+	void detachType(IType type) {
+		detachFromSuperclasses(type);
+		TypeVector subtypes = this.typeToSubtypes.remove(type);
+		if (subtypes != null) {
+			for (IType subtype : subtypes.elements()) {
+				TypeVector superclasses = this.classToSuperclass.get(subtype);
+				if (superclasses != null) {
+					removeEqual(superclasses, type);
+				}
+			}
+		}
+		this.typeFlags.remove(type);
+	}
+
+	/**
+	 * Removes the types which are neither the focus type nor its supertypes or
+	 * subtypes.
+	 */
+	void retainConnectedTypes() {
+		Set<IType> connected = new HashSet<>();
+		connected.add(this.focusType);
+		connected.addAll(Arrays.asList(getAllSupertypes(this.focusType)));
+		connected.addAll(Arrays.asList(getAllSubtypes(this.focusType)));
+		Set<IType> types = new HashSet<>(this.classToSuperclass.keySet());
+		types.addAll(this.typeToSubtypes.keySet());
+		types.addAll(this.typeFlags.keySet());
+		for (IType type : types) {
+			if (!connected.contains(type)) {
+				this.classToSuperclass.remove(type);
+				this.typeToSubtypes.remove(type);
+				this.typeFlags.remove(type);
+				this.rootClasses.remove(type);
+			}
+		}
+		for (TypeVector subtypes : this.typeToSubtypes.values()) {
+			for (IType subtype : subtypes.copy().elements()) {
+				if (!connected.contains(subtype)) {
+					subtypes.remove(subtype);
+				}
+			}
+		}
+		resetClassPaths();
+	}
+
+	/**
+	 * Removes the elements equal to the type, the handles of the changed
+	 * types are not identical to the ones in this hierarchy.
+	 */
+	private static void removeEqual(TypeVector types, IType type) {
+		for (IType element : types.copy().elements()) {
+			if (element.equals(type)) {
+				types.remove(element);
+			}
+		}
+	}
+
 	/**
 	 * @see ITypeHierarchy
 	 */
@@ -363,17 +481,49 @@ public class TypeHierarchy implements ITypeHierarchy, IElementChangedListener {
 	 */
 	@Override
 	public void elementChanged(ElementChangedEvent event) {
+		IModelElementDelta delta = event.getDelta();
 		// type hierarchy change has already been fired
 		if (this.needsRefresh) {
+			// keep collecting the changes for the incremental refresh
+			if (this.incrementalRefresh && isAffected(delta)
+					&& !isCollected(delta)) {
+				this.incrementalRefresh = false;
+			}
 			return;
 		}
 
-		if (isAffected(event.getDelta())) {
+		if (isAffected(delta)) {
 			this.needsRefresh = true;
+			if (!isCollected(delta)) {
+				this.incrementalRefresh = false;
+			}
 			fireChange();
 		}
 	}
 
+	/**
+	 * Returns whether the delta only changes the source modules, so all the
+	 * changes affecting this hierarchy were collected by the change collector.
+	 */
+	private static boolean isCollected(IModelElementDelta delta) {
+		if (delta.getElement().getElementType() >= IModelElement.SOURCE_MODULE) {
+			// content changes without the fine grained deltas are not collected
+			return (delta.getFlags() & IModelElementDelta.F_CONTENT) == 0
+					|| (delta.getFlags()
+							& IModelElementDelta.F_FINE_GRAINED) != 0;
+		}
+		if (delta.getKind() != IModelElementDelta.CHANGED
+				|| (delta.getFlags() & ~IModelElementDelta.F_CHILDREN) != 0) {
+			return false;
+		}
+		for (IModelElementDelta child : delta.getAffectedChildren()) {
+			if (!isCollected(child)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * @see ITypeHierarchy
 	 */
@@ -944,9 +1094,10 @@ public class TypeHierarchy implements ITypeHierarchy, IElementChangedListener {
 					e.printStackTrace();
 				}
 			}
+			// the collected changes are used by the incremental refresh
+			this.changeCollector = collector;
 			if (cu.isWorkingCopy()) {
 				// changes to working copies are batched
-				this.changeCollector = collector;
 				return false;
 			} else {
 				return collector.needsRefresh();
@@ -1170,10 +1321,13 @@ public class TypeHierarchy implements ITypeHierarchy, IElementChangedListener {
 				}
 			}
 
-			compute();
+			if (!refreshIncrementally()) {
+				compute();
+			}
 			initializeRegions();
 			this.needsRefresh = false;
 			this.changeCollector = null;
+			this.incrementalRefresh = canRefreshIncrementally();
 
 			if (DEBUG) {
 				if (this.computeSubtypes) {
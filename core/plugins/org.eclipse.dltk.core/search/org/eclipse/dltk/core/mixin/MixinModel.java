@@ -17,6 +17,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
@@ -70,15 +74,22 @@ public class MixinModel {
 	/**
 	 * Contains map of source modules to mixin elements.
 	 */
-	private Map<ISourceModule, List<MixinElement>> elementToMixinCache = new HashMap<>();
+	private Map<ISourceModule, Set<MixinElement>> elementToMixinCache = new HashMap<>();
 
 	private final RequestCache requestCache = new RequestCache(
 			REQUEST_CACHE_LIMIT);
 
 	// true if exists, false if doesn't
-	private Map<String, Boolean> knownKeysCache = new HashMap<>();
+	private final Map<String, Boolean> knownKeysCache = new ConcurrentHashMap<>();
 	// boolean, for the atomicity of it
-	public boolean removes = true;
+	public volatile boolean removes = true;
+
+	/**
+	 * The elements returned by {@link #get(String)} and {@link #find(String)},
+	 * so they are returned again without taking the model lock while they
+	 * remain final.
+	 */
+	private final Map<String, MixinElement> publishedElements = new ConcurrentHashMap<>();
 
 	private final IDLTKLanguageToolkit toolkit;
 
@@ -89,9 +100,16 @@ public class MixinModel {
 	private ISourceModule currentModule;
 
 	/**
-	 * modules required to be reparsed
+	 * modules reported by the {@link IMixinParser}, so the objects of their
+	 * elements are known. The keys of the other modules in
+	 * {@link #elementToMixinCache} are restored from the mixin index, the
+	 * modules are parsed only when the objects are requested.
+	 * <p>
+	 * The modules are parsed without the model lock, the value is completed
+	 * when the parse results are added to the model.
+	 * </p>
 	 */
-	private Set<ISourceModule> modulesToReparse = new HashSet<>();
+	private final Map<ISourceModule, CompletableFuture<Void>> parsedModules = new HashMap<>();
 
 	/**
 	 * Creates workspace instance
@@ -134,11 +152,14 @@ public class MixinModel {
 		if (DLTKCore.VERBOSE) {
 			System.out.println("MixinModel.get(" + key + ')'); //$NON-NLS-1$
 		}
-		MixinElement element = null;
+		if (knownKeysCache.get(key) == Boolean.FALSE) {
+			return null;
+		}
+		MixinElement element = getPublished(key);
+		if (element != null) {
+			return element;
+		}
 		synchronized (this) {
-			if (knownKeysCache.get(key) == Boolean.FALSE) {
-				return null;
-			}
 			element = (MixinElement) cache.get(key);
 			if (element == null) {
 				if (!removes) {
@@ -159,15 +180,35 @@ public class MixinModel {
 		synchronized (this) {
 			if (element.isFinal() && element.sourceModules.size() > 0) {
 				knownKeysCache.put(key, Boolean.TRUE);
+				publishedElements.put(key, element);
 				return element;
 			}
 			knownKeysCache.put(key, Boolean.FALSE);
-			cache.remove(element.key);
-			cache.resetSpaceLimit(CACHE_LIMIT, element);
+			removeFromCache(element);
 		}
 		return null;
 	}
 
+	/**
+	 * Returns the published element if it is still final, without taking the
+	 * model lock.
+	 */
+	private MixinElement getPublished(String key) {
+		final MixinElement element = publishedElements.get(key);
+		if (element != null && element.isFinal()
+				&& !element.sourceModules.isEmpty()) {
+			return element;
+		}
+		return null;
+	}
+
+	// called with lock being held
+	private void removeFromCache(MixinElement element) {
+		publishedElements.remove(element.key, element);
+		cache.remove(element.key);
+		cache.resetSpaceLimit(CACHE_LIMIT, element);
+	}
+
 	private IDLTKSearchScope createSearchScope() {
 		if (project != null) {
 			return SearchEngine.createSearchScope(project);
@@ -181,6 +222,7 @@ public class MixinModel {
 		String prefix = null;
 		Set<ISourceModule> modules = null;
 		Set<String> keys = null;
+		Map<ISourceModule, Set<String>> keysByModule = null;
 	}
 
 	private static class RequestCache extends OverflowingLRUCache {
@@ -225,18 +267,16 @@ public class MixinModel {
 			return new IMixinElement[0];
 		}
 
-		long parses = TRACE ? System.currentTimeMillis() : 0;
-		for (ISourceModule module : entry.modules) {
-			reportModule(module);
-		}
-		long parsee = TRACE ? System.currentTimeMillis() : 0;
-
 		Set<MixinElement> result = new HashSet<>();
+		// the descendants of the matched keys are matched too, so their key
+		// trees are complete
+		final boolean subtrees = pattern.endsWith("*"); //$NON-NLS-1$
 
 		synchronized (this) {
+			reportKeys(entry.keysByModule, null);
 			for (String key : entry.keys) {
 				MixinElement element = getCreateEmpty(key);
-				if (!monitor.isCanceled()) {
+				if (subtrees && !monitor.isCanceled()) {
 					markElementAsFinal(element);
 				}
 				addKeyToSet(result, element, pattern);
@@ -246,8 +286,6 @@ public class MixinModel {
 			long end = System.currentTimeMillis();
 			System.out.println("MixinModel::find.time:" //$NON-NLS-1$
 					+ String.valueOf(end - start));
-			System.out.println("MixinModel::find.parsetime:" //$NON-NLS-1$
-					+ String.valueOf(parsee - parses));
 		}
 
 		return result.toArray(new IMixinElement[result.size()]);
@@ -263,6 +301,7 @@ public class MixinModel {
 		}
 		result.add(element);
 		knownKeysCache.put(element.key, Boolean.TRUE);
+		publishedElements.put(element.key, element);
 		for (MixinElement child : element.children)
 			addKeyToSet(result, child, pattern);
 	}
@@ -296,6 +335,7 @@ public class MixinModel {
 		for (Set<String> strs : keys.values()) {
 			entry.keys.addAll(strs);
 		}
+		entry.keysByModule = keys;
 		if (!monitor.isCanceled()) {
 			synchronized (this) {
 				requestCache.put(pattern, entry);
@@ -331,6 +371,15 @@ public class MixinModel {
 
 	// long-running operation
 	public boolean keyExists(String key) {
+		if (getPublished(key) != null) {
+			return true;
+		}
+		if (removes) {
+			final Boolean cached = knownKeysCache.get(key);
+			if (cached != null) {
+				return cached;
+			}
+		}
 		synchronized (this) {
 			// TODO: For this version we cache all information, so should be
 			// false.
@@ -361,23 +410,55 @@ public class MixinModel {
 		if (element.isFinal()) {
 			return;
 		}
-		ISourceModule[] containedModules = findModules(element.getKey());
-		if (containedModules.length == 0) {
-			synchronized (cache) {
-				cache.remove(element.key);
-				cache.resetSpaceLimit(CACHE_LIMIT, element);
+		// the element and all its descendants
+		RequestCacheEntry entry = findFromMixin(element.getKey() + "*", //$NON-NLS-1$
+				new NullProgressMonitor());
+		final String childPrefix = element.getKey()
+				+ IMixinRequestor.MIXIN_NAME_SEPARATOR;
+		final Predicate<String> filter = key -> key.equals(element.getKey())
+				|| key.startsWith(childPrefix);
+		if (entry.keysByModule == null || entry.keysByModule.values().stream()
+				.noneMatch(keys -> keys.stream().anyMatch(filter))) {
+			synchronized (this) {
+				removeFromCache(element);
 			}
 			return;
 		}
-		for (ISourceModule module : containedModules) {
-			reportModule(module);
-		}
 		// mark selected element and all subelements as finished.
 		synchronized (this) {
+			reportKeys(entry.keysByModule, filter);
 			markElementAsFinal(element);
 		}
 	}
 
+	/**
+	 * Adds the keys found in the mixin index to the model, the source modules
+	 * are not parsed. Called with lock being held.
+	 */
+	private void reportKeys(Map<ISourceModule, Set<String>> keysByModule,
+			Predicate<String> filter) {
+		if (keysByModule == null) {
+			return;
+		}
+		final ElementInfo info = new ElementInfo();
+		for (Map.Entry<ISourceModule, Set<String>> entry : keysByModule
+				.entrySet()) {
+			final ISourceModule module = entry.getKey();
+			if (parsedModules.containsKey(module)) {
+				// all the keys are reported already
+				continue;
+			}
+			this.currentModule = module;
+			for (String key : entry.getValue()) {
+				if (filter == null || filter.test(key)) {
+					info.key = key;
+					mixinRequestor.reportElement(info);
+				}
+			}
+			this.currentModule = null;
+		}
+	}
+
 	// called with lock being held
 	private void markElementAsFinal(MixinElement element) {
 		element.bFinal = true;
@@ -386,30 +467,94 @@ public class MixinModel {
 		}
 	}
 
-	// TODO long-running operation. shouldn't be synchronized
-	public synchronized void reportModule(ISourceModule sourceModule) {
-		if (!elementToMixinCache.containsKey(sourceModule)) {
-			elementToMixinCache.put(sourceModule,
-					new ArrayList<MixinElement>());
-		} else {
+	/**
+	 * Parses the source module and adds its elements to the model, unless it
+	 * is parsed already. The module is parsed without the model lock, so the
+	 * lookups are not blocked. If the module is being parsed by another
+	 * thread, waits until its elements are added. If the model lock is held
+	 * by the caller, the other thread could not add them, so the module is
+	 * parsed by the caller and the results of the other thread are discarded.
+	 */
+	// long-running operation
+	public void reportModule(ISourceModule sourceModule) {
+		final boolean locked = Thread.holdsLock(this);
+		final CompletableFuture<Void> parsed = new CompletableFuture<>();
+		final CompletableFuture<Void> existing;
+		synchronized (this) {
+			existing = parsedModules.putIfAbsent(sourceModule, parsed);
+		}
+		if (existing != null) {
 			// Module already in model. So we do not to rebuild it.
-			if (!modulesToReparse.remove(sourceModule)) {
-				return;
+			if (!locked) {
+				existing.join();
+			} else if (!existing.isDone()) {
+				parsedModules.put(sourceModule,
+						CompletableFuture.completedFuture(null));
+				final List<ElementInfo> elements = new ArrayList<>();
+				parseModule(sourceModule, elements);
+				addModuleElements(sourceModule, elements);
+			}
+			return;
+		}
+		final List<ElementInfo> elements = new ArrayList<>();
+		try {
+			parseModule(sourceModule, elements);
+		} finally {
+			synchronized (this) {
+				// skip if the module was removed or parsed by the other
+				// thread while being parsed
+				if (parsedModules.get(sourceModule) == parsed) {
+					addModuleElements(sourceModule, elements);
+				}
+				parsed.complete(null);
 			}
-			// We need to reparse module if some elements are moved from it.
 		}
+	}
+
+	/**
+	 * Collects the elements reported by the mixin parser for the source
+	 * module, without modifying the model.
+	 */
+	private static void parseModule(ISourceModule sourceModule,
+			List<ElementInfo> elements) {
 		try {
 			IMixinParser mixinParser = MixinManager
 					.getMixinParser(sourceModule);
 			if (mixinParser != null) {
-				this.currentModule = sourceModule;
-				mixinParser.setRequirestor(mixinRequestor);
-				mixinParser.parserSourceModule(true, sourceModule);
-				this.currentModule = null;
+				// the parser instance is shared
+				synchronized (mixinParser) {
+					mixinParser.setRequirestor(info -> {
+						final ElementInfo copy = new ElementInfo();
+						copy.key = info.key;
+						copy.object = info.object;
+						elements.add(copy);
+					});
+					mixinParser.parserSourceModule(true, sourceModule);
+				}
 			}
 		} catch (CoreException e) {
 			DLTKCore.error("Error in reportModule", e); //$NON-NLS-1$
-			return;
+		}
+	}
+
+	// called with lock being held
+	private void addModuleElements(ISourceModule sourceModule,
+			List<ElementInfo> elements) {
+		if (!elementToMixinCache.containsKey(sourceModule)) {
+			elementToMixinCache.put(sourceModule, new HashSet<MixinElement>());
+		}
+		this.currentModule = sourceModule;
+		for (ElementInfo info : elements) {
+			mixinRequestor.reportElement(info);
+		}
+		this.currentModule = null;
+	}
+
+	// called with lock being held
+	private void unparsed(ISourceModule module) {
+		final CompletableFuture<Void> future = parsedModules.remove(module);
+		if (future != null) {
+			future.complete(null);
 		}
 	}
 
@@ -459,13 +604,18 @@ public class MixinModel {
 		@Override
 		public void elementChanged(ElementChangedEvent event) {
 			IModelElementDelta delta = event.getDelta();
+			final List<ISourceModule> added = new ArrayList<>();
 			synchronized (MixinModel.this) {
-				processDelta(delta);
+				processDelta(delta, added);
+			}
+			for (ISourceModule module : added) {
+				reportModule(module);
 			}
 		}
 
 		// called with lock being held
-		private void processDelta(IModelElementDelta delta) {
+		private void processDelta(IModelElementDelta delta,
+				List<ISourceModule> added) {
 			IModelElement element = delta.getElement();
 			if (delta.getKind() == IModelElementDelta.REMOVED
 					|| delta.getKind() == IModelElementDelta.CHANGED
@@ -520,9 +670,7 @@ public class MixinModel {
 			}
 			if (delta.getKind() == IModelElementDelta.ADDED) {
 				if (element.getElementType() == IModelElement.SOURCE_MODULE) {
-					if (modulesToReparse.add((ISourceModule) element)) {
-						reportModule((ISourceModule) element);
-					}
+					added.add((ISourceModule) element);
 				}
 				knownKeysCache.clear();
 				requestCache.flush();
@@ -530,7 +678,7 @@ public class MixinModel {
 
 			if ((delta.getFlags() & IModelElementDelta.F_CHILDREN) != 0) {
 				for (IModelElementDelta child : delta.getAffectedChildren()) {
-					processDelta(child);
+					processDelta(child, added);
 				}
 			} else if (delta.getKind() == IModelElementDelta.REMOVED && element
 					.getElementType() == IModelElement.SCRIPT_FOLDER) {
@@ -620,7 +768,8 @@ public class MixinModel {
 		if (DEBUG) {
 			log("remove " + element.getElementName()); //$NON-NLS-1$
 		}
-		List<MixinElement> mixinCache = elementToMixinCache.get(element);
+		unparsed(element);
+		Set<MixinElement> mixinCache = elementToMixinCache.get(element);
 		if (mixinCache != null) {
 			removeFromRequestCache(element);
 
@@ -642,8 +791,7 @@ public class MixinModel {
 						}
 					}
 					// Remove from cache
-					cache.remove(mixin.key);
-					cache.resetSpaceLimit(CACHE_LIMIT, mixin);
+					removeFromCache(mixin);
 				}
 			}
 			this.elementToMixinCache.remove(element);
@@ -699,12 +847,17 @@ public class MixinModel {
 
 	private final class MixinElement
 			implements IMixinElement, IInternalMixinElement {
-		private String key;
-		private boolean bFinal = false;
-		private List<ISourceModule> sourceModules = new ArrayList<>();
-		private Map<ISourceModule, List<Object>> sourceModuleToObject = new HashMap<>();
+		/*
+		 * The element is changed with the model lock being held, the
+		 * collections are safe to be read without the lock.
+		 */
+		private final String key;
+		private volatile boolean bFinal = false;
+		private final List<ISourceModule> sourceModules = new CopyOnWriteArrayList<>();
+		private final Map<ISourceModule, List<Object>> sourceModuleToObject = new ConcurrentHashMap<>();
 
-		private Set<MixinElement> children = new HashSet<>();
+		private final Set<MixinElement> children = ConcurrentHashMap
+				.newKeySet();
 
 		@Override
 		public boolean equals(Object obj) {
@@ -738,12 +891,10 @@ public class MixinModel {
 		// called with lock being held
 		void addInfo(ElementInfo info, ISourceModule module) {
 			if (info.object != null) {
-				List<Object> list = this.sourceModuleToObject.get(module);
-				if (list == null) {
-					list = new ArrayList<>();
-					this.sourceModuleToObject.put(module, list);
-				}
-				list.add(info.object);
+				this.sourceModuleToObject
+						.computeIfAbsent(module,
+								m -> new CopyOnWriteArrayList<>())
+						.add(info.object);
 			}
 		}
 
@@ -765,9 +916,7 @@ public class MixinModel {
 		@Override
 		public IMixinElement[] getChildren() {
 			this.validate();
-			synchronized (MixinModel.this) {
-				return children.toArray(new IMixinElement[children.size()]);
-			}
+			return children.toArray(new IMixinElement[0]);
 		}
 
 		@Override
@@ -816,39 +965,39 @@ public class MixinModel {
 			if (!isFinal()) {
 				get(key);
 			}
-			synchronized (MixinModel.this) {
-				return this.sourceModules
-						.toArray(new ISourceModule[this.sourceModules.size()]);
-			}
+			return this.sourceModules.toArray(new ISourceModule[0]);
 		}
 
 		@Override
 		public Object[] getObjects(ISourceModule module) {
 			this.validate();
-			synchronized (MixinModel.this) {
-				List<Object> list = this.sourceModuleToObject.get(module);
-				if (list == null)
-					return NO_OBJECTS;
-				Object[] objs = list.toArray();
+			if (sourceModules.contains(module)) {
+				// the key could be restored from the index
+				reportModule(module);
+			}
+			List<Object> list = this.sourceModuleToObject.get(module);
+			if (list == null)
+				return NO_OBJECTS;
+			Object[] objs = list.toArray();
+			// the objects of the module are initialized one at a time
+			synchronized (list) {
 				for (Object obj : objs) {
 					notifyInitializeListener(this, module, obj);
 				}
-				return objs;
 			}
+			return objs;
 		}
 
 		@Override
 		public Object[] getAllObjects() {
 			this.validate();
-			synchronized (MixinModel.this) {
-				Set<Object> objects = new HashSet<>();
-				for (ISourceModule module : sourceModules) {
-					for (Object obj : this.getObjects(module)) {
-						objects.add(obj);
-					}
+			Set<Object> objects = new HashSet<>();
+			for (ISourceModule module : sourceModules) {
+				for (Object obj : this.getObjects(module)) {
+					objects.add(obj);
 				}
-				return objects.toArray();
 			}
+			return objects.toArray();
 		}
 
 		public boolean isFinal() {
@@ -858,21 +1007,22 @@ public class MixinModel {
 		@Override
 		public void close() {
 			synchronized (MixinModel.this) {
+				publishedElements.remove(key, this);
 				knownKeysCache.remove(key);
 				removes = true;
 				this.bFinal = false;
 				for (int i = 0; i < sourceModules.size(); i++) {
 					ISourceModule module = sourceModules.get(i);
-					List<MixinElement> list = elementToMixinCache.get(module);
+					Set<MixinElement> list = elementToMixinCache.get(module);
 					if (list != null) {
 						list.remove(this);
 						if (list.size() == 0) {
 							elementToMixinCache.remove(module);
 						}
 					}
-					if (elementToMixinCache.containsKey(module)) {
-						modulesToReparse.add(module);
-					}
+					// We need to reparse module if some elements are moved
+					// from it.
+					unparsed(module);
 				}
 				this.sourceModules.clear();
 				this.sourceModuleToObject.clear();
@@ -936,10 +1086,10 @@ public class MixinModel {
 
 		// called with lock being held
 		private void addElementToModules(MixinElement element) {
-			List<MixinElement> elements = MixinModel.this.elementToMixinCache
+			Set<MixinElement> elements = MixinModel.this.elementToMixinCache
 					.get(currentModule);
 			if (elements == null) {
-				elements = new ArrayList<>();
+				elements = new HashSet<>();
 				MixinModel.this.elementToMixinCache.put(currentModule,
 						elements);
 			}
@@ -948,7 +1098,7 @@ public class MixinModel {
 	}
 
 	public synchronized void makeAllModuleElementsFinal(ISourceModule module) {
-		List<MixinElement> elements = elementToMixinCache.get(module);
+		Set<MixinElement> elements = elementToMixinCache.get(module);
 		if (elements != null) {
 			for (MixinElement mixin : elements) {
 				removes = true;
@@ -996,7 +1146,6 @@ public class MixinModel {
 				.remove(mixinObjectInitializeListener);
 	}
 
-	// called with lock being help
 	private void notifyInitializeListener(IMixinElement element,
 			ISourceModule module, Object o) {
 		for (IMixinObjectInitializeListener listener : mixinObjectInitializeListeners) {
@@ -1008,7 +1157,11 @@ public class MixinModel {
 		cache.flush();
 		elementToMixinCache.clear();
 		knownKeysCache.clear();
-		modulesToReparse.clear();
+		publishedElements.clear();
+		for (CompletableFuture<Void> future : parsedModules.values()) {
+			future.complete(null);
+		}
+		parsedModules.clear();
 		requestCache.flush();
 	}
 
@@ -10,16 +10,14 @@
  *******************************************************************************/
 package org.eclipse.dltk.core.search.index;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.util.Arrays;
 import java.util.regex.Pattern;
 
 import org.eclipse.dltk.compiler.CharOperation;
@@ -58,13 +56,13 @@ public class DiskIndex {
 
 	private HashtableOfObject categoryTables; // category name ->
 	// HashtableOfObject(words ->
-	// int[] of document #'s) or
-	// offset if not read yet
+	// int[] of document #'s), used while writing
+
+	private MappedIndexFile mappedFile; // mapped lazily on the first read
 
-	private char[] cachedCategoryName;
 	char separator = Index.DEFAULT_SEPARATOR;
 
-	public static final String SIGNATURE = "DLTK INDEX VERSION 1.014"; //$NON-NLS-1$
+	public static final String SIGNATURE = "DLTK INDEX VERSION 1.015"; //$NON-NLS-1$
 
 	public final static boolean DEBUG = false;
 
@@ -74,6 +72,14 @@ public class DiskIndex {
 
 	private static final int CHUNK_SIZE = 100;
 
+	/**
+	 * Category of the documents removed by the delta segment.
+	 */
+	static final char[] REMOVED_DOCUMENTS = "#removed".toCharArray(); //$NON-NLS-1$
+
+	private static final int BLOCK_SIZE = 32; // number of words between the
+	// entries of the category table skip list
+
 	static class IntList {
 
 		int size;
@@ -115,67 +121,56 @@ public class DiskIndex {
 		this.cacheUserCount = -1;
 		this.cachedChunks = null;
 		this.categoryTables = null;
-		this.cachedCategoryName = null;
 		this.categoryOffsets = null;
+		this.mappedFile = null;
 	}
 
-	SimpleSet addDocumentNames(String substring, MemoryIndex memoryIndex)
-			throws IOException {
+	void addDocumentNames(String substring, SimpleSet changedDocuments,
+			SimpleSet results) throws IOException {
 		// must skip over documents which have been added/changed/deleted in the
-		// memory index
+		// memory index or in the newer segments
 		String[] docNames = readAllDocumentNames();
-		SimpleSet results = new SimpleSet(docNames.length);
-		if (substring == null) {
-			if (memoryIndex == null) {
-				for (int i = 0, l = docNames.length; i < l; i++)
-					results.add(docNames[i]);
-			} else {
-				SimpleLookupTable docsToRefs = memoryIndex.docsToReferences;
-				for (int i = 0, l = docNames.length; i < l; i++) {
-					String docName = docNames[i];
-					if (!docsToRefs.containsKey(docName))
-						results.add(docName);
-				}
-			}
-		} else {
-			if (memoryIndex == null) {
-				for (int i = 0, l = docNames.length; i < l; i++)
-					if (docNames[i].startsWith(substring, 0))
-						results.add(docNames[i]);
-			} else {
-				SimpleLookupTable docsToRefs = memoryIndex.docsToReferences;
-				for (int i = 0, l = docNames.length; i < l; i++) {
-					String docName = docNames[i];
-					if (docName.startsWith(substring, 0)
-							&& !docsToRefs.containsKey(docName))
-						results.add(docName);
-				}
-			}
+		SimpleSet removed = readRemovedDocumentNames();
+		for (int i = 0, l = docNames.length; i < l; i++) {
+			String docName = docNames[i];
+			if ((substring == null || docName.startsWith(substring, 0))
+					&& (changedDocuments == null
+							|| !changedDocuments.includes(docName))
+					&& (removed == null || !removed.includes(docName)))
+				results.add(docName);
 		}
-		return results;
+	}
+
+	/**
+	 * Adds the names of all the documents stored in this index (including the
+	 * removed ones if this is a delta segment) to the specified set.
+	 */
+	void addAllDocumentNames(SimpleSet results) throws IOException {
+		String[] docNames = readAllDocumentNames();
+		for (int i = 0, l = docNames.length; i < l; i++)
+			results.add(docNames[i]);
 	}
 
 	private HashtableOfObject addQueryResult(HashtableOfObject results,
 			char[] word, HashtableOfObject wordsToDocNumbers,
-			MemoryIndex memoryIndex) throws IOException {
+			SimpleSet changedDocuments) throws IOException {
 		// must skip over documents which have been added/changed/deleted in the
-		// memory index
+		// memory index or in the newer segments
 		if (results == null)
 			results = new HashtableOfObject(13);
 		EntryResult result = (EntryResult) results.get(word);
-		if (memoryIndex == null) {
+		if (changedDocuments == null) {
 			if (result == null)
 				results.put(word, new EntryResult(word, wordsToDocNumbers));
 			else
 				result.addDocumentTable(wordsToDocNumbers);
 		} else {
-			SimpleLookupTable docsToRefs = memoryIndex.docsToReferences;
 			if (result == null)
 				result = new EntryResult(word, null);
 			int[] docNumbers = readDocumentNumbers(wordsToDocNumbers.get(word));
 			for (int i = 0, l = docNumbers.length; i < l; i++) {
 				String docName = readDocumentName(docNumbers[i]);
-				if (!docsToRefs.containsKey(docName))
+				if (!changedDocuments.includes(docName))
 					result.addDocumentName(docName);
 			}
 			if (!result.isEmpty())
@@ -184,19 +179,25 @@ public class DiskIndex {
 		return results;
 	}
 
+	/**
+	 * Adds the matching entries to the results. If changedDocuments is
+	 * <code>null</code> then the answered entries refer to the document
+	 * numbers of this index, otherwise the documents are resolved by name
+	 * skipping the changed ones.
+	 */
 	HashtableOfObject addQueryResults(char[][] categories, char[] key,
-			int matchRule, MemoryIndex memoryIndex) throws IOException {
+			int matchRule, SimpleSet changedDocuments,
+			HashtableOfObject results) throws IOException {
 		// assumes sender has called startQuery() & will call stopQuery() when
 		// finished
 		if (this.categoryOffsets == null)
-			return null; // file is empty
+			return results; // file is empty
 
-		HashtableOfObject results = null; // initialized if needed
 		if (key == null) {
 			for (int i = 0, l = categories.length; i < l; i++) {
 				HashtableOfObject wordsToDocNumbers = readCategoryTable(
-						categories[i], true); // cache if key is null since
-				// its a definite match
+						categories[i], null); // read all the words since its
+				// a definite match
 				if (wordsToDocNumbers != null) {
 					char[][] words = wordsToDocNumbers.keyTable;
 					if (results == null)
@@ -205,113 +206,44 @@ public class DiskIndex {
 					for (int j = 0, m = words.length; j < m; j++)
 						if (words[j] != null)
 							results = addQueryResult(results, words[j],
-									wordsToDocNumbers, memoryIndex);
+									wordsToDocNumbers, changedDocuments);
 				}
 			}
 			if (results != null && this.cachedChunks == null)
 				cacheDocumentNames();
 		} else {
-			switch (matchRule) {
-			case SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE:
-				for (int i = 0, l = categories.length; i < l; i++) {
-					HashtableOfObject wordsToDocNumbers = readCategoryTable(
-							categories[i], false);
-					if (wordsToDocNumbers != null
-							&& wordsToDocNumbers.containsKey(key))
-						results = addQueryResult(results, key,
-								wordsToDocNumbers, memoryIndex);
-				}
-				break;
-			case SearchPattern.R_PREFIX_MATCH | SearchPattern.R_CASE_SENSITIVE:
-				for (int i = 0, l = categories.length; i < l; i++) {
-					HashtableOfObject wordsToDocNumbers = readCategoryTable(
-							categories[i], false);
-					if (wordsToDocNumbers != null) {
-						char[][] words = wordsToDocNumbers.keyTable;
-						for (int j = 0, m = words.length; j < m; j++) {
-							char[] word = words[j];
-							if (word != null && key[0] == word[0]
-									&& CharOperation.prefixEquals(key, word))
-								results = addQueryResult(results, word,
-										wordsToDocNumbers, memoryIndex);
-						}
-					}
-				}
-				break;
-			case SearchPattern.R_REGEXP_MATCH:
-			case SearchPattern.R_REGEXP_MATCH | SearchPattern.R_CASE_SENSITIVE:
-				Pattern regexpPattern = Pattern
-						.compile(
-								new String(key),
-								(matchRule & SearchPattern.R_CASE_SENSITIVE) == 0 ? Pattern.CASE_INSENSITIVE
-										: 0);
-				for (int i = 0, l = categories.length; i < l; i++) {
-					HashtableOfObject wordsToDocNumbers = readCategoryTable(
-							categories[i], false);
-					if (wordsToDocNumbers != null) {
-						char[][] words = wordsToDocNumbers.keyTable;
-						for (int j = 0, m = words.length; j < m; j++) {
-							char[] word = words[j];
-							if (word != null) {
-								char decodedWord[];
-								int sep = CharOperation.indexOf(
-										IIndexConstants.SEPARATOR, word);
-								if (sep > 0) {
-									decodedWord = CharOperation.subarray(word,
-											0, sep);
-								} else {
-									decodedWord = word;
-								}
-								if (regexpPattern.matcher(
-										new String(decodedWord)).matches()) {
-									results = addQueryResult(results, word,
-											wordsToDocNumbers, memoryIndex);
-								}
-							}
-						}
-					}
-				}
-				break;
-			default:
-				for (int i = 0, l = categories.length; i < l; i++) {
-					HashtableOfObject wordsToDocNumbers = readCategoryTable(
-							categories[i], false);
-					if (wordsToDocNumbers != null) {
-						char[][] words = wordsToDocNumbers.keyTable;
-						for (int j = 0, m = words.length; j < m; j++) {
-							char[] word = words[j];
-							if (word != null
-									&& Index.isMatch(key, word, matchRule)) {
-								results = addQueryResult(results, word,
-										wordsToDocNumbers, memoryIndex);
-							}
-						}
-					}
+			// only the matching words are decoded from the mapped file
+			final WordMatcher matcher = createMatcher(key, matchRule);
+			for (int i = 0, l = categories.length; i < l; i++) {
+				HashtableOfObject wordsToDocNumbers = readMatchingWords(
+						categories[i], matcher);
+				if (wordsToDocNumbers != null) {
+					char[][] words = wordsToDocNumbers.keyTable;
+					for (int j = 0, m = words.length; j < m; j++)
+						if (words[j] != null)
+							results = addQueryResult(results, words[j],
+									wordsToDocNumbers, changedDocuments);
 				}
 			}
 		}
-
-		if (results == null)
-			return null;
 		return results;
 	}
 
-	private void cacheDocumentNames() throws IOException {
+	private synchronized void cacheDocumentNames() throws IOException {
 		// will need all document names so get them now
-		this.cachedChunks = new String[this.numberOfChunks][];
-		DataInputStream stream = new DataInputStream(new BufferedInputStream(
-				new FileInputStream(getIndexFile()),
-				this.numberOfChunks > 5 ? 4096 : 2048));
+		MappedIndexFile file = acquireMappedFile();
 		try {
-			stream.skip(this.chunkOffsets[0]);
+			this.cachedChunks = new String[this.numberOfChunks][];
+			int position = this.chunkOffsets[0];
 			for (int i = 0; i < this.numberOfChunks; i++) {
 				int size = i == this.numberOfChunks - 1 ? this.sizeOfLastChunk
 						: CHUNK_SIZE;
-				readChunk(this.cachedChunks[i] = new String[size], stream, 0,
+				position = readChunk(file,
+						this.cachedChunks[i] = new String[size], position, 0,
 						size);
 			}
 		} finally {
-			stream.close();
+			file.release();
 		}
 	}
 
@@ -573,7 +505,7 @@ public class DiskIndex {
 			wordsToDocs = new HashtableOfObject(3);
 
 		HashtableOfObject oldWordsToDocs = onDisk.readCategoryTable(
-				categoryName, true);
+				categoryName, null);
 		if (oldWordsToDocs != null) {
 			char[][] oldWords = oldWordsToDocs.keyTable;
 			Object[] oldArrayOffsets = oldWordsToDocs.valueTable;
@@ -615,14 +547,26 @@ public class DiskIndex {
 					}
 				}
 			}
-			onDisk.categoryTables.put(categoryName, null); // flush cached
-			// table
 		}
 		writeCategoryTable(categoryName, wordsToDocs, stream);
 	}
 
 	DiskIndex mergeWith(MemoryIndex memoryIndex) throws IOException {
 		// assume write lock is held
+		DiskIndex newDiskIndex = writeMerged(memoryIndex,
+				this.fileName + ".tmp"); //$NON-NLS-1$
+		if (newDiskIndex != this)
+			replaceWith(newDiskIndex);
+		return newDiskIndex;
+	}
+
+	/**
+	 * Writes the result of merging this index with the memory index to the
+	 * specified file, the file of this index is left unchanged. Answers this
+	 * index if there is nothing to merge.
+	 */
+	DiskIndex writeMerged(MemoryIndex memoryIndex, String newFileName)
+			throws IOException {
 		// compute & write out new docNames
 		String[] docNames = readAllDocumentNames();
 		int previousLength = docNames.length;
@@ -645,12 +589,12 @@ public class DiskIndex {
 			// deleted documents that had never been saved
 
 			// index is now empty since all the saved documents were removed
-			DiskIndex newDiskIndex = new DiskIndex(this.fileName);
+			DiskIndex newDiskIndex = new DiskIndex(newFileName);
 			newDiskIndex.initialize(false);
 			return newDiskIndex;
 		}
 
-		DiskIndex newDiskIndex = new DiskIndex(this.fileName + ".tmp"); //$NON-NLS-1$
+		DiskIndex newDiskIndex = new DiskIndex(newFileName);
 		File newIndexFile = newDiskIndex.getIndexFile();
 		try {
 			newDiskIndex.initializeFrom(this, newIndexFile);
@@ -690,8 +634,27 @@ public class DiskIndex {
 				stream.close();
 			}
 			newDiskIndex.writeOffsetToHeader(offsetToHeader);
+		} catch (IOException e) {
+			if (newIndexFile.exists() && !newIndexFile.delete())
+				if (DEBUG)
+					System.out
+							.println("mergeWith - Failed to delete temp index " + newDiskIndex.fileName); //$NON-NLS-1$
+			throw e;
+		}
+		return newDiskIndex;
+	}
 
+	/**
+	 * Replaces the file of this index with the file written by
+	 * {@link #writeMerged(MemoryIndex, String)}.
+	 */
+	void replaceWith(DiskIndex newDiskIndex) throws IOException {
+		// assume write lock is held
+		File newIndexFile = newDiskIndex.getIndexFile();
+		try {
 			// rename file by deleting previous index file & renaming temp one
+			releaseMappedFile();
+			newDiskIndex.releaseMappedFile();
 			File old = getIndexFile();
 			if (old.exists() && !old.delete()) {
 				if (DEBUG)
@@ -714,164 +677,376 @@ public class DiskIndex {
 							.println("mergeWith - Failed to delete temp index " + newDiskIndex.fileName); //$NON-NLS-1$
 			throw e;
 		}
-
 		newDiskIndex.fileName = this.fileName;
-		return newDiskIndex;
+	}
+
+	/**
+	 * Adds the changes stored in this delta segment to the memory index, the
+	 * documents of this segment replace the ones added before.
+	 */
+	void addChangesTo(MemoryIndex changes) throws IOException {
+		String[] docNames = readAllDocumentNames();
+		for (int i = 0, l = docNames.length; i < l; i++)
+			changes.remove(docNames[i]);
+		if (this.categoryOffsets == null)
+			return;
+		char[][] categoryNames = this.categoryOffsets.keyTable;
+		for (int i = 0, l = categoryNames.length; i < l; i++) {
+			char[] categoryName = categoryNames[i];
+			if (categoryName == null
+					|| CharOperation.equals(categoryName, REMOVED_DOCUMENTS))
+				continue;
+			HashtableOfObject wordsToDocNumbers = readCategoryTable(
+					categoryName, null);
+			if (wordsToDocNumbers == null)
+				continue;
+			char[][] words = wordsToDocNumbers.keyTable;
+			Object[] documentNumbers = wordsToDocNumbers.valueTable;
+			for (int j = 0, m = words.length; j < m; j++) {
+				if (words[j] != null) {
+					int[] numbers = (int[]) documentNumbers[j];
+					for (int k = 0, n = numbers.length; k < n; k++)
+						changes.addIndexEntry(categoryName, words[j],
+								docNames[numbers[k]]);
+				}
+			}
+		}
+	}
+
+	private SimpleSet readRemovedDocumentNames() throws IOException {
+		if (this.categoryOffsets == null)
+			return null;
+		HashtableOfObject table = readCategoryTable(REMOVED_DOCUMENTS, null);
+		if (table == null)
+			return null;
+		SimpleSet removed = new SimpleSet(3);
+		Object[] documentNumbers = table.valueTable;
+		for (int i = 0, l = documentNumbers.length; i < l; i++) {
+			if (documentNumbers[i] != null) {
+				int[] numbers = (int[]) documentNumbers[i];
+				for (int j = 0, m = numbers.length; j < m; j++)
+					removed.add(readDocumentName(numbers[j]));
+			}
+		}
+		return removed;
+	}
+
+	boolean isEmpty() {
+		return this.numberOfChunks <= 0;
+	}
+
+	/**
+	 * Deletes the file of this index.
+	 */
+	void delete() {
+		// assume write lock is held
+		releaseMappedFile();
+		File file = getIndexFile();
+		if (file.exists() && !file.delete())
+			if (DEBUG)
+				System.out
+						.println("delete - Failed to delete " + this.fileName); //$NON-NLS-1$
+	}
+
+	/**
+	 * Answers the mapped file, which must be released by the caller when the
+	 * reading is done.
+	 */
+	private synchronized MappedIndexFile acquireMappedFile()
+			throws IOException {
+		if (this.mappedFile == null)
+			this.mappedFile = MappedIndexFile.open(getIndexFile());
+		this.mappedFile.acquire();
+		return this.mappedFile;
+	}
+
+	private synchronized void releaseMappedFile() {
+		// the file is unmapped once the readers still using it release it
+		if (this.mappedFile != null) {
+			this.mappedFile.close();
+			this.mappedFile = null;
+		}
+		this.cachedChunks = null;
 	}
 
 	private synchronized String[] readAllDocumentNames() throws IOException {
 		if (this.numberOfChunks <= 0)
 			return new String[0];
 
-		DataInputStream stream = new DataInputStream(new BufferedInputStream(
-				new FileInputStream(getIndexFile()),
-				this.numberOfChunks > 5 ? 4096 : 2048));
+		MappedIndexFile file = acquireMappedFile();
 		try {
-			stream.skip(this.chunkOffsets[0]);
+			int position = this.chunkOffsets[0];
 			int lastIndex = this.numberOfChunks - 1;
 			String[] docNames = new String[lastIndex * CHUNK_SIZE
 					+ sizeOfLastChunk];
 			for (int i = 0; i < this.numberOfChunks; i++)
-				readChunk(docNames, stream, i * CHUNK_SIZE,
+				position = readChunk(file, docNames, position, i * CHUNK_SIZE,
 						i < lastIndex ? CHUNK_SIZE : sizeOfLastChunk);
 			return docNames;
 		} finally {
-			stream.close();
+			file.release();
 		}
 	}
 
-	private synchronized HashtableOfObject readCategoryTable(
-			char[] categoryName, boolean readDocNumbers) throws IOException {
-		// result will be null if categoryName is unknown
-		int offset = this.categoryOffsets.get(categoryName);
-		if (offset == HashtableOfIntValues.NO_VALUE)
-			return null;
+	/**
+	 * Range of the sorted category table: the words starting with the
+	 * specified bytes, or all the words starting from them if
+	 * <code>toEnd</code> is set.
+	 */
+	private static class KeyRange {
+		final byte[] start;
+		final boolean toEnd;
+
+		KeyRange(byte[] start, boolean toEnd) {
+			this.start = start;
+			this.toEnd = toEnd;
+		}
+	}
 
-		if (this.categoryTables == null) {
-			this.categoryTables = new HashtableOfObject(3);
-		} else {
-			HashtableOfObject cachedTable = (HashtableOfObject) this.categoryTables
-					.get(categoryName);
-			if (cachedTable != null) {
-				if (readDocNumbers) { // must cache remaining document number
-					// arrays
-					Object[] arrayOffsets = cachedTable.valueTable;
-					for (int i = 0, l = arrayOffsets.length; i < l; i++)
-						if (arrayOffsets[i] instanceof Integer)
-							arrayOffsets[i] = readDocumentNumbers(arrayOffsets[i]);
+	private static final KeyRange[] ALL_WORDS = { new KeyRange(new byte[0],
+			true) };
+
+	/**
+	 * Matches the words of the category table straight in the mapped file.
+	 */
+	private static abstract class WordMatcher {
+		final KeyRange[] ranges;
+
+		WordMatcher(KeyRange[] ranges) {
+			this.ranges = ranges;
+		}
+
+		/**
+		 * Answers the word stored at the specified position if it matches, or
+		 * <code>null</code> otherwise. Implementations should avoid decoding
+		 * the words which do not match.
+		 */
+		abstract char[] match(MappedIndexFile file, int position)
+				throws IOException;
+	}
+
+	private static WordMatcher createMatcher(final char[] key,
+			final int matchRule) {
+		final KeyRange[] ranges = computeRanges(key, matchRule);
+		switch (matchRule) {
+		case SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE:
+		case SearchPattern.R_PREFIX_MATCH | SearchPattern.R_CASE_SENSITIVE:
+			// the encoding of a prefix is the prefix of the encoding, so
+			// compare the bytes without decoding
+			final byte[] encodedKey = MappedIndexFile.encodeUTF(key);
+			final boolean prefix = matchRule != (SearchPattern.R_EXACT_MATCH
+					| SearchPattern.R_CASE_SENSITIVE);
+			return new WordMatcher(ranges) {
+				@Override
+				char[] match(MappedIndexFile file, int position)
+						throws IOException {
+					return file.matchUTF(position, encodedKey, prefix)
+							? file.readUTF(position) : null;
+				}
+			};
+		case SearchPattern.R_REGEXP_MATCH:
+		case SearchPattern.R_REGEXP_MATCH | SearchPattern.R_CASE_SENSITIVE:
+			final Pattern regexpPattern = Pattern.compile(new String(key),
+					(matchRule & SearchPattern.R_CASE_SENSITIVE) == 0
+							? Pattern.CASE_INSENSITIVE : 0);
+			return new WordMatcher(ranges) {
+				@Override
+				char[] match(MappedIndexFile file, int position)
+						throws IOException {
+					char[] word = file.readUTF(position);
+					char decodedWord[];
+					int sep = CharOperation.indexOf(IIndexConstants.SEPARATOR,
+							word);
+					if (sep > 0) {
+						decodedWord = CharOperation.subarray(word, 0, sep);
+					} else {
+						decodedWord = word;
+					}
+					return regexpPattern.matcher(new String(decodedWord))
+							.matches() ? word : null;
+				}
+			};
+		default:
+			return new WordMatcher(ranges) {
+				@Override
+				char[] match(MappedIndexFile file, int position)
+						throws IOException {
+					char[] word = file.readUTF(position);
+					return Index.isMatch(key, word, matchRule) ? word : null;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Answers the ranges of the sorted category table which contain all the
+	 * words matching the key, see {@link Index#isMatch(char[], char[], int)}.
+	 */
+	private static KeyRange[] computeRanges(char[] key, int matchRule) {
+		matchRule &= Index.MATCH_RULE_INDEX_MASK;
+		if ((matchRule & SearchPattern.R_REGEXP_MATCH) != 0)
+			return ALL_WORDS;
+
+		// number of the leading characters every matching word starts with
+		int literalLength = key.length;
+		if ((matchRule & SearchPattern.R_PATTERN_MATCH) != 0) {
+			for (int i = 0; i < literalLength; i++) {
+				if (key[i] == '*' || key[i] == '?') {
+					literalLength = i;
+					break;
 				}
-				return cachedTable;
 			}
 		}
+		if ((matchRule & SearchPattern.R_CAMELCASE_MATCH) != 0
+				&& literalLength > 1)
+			literalLength = 1; // camel case requires the same first character
+		if (literalLength == 0)
+			return ALL_WORDS;
+
+		if ((matchRule & SearchPattern.R_CASE_SENSITIVE) != 0)
+			return new KeyRange[] { new KeyRange(MappedIndexFile.encodeUTF(
+					CharOperation.subarray(key, 0, literalLength)), false) };
+
+		// the case insensitive match compares the lower case characters, so
+		// take both cases of the first ASCII character and all the words
+		// starting with non ASCII characters (sorted after the ASCII ones)
+		char first = key[0];
+		if (first == 0 || first > 0x7F)
+			return ALL_WORDS;
+		char lower = Character.toLowerCase(first);
+		char upper = Character.toUpperCase(first);
+		KeyRange nonAscii = new KeyRange(new byte[] { (byte) 0x80 }, true);
+		if (lower == upper)
+			return new KeyRange[] {
+					new KeyRange(new byte[] { (byte) lower }, false),
+					nonAscii };
+		return new KeyRange[] {
+				new KeyRange(new byte[] { (byte) upper }, false),
+				new KeyRange(new byte[] { (byte) lower }, false), nonAscii };
+	}
+
+	/**
+	 * Reads the words of the category table accepted by the matcher (all the
+	 * words if matcher is <code>null</code>) with their document numbers.
+	 * Result will be null if categoryName is unknown or nothing matches.
+	 */
+	private HashtableOfObject readCategoryTable(char[] categoryName,
+			WordMatcher matcher) throws IOException {
+		HashtableOfObject table = readMatchingWords(categoryName, matcher);
+		if (table != null) {
+			Object[] arrayOffsets = table.valueTable;
+			for (int i = 0, l = arrayOffsets.length; i < l; i++)
+				if (arrayOffsets[i] instanceof Integer)
+					arrayOffsets[i] = readDocumentNumbers(arrayOffsets[i]);
+		}
+		return table;
+	}
 
-		DataInputStream stream = new DataInputStream(new BufferedInputStream(
-				new FileInputStream(getIndexFile()), 2048));
-		HashtableOfObject categoryTable = null;
-		char[][] matchingWords = null;
-		int count = 0;
-		int firstOffset = -1;
+	/**
+	 * Reads the words of the category table accepted by the matcher (all the
+	 * words if matcher is <code>null</code>). The values of the answered table
+	 * are either the arrays of document numbers or the offsets to them, see
+	 * {@link #readDocumentNumbers(Object)}.
+	 */
+	private HashtableOfObject readMatchingWords(char[] categoryName,
+			WordMatcher matcher) throws IOException {
+		int offset = this.categoryOffsets.get(categoryName);
+		if (offset == HashtableOfIntValues.NO_VALUE)
+			return null;
+
+		MappedIndexFile file = acquireMappedFile();
 		try {
-			stream.skip(offset);
-			int size = stream.readInt();
-			try {
-				if (size < 0) { // DEBUG
-					System.err
-							.println("-------------------- DEBUG --------------------"); //$NON-NLS-1$
-					System.err.println("file = " + getIndexFile()); //$NON-NLS-1$
-					System.err.println("offset = " + offset); //$NON-NLS-1$
-					System.err.println("size = " + size); //$NON-NLS-1$
-					System.err
-							.println("--------------------   END   --------------------"); //$NON-NLS-1$
+			int size = file.readInt(offset);
+			int numberOfBlocks = file.readInt(offset + 4);
+			int blockOffsets = offset + 8;
+			HashtableOfObject matches = null;
+			KeyRange[] ranges = matcher == null ? ALL_WORDS : matcher.ranges;
+			for (int r = 0; r < ranges.length; r++) {
+				KeyRange range = ranges[r];
+				// find the last block starting before the range
+				int low = 0;
+				int high = numberOfBlocks - 1;
+				while (low < high) {
+					int mid = (low + high + 1) >>> 1;
+					if (file.compareUTF(file.readInt(blockOffsets + mid * 4),
+							range.start) < 0)
+						low = mid;
+					else
+						high = mid - 1;
 				}
-				categoryTable = new HashtableOfObject(size);
-			} catch (OutOfMemoryError oom) {
-				// DEBUG
-				oom.printStackTrace();
-				System.err
-						.println("-------------------- DEBUG --------------------"); //$NON-NLS-1$
-				System.err.println("file = " + getIndexFile()); //$NON-NLS-1$
-				System.err.println("offset = " + offset); //$NON-NLS-1$
-				System.err.println("size = " + size); //$NON-NLS-1$
-				System.err
-						.println("--------------------   END   --------------------"); //$NON-NLS-1$
-				throw oom;
-			}
-			int largeArraySize = 256;
-			for (int i = 0; i < size; i++) {
-				char[] word = Util.readUTF(stream);
-				int arrayOffset = stream.readInt();
-				// if arrayOffset is:
-				// <= 0 then the array size == 1 with the value -> -arrayOffset
-				// > 1 & < 256 then the size of the array is > 1 & < 256, the
-				// document array follows immediately
-				// 256 if the array size >= 256 followed by another int which is
-				// the offset to the array (written prior to the table)
-				if (arrayOffset <= 0) {
-					categoryTable.put(word, new int[] { -arrayOffset }); // store
-					// 1
-					// element
-					// array
-					// by
-					// negating
-					// documentNumber
-				} else if (arrayOffset < largeArraySize) {
-					categoryTable.put(word,
-							readDocumentArray(stream, arrayOffset));
-					// read in-lined array providing size
-				} else {
-					arrayOffset = stream.readInt(); // read actual offset
-					if (readDocNumbers) {
-						if (matchingWords == null)
-							matchingWords = new char[size][];
-						if (count == 0)
-							firstOffset = arrayOffset;
-						matchingWords[count++] = word;
+				int i = low * BLOCK_SIZE;
+				int position = numberOfBlocks == 0 ? 0
+						: file.readInt(blockOffsets + low * 4);
+				while (i < size && file.compareUTF(position, range.start) < 0) {
+					position = skipEntry(file, position);
+					i++;
+				}
+				for (; i < size; i++) {
+					int wordPosition = position;
+					if (!range.toEnd
+							&& !file.matchUTF(wordPosition, range.start, true))
+						break;
+					position = skipEntry(file, position);
+					char[] word = matcher == null ? file.readUTF(wordPosition)
+							: matcher.match(file, wordPosition);
+					if (word != null) {
+						if (matches == null)
+							matches = new HashtableOfObject(
+									matcher == null ? size : 13);
+						matches.put(word, readDocumentNumbersOffset(file,
+								wordPosition + file.sizeOfUTF(wordPosition)));
 					}
-					categoryTable.put(word, arrayOffset); // offset
-					// to
-					// array
-					// in
-					// the
-					// file
 				}
 			}
-			this.categoryTables.put(categoryName, categoryTable);
-			// cache the table as long as its not too big
-			// in practise, some tables can be greater than 500K when the
-			// contain more than 10K elements
-			this.cachedCategoryName = categoryTable.elementSize < 10000 ? categoryName
-					: null;
+			return matches;
 		} finally {
-			stream.close();
+			file.release();
 		}
+	}
 
-		if (matchingWords != null && count > 0) {
-			stream = new DataInputStream(new BufferedInputStream(
-					new FileInputStream(getIndexFile()), 2048));
-			try {
-				stream.skip(firstOffset);
-				for (int i = 0; i < count; i++)
-					// each array follows the previous one
-					categoryTable.put(matchingWords[i],
-							readDocumentArray(stream, stream.readInt()));
-			} finally {
-				stream.close();
-			}
-		}
-		return categoryTable;
+	/**
+	 * Answers the position of the category table entry following the one at
+	 * the specified position.
+	 */
+	private int skipEntry(MappedIndexFile file, int position) {
+		position += file.sizeOfUTF(position);
+		int arrayOffset = file.readInt(position);
+		if (arrayOffset <= 0)
+			return position + 4;
+		if (arrayOffset < 256)
+			return position + 4 + arrayOffset * this.documentReferenceSize;
+		return position + 8;
+	}
+
+	private Object readDocumentNumbersOffset(MappedIndexFile file,
+			int position) {
+		int arrayOffset = file.readInt(position);
+		// if arrayOffset is:
+		// <= 0 then the array size == 1 with the value -> -arrayOffset
+		// > 1 & < 256 then the size of the array is > 1 & < 256, the
+		// document array follows immediately
+		// 256 if the array size >= 256 followed by another int which is
+		// the offset to the array (written prior to the table)
+		if (arrayOffset <= 0)
+			return new int[] { -arrayOffset };
+		if (arrayOffset < 256)
+			return Integer.valueOf(position); // in-lined array has the same
+		// layout as the large one
+		return Integer.valueOf(file.readInt(position + 4));
 	}
 
-	private void readChunk(String[] docNames, DataInputStream stream,
-			int index, int size) throws IOException {
-		String current = stream.readUTF();
+	private int readChunk(MappedIndexFile file, String[] docNames,
+			int position, int index, int size) throws IOException {
+		String current = file.readString(position);
+		position += file.sizeOfUTF(position);
 		docNames[index++] = current;
 		for (int i = 1; i < size; i++) {
-			int start = stream.readUnsignedByte(); // number of identical
-			// characters at the
-			// beginning
-			int end = stream.readUnsignedByte(); // number of identical
-			// characters at the end
-			String next = stream.readUTF();
+			int start = file.readUnsignedByte(position++); // number of
+			// identical characters at the beginning
+			int end = file.readUnsignedByte(position++); // number of
+			// identical characters at the end
+			String next = file.readString(position);
+			position += file.sizeOfUTF(position);
 			if (start > 0) {
 				if (end > 0) {
 					int length = current.length();
@@ -887,26 +1062,7 @@ public class DiskIndex {
 			docNames[index++] = next;
 			current = next;
 		}
-	}
-
-	private int[] readDocumentArray(DataInputStream stream, int arraySize)
-			throws IOException {
-		int[] result = new int[arraySize];
-		switch (this.documentReferenceSize) {
-		case 1:
-			for (int i = 0; i < arraySize; i++)
-				result[i] = stream.readUnsignedByte();
-			break;
-		case 2:
-			for (int i = 0; i < arraySize; i++)
-				result[i] = stream.readUnsignedShort();
-			break;
-		default:
-			for (int i = 0; i < arraySize; i++)
-				result[i] = stream.readInt();
-			break;
-		}
-		return result;
+		return position;
 	}
 
 	synchronized String readDocumentName(int docNumber) throws IOException {
@@ -917,43 +1073,32 @@ public class DiskIndex {
 		String[] chunk = this.cachedChunks[chunkNumber];
 		if (chunk == null) {
 			boolean isLastChunk = chunkNumber == this.numberOfChunks - 1;
-			int start = this.chunkOffsets[chunkNumber];
-			int numberOfBytes = (isLastChunk ? this.startOfCategoryTables
-					: this.chunkOffsets[chunkNumber + 1]) - start;
-			if (numberOfBytes < 0)
-				throw new IllegalArgumentException();
-			byte[] bytes = new byte[numberOfBytes];
-			FileInputStream file = new FileInputStream(getIndexFile());
+			int numberOfNames = isLastChunk ? this.sizeOfLastChunk : CHUNK_SIZE;
+			chunk = this.cachedChunks[chunkNumber] = new String[numberOfNames];
+			MappedIndexFile file = acquireMappedFile();
 			try {
-				file.skip(start);
-				if (file.read(bytes, 0, numberOfBytes) != numberOfBytes)
-					throw new IOException();
+				readChunk(file, chunk, this.chunkOffsets[chunkNumber], 0,
+						numberOfNames);
 			} finally {
-				file.close();
+				file.release();
 			}
-			DataInputStream stream = new DataInputStream(
-					new ByteArrayInputStream(bytes));
-			int numberOfNames = isLastChunk ? this.sizeOfLastChunk : CHUNK_SIZE;
-			chunk = this.cachedChunks[chunkNumber] = new String[numberOfNames];
-			readChunk(chunk, stream, 0, numberOfNames);
 		}
 		return chunk[docNumber - (chunkNumber * CHUNK_SIZE)];
 	}
 
-	synchronized int[] readDocumentNumbers(Object arrayOffset)
-			throws IOException {
+	int[] readDocumentNumbers(Object arrayOffset) throws IOException {
 		// arrayOffset is either a cached array of docNumbers or an Integer
 		// offset in the file
 		if (arrayOffset instanceof int[])
 			return (int[]) arrayOffset;
 
-		DataInputStream stream = new DataInputStream(new BufferedInputStream(
-				new FileInputStream(getIndexFile()), 2048));
+		MappedIndexFile file = acquireMappedFile();
 		try {
-			stream.skip(((Integer) arrayOffset).intValue());
-			return readDocumentArray(stream, stream.readInt());
+			int position = ((Integer) arrayOffset).intValue();
+			return file.readDocumentArray(position + 4,
+					file.readInt(position), this.documentReferenceSize);
 		} finally {
-			stream.close();
+			file.release();
 		}
 	}
 
@@ -980,7 +1125,6 @@ public class DiskIndex {
 		// to
 		// category
 		// table
-		this.categoryTables = new HashtableOfObject(3);
 	}
 
 	synchronized void startQuery() {
@@ -989,19 +1133,10 @@ public class DiskIndex {
 
 	synchronized void stopQuery() {
 		if (--this.cacheUserCount < 0) {
-			// clear cached items
+			// clear cached items, category tables are not cached since they
+			// are decoded from the mapped file on demand
 			this.cacheUserCount = -1;
 			this.cachedChunks = null;
-			if (this.categoryTables != null) {
-				if (this.cachedCategoryName == null) {
-					this.categoryTables = null;
-				} else if (this.categoryTables.elementSize > 1) {
-					HashtableOfObject newTables = new HashtableOfObject(3);
-					newTables.put(this.cachedCategoryName,
-							this.categoryTables.get(this.cachedCategoryName));
-					this.categoryTables = newTables;
-				}
-			}
 		}
 	}
 
@@ -1091,7 +1226,10 @@ public class DiskIndex {
 		// any document number arrays with >= 256 elements are written before
 		// the table (the offset to each array is remembered)
 		// then the number of word->int[] pairs in the table is written
-		// for each word -> int[] pair, the word is written followed by:
+		// then the number of blocks followed by the offset of the first pair
+		// of each block of BLOCK_SIZE pairs
+		// for each word -> int[] pair sorted by the encoded word, the word is
+		// written followed by:
 		// an int <= 0 if the array size == 1
 		// an int > 1 & < 256 for the size of the array if its > 1 & < 256, the
 		// document array follows immediately
@@ -1113,38 +1251,77 @@ public class DiskIndex {
 			}
 		}
 
+		char[][] words = wordsToDocs.keyTable;
+		SortedEntry[] entries = new SortedEntry[wordsToDocs.elementSize];
+		int size = 0;
+		for (int i = 0, l = words.length; i < l; i++)
+			if (values[i] != null)
+				entries[size++] = new SortedEntry(
+						MappedIndexFile.encodeUTF(words[i]), values[i]);
+		Arrays.sort(entries, 0, size,
+				(e1, e2) -> MappedIndexFile.compare(e1.word, e2.word));
+
 		this.categoryOffsets.put(categoryName, stream.size()); // remember the
 		// offset to the
 		// start of the
 		// table
 		this.categoryTables.put(categoryName, null); // flush cached table
-		stream.writeInt(wordsToDocs.elementSize);
-		char[][] words = wordsToDocs.keyTable;
-		for (int i = 0, l = words.length; i < l; i++) {
-			Object o = values[i];
-			if (o != null) {
-				Util.writeUTF(stream, words[i]);
-				if (o instanceof int[]) {
-					int[] documentNumbers = (int[]) o;
-					if (documentNumbers.length == 1)
-						stream.writeInt(-documentNumbers[0]); // store an
-					// array of 1
-					// element by
-					// negating the
-					// documentNumber
-					// (can be zero)
-					else
-						writeDocumentNumbers(documentNumbers, stream);
-				} else {
-					stream.writeInt(largeArraySize); // mark to identify that
-					// an offset follows
-					stream.writeInt(((Integer) o).intValue()); // offset in the
-					// file of the
-					// array of
-					// document
-					// numbers
-				}
+		stream.writeInt(size);
+		int numberOfBlocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		stream.writeInt(numberOfBlocks);
+		int position = stream.size() + numberOfBlocks * 4;
+		for (int i = 0; i < size; i++) {
+			if (i % BLOCK_SIZE == 0)
+				stream.writeInt(position);
+			position += entries[i].sizeOnDisk(this.documentReferenceSize);
+		}
+		for (int i = 0; i < size; i++) {
+			byte[] word = entries[i].word;
+			if (word.length > 0xFFFF)
+				throw new UTFDataFormatException();
+			stream.writeShort(word.length);
+			stream.write(word);
+			Object o = entries[i].documentNumbers;
+			if (o instanceof int[]) {
+				int[] documentNumbers = (int[]) o;
+				if (documentNumbers.length == 1)
+					stream.writeInt(-documentNumbers[0]); // store an
+				// array of 1
+				// element by
+				// negating the
+				// documentNumber
+				// (can be zero)
+				else
+					writeDocumentNumbers(documentNumbers, stream);
+			} else {
+				stream.writeInt(largeArraySize); // mark to identify that
+				// an offset follows
+				stream.writeInt(((Integer) o).intValue()); // offset in the
+				// file of the
+				// array of
+				// document
+				// numbers
+			}
+		}
+	}
+
+	private static class SortedEntry {
+		final byte[] word; // encoded word
+		final Object documentNumbers; // int[] or offset to the large array
+
+		SortedEntry(byte[] word, Object documentNumbers) {
+			this.word = word;
+			this.documentNumbers = documentNumbers;
+		}
+
+		int sizeOnDisk(int documentReferenceSize) {
+			int size = 2 + this.word.length;
+			if (this.documentNumbers instanceof int[]) {
+				int length = ((int[]) this.documentNumbers).length;
+				return length == 1 ? size + 4
+						: size + 4 + length * documentReferenceSize;
 			}
+			return size + 8;
 		}
 	}
 
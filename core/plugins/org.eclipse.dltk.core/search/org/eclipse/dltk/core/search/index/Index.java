@@ -11,6 +11,7 @@ package org.eclipse.dltk.core.search.index;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.eclipse.core.runtime.Path;
 import org.eclipse.dltk.compiler.CharOperation;
@@ -19,6 +20,7 @@ import org.eclipse.dltk.compiler.util.SimpleSet;
 import org.eclipse.dltk.core.DLTKCore;
 import org.eclipse.dltk.core.search.IDLTKSearchScope;
 import org.eclipse.dltk.core.search.SearchPattern;
+import org.eclipse.dltk.core.search.indexing.IIndexConstants;
 import org.eclipse.dltk.core.search.indexing.ReadWriteMonitor;
 
 /**
@@ -47,6 +49,54 @@ public class Index {
 
 	protected MemoryIndex memoryIndex;
 
+	/**
+	 * Delta segments written by {@link #save()} on top of the disk index, the
+	 * oldest first. The segments are merged into the disk index by
+	 * {@link #compact()}.
+	 */
+	private DiskIndex[] segments = NO_SEGMENTS;
+
+	private int nextSegmentNumber = 1;
+
+	private boolean compacting;
+
+	/**
+	 * Set when the index is recreated or removed, so the running compaction
+	 * does not replace the files which belong to the other index now.
+	 */
+	private boolean discarded;
+
+	private static final DiskIndex[] NO_SEGMENTS = new DiskIndex[0];
+
+	private static final char[][] SUPER_REF_CATEGORIES = {
+			IIndexConstants.SUPER_REF };
+
+	/**
+	 * The supertype references grouped by the supertype name, loaded or
+	 * built on the first {@link #querySuperTypeReferences(char[])} and kept
+	 * current afterwards.
+	 */
+	private volatile SuperTypeGraph superTypeGraph;
+
+	/**
+	 * Suffix of the delta segment files, which are named
+	 * <code>&lt;index file&gt;.&lt;number&gt;.delta</code>
+	 * 
+	 * @since 6.2
+	 */
+	public static final String SEGMENT_SUFFIX = ".delta"; //$NON-NLS-1$
+
+	/**
+	 * Number of the delta segments which should be merged in background.
+	 */
+	static final int COMPACTION_THRESHOLD = 4;
+
+	/**
+	 * Number of the delta segments which are merged by {@link #save()} if no
+	 * compaction is running.
+	 */
+	static final int MAX_SEGMENTS = 16;
+
 	/**
 	 * Mask used on match rule for indexing.
 	 */
@@ -108,8 +158,15 @@ public class Index {
 		this.monitor = new ReadWriteMonitor();
 
 		this.memoryIndex = new MemoryIndex();
+		boolean exists = new File(fileName).exists();
 		this.diskIndex = new DiskIndex(fileName);
 		this.diskIndex.initialize(reuseExistingFile);
+		if (reuseExistingFile && exists) {
+			openSegments(fileName);
+		} else {
+			deleteSegments(fileName);
+			SuperTypeGraph.getFile(fileName).delete();
+		}
 		if (reuseExistingFile)
 			this.separator = this.diskIndex.separator;
 	}
@@ -125,6 +182,10 @@ public class Index {
 			System.out.println("DEBUG INDEX: Add Index Entry:" + new String( category ) + " " + new String( key ) + " path:" + containerRelativePath ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 		}
 		this.memoryIndex.addIndexEntry(category, key, containerRelativePath);
+		SuperTypeGraph graph = this.superTypeGraph;
+		if (graph != null
+				&& CharOperation.equals(category, IIndexConstants.SUPER_REF))
+			graph.add(key, containerRelativePath);
 	}
 
 	public File getIndexFile() {
@@ -156,14 +217,24 @@ public class Index {
 
 		HashtableOfObject results;
 		int rule = matchRule & MATCH_RULE_INDEX_MASK;
-		if (this.memoryIndex.hasChanged()) {
+		DiskIndex[] segments = this.segments;
+		if (segments.length == 0 && !this.memoryIndex.hasChanged()) {
 			results = this.diskIndex.addQueryResults(categories, key, rule,
-					this.memoryIndex);
-			results = this.memoryIndex.addQueryResults(categories, key, rule,
-					results);
+					null, null);
 		} else {
+			// newer changes hide the older versions of the same documents
+			SimpleSet changedDocuments = new SimpleSet();
+			this.memoryIndex.addChangedDocuments(changedDocuments);
+			results = null;
+			for (int i = segments.length; --i >= 0;) {
+				results = segments[i].addQueryResults(categories, key, rule,
+						changedDocuments, results);
+				segments[i].addAllDocumentNames(changedDocuments);
+			}
 			results = this.diskIndex.addQueryResults(categories, key, rule,
-					null);
+					changedDocuments, results);
+			results = this.memoryIndex.addQueryResults(categories, key, rule,
+					results);
 		}
 		if (results == null)
 			return null;
@@ -179,18 +250,101 @@ public class Index {
 		return entryResults;
 	}
 
+	/**
+	 * Returns the {@link IIndexConstants#SUPER_REF} entries of the types
+	 * declaring the specified simple name as their supertype, or null if there
+	 * are none. The entries are answered from the supertype graph maintained
+	 * by this index, which is saved next to the index file, so walking a
+	 * hierarchy does not query the index for every type.
+	 * 
+	 * @since 6.2
+	 */
+	public EntryResult[] querySuperTypeReferences(char[] superSimpleName)
+			throws IOException {
+		return getSuperTypeGraph().query(superSimpleName);
+	}
+
+	private SuperTypeGraph getSuperTypeGraph() throws IOException {
+		SuperTypeGraph graph = this.superTypeGraph;
+		if (graph != null)
+			return graph;
+		File file = SuperTypeGraph.getFile(this.diskIndex.fileName);
+		if (!this.memoryIndex.hasChanged())
+			graph = SuperTypeGraph.load(file, getStamp());
+		if (graph == null) {
+			graph = new SuperTypeGraph();
+			EntryResult[] results = query(SUPER_REF_CATEGORIES, null,
+					SearchPattern.R_EXACT_MATCH
+							| SearchPattern.R_CASE_SENSITIVE);
+			if (results != null) {
+				for (int i = 0; i < results.length; i++) {
+					char[] word = results[i].getWord();
+					String[] documents = results[i].getDocumentNames(this);
+					for (int j = 0; j < documents.length; j++)
+						graph.add(word, documents[j]);
+				}
+			}
+			// otherwise it is saved with the index
+			if (!this.memoryIndex.hasChanged())
+				graph.save(file, getStamp());
+		}
+		synchronized (this) {
+			if (this.superTypeGraph == null)
+				this.superTypeGraph = graph;
+			return this.superTypeGraph;
+		}
+	}
+
+	/**
+	 * Saves the supertype graph if it was created, must own the write lock of
+	 * the monitor.
+	 */
+	private void saveSuperTypeGraph() {
+		SuperTypeGraph graph = this.superTypeGraph;
+		if (graph != null)
+			graph.save(SuperTypeGraph.getFile(this.diskIndex.fileName),
+					getStamp());
+	}
+
+	/**
+	 * Answers the stamp of the saved index files, which changes whenever they
+	 * are written.
+	 */
+	private long getStamp() {
+		long stamp = getStamp(this.diskIndex.fileName);
+		DiskIndex[] segments = this.segments;
+		for (int i = 0; i < segments.length; i++)
+			stamp = stamp * 31 + getStamp(segments[i].fileName);
+		return stamp;
+	}
+
+	private static long getStamp(String fileName) {
+		File file = new File(fileName);
+		return (fileName.hashCode() * 31L + file.length()) * 31
+				+ file.lastModified();
+	}
+
 	/**
 	 * Returns the document names that contain the given substring, if null then
 	 * returns all of them.
 	 */
 	public String[] queryDocumentNames(String substring) throws IOException {
-		SimpleSet results;
-		if (this.memoryIndex.hasChanged()) {
-			results = this.diskIndex.addDocumentNames(substring,
-					this.memoryIndex);
-			this.memoryIndex.addDocumentNames(substring, results);
+		SimpleSet results = new SimpleSet();
+		DiskIndex[] segments = this.segments;
+		if (segments.length == 0 && !this.memoryIndex.hasChanged()) {
+			this.diskIndex.addDocumentNames(substring, null, results);
 		} else {
-			results = this.diskIndex.addDocumentNames(substring, null);
+			// newer changes hide the older versions of the same documents
+			SimpleSet changedDocuments = new SimpleSet();
+			this.memoryIndex.addChangedDocuments(changedDocuments);
+			for (int i = segments.length; --i >= 0;) {
+				segments[i].addDocumentNames(substring, changedDocuments,
+						results);
+				segments[i].addAllDocumentNames(changedDocuments);
+			}
+			this.diskIndex.addDocumentNames(substring, changedDocuments,
+					results);
+			this.memoryIndex.addDocumentNames(substring, results);
 		}
 		if (results.elementSize == 0)
 			return null;
@@ -206,32 +360,267 @@ public class Index {
 
 	public void remove(String containerRelativePath) {
 		this.memoryIndex.remove(containerRelativePath);
+		SuperTypeGraph graph = this.superTypeGraph;
+		if (graph != null)
+			graph.removeDocument(containerRelativePath);
 	}
 
 	public void save() throws IOException {
 		// must own the write lock of the monitor
 		if (!hasChanged())
 			return;
-
 		if (DLTKCore.DEBUG_INDEX) {
 			System.out.println("Index for " + this.containerPath + " (" + new Path(diskIndex.fileName).lastSegment() + ") saved"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$		
 		}
 		// int numberOfChanges = this.memoryIndex.docsToReferences.elementSize;
 		this.diskIndex.separator = this.separator;
-		this.diskIndex = this.diskIndex.mergeWith(this.memoryIndex);
+		if (this.segments.length == 0 && this.diskIndex.isEmpty()) {
+			// nothing to merge with, so write the disk index itself
+			this.diskIndex = this.diskIndex.mergeWith(this.memoryIndex);
+		} else if (this.segments.length >= MAX_SEGMENTS && !isCompacting()) {
+			MemoryIndex changes = new MemoryIndex();
+			for (int i = 0; i < this.segments.length; i++)
+				this.segments[i].addChangesTo(changes);
+			this.memoryIndex.addChangesTo(changes);
+			this.diskIndex = this.diskIndex.mergeWith(changes);
+			DiskIndex[] merged = this.segments;
+			this.segments = NO_SEGMENTS;
+			for (int i = 0; i < merged.length; i++)
+				merged[i].delete();
+		} else {
+			// save cost depends on the number of changes only, the segments
+			// are merged later by compact()
+			DiskIndex segment = new DiskIndex(getSegmentFileName(
+					this.diskIndex.fileName, this.nextSegmentNumber++));
+			segment.initialize(false);
+			segment.separator = this.separator;
+			segment = segment
+					.mergeWith(this.memoryIndex.withRemovedDocuments());
+			DiskIndex[] segments = new DiskIndex[this.segments.length + 1];
+			System.arraycopy(this.segments, 0, segments, 0,
+					this.segments.length);
+			segments[this.segments.length] = segment;
+			this.segments = segments;
+		}
 		this.memoryIndex = new MemoryIndex();
+		saveSuperTypeGraph();
 		// if (numberOfChanges > 1000)
 		// System.gc(); // reclaim space if the MemoryIndex was very BIG
 	}
 
+	/**
+	 * Answers if the delta segments should be merged into the disk index by
+	 * {@link #compact()}.
+	 * 
+	 * @since 6.2
+	 */
+	public boolean shouldCompact() {
+		return this.segments.length >= COMPACTION_THRESHOLD;
+	}
+
+	private synchronized boolean isCompacting() {
+		return this.compacting;
+	}
+
+	/**
+	 * Marks the index as recreated or removed, the files of the index are not
+	 * changed by the compaction after this method returns.
+	 * 
+	 * @since 6.2
+	 */
+	public synchronized void discard() {
+		this.discarded = true;
+	}
+
+	/**
+	 * Deletes the index file together with its delta segments and supertype
+	 * graph.
+	 * 
+	 * @since 6.2
+	 */
+	public static void deleteIndexFiles(String fileName) {
+		File indexFile = new File(fileName);
+		if (indexFile.exists())
+			indexFile.delete();
+		deleteSegments(fileName);
+		SuperTypeGraph.getFile(fileName).delete();
+	}
+
+	/**
+	 * Merges the delta segments written by {@link #save()} into the disk
+	 * index. The segments are merged without holding the lock of the monitor,
+	 * so the index could be queried and updated meanwhile, the write lock is
+	 * taken only to replace the files.
+	 * 
+	 * @since 6.2
+	 */
+	public void compact() throws IOException {
+		ReadWriteMonitor monitor = this.monitor;
+		if (monitor == null)
+			return; // index got deleted
+		DiskIndex base;
+		DiskIndex[] merged;
+		monitor.enterRead();
+		try {
+			synchronized (this) {
+				if (this.compacting || this.discarded
+						|| this.segments.length == 0)
+					return;
+				this.compacting = true;
+			}
+			base = this.diskIndex;
+			merged = this.segments;
+		} finally {
+			monitor.exitRead();
+		}
+		try {
+			// segments are immutable, and neither the disk index nor the
+			// merged segments are replaced while compacting
+			MemoryIndex changes = new MemoryIndex();
+			for (int i = 0; i < merged.length; i++)
+				merged[i].addChangesTo(changes);
+			DiskIndex newDiskIndex = base.writeMerged(changes,
+					base.fileName + ".compact"); //$NON-NLS-1$
+			monitor.enterWrite();
+			try {
+				// the monitor is shared with the recreated index, so check
+				// and replace the files while discard() is blocked
+				synchronized (this) {
+					if (this.discarded || this.monitor != monitor) {
+						// index got recreated or deleted since compaction
+						// started
+						if (newDiskIndex != base)
+							newDiskIndex.delete();
+						return;
+					}
+					if (newDiskIndex != base) {
+						newDiskIndex.separator = base.separator;
+						base.replaceWith(newDiskIndex);
+						this.diskIndex = newDiskIndex;
+					}
+					DiskIndex[] segments = new DiskIndex[this.segments.length
+							- merged.length];
+					System.arraycopy(this.segments, merged.length, segments,
+							0, segments.length);
+					this.segments = segments;
+					for (int i = 0; i < merged.length; i++)
+						merged[i].delete();
+					saveSuperTypeGraph();
+				}
+			} finally {
+				monitor.exitWrite();
+			}
+			if (DLTKCore.DEBUG_INDEX) {
+				System.out.println("Index for " + this.containerPath + " (" + new Path(base.fileName).lastSegment() + ") compacted"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+		} finally {
+			synchronized (this) {
+				this.compacting = false;
+			}
+		}
+	}
+
+	private void openSegments(String fileName) throws IOException {
+		File[] files = listSegmentFiles(fileName);
+		DiskIndex[] segments = new DiskIndex[files.length];
+		for (int i = 0; i < files.length; i++) {
+			segments[i] = new DiskIndex(files[i].getPath());
+			segments[i].initialize(true);
+		}
+		this.segments = segments;
+		if (files.length > 0)
+			this.nextSegmentNumber = getSegmentNumber(
+					files[files.length - 1].getName(),
+					new File(fileName).getName()) + 1;
+	}
+
+	private static void deleteSegments(String fileName) {
+		File[] files = listSegmentFiles(fileName);
+		for (int i = 0; i < files.length; i++)
+			files[i].delete();
+	}
+
+	private static String getSegmentFileName(String fileName, int number) {
+		return fileName + '.' + number + SEGMENT_SUFFIX;
+	}
+
+	/**
+	 * Answers the number of the segment of the specified index file, or -1 if
+	 * the file name does not denote a segment.
+	 */
+	private static int getSegmentNumber(String segmentName, String indexName) {
+		if (segmentName.length() > indexName.length() + 1
+				+ SEGMENT_SUFFIX.length() && segmentName.startsWith(indexName)
+				&& segmentName.charAt(indexName.length()) == '.'
+				&& segmentName.endsWith(SEGMENT_SUFFIX)) {
+			try {
+				return Integer.parseInt(segmentName.substring(
+						indexName.length() + 1,
+						segmentName.length() - SEGMENT_SUFFIX.length()));
+			} catch (NumberFormatException e) {
+				// fall thru
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Answers the delta segment files of the specified index file sorted by
+	 * their numbers.
+	 */
+	private static File[] listSegmentFiles(String fileName) {
+		File indexFile = new File(fileName).getAbsoluteFile();
+		final String indexName = indexFile.getName();
+		File[] files = indexFile.getParentFile().listFiles(
+				(dir, name) -> getSegmentNumber(name, indexName) > 0);
+		if (files == null)
+			return new File[0];
+		Arrays.sort(files, (f1, f2) -> getSegmentNumber(f1.getName(),
+				indexName) - getSegmentNumber(f2.getName(), indexName));
+		return files;
+	}
+
+	/**
+	 * Answers the index file of the specified supertype graph file, or
+	 * <code>null</code> if it is not a supertype graph file.
+	 * 
+	 * @since 6.2
+	 */
+	public static File getSuperTypeGraphIndexFile(File file) {
+		return SuperTypeGraph.getIndexFile(file);
+	}
+
+	/**
+	 * Answers the index file of the specified delta segment file, or
+	 * <code>null</code> if it is not a segment file.
+	 * 
+	 * @since 6.2
+	 */
+	public static File getSegmentIndexFile(File segmentFile) {
+		String name = segmentFile.getName();
+		if (!name.endsWith(SEGMENT_SUFFIX))
+			return null;
+		int dot = name.lastIndexOf('.', name.length()
+				- SEGMENT_SUFFIX.length() - 1);
+		if (dot <= 0 || getSegmentNumber(name, name.substring(0, dot)) <= 0)
+			return null;
+		return new File(segmentFile.getParentFile(), name.substring(0, dot));
+	}
+
 	public void startQuery() {
 		if (this.diskIndex != null)
 			this.diskIndex.startQuery();
+		DiskIndex[] segments = this.segments;
+		for (int i = 0; i < segments.length; i++)
+			segments[i].startQuery();
 	}
 
 	public void stopQuery() {
 		if (this.diskIndex != null)
 			this.diskIndex.stopQuery();
+		DiskIndex[] segments = this.segments;
+		for (int i = 0; i < segments.length; i++)
+			segments[i].stopQuery();
 	}
 
 	@Override
@@ -0,0 +1,308 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.search.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read only view of the index file mapped into memory. All the methods use
+ * absolute positions, so the instance could be shared by several threads.
+ *
+ * Strings are expected in the modified UTF-8 format as written by
+ * {@link java.io.DataOutputStream#writeUTF(String)} and
+ * {@link org.eclipse.dltk.internal.core.util.Util#writeUTF(java.io.OutputStream, char[])}.
+ */
+final class MappedIndexFile {
+
+	private MappedByteBuffer buffer;
+
+	/**
+	 * Number of the readers using the mapping, plus one held until
+	 * {@link #close()}. The mapping is released when it drops to zero, so the
+	 * memory is never unmapped while it is being read.
+	 */
+	private int references = 1;
+
+	private MappedIndexFile(MappedByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	static MappedIndexFile open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+		try {
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("Index file is too large " + file); //$NON-NLS-1$
+			// the mapping remains valid after the channel is closed
+			return new MappedIndexFile(
+					channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+		} finally {
+			raf.close();
+		}
+	}
+
+	int readInt(int position) {
+		return this.buffer.getInt(position);
+	}
+
+	int readUnsignedByte(int position) {
+		return this.buffer.get(position) & 0xFF;
+	}
+
+	int readUnsignedShort(int position) {
+		return this.buffer.getShort(position) & 0xFFFF;
+	}
+
+	/**
+	 * Answers the number of bytes occupied by the string at the given
+	 * position, including the length prefix.
+	 */
+	int sizeOfUTF(int position) {
+		return 2 + readUnsignedShort(position);
+	}
+
+	char[] readUTF(int position) throws IOException {
+		int utflen = readUnsignedShort(position);
+		int pos = position + 2;
+		int end = pos + utflen;
+		char str[] = new char[utflen];
+		int strlen = 0;
+		while (pos < end) {
+			int c = this.buffer.get(pos) & 0xFF;
+			int char2, char3;
+			switch (c >> 4) {
+			case 0:
+			case 1:
+			case 2:
+			case 3:
+			case 4:
+			case 5:
+			case 6:
+			case 7:
+				// xxxxxxx
+				pos++;
+				str[strlen++] = (char) c;
+				break;
+			case 12:
+			case 13:
+				// 110x xxxx 10xx xxxx
+				if (pos + 2 > end)
+					throw new UTFDataFormatException();
+				char2 = this.buffer.get(pos + 1);
+				if ((char2 & 0xC0) != 0x80)
+					throw new UTFDataFormatException();
+				str[strlen++] = (char) (((c & 0x1F) << 6) | (char2 & 0x3F));
+				pos += 2;
+				break;
+			case 14:
+				// 1110 xxxx 10xx xxxx 10xx xxxx
+				if (pos + 3 > end)
+					throw new UTFDataFormatException();
+				char2 = this.buffer.get(pos + 1);
+				char3 = this.buffer.get(pos + 2);
+				if (((char2 & 0xC0) != 0x80) || ((char3 & 0xC0) != 0x80))
+					throw new UTFDataFormatException();
+				str[strlen++] = (char) (((c & 0x0F) << 12)
+						| ((char2 & 0x3F) << 6) | (char3 & 0x3F));
+				pos += 3;
+				break;
+			default:
+				// 10xx xxxx, 1111 xxxx
+				throw new UTFDataFormatException();
+			}
+		}
+		if (strlen < utflen) {
+			System.arraycopy(str, 0, str = new char[strlen], 0, strlen);
+		}
+		return str;
+	}
+
+	String readString(int position) throws IOException {
+		return new String(readUTF(position));
+	}
+
+	/**
+	 * Compares the encoded string at the given position with the specified
+	 * bytes. If <code>prefix</code> is <code>true</code> then answers if the
+	 * stored string starts with the specified one.
+	 */
+	boolean matchUTF(int position, byte[] encoded, boolean prefix) {
+		int utflen = readUnsignedShort(position);
+		if (prefix ? utflen < encoded.length : utflen != encoded.length)
+			return false;
+		int pos = position + 2;
+		for (int i = 0, l = encoded.length; i < l; i++)
+			if (this.buffer.get(pos + i) != encoded[i])
+				return false;
+		return true;
+	}
+
+	/**
+	 * Compares the encoded string at the given position with the specified
+	 * bytes in the same way as {@link #compare(byte[], byte[])} does.
+	 */
+	int compareUTF(int position, byte[] encoded) {
+		int utflen = readUnsignedShort(position);
+		int pos = position + 2;
+		for (int i = 0, l = Math.min(utflen, encoded.length); i < l; i++) {
+			int c1 = this.buffer.get(pos + i) & 0xFF;
+			int c2 = encoded[i] & 0xFF;
+			if (c1 != c2)
+				return c1 - c2;
+		}
+		return utflen - encoded.length;
+	}
+
+	/**
+	 * Compares the encoded strings as the arrays of unsigned bytes, this is the
+	 * order of the words in the category tables.
+	 */
+	static int compare(byte[] encoded1, byte[] encoded2) {
+		for (int i = 0, l = Math.min(encoded1.length,
+				encoded2.length); i < l; i++) {
+			int c1 = encoded1[i] & 0xFF;
+			int c2 = encoded2[i] & 0xFF;
+			if (c1 != c2)
+				return c1 - c2;
+		}
+		return encoded1.length - encoded2.length;
+	}
+
+	/**
+	 * Encodes the specified chars in the same way as
+	 * {@link org.eclipse.dltk.internal.core.util.Util#writeUTF(java.io.OutputStream, char[])}
+	 * does, but without the length prefix. Note, that the encoding of the
+	 * string prefix is the prefix of the string encoding.
+	 */
+	static byte[] encodeUTF(char[] str) {
+		int utflen = 0;
+		for (int i = 0, l = str.length; i < l; i++) {
+			int c = str[i];
+			if ((c >= 0x0001) && (c <= 0x007F)) {
+				utflen++;
+			} else if (c > 0x07FF) {
+				utflen += 3;
+			} else {
+				utflen += 2;
+			}
+		}
+		byte[] bytes = new byte[utflen];
+		int count = 0;
+		for (int i = 0, l = str.length; i < l; i++) {
+			int c = str[i];
+			if ((c >= 0x0001) && (c <= 0x007F)) {
+				bytes[count++] = (byte) c;
+			} else if (c > 0x07FF) {
+				bytes[count++] = (byte) (0xE0 | ((c >> 12) & 0x0F));
+				bytes[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				bytes[count++] = (byte) (0x80 | (c & 0x3F));
+			} else {
+				bytes[count++] = (byte) (0xC0 | ((c >> 6) & 0x1F));
+				bytes[count++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+		return bytes;
+	}
+
+	int[] readDocumentArray(int position, int arraySize,
+			int documentReferenceSize) {
+		int[] result = new int[arraySize];
+		switch (documentReferenceSize) {
+		case 1:
+			for (int i = 0; i < arraySize; i++)
+				result[i] = this.buffer.get(position + i) & 0xFF;
+			break;
+		case 2:
+			for (int i = 0; i < arraySize; i++)
+				result[i] = this.buffer.getShort(position + (i << 1)) & 0xFFFF;
+			break;
+		default:
+			for (int i = 0; i < arraySize; i++)
+				result[i] = this.buffer.getInt(position + (i << 2));
+			break;
+		}
+		return result;
+	}
+
+	/**
+	 * Marks the mapping as used by the caller, who must {@link #release()} it
+	 * when the reading is done. Must not be called after {@link #close()}.
+	 */
+	synchronized void acquire() {
+		if (this.references <= 0)
+			throw new IllegalStateException("Index file is closed"); //$NON-NLS-1$
+		this.references++;
+	}
+
+	/**
+	 * Releases the mapping acquired by {@link #acquire()}.
+	 */
+	void release() {
+		MappedByteBuffer mapped;
+		synchronized (this) {
+			if (--this.references > 0)
+				return;
+			mapped = this.buffer;
+			this.buffer = null;
+		}
+		if (mapped != null)
+			unmap(mapped);
+	}
+
+	/**
+	 * Releases the mapping once the readers still using it release it, the
+	 * instance could not be acquired after that.
+	 */
+	void close() {
+		release();
+	}
+
+	/*
+	 * The mapping is released by the garbage collector only, which prevents
+	 * the index file from being deleted or replaced on some platforms, so try
+	 * to release it explicitly.
+	 */
+	private static void unmap(ByteBuffer buffer) {
+		try {
+			// Java 9+
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe"); //$NON-NLS-1$
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", //$NON-NLS-1$
+					ByteBuffer.class);
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe"); //$NON-NLS-1$
+			theUnsafe.setAccessible(true);
+			invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			return;
+		} catch (Throwable e) {
+			// fall thru
+		}
+		try {
+			// Java 8
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner"); //$NON-NLS-1$
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+			if (cleaner != null) {
+				Method clean = cleaner.getClass().getMethod("clean"); //$NON-NLS-1$
+				clean.setAccessible(true);
+				clean.invoke(cleaner);
+			}
+		} catch (Throwable e) {
+			// mapping will be released by GC
+		}
+	}
+}
@@ -187,6 +187,54 @@ public class MemoryIndex {
 		return results;
 	}
 
+	/**
+	 * Adds the names of the added/changed/deleted documents to the specified
+	 * set.
+	 */
+	void addChangedDocuments(SimpleSet results) {
+		Object[] paths = this.docsToReferences.keyTable;
+		for (int i = 0, l = paths.length; i < l; i++)
+			if (paths[i] != null)
+				results.add(paths[i]);
+	}
+
+	/**
+	 * Adds the changes of this index to the specified one, the documents of
+	 * this index replace the ones added before.
+	 */
+	void addChangesTo(MemoryIndex changes) {
+		Object[] paths = this.docsToReferences.keyTable;
+		Object[] referenceTables = this.docsToReferences.valueTable;
+		for (int i = 0, l = paths.length; i < l; i++) {
+			if (paths[i] != null) {
+				changes.remove((String) paths[i]);
+				if (referenceTables[i] != null)
+					changes.docsToReferences.put(paths[i], referenceTables[i]);
+			}
+		}
+	}
+
+	/**
+	 * Answers the copy of this index recording each deleted document as an
+	 * entry of the {@link DiskIndex#REMOVED_DOCUMENTS} category, so the
+	 * deletions are kept when the changes are saved as a delta segment.
+	 */
+	MemoryIndex withRemovedDocuments() {
+		MemoryIndex copy = new MemoryIndex();
+		Object[] paths = this.docsToReferences.keyTable;
+		Object[] referenceTables = this.docsToReferences.valueTable;
+		for (int i = 0, l = paths.length; i < l; i++) {
+			if (paths[i] != null) {
+				if (referenceTables[i] != null)
+					copy.docsToReferences.put(paths[i], referenceTables[i]);
+				else
+					copy.addIndexEntry(DiskIndex.REMOVED_DOCUMENTS,
+							CharOperation.NO_CHAR, (String) paths[i]);
+			}
+		}
+		return copy;
+	}
+
 	boolean hasChanged() {
 		return this.docsToReferences.elementSize > 0;
 	}
@@ -18,6 +18,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.Path;
@@ -26,6 +27,7 @@ import org.eclipse.dltk.compiler.util.HashtableOfObject;
 import org.eclipse.dltk.compiler.util.ObjectVector;
 import org.eclipse.dltk.compiler.util.SimpleSet;
 import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.search.SearchPattern;
 import org.eclipse.dltk.core.search.indexing.IIndexConstants;
 import org.eclipse.dltk.core.search.indexing.IndexManager;
 import org.eclipse.dltk.internal.core.util.Util;
@@ -43,6 +45,12 @@ public class MixinIndex extends Index {
 
 	private boolean dirty;
 
+	/**
+	 * Lazily sorted copy of the keys, to answer the prefix queries (e.g. the
+	 * children of the key) without scanning the whole table.
+	 */
+	private volatile char[][] sortedKeys;
+
 	public MixinIndex(String fileName, String containerPath, boolean reuseFile)
 			throws IOException {
 		super(fileName, containerPath);
@@ -88,6 +96,7 @@ public class MixinIndex extends Index {
 		if (docs == null) {
 			docs = new SimpleSet(1);
 			keyToDocs.put(key, docs);
+			sortedKeys = null;
 		}
 		docs.add(containerRelativePath);
 	}
@@ -124,23 +133,104 @@ public class MixinIndex extends Index {
 	}
 
 	private void performQuery(char[] key, int matchRule, ObjectVector results) {
+		final int rule = matchRule & MATCH_RULE_INDEX_MASK;
+		if (key != null && key.length != 0
+				&& (rule == (SearchPattern.R_EXACT_MATCH
+						| SearchPattern.R_CASE_SENSITIVE)
+						|| rule == (SearchPattern.R_PATTERN_MATCH
+								| SearchPattern.R_CASE_SENSITIVE))) {
+			final int wildcard = (rule & SearchPattern.R_PATTERN_MATCH) != 0
+					? indexOfWildcard(key)
+					: -1;
+			if (wildcard == -1) {
+				final SimpleSet docs = (SimpleSet) keyToDocs.get(key);
+				if (docs != null) {
+					addResult(key, docs, results);
+				}
+				return;
+			} else if (wildcard == key.length - 1 && key[wildcard] == '*') {
+				final char[] prefix = CharOperation.subarray(key, 0, wildcard);
+				final char[][] keys = getSortedKeys();
+				for (int i = lowerBound(keys, prefix); i < keys.length
+						&& CharOperation.prefixEquals(prefix, keys[i]); ++i) {
+					addResult(keys[i], (SimpleSet) keyToDocs.get(keys[i]),
+							results);
+				}
+				return;
+			}
+		}
 		final char[][] keyTable = keyToDocs.keyTable;
 		for (int i = 0, keyLen = keyTable.length; i < keyLen; i++) {
 			final char[] nextKey = keyTable[i];
 			if (nextKey == null)
 				continue;
 			if (Index.isMatch(key, nextKey, matchRule)) {
-				final EntryResult s = new EntryResult(nextKey, null);
-				results.add(s);
-				final Object[] docTable = ((SimpleSet) keyToDocs.valueTable[i]).values;
-				for (int j = 0, docLen = docTable.length; j < docLen; j++) {
-					final String doc = (String) docTable[j];
-					if (doc != null) {
-						s.addDocumentName(doc);
-					}
+				addResult(nextKey, (SimpleSet) keyToDocs.valueTable[i],
+						results);
+			}
+		}
+	}
+
+	private static void addResult(char[] key, SimpleSet docs,
+			ObjectVector results) {
+		final EntryResult s = new EntryResult(key, null);
+		results.add(s);
+		final Object[] docTable = docs.values;
+		for (int j = 0, docLen = docTable.length; j < docLen; j++) {
+			final String doc = (String) docTable[j];
+			if (doc != null) {
+				s.addDocumentName(doc);
+			}
+		}
+	}
+
+	private static int indexOfWildcard(char[] key) {
+		for (int i = 0; i < key.length; ++i) {
+			if (key[i] == '*' || key[i] == '?') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private char[][] getSortedKeys() {
+		char[][] keys = sortedKeys;
+		if (keys == null) {
+			keys = new char[keyToDocs.elementSize][];
+			int count = 0;
+			for (char[] key : keyToDocs.keyTable) {
+				if (key != null) {
+					keys[count++] = key;
 				}
 			}
+			Arrays.sort(keys, MixinIndex::compare);
+			sortedKeys = keys;
 		}
+		return keys;
+	}
+
+	private static int lowerBound(char[][] keys, char[] key) {
+		int low = 0;
+		int high = keys.length;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (compare(keys[mid], key) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private static int compare(char[] a, char[] b) {
+		final int length = Math.min(a.length, b.length);
+		for (int i = 0; i < length; ++i) {
+			if (a[i] != b[i]) {
+				return a[i] - b[i];
+			}
+		}
+		return a.length - b.length;
 	}
 
 	private static String[] extractKeysFromTable(SimpleSet table,
@@ -172,6 +262,14 @@ public class MixinIndex extends Index {
 		return extractKeysFromTable(documentNames, substring);
 	}
 
+	/**
+	 * Always returns null, as the mixin index keeps no supertype references.
+	 */
+	@Override
+	public EntryResult[] querySuperTypeReferences(char[] superSimpleName) {
+		return null;
+	}
+
 	@Override
 	public void remove(String containerRelativePath) {
 		this.dirty = true;
@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.search.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.search.indexing.IIndexConstants;
+import org.eclipse.dltk.internal.core.util.Util;
+
+/**
+ * The {@link IIndexConstants#SUPER_REF} entries of the index grouped by the
+ * simple name of the supertype, so the direct subtypes of a type are found by
+ * the hash lookup instead of the index query. The graph is updated by the
+ * {@link Index} as the documents are indexed or removed, and is saved next to
+ * the index file together with the stamp of the index files, so it is reused
+ * after restart while the index is not changed by other means.
+ */
+class SuperTypeGraph {
+
+	static final String SUFFIX = ".supers"; //$NON-NLS-1$
+
+	private static final int MAGIC = 0x53555052; // SUPR
+	private static final int VERSION = 1;
+	/**
+	 * Offset of the stamp in the file.
+	 */
+	private static final int STAMP_OFFSET = 8;
+
+	/**
+	 * The index keys of the supertype references by the supertype simple
+	 * name, and the documents of every key.
+	 */
+	private final Map<String, Map<String, Set<String>>> subtypes = new HashMap<>();
+
+	/**
+	 * The index keys by the document, used to remove the document.
+	 */
+	private final Map<String, List<String>> documents = new HashMap<>();
+
+	/**
+	 * The order-independent hash of the references, used to detect whether
+	 * the references were really changed since they were saved.
+	 */
+	private long contentHash;
+	private long savedContentHash;
+	private long savedStamp;
+	private boolean saved;
+
+	static File getFile(String indexFileName) {
+		return new File(indexFileName + SUFFIX);
+	}
+
+	/**
+	 * Answers the index file of the specified graph file, or
+	 * <code>null</code> if it is not a graph file.
+	 */
+	static File getIndexFile(File file) {
+		final String name = file.getName();
+		if (!name.endsWith(SUFFIX) || name.length() == SUFFIX.length()) {
+			return null;
+		}
+		return new File(file.getParentFile(),
+				name.substring(0, name.length() - SUFFIX.length()));
+	}
+
+	private static String getSuperSimpleName(String key) {
+		final int slash = key.indexOf(IIndexConstants.SEPARATOR);
+		return slash >= 0 ? key.substring(0, slash) : key;
+	}
+
+	private static long hash(String key, String document) {
+		long hash = key.hashCode() * 0x9E3779B97F4A7C15L + document.hashCode();
+		hash ^= hash >>> 29;
+		return hash * 0xBF58476D1CE4E5B9L;
+	}
+
+	synchronized void add(char[] key, String document) {
+		add(new String(key), document);
+	}
+
+	private void add(String key, String document) {
+		final Set<String> keyDocuments = subtypes
+				.computeIfAbsent(getSuperSimpleName(key), k -> new HashMap<>())
+				.computeIfAbsent(key, k -> new LinkedHashSet<>(2));
+		if (keyDocuments.add(document)) {
+			documents.computeIfAbsent(document, d -> new ArrayList<>(2))
+					.add(key);
+			contentHash += hash(key, document);
+		}
+	}
+
+	synchronized void removeDocument(String document) {
+		final List<String> keys = documents.remove(document);
+		if (keys == null) {
+			return;
+		}
+		for (String key : keys) {
+			final String superSimpleName = getSuperSimpleName(key);
+			final Map<String, Set<String>> references = subtypes
+					.get(superSimpleName);
+			final Set<String> keyDocuments = references.get(key);
+			keyDocuments.remove(document);
+			if (keyDocuments.isEmpty()) {
+				references.remove(key);
+				if (references.isEmpty()) {
+					subtypes.remove(superSimpleName);
+				}
+			}
+			contentHash -= hash(key, document);
+		}
+	}
+
+	/**
+	 * Returns the references to the specified supertype or <code>null</code>
+	 * if there are none.
+	 */
+	synchronized EntryResult[] query(char[] superSimpleName) {
+		final Map<String, Set<String>> references = subtypes
+				.get(new String(superSimpleName));
+		if (references == null) {
+			return null;
+		}
+		final EntryResult[] results = new EntryResult[references.size()];
+		int count = 0;
+		for (Map.Entry<String, Set<String>> entry : references.entrySet()) {
+			final EntryResult result = new EntryResult(
+					entry.getKey().toCharArray(), null);
+			for (String document : entry.getValue()) {
+				result.addDocumentName(document);
+			}
+			results[count++] = result;
+		}
+		return results;
+	}
+
+	/**
+	 * Loads the graph saved with the same stamp, returns <code>null</code> if
+	 * there is no such graph.
+	 */
+	static SuperTypeGraph load(File file, long stamp) {
+		if (!file.isFile()) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION
+					|| in.readLong() != stamp) {
+				return null;
+			}
+			final SuperTypeGraph graph = new SuperTypeGraph();
+			final long contentHash = in.readLong();
+			final int documentCount = in.readInt();
+			for (int i = 0; i < documentCount; ++i) {
+				final String document = new String(Util.readUTF(in));
+				final int keyCount = in.readInt();
+				for (int j = 0; j < keyCount; ++j) {
+					graph.add(new String(Util.readUTF(in)), document);
+				}
+			}
+			if (graph.contentHash != contentHash) {
+				return null;
+			}
+			graph.markSaved(stamp);
+			return graph;
+		} catch (IOException e) {
+			if (DLTKCore.DEBUG_INDEX) {
+				e.printStackTrace();
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Saves the graph with the stamp of the index files. If the references
+	 * are not changed since the last save only the stamp is updated.
+	 */
+	synchronized void save(File file, long stamp) {
+		if (saved && contentHash == savedContentHash) {
+			if (stamp == savedStamp) {
+				return;
+			}
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) { //$NON-NLS-1$
+				if (raf.length() > STAMP_OFFSET + 8) {
+					raf.seek(STAMP_OFFSET);
+					raf.writeLong(stamp);
+					savedStamp = stamp;
+					return;
+				}
+			} catch (IOException e) {
+				// fall through to rewrite the file
+			}
+		}
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(stamp);
+			out.writeLong(contentHash);
+			out.writeInt(documents.size());
+			for (Map.Entry<String, List<String>> entry : documents
+					.entrySet()) {
+				Util.writeUTF(out, entry.getKey().toCharArray());
+				out.writeInt(entry.getValue().size());
+				for (String key : entry.getValue()) {
+					Util.writeUTF(out, key.toCharArray());
+				}
+			}
+		} catch (IOException e) {
+			DLTKCore.error("Error saving supertype graph", e); //$NON-NLS-1$
+			file.delete();
+			saved = false;
+			return;
+		}
+		markSaved(stamp);
+	}
+
+	private void markSaved(long stamp) {
+		saved = true;
+		savedStamp = stamp;
+		savedContentHash = contentHash;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "SuperTypeGraph(" + subtypes.size() + " supertypes, " //$NON-NLS-1$ //$NON-NLS-2$
+				+ documents.size() + " documents)"; //$NON-NLS-1$
+	}
+}
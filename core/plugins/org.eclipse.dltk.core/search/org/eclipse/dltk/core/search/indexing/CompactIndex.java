@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.search.indexing;
+
+import java.io.IOException;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.dltk.core.search.index.Index;
+import org.eclipse.dltk.internal.core.search.processing.IParallelJob;
+import org.eclipse.dltk.internal.core.search.processing.JobManager;
+import org.eclipse.dltk.internal.core.util.Util;
+
+/*
+ * Merges the delta segments of the index into its main file.
+ */
+class CompactIndex implements IParallelJob {
+	private final Index index;
+	private boolean isCancelled = false;
+
+	CompactIndex(Index index) {
+		this.index = index;
+	}
+
+	@Override
+	public boolean belongsTo(String jobFamily) {
+		IPath containerPath = new Path(this.index.getContainerPath());
+		return jobFamily.equals(containerPath.segment(0))
+				|| jobFamily.equals(containerPath.toString());
+	}
+
+	@Override
+	public void cancel() {
+		this.isCancelled = true;
+	}
+
+	@Override
+	public void ensureReadyToRun() {
+		// index stays consistent while compacting
+	}
+
+	@Override
+	public Object getJobKey() {
+		// the index is locked only to replace the files, so don't block the
+		// other requests for the same container
+		return this;
+	}
+
+	@Override
+	public boolean execute(IProgressMonitor progressMonitor) {
+		if (this.isCancelled || progressMonitor != null
+				&& progressMonitor.isCanceled())
+			return true;
+		try {
+			this.index.compact();
+		} catch (IOException e) {
+			if (JobManager.VERBOSE) {
+				Util.verbose("-> failed to compact index " + this.index.getContainerPath() + " because of the following exception:", System.err); //$NON-NLS-1$ //$NON-NLS-2$
+				e.printStackTrace();
+			}
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "compacting index for " + this.index.getContainerPath(); //$NON-NLS-1$
+	}
+}
@@ -27,6 +27,46 @@ public interface IProjectIndexer {
 		void indexSourceModule(Index index, IDLTKLanguageToolkit toolkit,
 				ISourceModule change, IPath containerPath);
 
+		/**
+		 * Answers if
+		 * {@link #prepareSourceModule(Index, IDLTKLanguageToolkit, ISourceModule, IPath)}
+		 * could be called concurrently for the different source modules.
+		 * 
+		 * @since 6.2
+		 */
+		default boolean isParallelParsingSupported() {
+			return false;
+		}
+
+		/**
+		 * Parses the source module collecting its index entries without
+		 * modifying the index. The returned document is passed to
+		 * {@link #indexPreparedSourceModule(IndexDocument)} later.
+		 * 
+		 * @return the prepared document or <code>null</code> to index the
+		 *         source module sequentially with
+		 *         {@link #indexSourceModule(Index, IDLTKLanguageToolkit, ISourceModule, IPath)}
+		 * @since 6.2
+		 */
+		default IndexDocument prepareSourceModule(Index index,
+				IDLTKLanguageToolkit toolkit, ISourceModule module,
+				IPath containerPath) {
+			return null;
+		}
+
+		/**
+		 * Replaces the entries of the document in the index with the ones
+		 * collected by
+		 * {@link #prepareSourceModule(Index, IDLTKLanguageToolkit, ISourceModule, IPath)}
+		 * . Must be called under the write lock of the index.
+		 * 
+		 * @since 6.2
+		 */
+		default void indexPreparedSourceModule(IndexDocument document) {
+			document.getIndex().remove(document.getContainerRelativePath());
+			document.addDeferredEntries();
+		}
+
 		void request(IJob request);
 
 		void requestIfNotWaiting(IJob job);
@@ -12,6 +12,9 @@
  *******************************************************************************/
 package org.eclipse.dltk.core.search.indexing;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.dltk.core.IDLTKLanguageToolkit;
 import org.eclipse.dltk.core.IExternalSourceModule;
@@ -29,6 +32,7 @@ public class IndexDocument {
 	private final Index index;
 	private IPath path = null;
 	private final String containerRelativePath;
+	private List<char[]> deferredEntries;
 
 	/**
 	 * @param toolkit
@@ -46,6 +50,22 @@ public class IndexDocument {
 				containerPath, module, path);
 	}
 
+	/**
+	 * Creates the document which collects the added index entries instead of
+	 * passing them to the index if <code>deferred</code> is <code>true</code>.
+	 * The collected entries are added by {@link #addDeferredEntries()}, so the
+	 * document could be indexed without holding the index lock.
+	 * 
+	 * @since 6.2
+	 */
+	public IndexDocument(IDLTKLanguageToolkit toolkit, ISourceModule module,
+			IPath containerPath, Index index, boolean deferred) {
+		this(toolkit, module, containerPath, index);
+		if (deferred) {
+			this.deferredEntries = new ArrayList<>();
+		}
+	}
+
 	public ISourceModule getSourceModule() {
 		return module;
 	}
@@ -87,7 +107,29 @@ public class IndexDocument {
 	 *            the key of the index entry
 	 */
 	public void addIndexEntry(char[] category, char[] key) {
-		index.addIndexEntry(category, key, containerRelativePath);
+		if (deferredEntries != null) {
+			deferredEntries.add(category);
+			deferredEntries.add(key);
+		} else {
+			index.addIndexEntry(category, key, containerRelativePath);
+		}
+	}
+
+	/**
+	 * Adds the index entries collected by the deferred document to the index.
+	 * Must be called under the write lock of the index.
+	 * 
+	 * @since 6.2
+	 */
+	public void addDeferredEntries() {
+		final List<char[]> entries = deferredEntries;
+		if (entries != null) {
+			deferredEntries = null;
+			for (int i = 0, size = entries.size(); i < size; i += 2) {
+				index.addIndexEntry(entries.get(i), entries.get(i + 1),
+						containerRelativePath);
+			}
+		}
 	}
 
 	/**
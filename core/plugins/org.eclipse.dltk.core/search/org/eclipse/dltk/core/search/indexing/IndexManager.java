@@ -149,6 +149,17 @@ public class IndexManager extends JobManager implements IIndexConstants {
 							Util.verbose("Deleting index file " + indexesFiles[i]); //$NON-NLS-1$
 						}
 						indexesFiles[i].delete();
+					} else {
+						File ownerIndexFile = Index.getSegmentIndexFile(indexesFiles[i]);
+						if (ownerIndexFile == null) {
+							ownerIndexFile = Index.getSuperTypeGraphIndexFile(indexesFiles[i]);
+						}
+						if (ownerIndexFile != null && !knownPaths.containsKey(ownerIndexFile.getAbsolutePath())) {
+							if (VERBOSE) {
+								Util.verbose("Deleting index auxiliary file " + indexesFiles[i]); //$NON-NLS-1$
+							}
+							indexesFiles[i].delete();
+						}
 					}
 				}
 			}
@@ -471,6 +482,7 @@ public class IndexManager extends JobManager implements IIndexConstants {
 		String indexLocation = this.computeIndexLocation(containerPath);
 		Object o = this.indexes.get(indexLocation);
 		if (o instanceof Index) {
+			((Index) o).discard();
 			((Index) o).monitor = null;
 			this.indexes.remove(indexLocation);
 		}
@@ -510,6 +522,23 @@ public class IndexManager extends JobManager implements IIndexConstants {
 		}
 	}
 
+	/**
+	 * Answers the size of the worker pool as configured by the
+	 * {@link DLTKCore#INDEXER_THREADS} option.
+	 */
+	@Override
+	protected int getMaxWorkers() {
+		final String value = DLTKCore.getOption(DLTKCore.INDEXER_THREADS);
+		if (value != null) {
+			try {
+				return Integer.parseInt(value);
+			} catch (NumberFormatException e) {
+				// fall thru
+			}
+		}
+		return super.getMaxWorkers();
+	}
+
 	/**
 	 * Name of the background process
 	 */
@@ -597,6 +626,10 @@ public class IndexManager extends JobManager implements IIndexConstants {
 			String indexLocation = this.computeIndexLocation(containerPath);
 			Index index = (Index) this.indexes.get(indexLocation);
 			ReadWriteMonitor monitor = index == null ? null : index.monitor;
+			if (index != null) {
+				// the running compaction must not overwrite the new index
+				index.discard();
+			}
 			if (VERBOSE) {
 				Util.verbose("-> recreating index: " + indexLocation //$NON-NLS-1$
 						+ " for path: " + containerPathString); //$NON-NLS-1$
@@ -640,11 +673,11 @@ public class IndexManager extends JobManager implements IIndexConstants {
 			Util.verbose("removing index " + containerPath); //$NON-NLS-1$
 		}
 		String indexLocation = this.computeIndexLocation(containerPath);
-		File indexFile = new File(indexLocation);
-		if (indexFile.exists()) {
-			indexFile.delete();
-		}
 		final Object o = this.indexes.remove(indexLocation);
+		if (o instanceof Index) {
+			((Index) o).discard();
+		}
+		Index.deleteIndexFiles(indexLocation);
 		if (o instanceof Index) {
 			final Index index = (Index) o;
 			index.monitor = null;
@@ -669,16 +702,14 @@ public class IndexManager extends JobManager implements IIndexConstants {
 			if (path.isPrefixOf(indexPath)) {
 				Index index = (Index) this.indexes.get(indexLocation);
 				if (index != null) {
+					index.discard();
 					index.monitor = null;
 				}
 				if (locations == null) {
 					locations = new String[max];
 				}
 				locations[ptr++] = indexLocation;
-				File indexFile = new File(indexLocation);
-				if (indexFile.exists()) {
-					indexFile.delete();
-				}
+				Index.deleteIndexFiles(indexLocation);
 			} else if (locations == null) {
 				max--;
 			}
@@ -760,6 +791,9 @@ public class IndexManager extends JobManager implements IIndexConstants {
 				Util.verbose("-> saving index " + index.getIndexFile()); //$NON-NLS-1$
 			}
 			index.save();
+			if (index.shouldCompact()) {
+				this.request(new CompactIndex(index));
+			}
 		}
 		if (!index.isRebuildable()) {
 			return;
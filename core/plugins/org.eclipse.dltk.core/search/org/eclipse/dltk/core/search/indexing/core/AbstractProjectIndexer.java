@@ -171,6 +171,19 @@ public abstract class AbstractProjectIndexer implements IProjectIndexer,
 		doIndexing(document);
 	}
 
+	/**
+	 * @since 6.2
+	 */
+	@Override
+	public IndexDocument prepareSourceModule(Index index,
+			IDLTKLanguageToolkit toolkit, ISourceModule module,
+			IPath containerPath) {
+		final IndexDocument document = new IndexDocument(toolkit, module,
+				containerPath, index, true);
+		doIndexing(document);
+		return document;
+	}
+
 	public abstract void doIndexing(IndexDocument document);
 
 	@Override
@@ -16,7 +16,6 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -59,6 +58,11 @@ public class ArchiveProjectFragmentRequest extends IndexRequest {
 		return fragment.getElementName();
 	}
 
+	@Override
+	public Object getJobKey() {
+		return fragment.getPath();
+	}
+
 	@Override
 	protected void run() throws CoreException, IOException {
 		IEnvironment environment = EnvironmentManager
@@ -93,17 +97,7 @@ public class ArchiveProjectFragmentRequest extends IndexRequest {
 			index.separator = Index.JAR_SEPARATOR;
 			index.addIndexEntry(IIndexConstants.STAMP, CharOperation.NO_CHAR,
 					SIGNATURE_PREFIX + signature);
-			for (Iterator<Object> i = changes.iterator(); !isCancelled
-					&& i.hasNext();) {
-				final Object change = i.next();
-				if (change instanceof String) {
-					index.remove((String) change);
-				} else if (change instanceof ISourceModule) {
-					ISourceModule module = (ISourceModule) change;
-					getIndexer().indexSourceModule(index, toolkit, module,
-							containerPath);
-				}
-			}
+			indexChanges(index, toolkit, changes, containerPath);
 
 		} catch (Throwable e) {
 			e.printStackTrace();
@@ -14,7 +14,6 @@ package org.eclipse.dltk.core.search.indexing.core;
 
 import java.io.IOException;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -55,6 +54,11 @@ public class ExternalProjectFragmentRequest extends IndexRequest {
 		return fragment.getElementName();
 	}
 
+	@Override
+	public Object getJobKey() {
+		return fragment.getPath();
+	}
+
 	@Override
 	protected void run() throws CoreException, IOException {
 		IEnvironment environment = EnvironmentManager
@@ -80,27 +84,23 @@ public class ExternalProjectFragmentRequest extends IndexRequest {
 		final ReadWriteMonitor imon = index.monitor;
 		imon.enterWrite();
 		try {
-			for (Iterator<Object> i = changes.iterator(); !isCancelled
-					&& i.hasNext();) {
-				final Object change = i.next();
-				if (change instanceof String) {
-					index.remove((String) change);
-				} else if (change instanceof ISourceModule) {
-					ISourceModule module = (ISourceModule) change;
-					IFileHandle file = EnvironmentPathUtils.getFile(module,
-							false);
-					if (file != null && changes.size() > 1) {
-						IFileHandle parentHandle = file.getParent();
+			if (changes.size() > 1) {
+				for (Object change : changes) {
+					if (change instanceof ISourceModule) {
+						IFileHandle file = EnvironmentPathUtils
+								.getFile((ISourceModule) change, false);
+						IFileHandle parentHandle = file != null
+								? file.getParent()
+								: null;
 						if (parentHandle != null && parentFolders
 								.add(parentHandle.getParent())) {
 							ModelManager.getModelManager().getCoreCache()
 									.updateFolderTimestamps(parentHandle);
 						}
 					}
-					getIndexer().indexSourceModule(index, toolkit, module,
-							containerPath);
 				}
 			}
+			indexChanges(index, toolkit, changes, containerPath);
 
 		} catch (Throwable e) {
 			e.printStackTrace();
@@ -22,6 +22,8 @@ import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.IDLTKLanguageToolkit;
 import org.eclipse.dltk.core.ISourceModule;
 import org.eclipse.dltk.core.ModelException;
 import org.eclipse.dltk.core.caching.IContentCache;
@@ -32,13 +34,16 @@ import org.eclipse.dltk.core.search.index.Index;
 import org.eclipse.dltk.core.search.indexing.AbstractJob;
 import org.eclipse.dltk.core.search.indexing.IProjectIndexer;
 import org.eclipse.dltk.core.search.indexing.IProjectIndexer.Internal;
+import org.eclipse.dltk.core.search.indexing.IndexDocument;
 import org.eclipse.dltk.core.search.indexing.ReadWriteMonitor;
 import org.eclipse.dltk.internal.core.ModelManager;
+import org.eclipse.dltk.internal.core.search.processing.IParallelJob;
 
 /**
  * @since 2.0
  */
-public abstract class IndexRequest extends AbstractJob {
+public abstract class IndexRequest extends AbstractJob
+		implements IParallelJob {
 	private IProjectIndexer indexer;
 
 	public IndexRequest(IProjectIndexer indexer) {
@@ -49,6 +54,18 @@ public abstract class IndexRequest extends AbstractJob {
 		return (Internal) indexer;
 	}
 
+	/**
+	 * Returns the path of the container updated by this request, requests for
+	 * different containers could be executed in parallel. Returns
+	 * <code>null</code> by default, so the request is executed exclusively.
+	 *
+	 * @since 6.2
+	 */
+	@Override
+	public Object getJobKey() {
+		return null;
+	}
+
 	/**
 	 * Returns all the document names. Read lock is acquired automatically.
 	 *
@@ -153,6 +170,82 @@ public abstract class IndexRequest extends AbstractJob {
 		}
 	}
 
+	/**
+	 * Number of the source modules parsed concurrently before their entries
+	 * are added to the index.
+	 */
+	private static final int PARALLEL_BATCH_SIZE = 64;
+
+	/**
+	 * Applies the changes returned by <code>checkChanges()</code> to the
+	 * index: removes the documents and indexes the source modules. If enabled
+	 * by the {@link DLTKCore#INDEXER_PARALLEL_PARSING} option and supported by
+	 * the indexer, the source modules are parsed concurrently in batches,
+	 * while the index is updated by the calling thread only. Must be called
+	 * under the write lock of the index.
+	 *
+	 * @since 6.2
+	 */
+	protected void indexChanges(Index index, IDLTKLanguageToolkit toolkit,
+			List<?> changes, IPath containerPath) {
+		final IProjectIndexer.Internal indexer = getIndexer();
+		final boolean parallel = indexer.isParallelParsingSupported()
+				&& DLTKCore.ENABLED.equals(
+						DLTKCore.getOption(DLTKCore.INDEXER_PARALLEL_PARSING));
+		final List<ISourceModule> batch = new ArrayList<>();
+		for (Iterator<?> i = changes.iterator(); !isCancelled
+				&& i.hasNext();) {
+			final Object change = i.next();
+			if (change instanceof String) {
+				index.remove((String) change);
+			} else if (change instanceof ISourceModule) {
+				final ISourceModule module = (ISourceModule) change;
+				if (parallel) {
+					batch.add(module);
+					if (batch.size() == PARALLEL_BATCH_SIZE) {
+						indexInParallel(index, toolkit, batch, containerPath);
+						batch.clear();
+					}
+				} else {
+					indexer.indexSourceModule(index, toolkit, module,
+							containerPath);
+				}
+			}
+		}
+		if (!batch.isEmpty()) {
+			indexInParallel(index, toolkit, batch, containerPath);
+		}
+	}
+
+	private void indexInParallel(Index index, IDLTKLanguageToolkit toolkit,
+			List<ISourceModule> modules, IPath containerPath) {
+		final IProjectIndexer.Internal indexer = getIndexer();
+		final IndexDocument[] documents = new IndexDocument[modules.size()];
+		ModelManager.getModelManager().getIndexManager()
+				.runInParallel(documents.length, i -> {
+					if (isCancelled) {
+						return;
+					}
+					try {
+						documents[i] = indexer.prepareSourceModule(index, toolkit,
+								modules.get(i), containerPath);
+					} catch (RuntimeException e) {
+						// the module is indexed sequentially below
+						if (DLTKCore.DEBUG) {
+							e.printStackTrace();
+						}
+					}
+				});
+		for (int i = 0; i < documents.length && !isCancelled; ++i) {
+			if (documents[i] != null) {
+				indexer.indexPreparedSourceModule(documents[i]);
+			} else {
+				indexer.indexSourceModule(index, toolkit, modules.get(i),
+						containerPath);
+			}
+		}
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
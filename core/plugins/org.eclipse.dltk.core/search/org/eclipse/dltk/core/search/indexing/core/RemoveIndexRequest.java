@@ -16,7 +16,9 @@ import java.io.IOException;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
 import org.eclipse.dltk.core.search.indexing.IProjectIndexer;
+import org.eclipse.dltk.core.search.indexing.IndexManager;
 
 public class RemoveIndexRequest extends IndexRequest {
 
@@ -32,6 +34,17 @@ public class RemoveIndexRequest extends IndexRequest {
 		return path.toString();
 	}
 
+	@Override
+	public Object getJobKey() {
+		// special indexes are keyed by the path of the original container
+		final String value = path.toString();
+		if (value.startsWith(IndexManager.SPECIAL_MIXIN)) {
+			return new Path(
+					value.substring(IndexManager.SPECIAL_MIXIN.length()));
+		}
+		return path;
+	}
+
 	@Override
 	protected void run() throws CoreException, IOException {
 		getIndexer().getIndexManager().removeIndex(path);
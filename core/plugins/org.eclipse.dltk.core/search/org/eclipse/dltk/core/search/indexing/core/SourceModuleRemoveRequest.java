@@ -44,6 +44,11 @@ public class SourceModuleRemoveRequest extends IndexRequest {
 		return path;
 	}
 
+	@Override
+	public Object getJobKey() {
+		return project.getPath();
+	}
+
 	@Override
 	public boolean belongsTo(String jobFamily) {
 		return jobFamily.equals(project.getElementName());
@@ -41,6 +41,11 @@ public class SourceModuleRequest extends IndexRequest {
 		return module.getElementName();
 	}
 
+	@Override
+	public Object getJobKey() {
+		return module.getScriptProject().getPath();
+	}
+
 	@Override
 	public boolean belongsTo(String jobFamily) {
 		return jobFamily.equals(module.getScriptProject().getElementName());
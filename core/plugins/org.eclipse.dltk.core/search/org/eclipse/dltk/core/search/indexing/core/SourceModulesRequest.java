@@ -14,7 +14,6 @@ package org.eclipse.dltk.core.search.indexing.core;
 
 import java.io.IOException;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -57,6 +56,11 @@ public class SourceModulesRequest extends IndexRequest {
 		return project.getElementName();
 	}
 
+	@Override
+	public Object getJobKey() {
+		return project.getPath();
+	}
+
 	@Override
 	protected void run() throws CoreException, IOException {
 		IEnvironment environment = EnvironmentManager.getEnvironment(project);
@@ -81,16 +85,7 @@ public class SourceModulesRequest extends IndexRequest {
 		final ReadWriteMonitor imon = index.monitor;
 		imon.enterWrite();
 		try {
-			for (Iterator<?> i = changes.iterator(); !isCancelled
-					&& i.hasNext();) {
-				final Object change = i.next();
-				if (change instanceof String) {
-					index.remove((String) change);
-				} else {
-					getIndexer().indexSourceModule(index, toolkit,
-							(ISourceModule) change, containerPath);
-				}
-			}
+			indexChanges(index, toolkit, changes, containerPath);
 		} catch (Throwable t) {
 			if (DLTKCore.DEBUG) {
 				t.printStackTrace();
@@ -65,6 +65,11 @@ public class DLTKSearchScope extends AbstractSearchScope {
 	private int pathsCount;
 	private int threshold;
 
+	/*
+	 * The full paths of the entries, computed on demand
+	 */
+	private volatile SearchScopePathIndex pathIndex;
+
 	private IPath[] enclosingProjectsAndArchives;
 	protected final IDLTKLanguageToolkit toolkit;
 
@@ -382,6 +387,7 @@ public class DLTKSearchScope extends AbstractSearchScope {
 		this.relativePaths[index] = relativePath;
 		this.containerPaths[index] = containerPath;
 		this.isPkgPath[index] = isPackage;
+		this.pathIndex = null;
 		if (this.pathRestrictions != null)
 			this.pathRestrictions[index] = access;
 		else if (access != null) {
@@ -416,19 +422,23 @@ public class DLTKSearchScope extends AbstractSearchScope {
 	 */
 	private int indexOf(String fullPath) {
 		// cannot guess the index of the container path
-		// fallback to sequentially looking at all known paths
-		for (int i = 0, length = this.relativePaths.length; i < length; i++) {
-			String currentRelativePath = this.relativePaths[i];
-			if (currentRelativePath == null)
-				continue;
-
-			String currentContainerPath = containerPaths[i];
-			String currentFullPath = currentRelativePath.length() == 0 ? currentContainerPath
-					: (currentContainerPath + '/' + currentRelativePath);
-			if (encloses(currentFullPath, fullPath, i))
-				return i;
+		// look up the enclosing paths in the index of the full paths
+		SearchScopePathIndex index = this.pathIndex;
+		if (index == null) {
+			String[] fullPaths = new String[this.relativePaths.length];
+			for (int i = 0, length = this.relativePaths.length; i < length; i++) {
+				String currentRelativePath = this.relativePaths[i];
+				if (currentRelativePath == null)
+					continue;
+
+				String currentContainerPath = containerPaths[i];
+				fullPaths[i] = currentRelativePath.length() == 0 ? currentContainerPath
+						: (currentContainerPath + '/' + currentRelativePath);
+			}
+			index = new SearchScopePathIndex(fullPaths, this.isPkgPath);
+			this.pathIndex = index;
 		}
-		return -1;
+		return index.indexOf(normalize(fullPath));
 	}
 
 	/**
@@ -731,6 +741,7 @@ public class DLTKSearchScope extends AbstractSearchScope {
 		this.isPkgPath = newScope.isPkgPath;
 		this.pathRestrictions = newScope.pathRestrictions;
 		this.threshold = newScope.threshold;
+		this.pathIndex = null;
 	}
 
 	@Override
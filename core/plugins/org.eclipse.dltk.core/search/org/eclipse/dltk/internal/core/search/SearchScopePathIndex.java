@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.core.search;
+
+/**
+ * The immutable table of the full paths of the {@link DLTKSearchScope}
+ * entries, answering the entry enclosing the path by looking up the prefixes
+ * of the path ending at the path separators. The hash of the prefixes is
+ * computed as the path is scanned, so no substrings are created.
+ */
+public class SearchScopePathIndex {
+
+	private final PathTable paths;
+	private final PathTable packagePaths;
+
+	/**
+	 * @param fullPaths
+	 *            the normalized full paths of the entries by the entry index,
+	 *            <code>null</code> for the free entries
+	 * @param isPkgPath
+	 *            whether the entry matches only the direct children
+	 */
+	public SearchScopePathIndex(String[] fullPaths, boolean[] isPkgPath) {
+		int count = 0;
+		int packageCount = 0;
+		for (int i = 0; i < fullPaths.length; ++i) {
+			if (fullPaths[i] != null) {
+				if (isPkgPath[i]) {
+					++packageCount;
+				} else {
+					++count;
+				}
+			}
+		}
+		this.paths = new PathTable(count);
+		this.packagePaths = new PathTable(packageCount);
+		for (int i = 0; i < fullPaths.length; ++i) {
+			if (fullPaths[i] != null) {
+				(isPkgPath[i] ? packagePaths : paths).put(fullPaths[i], i);
+			}
+		}
+	}
+
+	/**
+	 * Returns the smallest index of the entry enclosing the normalized path,
+	 * or -1 if there is none. A package entry encloses itself and its direct
+	 * children, other entries enclose all the paths below them.
+	 */
+	public int indexOf(String path) {
+		final int length = path.length();
+		final int lastSlash = path.lastIndexOf('/');
+		// the empty path encloses everything
+		int result = min(paths.get(path, 0, 0), packagePaths.get(path, 0, 0));
+		int hash = 0;
+		for (int i = 0; i <= length; ++i) {
+			if (i != 0 && (i == length || path.charAt(i) == '/')) {
+				result = min(result, paths.get(path, i, hash));
+				if (i == length || i == lastSlash) {
+					result = min(result, packagePaths.get(path, i, hash));
+				}
+			}
+			if (i < length) {
+				hash = 31 * hash + path.charAt(i);
+			}
+		}
+		return result;
+	}
+
+	private static int min(int index1, int index2) {
+		if (index1 < 0) {
+			return index2;
+		} else if (index2 < 0) {
+			return index1;
+		} else {
+			return Math.min(index1, index2);
+		}
+	}
+
+	/**
+	 * Open addressed table of the paths with the smallest entry index of every
+	 * path.
+	 */
+	private static class PathTable {
+		private final String[] keys;
+		private final int[] values;
+		private final int mask;
+
+		PathTable(int size) {
+			int capacity = 4;
+			while (capacity < size * 2) {
+				capacity <<= 1;
+			}
+			this.keys = new String[capacity];
+			this.values = new int[capacity];
+			this.mask = capacity - 1;
+		}
+
+		void put(String key, int value) {
+			int slot = key.hashCode() & mask;
+			String current;
+			while ((current = keys[slot]) != null) {
+				if (current.equals(key)) {
+					values[slot] = Math.min(values[slot], value);
+					return;
+				}
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = key;
+			values[slot] = value;
+		}
+
+		/**
+		 * Returns the index of the entry equal to the prefix of the path of
+		 * the specified length and hash, or -1 if there is none.
+		 */
+		int get(String path, int length, int hash) {
+			int slot = hash & mask;
+			String current;
+			while ((current = keys[slot]) != null) {
+				if (current.length() == length
+						&& path.regionMatches(0, current, 0, length)) {
+					return values[slot];
+				}
+				slot = (slot + 1) & mask;
+			}
+			return -1;
+		}
+	}
+}
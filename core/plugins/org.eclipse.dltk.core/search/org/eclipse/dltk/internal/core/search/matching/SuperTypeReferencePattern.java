@@ -267,6 +267,9 @@ public class SuperTypeReferencePattern extends DLTKSearchPattern {
 		case R_EXACT_MATCH:
 			if (this.isCamelCase)
 				break;
+			if (this.superSimpleName != null && (matchRule & R_CASE_SENSITIVE) != 0)
+				// answered from the supertype graph of the index
+				return index.querySuperTypeReferences(this.superSimpleName);
 			// do a prefix query with the superSimpleName
 			matchRule &= ~R_EXACT_MATCH;
 			matchRule |= R_PREFIX_MATCH;
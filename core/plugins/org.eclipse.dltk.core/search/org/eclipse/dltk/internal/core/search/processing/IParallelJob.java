@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.core.search.processing;
+
+/**
+ * Job which could be executed by the {@link JobManager} worker pool in
+ * parallel with the other jobs.
+ *
+ * Jobs answering equal keys are executed one after another in the order they
+ * were requested. Jobs answering <code>null</code> key as well as jobs not
+ * implementing this interface are executed on the processing thread when no
+ * other job is running.
+ */
+public interface IParallelJob extends IJob {
+
+	/**
+	 * Answers the key of the data modified by this job (typically the path of
+	 * the index container) or <code>null</code> if this job should be executed
+	 * exclusively.
+	 */
+	Object getJobKey();
+}
@@ -9,7 +9,19 @@
  *******************************************************************************/
 package org.eclipse.dltk.internal.core.search.processing;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
@@ -33,6 +45,20 @@ public abstract class JobManager implements Runnable {
 	/* background processing */
 	protected Thread processingThread;
 
+	/*
+	 * pool executing the parallel jobs, null if jobs are executed by the
+	 * processing thread only
+	 */
+	private ExecutorService workers;
+	private int maxWorkers = 1;
+	/* parallel jobs being executed by the workers and their keys */
+	private final List<IJob> runningJobs = new ArrayList<>();
+	private final Set<Object> runningKeys = new HashSet<>();
+	/*
+	 * pool executing the tasks of the jobs, e.g. parsing, created on demand
+	 */
+	private ExecutorService tasks;
+
 	/*
 	 * counter indicating whether job execution is enabled or not, disabled if <= 0
 	 * it cannot go beyond 1
@@ -58,7 +84,7 @@ public abstract class JobManager implements Runnable {
 	public synchronized int awaitingJobsCount() {
 		// pretend busy in case concurrent job attempts performing before
 		// activated
-		return this.activated ? this.jobEnd - this.jobStart + 1 : 1;
+		return this.activated ? this.jobEnd - this.jobStart + 1 + this.runningJobs.size() : 1;
 	}
 
 	/**
@@ -89,11 +115,22 @@ public abstract class JobManager implements Runnable {
 
 		try {
 			IJob currentJob;
+			IJob[] parallelJobs;
 			// cancel current job if it belongs to the given family
 			synchronized (this) {
 				currentJob = this.currentJob();
+				parallelJobs = this.runningJobs.toArray(new IJob[this.runningJobs.size()]);
 				disable();
 			}
+			// cancel parallel jobs of the family and wait until they have finished
+			for (IJob parallelJob : parallelJobs) {
+				if (jobFamily == null || parallelJob.belongsTo(jobFamily)) {
+					if (VERBOSE)
+						Util.verbose("-> cancelling parallel background job - " + parallelJob); //$NON-NLS-1$
+					parallelJob.cancel();
+				}
+			}
+			waitParallelJobs(jobFamily);
 			if (currentJob != null && (jobFamily == null || currentJob.belongsTo(jobFamily))) {
 				currentJob.cancel();
 
@@ -136,6 +173,30 @@ public abstract class JobManager implements Runnable {
 			Util.verbose("DISCARD   DONE with background job family - " + jobFamily); //$NON-NLS-1$
 	}
 
+	/**
+	 * Waits until the parallel jobs of the specified family (or all of them if
+	 * <code>null</code>) have finished.
+	 */
+	private synchronized void waitParallelJobs(String jobFamily) {
+		for (;;) {
+			boolean found = false;
+			for (IJob job : this.runningJobs) {
+				if (jobFamily == null || job.belongsTo(jobFamily)) {
+					found = true;
+					break;
+				}
+			}
+			if (!found) {
+				return;
+			}
+			try {
+				this.wait(50);
+			} catch (InterruptedException e) {
+				// ignore
+			}
+		}
+	}
+
 	public synchronized void enable() {
 		this.enableCount++;
 		if (VERBOSE)
@@ -286,6 +347,125 @@ public abstract class JobManager implements Runnable {
 
 	public abstract String processName();
 
+	/**
+	 * Answers the maximum number of the {@link IParallelJob}s executed at the
+	 * same time. The value is queried once, when the background processing is
+	 * started. Returning 1 disables the worker pool, so all the jobs are
+	 * executed by the processing thread.
+	 */
+	protected int getMaxWorkers() {
+		return 1;
+	}
+
+	/**
+	 * Answers the key to schedule the specified job in parallel or
+	 * <code>null</code> if job should be executed exclusively
+	 */
+	private static Object getJobKey(IJob job) {
+		return job instanceof IParallelJob ? ((IParallelJob) job).getJobKey() : null;
+	}
+
+	/**
+	 * Removes the job from the queue and submits it to the worker pool. Should
+	 * be called from the synchronized context.
+	 */
+	private void dispatch(final IJob job, final Object key) {
+		this.runningJobs.add(job);
+		this.runningKeys.add(key);
+		moveToNextJob();
+		if (VERBOSE) {
+			Util.verbose(awaitingJobsCount() + " awaiting jobs"); //$NON-NLS-1$
+			Util.verbose("STARTING parallel background job - " + job); //$NON-NLS-1$
+		}
+		this.workers.execute(() -> {
+			try {
+				/* boolean status = */job.execute(null);
+			} catch (RuntimeException e) {
+				Util.log(e, "Background Indexer Job Failure - " + job); //$NON-NLS-1$
+			} finally {
+				synchronized (this) {
+					this.runningJobs.remove(job);
+					this.runningKeys.remove(key);
+					// wake up the processing thread waiting for the key or a
+					// free worker
+					this.notifyAll();
+				}
+				if (VERBOSE)
+					Util.verbose("FINISHED parallel background job - " + job); //$NON-NLS-1$
+			}
+		});
+	}
+
+	private ExecutorService createWorkers(final int count) {
+		return createPool(processName(), count);
+	}
+
+	private static ExecutorService createPool(final String name,
+			final int count) {
+		return Executors.newFixedThreadPool(count, new ThreadFactory() {
+			private final AtomicInteger threadNumber = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				final Thread thread = new Thread(r, name + " #" + threadNumber.incrementAndGet()); //$NON-NLS-1$
+				thread.setDaemon(true);
+				thread.setPriority(Thread.NORM_PRIORITY - 1);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Executes the task for each index from 0 to <code>count - 1</code> and
+	 * waits until all of them are completed. The tasks are executed by the
+	 * pool dedicated to them, sized as the worker pool, so the blocking work
+	 * (e.g. parsing) is never executed by the common fork-join pool. If the
+	 * worker pool is disabled, the tasks are executed by the calling thread.
+	 * The exceptions thrown by the tasks are ignored, so the tasks should
+	 * handle them.
+	 *
+	 * @since 6.2
+	 */
+	public void runInParallel(int count, IntConsumer task) {
+		final ExecutorService pool;
+		synchronized (this) {
+			if (this.tasks == null && this.maxWorkers > 1
+					&& this.processingThread != null) {
+				this.tasks = createPool(processName() + " Task", //$NON-NLS-1$
+						this.maxWorkers);
+			}
+			pool = this.tasks;
+		}
+		if (pool == null || count <= 1) {
+			for (int i = 0; i < count; ++i) {
+				task.accept(i);
+			}
+			return;
+		}
+		final List<Callable<Object>> callables = new ArrayList<>(count);
+		for (int i = 0; i < count; ++i) {
+			final int index = i;
+			callables.add(() -> {
+				task.accept(index);
+				return null;
+			});
+		}
+		try {
+			for (Future<Object> future : pool.invokeAll(callables)) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					if (VERBOSE) {
+						Util.verbose("Task failure - " + e.getCause()); //$NON-NLS-1$
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			// the remaining tasks are cancelled
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	private static final class WaitJob implements IJob {
 		@Override
 		public boolean belongsTo(String jobFamily) {
@@ -376,6 +556,14 @@ public abstract class JobManager implements Runnable {
 	@Override
 	public void run() {
 		long idlingStart = -1;
+		synchronized (this) {
+			if (this.workers == null) {
+				this.maxWorkers = Math.max(1, getMaxWorkers());
+				if (this.maxWorkers > 1) {
+					this.workers = createWorkers(this.maxWorkers);
+				}
+			}
+		}
 		activateProcessing();
 		try {
 			while (this.processingThread != null) {
@@ -390,6 +578,11 @@ public abstract class JobManager implements Runnable {
 						// must check for new job inside this sync block to
 						// avoid timing hole
 						if ((job = currentJob()) == null) {
+							if (!this.runningJobs.isEmpty()) {
+								// not idle yet, wait until parallel jobs finish
+								this.wait();
+								continue;
+							}
 							if (idlingStart < 0) {
 								idlingStart = System.currentTimeMillis();
 								notifyIdle();
@@ -399,6 +592,25 @@ public abstract class JobManager implements Runnable {
 							// reenabled:38901)
 						} else {
 							idlingStart = -1;
+							if (this.workers != null) {
+								final Object key = getJobKey(job);
+								if (key != null) {
+									// jobs with the same key are executed
+									// sequentially, so the job waits at the
+									// head of the queue until its key is free
+									if (this.runningJobs.size() < this.maxWorkers
+											&& !this.runningKeys.contains(key)) {
+										dispatch(job, key);
+									} else {
+										this.wait();
+									}
+									continue;
+								} else if (!this.runningJobs.isEmpty()) {
+									// exclusive job, wait for parallel ones
+									this.wait();
+									continue;
+								}
+							}
 						}
 					}
 					if (job == null) {
@@ -485,6 +697,21 @@ public abstract class JobManager implements Runnable {
 				// XXX wait not more than 1 minute
 				thread.join(60000);
 			}
+			final ExecutorService pool;
+			final ExecutorService taskPool;
+			synchronized (this) {
+				pool = this.workers;
+				this.workers = null;
+				taskPool = this.tasks;
+				this.tasks = null;
+			}
+			if (pool != null) {
+				pool.shutdown();
+				pool.awaitTermination(60, TimeUnit.SECONDS);
+			}
+			if (taskPool != null) {
+				taskPool.shutdown();
+			}
 		} catch (InterruptedException e) {
 			// ignore
 		}
@@ -496,6 +723,7 @@ public abstract class JobManager implements Runnable {
 		buffer.append("Enable count:").append(this.enableCount).append('\n'); //$NON-NLS-1$
 		int numJobs = this.jobEnd - this.jobStart + 1;
 		buffer.append("Jobs in queue:").append(numJobs).append('\n'); //$NON-NLS-1$
+		buffer.append("Parallel jobs running:").append(this.runningJobs.size()).append('\n'); //$NON-NLS-1$
 		for (int i = 0; i < numJobs && i < 15; i++) {
 			buffer.append(i).append(" - job[" + i + "]: ").append(this.awaitingJobs[this.jobStart + i]).append('\n'); //$NON-NLS-1$ //$NON-NLS-2$
 		}
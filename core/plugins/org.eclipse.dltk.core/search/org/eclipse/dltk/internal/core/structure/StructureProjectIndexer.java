@@ -20,4 +20,13 @@ public class StructureProjectIndexer extends AbstractProjectIndexer {
 	public void doIndexing(IndexDocument document) {
 		new StructureIndexer(document).indexDocument();
 	}
+
+	/*
+	 * StructureIndexer creates new parser and requestor for each document and
+	 * reports the entries via IndexDocument only.
+	 */
+	@Override
+	public boolean isParallelParsingSupported() {
+		return true;
+	}
 }
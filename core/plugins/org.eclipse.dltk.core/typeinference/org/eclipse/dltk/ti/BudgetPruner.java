@@ -0,0 +1,360 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.ti;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.dltk.evaluation.types.AmbiguousType;
+import org.eclipse.dltk.evaluation.types.UnknownType;
+import org.eclipse.dltk.ti.goals.AbstractTypeGoal;
+import org.eclipse.dltk.ti.goals.GoalEvaluator;
+import org.eclipse.dltk.ti.goals.IGoal;
+import org.eclipse.dltk.ti.statistics.GoalEvaluationStatistics;
+import org.eclipse.dltk.ti.statistics.GoalEvaluationStep;
+import org.eclipse.dltk.ti.statistics.IEvaluationStatisticsRequestor;
+import org.eclipse.dltk.ti.types.IEvaluatedType;
+
+/**
+ * Pruner dividing the time limit between the goal classes and the depths of
+ * the goal tree, so the single expensive branch (e.g. search based goals) does
+ * not consume the whole time and the shallow goals are still evaluated when
+ * the deep ones are cut off:
+ * <ul>
+ * <li>the goals of one class could spend only the {@link #setClassShare(double)
+ * share} of the time limit and could be evaluated only
+ * {@link #setClassGoalLimit(int) limited} number of times;</li>
+ * <li>the goal at depth <i>d</i> is not started after the
+ * <code>(1 - d / (maxDepth + 1))</code> part of the time limit elapsed, and the
+ * goals deeper than {@link #setMaxDepth(int) maximum depth} are not started at
+ * all;</li>
+ * <li>the goal is not started if its class took longer than the remaining time
+ * in the previous evaluations.</li>
+ * </ul>
+ * The goal tree and the costs are tracked with the
+ * {@link GoalEvaluationStatistics}, which the {@link GoalEngine} reports to
+ * this pruner since it is the {@link IEvaluationStatisticsRequestor}. So the
+ * instance should be used for one evaluation at a time. The average times of
+ * the goal classes are kept by the instance between the evaluations, so it
+ * could be reused for the subsequent evaluations in the same context.
+ * <p>
+ * When the branches are cut off, the type of the root goal is replaced with
+ * the partial answer by the {@link #getPartialResult(Object)}.
+ * </p>
+ *
+ * @since 6.2
+ */
+public class BudgetPruner implements IPruner, IEvaluationStatisticsRequestor {
+
+	public static final int DEFAULT_MAX_DEPTH = 16;
+	public static final double DEFAULT_CLASS_SHARE = 0.5;
+	public static final int DEFAULT_CLASS_GOAL_LIMIT = 1000;
+
+	private static class GoalClassCost {
+		long time;
+		int goals;
+	}
+
+	private final long timeLimit;
+	private int maxDepth = DEFAULT_MAX_DEPTH;
+	private double classShare = DEFAULT_CLASS_SHARE;
+	private int classGoalLimit = DEFAULT_CLASS_GOAL_LIMIT;
+
+	private long timeStart;
+	private IGoal rootGoal;
+	/**
+	 * Statistics of the goals in the evaluation order, so the partial answer
+	 * is stable.
+	 */
+	private final Map<IGoal, GoalEvaluationStatistics> goalStats = new LinkedHashMap<>();
+	/**
+	 * Times the evaluators of the goals were created.
+	 */
+	private final Map<IGoal, Long> evaluatorStarts = new HashMap<>();
+	private final Map<Class<?>, GoalClassCost> costs = new HashMap<>();
+	private int prunedGoals;
+
+	/**
+	 * Average evaluation time (including the subgoals) per goal class, kept
+	 * between the evaluations.
+	 */
+	private final Map<Class<?>, Long> averageTimes = new HashMap<>();
+	/**
+	 * Goal classes pruned because of their average time in the last
+	 * evaluation.
+	 */
+	private final Set<Class<?>> slowClasses = new HashSet<>();
+
+	/**
+	 * @param timeLimit
+	 *            time limit in milliseconds, <code>0</code> for no time limit
+	 */
+	public BudgetPruner(long timeLimit) {
+		this.timeLimit = timeLimit;
+	}
+
+	public void setMaxDepth(int maxDepth) {
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * @param classShare
+	 *            share of the time limit, the goals of one class could spend
+	 */
+	public void setClassShare(double classShare) {
+		this.classShare = classShare;
+	}
+
+	/**
+	 * @param classGoalLimit
+	 *            maximum number of the goals of one class evaluated
+	 */
+	public void setClassGoalLimit(int classGoalLimit) {
+		this.classGoalLimit = classGoalLimit;
+	}
+
+	/**
+	 * Returns the number of the goals pruned in the last evaluation.
+	 */
+	public int getPrunedGoals() {
+		return prunedGoals;
+	}
+
+	@Override
+	public void init() {
+		this.timeStart = System.currentTimeMillis();
+		this.rootGoal = null;
+		// retry the classes pruned last time, the project could have been
+		// changed
+		for (Class<?> goalClass : slowClasses) {
+			averageTimes.computeIfPresent(goalClass,
+					(key, average) -> average / 2);
+		}
+		this.slowClasses.clear();
+		this.goalStats.clear();
+		this.evaluatorStarts.clear();
+		this.costs.clear();
+		this.prunedGoals = 0;
+	}
+
+	@Override
+	public boolean prune(IGoal goal, EvaluatorStatistics stat) {
+		if (shouldPrune(goal)) {
+			++prunedGoals;
+			if (isSlowClass(goal, System.currentTimeMillis() - timeStart)) {
+				slowClasses.add(goal.getClass());
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private boolean isSlowClass(IGoal goal, long elapsed) {
+		final Long average = averageTimes.get(goal.getClass());
+		return average != null && average > timeLimit - elapsed;
+	}
+
+	private boolean shouldPrune(IGoal goal) {
+		final int depth = getDepth(goal);
+		if (depth > maxDepth) {
+			return true;
+		}
+		final GoalClassCost cost = costs.get(goal.getClass());
+		if (cost != null && cost.goals >= classGoalLimit) {
+			return true;
+		}
+		if (timeLimit <= 0) {
+			return false;
+		}
+		final long elapsed = System.currentTimeMillis() - timeStart;
+		if (elapsed > timeLimit
+				|| elapsed > timeLimit * (1 - (double) depth / (maxDepth + 1))) {
+			return true;
+		}
+		if (cost != null && cost.time > timeLimit * classShare) {
+			return true;
+		}
+		return isSlowClass(goal, elapsed);
+	}
+
+	private int getDepth(IGoal goal) {
+		int depth = 0;
+		GoalEvaluationStatistics s = goalStats.get(goal);
+		if (s == null) {
+			return 0;
+		}
+		for (s = s.getParentStat(); s != null; s = s.getParentStat()) {
+			++depth;
+		}
+		return depth;
+	}
+
+	/**
+	 * Returns the partial answer if the root goal result is unknown because
+	 * of the cut off branches: the types evaluated by the shallowest type
+	 * subgoals having any, combined into the {@link AmbiguousType} if there
+	 * are several ones.
+	 *
+	 * @param result
+	 *            the root goal result
+	 * @return the result or the partial answer
+	 */
+	public Object getPartialResult(Object result) {
+		if ((result != null && !(result instanceof UnknownType))
+				|| prunedGoals == 0) {
+			return result;
+		}
+		final Map<Integer, Set<IEvaluatedType>> typesByDepth = new HashMap<>();
+		for (GoalEvaluationStatistics s : goalStats.values()) {
+			if (s.getGoal() instanceof AbstractTypeGoal
+					&& s.getGoal() != rootGoal) {
+				final Object type = getResult(s);
+				if (type instanceof IEvaluatedType
+						&& !(type instanceof UnknownType)) {
+					typesByDepth
+							.computeIfAbsent(getDepth(s.getGoal()),
+									depth -> new LinkedHashSet<>())
+							.add((IEvaluatedType) type);
+				}
+			}
+		}
+		for (int depth = 1; depth <= maxDepth; ++depth) {
+			final Set<IEvaluatedType> types = typesByDepth.get(depth);
+			if (types == null) {
+				continue;
+			} else if (types.size() == 1) {
+				return types.iterator().next();
+			} else {
+				return new AmbiguousType(
+						types.toArray(new IEvaluatedType[types.size()]));
+			}
+		}
+		return result;
+	}
+
+	private static Object getResult(GoalEvaluationStatistics s) {
+		for (int i = s.getSteps().size(); --i >= 0;) {
+			final GoalEvaluationStep step = (GoalEvaluationStep) s.getSteps()
+					.get(i);
+			if (step.getKind() == GoalEvaluationStep.RESULT) {
+				return step.getResult();
+			}
+		}
+		return null;
+	}
+
+	private GoalClassCost getCost(IGoal goal) {
+		GoalClassCost cost = costs.get(goal.getClass());
+		if (cost == null) {
+			cost = new GoalClassCost();
+			costs.put(goal.getClass(), cost);
+		}
+		return cost;
+	}
+
+	private void addTime(GoalEvaluator evaluator, long time) {
+		getCost(evaluator.getGoal()).time += time;
+	}
+
+	@Override
+	public void evaluationStarted(IGoal rootGoal) {
+		this.rootGoal = rootGoal;
+		goalStats.put(rootGoal, new GoalEvaluationStatistics(rootGoal));
+	}
+
+	@Override
+	public void goalStateChanged(IGoal goal, GoalState state,
+			GoalState oldState) {
+		final GoalEvaluationStatistics s = goalStats.get(goal);
+		if (s != null) {
+			s.setState(state);
+		}
+	}
+
+	@Override
+	public void goalEvaluatorAssigned(IGoal goal, GoalEvaluator evaluator) {
+		getCost(goal).goals++;
+		evaluatorStarts.put(goal, System.currentTimeMillis());
+		final GoalEvaluationStatistics s = goalStats.get(goal);
+		if (s != null) {
+			s.setEvaluator(evaluator);
+		}
+	}
+
+	@Override
+	public void evaluatorInitialized(GoalEvaluator evaluator, IGoal[] subgoals,
+			long time) {
+		addTime(evaluator, time);
+		addSubgoals(evaluator, subgoals);
+	}
+
+	@Override
+	public void evaluatorReceivedResult(GoalEvaluator evaluator,
+			IGoal finishedGoal, IGoal[] newSubgoals, long time) {
+		addTime(evaluator, time);
+		addSubgoals(evaluator, newSubgoals);
+	}
+
+	private void addSubgoals(GoalEvaluator evaluator, IGoal[] subgoals) {
+		if (subgoals == null) {
+			return;
+		}
+		final GoalEvaluationStatistics parent = goalStats
+				.get(evaluator.getGoal());
+		for (IGoal subgoal : subgoals) {
+			if (!goalStats.containsKey(subgoal)) {
+				final GoalEvaluationStatistics s = new GoalEvaluationStatistics(
+						subgoal);
+				s.setParentStat(parent);
+				goalStats.put(subgoal, s);
+			}
+		}
+	}
+
+	@Override
+	public void evaluatorProducedResult(GoalEvaluator evaluator,
+			Object result, long time) {
+		addTime(evaluator, time);
+		final GoalEvaluationStatistics s = goalStats.get(evaluator.getGoal());
+		if (s == null) {
+			return;
+		}
+		final long end = System.currentTimeMillis();
+		s.setTimeEnd(end);
+		addResult(s, result);
+		// not including the time the goal was waiting in the queue
+		final Long start = evaluatorStarts.get(s.getGoal());
+		final long total = end - (start != null ? start : s.getTimeStart());
+		final Long average = averageTimes.get(s.getGoal().getClass());
+		averageTimes.put(s.getGoal().getClass(),
+				average == null ? total : (average * 3 + total) / 4);
+	}
+
+	@Override
+	public void goalResultCached(IGoal goal, Object result) {
+		final GoalEvaluationStatistics s = goalStats.get(goal);
+		if (s != null) {
+			s.setCached(true);
+			addResult(s, result);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void addResult(GoalEvaluationStatistics s, Object result) {
+		final GoalEvaluationStep step = new GoalEvaluationStep(
+				GoalEvaluationStep.RESULT);
+		step.setResult(result);
+		s.getSteps().add(step);
+	}
+}
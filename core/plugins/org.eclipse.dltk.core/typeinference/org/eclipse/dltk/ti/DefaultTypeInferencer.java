@@ -10,11 +10,13 @@
 package org.eclipse.dltk.ti;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.dltk.core.DLTKCore;
@@ -129,6 +131,16 @@ public class DefaultTypeInferencer implements ITypeInferencer {
 			}
 		}
 
+		@Override
+		public void goalResultCached(IGoal goal, Object result) {
+			for (Object t : statRequestors) {
+				if (t != null) {
+					((IEvaluationStatisticsRequestor) t).goalResultCached(goal,
+							result);
+				}
+			}
+		}
+
 	}
 
 	private class MapBasedEvaluatorFactory implements IGoalEvaluatorFactory {
@@ -199,7 +211,29 @@ public class DefaultTypeInferencer implements ITypeInferencer {
 	}
 
 	public DefaultTypeInferencer(IGoalEvaluatorFactory userFactory) {
-		engine = new GoalEngine(new MapBasedEvaluatorFactory());
+		this(userFactory, null);
+	}
+
+	/**
+	 * Creates the type inferencer initializing the goal evaluators
+	 * concurrently in the specified pool, see
+	 * {@link GoalEngine#GoalEngine(IGoalEvaluatorFactory, ForkJoinPool)}.
+	 * 
+	 * @param userFactory
+	 * @param pool
+	 *            the pool or <code>null</code> to evaluate the goals by the
+	 *            calling thread only
+	 * @since 6.2
+	 */
+	public DefaultTypeInferencer(IGoalEvaluatorFactory userFactory,
+			ForkJoinPool pool) {
+		engine = new GoalEngine(new MapBasedEvaluatorFactory(), pool);
+		// the results depend on the evaluators, so share them with the
+		// inferencers of the same class created with the same factory class,
+		// as the instances are usually created per request
+		engine.setResultCache(GoalResultCache.getShared(),
+				Arrays.asList(getClass(),
+						userFactory != null ? userFactory.getClass() : null));
 		this.userFactory = userFactory;
 		initStdGoals();
 	}
@@ -217,7 +251,11 @@ public class DefaultTypeInferencer implements ITypeInferencer {
 	}
 
 	public IEvaluatedType evaluateType(AbstractTypeGoal goal, IPruner pruner) {
-		return (IEvaluatedType) engine.evaluateGoal(goal, pruner, stat);
+		Object result = engine.evaluateGoal(goal, pruner, stat);
+		if (pruner instanceof BudgetPruner) {
+			result = ((BudgetPruner) pruner).getPartialResult(result);
+		}
+		return (IEvaluatedType) result;
 	}
 
 	protected Object evaluateGoal(IGoal goal, IPruner pruner) {
@@ -14,8 +14,12 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.dltk.ti.goals.GoalEvaluator;
 import org.eclipse.dltk.ti.goals.IGoal;
 import org.eclipse.dltk.ti.statistics.IEvaluationStatisticsRequestor;
@@ -26,6 +30,9 @@ import org.eclipse.dltk.ti.statistics.IEvaluationStatisticsRequestor;
  * allows pruning: before evaluating every goal(except root goal) could be
  * pruned by provided prunner.
  *
+ * The evaluators could be initialized concurrently, see
+ * {@link #GoalEngine(IGoalEvaluatorFactory, ForkJoinPool)}.
+ *
  * This class isn't thread safe.
  */
 public class GoalEngine {
@@ -38,11 +45,27 @@ public class GoalEngine {
 
 	private IEvaluationStatisticsRequestor statisticsRequestor;
 
+	private final ForkJoinPool pool;
+	/**
+	 * Goals being initialized by the pool threads, mapped to the pairs of the
+	 * same goal posted meanwhile.
+	 */
+	private final HashMap<IGoal, List<WorkingPair>> initializing = new HashMap<>();
+	/**
+	 * Recreated for each evaluation, so the initializations left from the
+	 * failed one are ignored.
+	 */
+	private BlockingQueue<Initialization> completed = new LinkedBlockingQueue<>();
+
+	private GoalResultCache resultCache;
+	private Object resultCacheScope;
+
 	private static class EvaluatorState {
 		public long timeCreated;
 		public int totalSubgoals;
 		public int successfulSubgoals;
 		public int subgoalsLeft;
+		public boolean partial;
 		public List<IGoal> subgoals = new ArrayList<>();
 
 		public EvaluatorState(int subgoalsLeft) {
@@ -64,14 +87,173 @@ public class GoalEngine {
 
 	}
 
+	/**
+	 * Evaluator initialization, could be executed by the pool thread.
+	 */
+	private static class Initialization implements Runnable {
+		final WorkingPair pair;
+		final GoalEvaluator evaluator;
+		IGoal[] newGoals;
+		Throwable error;
+		long time;
+
+		Initialization(WorkingPair pair, GoalEvaluator evaluator) {
+			this.pair = pair;
+			this.evaluator = evaluator;
+		}
+
+		@Override
+		public void run() {
+			long start = System.currentTimeMillis();
+			try {
+				newGoals = evaluator.init();
+			} catch (RuntimeException | Error e) {
+				error = e;
+			}
+			time = System.currentTimeMillis() - start;
+		}
+	}
+
+	private static class CompletedBlocker
+			implements ForkJoinPool.ManagedBlocker {
+		private final BlockingQueue<Initialization> queue;
+		Initialization initialization;
+
+		CompletedBlocker(BlockingQueue<Initialization> queue) {
+			this.queue = queue;
+		}
+
+		@Override
+		public boolean block() throws InterruptedException {
+			if (initialization == null) {
+				initialization = queue.take();
+			}
+			return true;
+		}
+
+		@Override
+		public boolean isReleasable() {
+			return initialization != null
+					|| (initialization = queue.poll()) != null;
+		}
+	}
+
+	/**
+	 * Notifies the statistics requestor and the pruner which tracks the
+	 * evaluation too.
+	 */
+	private static class StatisticsRequestorPair
+			implements IEvaluationStatisticsRequestor {
+		private final IEvaluationStatisticsRequestor first;
+		private final IEvaluationStatisticsRequestor second;
+
+		StatisticsRequestorPair(IEvaluationStatisticsRequestor first,
+				IEvaluationStatisticsRequestor second) {
+			this.first = first;
+			this.second = second;
+		}
+
+		@Override
+		public void evaluationStarted(IGoal rootGoal) {
+			first.evaluationStarted(rootGoal);
+			second.evaluationStarted(rootGoal);
+		}
+
+		@Override
+		public void goalStateChanged(IGoal goal, GoalState state,
+				GoalState oldState) {
+			first.goalStateChanged(goal, state, oldState);
+			second.goalStateChanged(goal, state, oldState);
+		}
+
+		@Override
+		public void goalEvaluatorAssigned(IGoal goal,
+				GoalEvaluator evaluator) {
+			first.goalEvaluatorAssigned(goal, evaluator);
+			second.goalEvaluatorAssigned(goal, evaluator);
+		}
+
+		@Override
+		public void evaluatorInitialized(GoalEvaluator evaluator,
+				IGoal[] subgoals, long time) {
+			first.evaluatorInitialized(evaluator, subgoals, time);
+			second.evaluatorInitialized(evaluator, subgoals, time);
+		}
+
+		@Override
+		public void evaluatorReceivedResult(GoalEvaluator evaluator,
+				IGoal finishedGoal, IGoal[] newSubgoals, long time) {
+			first.evaluatorReceivedResult(evaluator, finishedGoal,
+					newSubgoals, time);
+			second.evaluatorReceivedResult(evaluator, finishedGoal,
+					newSubgoals, time);
+		}
+
+		@Override
+		public void evaluatorProducedResult(GoalEvaluator evaluator,
+				Object result, long time) {
+			first.evaluatorProducedResult(evaluator, result, time);
+			second.evaluatorProducedResult(evaluator, result, time);
+		}
+
+		@Override
+		public void goalResultCached(IGoal goal, Object result) {
+			first.goalResultCached(goal, result);
+			second.goalResultCached(goal, result);
+		}
+	}
+
 	private static class GoalEvaluationState {
 		public GoalEvaluator creator;
 		public GoalState state;
 		public Object result;
+		/**
+		 * The result is affected by pruned or recursive subgoals
+		 */
+		public boolean partial;
 	}
 
 	public GoalEngine(IGoalEvaluatorFactory evaluatorFactory) {
+		this(evaluatorFactory, null);
+	}
+
+	/**
+	 * Creates the engine, which initializes the goal evaluators (e.g. performs
+	 * the searches) concurrently in the specified pool. The rest of the
+	 * evaluation, including the calls of the {@link IPruner}, the statistics
+	 * requestor and the {@link GoalEvaluator#subGoalDone(IGoal, Object, GoalState)}
+	 * and {@link GoalEvaluator#produceResult()} methods, is performed by the
+	 * thread calling {@link #evaluateGoal(IGoal, IPruner)}. So the evaluators
+	 * created by the factory should only support being initialized by another
+	 * thread.
+	 *
+	 * @param evaluatorFactory
+	 * @param pool
+	 *            pool to initialize the evaluators in or <code>null</code> to
+	 *            evaluate the goals by the calling thread only
+	 * @since 6.2
+	 */
+	public GoalEngine(IGoalEvaluatorFactory evaluatorFactory,
+			ForkJoinPool pool) {
 		this.evaluatorFactory = evaluatorFactory;
+		this.pool = pool;
+	}
+
+	/**
+	 * Sets the cache to lookup the goal results before evaluating them and to
+	 * store the complete results to.
+	 *
+	 * @param resultCache
+	 *            the cache or <code>null</code> to disable caching
+	 * @param scope
+	 *            identifies the goal evaluators used by this engine, the
+	 *            results of the same goals evaluated in different scopes are
+	 *            cached separately
+	 * @since 6.2
+	 */
+	public void setResultCache(GoalResultCache resultCache, Object scope) {
+		this.resultCache = resultCache;
+		this.resultCacheScope = scope;
 	}
 
 	private void storeGoal(IGoal goal, GoalState state, Object result,
@@ -80,7 +262,11 @@ public class GoalEngine {
 		es.result = result;
 		es.state = state;
 		es.creator = creator;
+		es.partial = state == GoalState.PRUNED;
 		goalStates.put(goal, es);
+		if (state == GoalState.DONE && resultCache != null) {
+			resultCache.put(resultCacheScope, goal, result);
+		}
 		this.statisticsRequestor.goalStateChanged(goal, state, null);
 		// TODO: add old state
 	}
@@ -123,6 +309,9 @@ public class GoalEngine {
 		if (state == GoalState.DONE && result != null) {
 			ev.successfulSubgoals++;
 		}
+		if (state != GoalState.DONE || subGoalState.partial) {
+			ev.partial = true;
+		}
 		if (ev.subgoalsLeft == 0) {
 			t = System.currentTimeMillis();
 			Object newRes = evaluator.produceResult();
@@ -132,6 +321,10 @@ public class GoalEngine {
 			Assert.isNotNull(st);
 			st.state = GoalState.DONE;
 			st.result = newRes;
+			st.partial = ev.partial;
+			if (!st.partial && resultCache != null) {
+				resultCache.put(resultCacheScope, evaluator.getGoal(), newRes);
+			}
 			if (st.creator != null) {
 				notifyEvaluator(st.creator, evaluator.getGoal());
 			}
@@ -156,8 +349,6 @@ public class GoalEngine {
 
 	public Object evaluateGoal(IGoal rootGoal, IPruner pruner,
 			IEvaluationStatisticsRequestor statisticsRequestor) {
-		long time = 0;
-
 		if (statisticsRequestor == null) {
 			statisticsRequestor = new IEvaluationStatisticsRequestor() {
 				@Override
@@ -190,6 +381,11 @@ public class GoalEngine {
 				}
 			};
 		}
+		if (pruner instanceof IEvaluationStatisticsRequestor) {
+			statisticsRequestor = new StatisticsRequestorPair(
+					statisticsRequestor,
+					(IEvaluationStatisticsRequestor) pruner);
+		}
 		this.statisticsRequestor = statisticsRequestor;
 		reset();
 		if (pruner != null) {
@@ -197,12 +393,29 @@ public class GoalEngine {
 		}
 		workingQueue.add(new WorkingPair(rootGoal, null));
 		statisticsRequestor.evaluationStarted(rootGoal);
-		while (!workingQueue.isEmpty()) {
+		while (!workingQueue.isEmpty() || !initializing.isEmpty()) {
+			if (pool != null) {
+				for (Initialization done; (done = completed.poll()) != null;) {
+					initialized(done);
+				}
+				if (workingQueue.isEmpty()) {
+					if (!initializing.isEmpty()) {
+						initialized(takeCompleted());
+					}
+					continue;
+				}
+			}
 			WorkingPair pair = workingQueue.getFirst();
 			workingQueue.removeFirst();
 			if (DEBUG) {
 				System.out.println(pair.goal);
 			}
+			List<WorkingPair> duplicates = initializing.get(pair.goal);
+			if (duplicates != null) {
+				// handled when the goal evaluator is initialized
+				duplicates.add(pair);
+				continue;
+			}
 			GoalEvaluationState state = goalStates.get(pair.goal);
 			if (state != null && pair.creator != null) {
 				notifyEvaluator(pair.creator, pair.goal);
@@ -212,9 +425,19 @@ public class GoalEngine {
 					prune = pruner.prune(pair.goal,
 							getEvaluatorStatistics(pair.creator));
 				}
+				Object cached = GoalResultCache.NO_RESULT;
+				if (!prune && resultCache != null) {
+					cached = resultCache.get(resultCacheScope, pair.goal);
+				}
 				if (prune) {
 					storeGoal(pair.goal, GoalState.PRUNED, null, pair.creator);
 					notifyEvaluator(pair.creator, pair.goal);
+				} else if (cached != GoalResultCache.NO_RESULT) {
+					statisticsRequestor.goalResultCached(pair.goal, cached);
+					storeGoal(pair.goal, GoalState.DONE, cached, pair.creator);
+					if (pair.creator != null) {
+						notifyEvaluator(pair.creator, pair.goal);
+					}
 				} else {
 					GoalEvaluator evaluator = evaluatorFactory
 							.createEvaluator(pair.goal);
@@ -224,39 +447,18 @@ public class GoalEngine {
 					}
 					statisticsRequestor.goalEvaluatorAssigned(pair.goal,
 							evaluator);
-					time = System.currentTimeMillis();
-					IGoal[] newGoals = evaluator.init();
-					if (newGoals == null) {
-						newGoals = IGoal.NO_GOALS;
-					}
-					if (DEBUG) {
-						for (IGoal n : newGoals) {
-							System.out.println("- " + n); //$NON-NLS-1$
-						}
-					}
-					statisticsRequestor.evaluatorInitialized(evaluator,
-							newGoals, System.currentTimeMillis() - time);
-					if (newGoals.length > 0) {
-						for (int i = 0; i < newGoals.length; i++) {
-							workingQueue.add(
-									new WorkingPair(newGoals[i], evaluator));
-						}
-						EvaluatorState evaluatorState = new EvaluatorState(
-								newGoals.length);
-						evaluatorState.subgoals.addAll(Arrays.asList(newGoals));
-						putEvaluatorState(evaluator, evaluatorState);
-						storeGoal(pair.goal, GoalState.WAITING, null,
-								pair.creator);
+					final Initialization initialization = new Initialization(
+							pair, evaluator);
+					if (pool != null) {
+						initializing.put(pair.goal, new ArrayList<>());
+						final BlockingQueue<Initialization> queue = completed;
+						pool.execute(() -> {
+							initialization.run();
+							queue.add(initialization);
+						});
 					} else {
-						time = System.currentTimeMillis();
-						Object result = evaluator.produceResult();
-						statisticsRequestor.evaluatorProducedResult(evaluator,
-								result, System.currentTimeMillis() - time);
-						storeGoal(pair.goal, GoalState.DONE, result,
-								pair.creator);
-						if (pair.creator != null) {
-							notifyEvaluator(pair.creator, pair.goal);
-						}
+						initialization.run();
+						initialized(initialization);
 					}
 				}
 			}
@@ -267,10 +469,71 @@ public class GoalEngine {
 		return s.result;
 	}
 
+	private void initialized(Initialization initialization) {
+		final WorkingPair pair = initialization.pair;
+		final GoalEvaluator evaluator = initialization.evaluator;
+		if (initialization.error != null) {
+			if (initialization.error instanceof Error) {
+				throw (Error) initialization.error;
+			}
+			throw (RuntimeException) initialization.error;
+		}
+		IGoal[] newGoals = initialization.newGoals;
+		if (newGoals == null) {
+			newGoals = IGoal.NO_GOALS;
+		}
+		if (DEBUG) {
+			for (IGoal n : newGoals) {
+				System.out.println("- " + n); //$NON-NLS-1$
+			}
+		}
+		statisticsRequestor.evaluatorInitialized(evaluator, newGoals,
+				initialization.time);
+		if (newGoals.length > 0) {
+			for (int i = 0; i < newGoals.length; i++) {
+				workingQueue.add(new WorkingPair(newGoals[i], evaluator));
+			}
+			EvaluatorState evaluatorState = new EvaluatorState(
+					newGoals.length);
+			evaluatorState.subgoals.addAll(Arrays.asList(newGoals));
+			putEvaluatorState(evaluator, evaluatorState);
+			storeGoal(pair.goal, GoalState.WAITING, null, pair.creator);
+		} else {
+			long time = System.currentTimeMillis();
+			Object result = evaluator.produceResult();
+			statisticsRequestor.evaluatorProducedResult(evaluator, result,
+					System.currentTimeMillis() - time);
+			storeGoal(pair.goal, GoalState.DONE, result, pair.creator);
+			if (pair.creator != null) {
+				notifyEvaluator(pair.creator, pair.goal);
+			}
+		}
+		final List<WorkingPair> duplicates = initializing.remove(pair.goal);
+		if (duplicates != null) {
+			// process them as if they were queued after the initialization
+			for (int i = duplicates.size(); --i >= 0;) {
+				workingQueue.addFirst(duplicates.get(i));
+			}
+		}
+	}
+
+	private Initialization takeCompleted() {
+		final CompletedBlocker blocker = new CompletedBlocker(completed);
+		try {
+			ForkJoinPool.managedBlock(blocker);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		}
+		return blocker.initialization;
+	}
+
 	private void reset() {
 		workingQueue.clear();
 		goalStates.clear();
 		evaluatorStates.clear();
+		initializing.clear();
+		completed = new LinkedBlockingQueue<>();
 	}
 
 	private static final boolean DEBUG = false;
@@ -0,0 +1,243 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.ti;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.ElementChangedEvent;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.ti.goals.IGoal;
+
+/**
+ * Bounded cache of the goal results shared by the {@link GoalEngine}
+ * evaluations, so the goals evaluated by completion, hover, highlighting, etc.
+ * are not evaluated again until the model is changed.
+ * <p>
+ * Only the goals having the {@link ISourceModuleContext} are cached, the
+ * entries are keyed by the goal, the scope (e.g. type inferencer) which
+ * evaluated it and the modification stamp of the source module resource. Only
+ * the complete results are cached, i.e. the results of the goals with no
+ * pruned or recursive subgoals.
+ * </p>
+ * <p>
+ * The shared instance is cleared on every model change (including working
+ * copy reconcile), since the result of the goal could depend on any other
+ * source module. This class is thread safe.
+ * </p>
+ *
+ * @since 6.2
+ */
+public class GoalResultCache {
+
+	/**
+	 * Returned by {@link #get(Object, IGoal)} if there is no cached result,
+	 * since <code>null</code> is the legal goal result.
+	 */
+	public static final Object NO_RESULT = new Object();
+
+	/**
+	 * Default maximum number of the entries.
+	 */
+	public static final int DEFAULT_CAPACITY = 2000;
+
+	private static final Object NULL_RESULT = new Object();
+
+	private static GoalResultCache shared;
+
+	/**
+	 * Returns the shared instance, which is cleared on the model changes.
+	 */
+	public static synchronized GoalResultCache getShared() {
+		if (shared == null) {
+			final GoalResultCache cache = new GoalResultCache(
+					DEFAULT_CAPACITY);
+			DLTKCore.addElementChangedListener(event -> cache.clear(),
+					ElementChangedEvent.POST_CHANGE
+							| ElementChangedEvent.POST_RECONCILE);
+			shared = cache;
+		}
+		return shared;
+	}
+
+	private static final class Key {
+		final Object scope;
+		final IGoal goal;
+		final long stamp;
+		final int hashCode;
+
+		Key(Object scope, IGoal goal, long stamp) {
+			this.scope = scope;
+			this.goal = goal;
+			this.stamp = stamp;
+			this.hashCode = (31 * (31 + scope.hashCode()) + goal.hashCode())
+					* 31 + Long.hashCode(stamp);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return stamp == other.stamp && scope.equals(other.scope)
+					&& goal.equals(other.goal);
+		}
+	}
+
+	private final int capacity;
+
+	@SuppressWarnings("serial")
+	private final Map<Key, Object> results = new LinkedHashMap<Key, Object>(
+			16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+			if (size() > capacity) {
+				++evictions;
+				return true;
+			}
+			return false;
+		}
+	};
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Creates the cache which is not cleared automatically.
+	 *
+	 * @param capacity
+	 *            maximum number of the entries
+	 */
+	public GoalResultCache(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns the key for the goal or <code>null</code> if the goal is not
+	 * cacheable.
+	 */
+	private static Key createKey(Object scope, IGoal goal) {
+		final IContext context = goal.getContext();
+		if (!(context instanceof ISourceModuleContext)) {
+			return null;
+		}
+		final ISourceModule module = ((ISourceModuleContext) context)
+				.getSourceModule();
+		final IResource resource = module != null ? module.getResource()
+				: null;
+		return new Key(scope, goal,
+				resource != null ? resource.getModificationStamp()
+						: IResource.NULL_STAMP);
+	}
+
+	/**
+	 * Returns the cached result of the goal evaluated in the scope or
+	 * {@link #NO_RESULT} if there is no such result.
+	 *
+	 * @param scope
+	 * @param goal
+	 * @return cached result, <code>null</code> or {@link #NO_RESULT}
+	 */
+	public Object get(Object scope, IGoal goal) {
+		final Key key = createKey(scope, goal);
+		if (key == null) {
+			return NO_RESULT;
+		}
+		synchronized (results) {
+			final Object result = results.get(key);
+			if (result == null) {
+				++misses;
+				return NO_RESULT;
+			}
+			++hits;
+			return result == NULL_RESULT ? null : result;
+		}
+	}
+
+	/**
+	 * Stores the complete result of the goal evaluated in the scope.
+	 *
+	 * @param scope
+	 * @param goal
+	 * @param result
+	 */
+	public void put(Object scope, IGoal goal, Object result) {
+		final Key key = createKey(scope, goal);
+		if (key != null) {
+			synchronized (results) {
+				results.put(key, result != null ? result : NULL_RESULT);
+			}
+		}
+	}
+
+	/**
+	 * Removes all the cached results.
+	 */
+	public void clear() {
+		synchronized (results) {
+			results.clear();
+		}
+	}
+
+	public int size() {
+		synchronized (results) {
+			return results.size();
+		}
+	}
+
+	public long getHitCount() {
+		synchronized (results) {
+			return hits;
+		}
+	}
+
+	public long getMissCount() {
+		synchronized (results) {
+			return misses;
+		}
+	}
+
+	public long getEvictionCount() {
+		synchronized (results) {
+			return evictions;
+		}
+	}
+
+	/**
+	 * Returns the ratio of the lookups answered from the cache, or
+	 * <code>0</code> if there were no lookups.
+	 */
+	public double getHitRate() {
+		synchronized (results) {
+			final long lookups = hits + misses;
+			return lookups == 0 ? 0 : (double) hits / lookups;
+		}
+	}
+
+	@Override
+	public String toString() {
+		synchronized (results) {
+			return "GoalResultCache size=" + results.size() + " hits=" + hits //$NON-NLS-1$ //$NON-NLS-2$
+					+ " misses=" + misses + " evictions=" + evictions; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+}
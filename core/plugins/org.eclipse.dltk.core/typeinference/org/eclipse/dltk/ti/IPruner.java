@@ -16,6 +16,11 @@ import org.eclipse.dltk.ti.goals.IGoal;
  * Pruner is thing, that can prune some goals from working queue. It could be
  * time limits, goals count or more complex criterias. Pruners are created per
  * every evaluation.
+ * 
+ * If the pruner implements the
+ * {@link org.eclipse.dltk.ti.statistics.IEvaluationStatisticsRequestor} the
+ * {@link GoalEngine} reports the evaluation progress to it as well (since
+ * 6.2).
  */
 public interface IPruner {
 
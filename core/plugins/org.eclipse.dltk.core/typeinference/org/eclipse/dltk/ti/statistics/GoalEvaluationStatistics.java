@@ -18,6 +18,7 @@ public class GoalEvaluationStatistics {
 	private long timeEnd;
 	private List steps;
 	private GoalEvaluationStatistics parentStat;
+	private boolean cached;
 
 	public GoalEvaluationStatistics(IGoal goal) {
 		super();
@@ -72,4 +73,18 @@ public class GoalEvaluationStatistics {
 		return steps;
 	}
 
-}
\ No newline at end of file
+	/**
+	 * @since 6.2
+	 */
+	public boolean isCached() {
+		return cached;
+	}
+
+	/**
+	 * @since 6.2
+	 */
+	public void setCached(boolean cached) {
+		this.cached = cached;
+	}
+
+}
@@ -134,6 +134,36 @@ public class GoalEvalutationRecorder implements IEvaluationStatisticsRequestor {
 		}
 	}
 
+	@Override
+	public void goalResultCached(IGoal goal, Object result) {
+		GoalEvaluationStatistics stat = (GoalEvaluationStatistics) this.goalStats
+				.get(goal);
+		if (stat != null) {
+			stat.setCached(true);
+		}
+	}
+
+	/**
+	 * Returns the ratio of the recorded goals, which results were taken from
+	 * the cache.
+	 *
+	 * @since 6.2
+	 */
+	public double getCacheHitRate() {
+		int cached = 0;
+		int evaluated = 0;
+		for (Object value : goalStats.values()) {
+			GoalEvaluationStatistics s = (GoalEvaluationStatistics) value;
+			if (s.isCached()) {
+				cached++;
+			} else if (s.getEvaluator() != null) {
+				evaluated++;
+			}
+		}
+		return cached + evaluated == 0 ? 0
+				: (double) cached / (cached + evaluated);
+	}
+
 	public IGoal getRootRoal() {
 		return rootRoal;
 	}
@@ -1,5 +1,6 @@
 package org.eclipse.dltk.ti.statistics;
 
+import org.eclipse.dltk.ti.GoalResultCache;
 import org.eclipse.dltk.ti.GoalState;
 import org.eclipse.dltk.ti.goals.GoalEvaluator;
 import org.eclipse.dltk.ti.goals.IGoal;
@@ -62,4 +63,15 @@ public interface IEvaluationStatisticsRequestor {
 	void evaluatorProducedResult(GoalEvaluator evaluator, Object result,
 			long time);
 
+	/**
+	 * Called, when goal result were taken from the {@link GoalResultCache}
+	 * instead of evaluating the goal
+	 *
+	 * @param goal
+	 * @param result
+	 * @since 6.2
+	 */
+	default void goalResultCached(IGoal goal, Object result) {
+	}
+
 }
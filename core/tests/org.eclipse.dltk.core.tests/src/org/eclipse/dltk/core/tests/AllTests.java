@@ -13,7 +13,12 @@ import org.eclipse.dltk.core.tests.builder.BuildParticipantManagerTests;
 import org.eclipse.dltk.core.tests.buildpath.BuildpathTests;
 import org.eclipse.dltk.core.tests.buildpath.SetContainerEventsTest;
 import org.eclipse.dltk.core.tests.cache.CacheTests;
+import org.eclipse.dltk.core.tests.cache.ContentCacheIndexTests;
+import org.eclipse.dltk.core.tests.cache.ElementCacheTests;
+import org.eclipse.dltk.core.tests.cache.PersistentASTCacheTests;
 import org.eclipse.dltk.core.tests.cache.SourceModuleInfoCacheTest;
+import org.eclipse.dltk.core.tests.cache.SourceModuleInfoCacheWeightTest;
+import org.eclipse.dltk.core.tests.cache.StructureModelCacheTests;
 import org.eclipse.dltk.core.tests.compiler.CompilerCharOperationTests;
 import org.eclipse.dltk.core.tests.compiler.CompilerUtilTests;
 import org.eclipse.dltk.core.tests.ddp.CoreDDPTests;
@@ -24,10 +29,17 @@ import org.eclipse.dltk.core.tests.mixin.MixinModelTests;
 import org.eclipse.dltk.core.tests.model.BufferTests;
 import org.eclipse.dltk.core.tests.model.ExternalFragmentTests;
 import org.eclipse.dltk.core.tests.model.ModelMembersTests;
+import org.eclipse.dltk.core.tests.model.NameLookupTests;
 import org.eclipse.dltk.core.tests.model.NamespaceTests;
 import org.eclipse.dltk.core.tests.model.WorkingCopyTests;
 import org.eclipse.dltk.core.tests.parser.SourceParserTests;
 import org.eclipse.dltk.core.tests.search.Bug387751Test;
+import org.eclipse.dltk.core.tests.search.DLTKSearchScopeTests;
+import org.eclipse.dltk.core.tests.search.IndexTests;
+import org.eclipse.dltk.core.tests.search.JobManagerTests;
+import org.eclipse.dltk.core.tests.search.SearchScopePathIndexTests;
+import org.eclipse.dltk.core.tests.ti.BudgetPrunerTests;
+import org.eclipse.dltk.core.tests.ti.GoalEngineTests;
 import org.eclipse.dltk.core.tests.util.CharacterStackTests;
 import org.eclipse.dltk.core.tests.utils.CharOperationTests;
 import org.eclipse.dltk.core.tests.utils.IntListTests;
@@ -47,6 +59,12 @@ import org.junit.runners.Suite;
 		ExternalFragmentTests.class, SourceParserTests.class,
 		CharacterStackTests.class, CharOperationTests.class,
 		InternalCoreUtilTest.class, TextUtilsTest.class, Bug387751Test.class,
-		SourceModuleInfoCacheTest.class, SetContainerEventsTest.class })
+		SourceModuleInfoCacheTest.class, SetContainerEventsTest.class,
+		JobManagerTests.class, IndexTests.class, GoalEngineTests.class,
+		BudgetPrunerTests.class, PersistentASTCacheTests.class,
+		SourceModuleInfoCacheWeightTest.class, ContentCacheIndexTests.class,
+		StructureModelCacheTests.class, ElementCacheTests.class,
+		NameLookupTests.class, SearchScopePathIndexTests.class,
+		DLTKSearchScopeTests.class })
 public class AllTests {
 }
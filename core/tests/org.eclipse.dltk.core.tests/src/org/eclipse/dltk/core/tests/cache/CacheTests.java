@@ -6,8 +6,10 @@ import java.io.FileOutputStream;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.dltk.core.caching.ArchiveCacheIndexBuilder;
+import org.eclipse.dltk.core.caching.ArchiveContentCacheProvider;
 import org.eclipse.dltk.core.caching.IContentCache;
 import org.eclipse.dltk.core.caching.MetadataContentCache;
 import org.eclipse.dltk.core.environment.EnvironmentManager;
@@ -103,4 +105,75 @@ public class CacheTests extends AbstractModelTests {
 		TestCase.assertEquals("testValue3", ast3);
 		TestCase.assertEquals("testValue4", ast4);
 	}
+
+	public void testCacheItems004() throws Throwable {
+		final IFile[] files = new IFile[3];
+		for (int i = 0; i < files.length; ++i) {
+			files[i] = PROJECT.getFile("file" + i + ".te");
+			files[i].create(new ByteArrayInputStream(new byte[0]), true,
+					new NullProgressMonitor());
+			ArchiveCacheIndexBuilder builder = new ArchiveCacheIndexBuilder(
+					new FileOutputStream(new File(PROJECT
+							.getFile(".dltk.index" + i).getLocation()
+							.toOSString())),
+					0);
+			builder.addEntry(files[i].getName(), files[i].getLocalTimeStamp(),
+					"ast", new ByteArrayInputStream(("value" + i).getBytes()));
+			builder.addEntry(files[i].getName(), files[i].getLocalTimeStamp(),
+					"mixin", new ByteArrayInputStream(("mixin" + i).getBytes()));
+			builder.done();
+		}
+		PROJECT.refreshLocal(IResource.DEPTH_ONE, new NullProgressMonitor());
+
+		IEnvironment env = EnvironmentManager.getLocalEnvironment();
+		IContentCache cache = new MetadataContentCache(ModelTestsPlugin
+				.getDefault().getStateLocation().append("cache4"));
+		ArchiveContentCacheProvider.processFolderIndexes(
+				env.getFile(PROJECT.getLocation()), cache,
+				new NullProgressMonitor());
+		for (int i = 0; i < files.length; ++i) {
+			IFileHandle handle = env.getFile(files[i].getLocation());
+			TestCase.assertEquals("value" + i,
+					cache.getCacheEntryAttributeString(handle, "ast"));
+			TestCase.assertEquals("mixin" + i,
+					cache.getCacheEntryAttributeString(handle, "mixin"));
+		}
+	}
+
+	private void writeIndex(IFile file, File indexFile, String value)
+			throws Throwable {
+		ArchiveCacheIndexBuilder builder = new ArchiveCacheIndexBuilder(
+				new FileOutputStream(indexFile), 0);
+		builder.addEntry(file.getName(), file.getLocalTimeStamp(), "ast",
+				new ByteArrayInputStream(value.getBytes()));
+		builder.done();
+	}
+
+	public void testCacheItems005() throws Throwable {
+		IFile file = PROJECT.getFile("file.te");
+		file.create(new ByteArrayInputStream(new byte[0]), true,
+				new NullProgressMonitor());
+		File indexFile = new File(
+				PROJECT.getFile(".dltk.index0").getLocation().toOSString());
+		writeIndex(file, indexFile, "value1");
+
+		IEnvironment env = EnvironmentManager.getLocalEnvironment();
+		IContentCache cache = new MetadataContentCache(ModelTestsPlugin
+				.getDefault().getStateLocation().append("cache5"));
+		IFileHandle folder = env.getFile(PROJECT.getLocation());
+		IFileHandle handle = env.getFile(file.getLocation());
+		ArchiveContentCacheProvider.processFolderIndexes(folder, cache,
+				new NullProgressMonitor());
+		TestCase.assertEquals("value1",
+				cache.getCacheEntryAttributeString(handle, "ast"));
+
+		// the changed archive is imported again
+		final long stamp = indexFile.lastModified();
+		writeIndex(file, indexFile, "value2");
+		indexFile.setLastModified(stamp + 10000);
+		ArchiveContentCacheProvider.processFolderIndexes(folder, cache,
+				new NullProgressMonitor());
+		TestCase.assertEquals("value2",
+				cache.getCacheEntryAttributeString(handle, "ast"));
+	}
 }
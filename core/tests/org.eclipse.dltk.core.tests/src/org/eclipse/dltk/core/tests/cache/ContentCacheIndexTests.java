@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import org.eclipse.dltk.internal.core.caching.ContentCacheIndex;
+import org.eclipse.dltk.internal.core.caching.ContentCacheIndex.Entry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ContentCacheIndexTests extends Assert {
+
+	private static final String ENV = "local";
+
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("index").toFile();
+		directory.delete();
+	}
+
+	@After
+	public void tearDown() {
+		final File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	private static void put(ContentCacheIndex index, String path,
+			String attribute, String location) {
+		index.update(ENV, path, entry -> (entry != null ? entry
+				: new Entry(ENV, path, 1)).withAttribute(attribute, location));
+	}
+
+	@Test
+	public void testPersistence() {
+		ContentCacheIndex index = new ContentCacheIndex(directory);
+		assertTrue(index.isNew());
+		put(index, "/a", "ast", "1.idx");
+		put(index, "/a", "mixin", "2.idx");
+		put(index, "/b", "ast", "3.idx");
+		assertEquals(1, index.nextIndex(ENV));
+		assertEquals(2, index.nextIndex(ENV));
+		index.close();
+
+		index = new ContentCacheIndex(directory);
+		assertFalse(index.isNew());
+		final Entry a = index.get(ENV, "/a");
+		assertEquals(1, a.getTimestamp());
+		assertEquals("1.idx", a.getAttribute("ast"));
+		assertEquals("2.idx", a.getAttribute("mixin"));
+		assertEquals("3.idx", index.get(ENV, "/b").getAttribute("ast"));
+		assertNull(index.get("remote", "/a"));
+		assertEquals(3, index.nextIndex(ENV));
+
+		assertNotNull(index.remove(ENV, "/b"));
+		index.update(ENV, "/a", entry -> entry.withoutAttribute("mixin"));
+		index.close();
+
+		index = new ContentCacheIndex(directory);
+		assertNull(index.get(ENV, "/b"));
+		assertNull(index.get(ENV, "/a").getAttribute("mixin"));
+		assertEquals(1, index.getEntries().size());
+		index.close();
+	}
+
+	@Test
+	public void testCompaction() {
+		ContentCacheIndex index = new ContentCacheIndex(directory);
+		for (int i = 0; i < 1000; ++i) {
+			put(index, "/a", "ast", i + ".idx");
+		}
+		index.close();
+		long size = 0;
+		for (File file : directory.listFiles()) {
+			size += file.length();
+		}
+
+		index = new ContentCacheIndex(directory);
+		assertEquals("999.idx", index.get(ENV, "/a").getAttribute("ast"));
+		index.close();
+		long compacted = 0;
+		for (File file : directory.listFiles()) {
+			compacted += file.length();
+		}
+		assertTrue(compacted * 100 < size);
+	}
+
+	@Test
+	public void testTruncatedRecord() throws IOException {
+		ContentCacheIndex index = new ContentCacheIndex(directory);
+		put(index, "/a", "ast", "1.idx");
+		put(index, "/a", "mixin", "2.idx");
+		index.close();
+		for (File file : directory.listFiles()) {
+			if (file.getName().endsWith(".log")) {
+				try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+					raf.setLength(raf.length() - 3);
+				}
+			}
+		}
+
+		index = new ContentCacheIndex(directory);
+		final Entry a = index.get(ENV, "/a");
+		assertEquals("1.idx", a.getAttribute("ast"));
+		assertNull(a.getAttribute("mixin"));
+		put(index, "/a", "mixin", "3.idx");
+		index.close();
+
+		index = new ContentCacheIndex(directory);
+		assertEquals("3.idx", index.get(ENV, "/a").getAttribute("mixin"));
+		index.close();
+	}
+}
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.cache;
+
+import java.lang.reflect.Proxy;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.dltk.core.IModelElement;
+import org.eclipse.dltk.internal.core.ElementCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ElementCacheTests extends Assert {
+
+	/**
+	 * The cache of the string keys, the pinned keys could not be closed like
+	 * the unsaved working copies.
+	 */
+	private static class TestCache extends ElementCache {
+		final Set<Object> pinned = new HashSet<>();
+
+		TestCache(int size) {
+			super(size);
+		}
+
+		@Override
+		protected boolean close(LRUCacheEntry entry) {
+			return !pinned.contains(entry._fKey);
+		}
+	}
+
+	private static String key(int i) {
+		return "k" + i;
+	}
+
+	private static IModelElement newParent() {
+		return (IModelElement) Proxy.newProxyInstance(
+				ElementCacheTests.class.getClassLoader(),
+				new Class<?>[] { IModelElement.class },
+				(proxy, method, args) -> {
+					if ("equals".equals(method.getName())) {
+						return proxy == args[0];
+					} else if ("hashCode".equals(method.getName())) {
+						return System.identityHashCode(proxy);
+					}
+					return null;
+				});
+	}
+
+	private static void assertPublished(TestCache cache, int count) {
+		int published = 0;
+		for (int i = 0; i < count; i++) {
+			final Object value = cache.peek(key(i));
+			assertSame(key(i), value, cache.peekConcurrently(key(i)));
+			if (value != null) {
+				published++;
+			}
+		}
+		int entries = 0;
+		for (Enumeration<?> e = cache.keys(); e.hasMoreElements(); e
+				.nextElement()) {
+			entries++;
+		}
+		assertEquals(entries, published);
+	}
+
+	@Test
+	public void testPublishedAfterEvictions() {
+		final TestCache cache = new TestCache(10);
+		for (int i = 0; i < 30; i++) {
+			cache.put(key(i), "v" + i);
+		}
+		assertNull(cache.peekConcurrently(key(0)));
+		assertEquals("v29", cache.peekConcurrently(key(29)));
+		assertPublished(cache, 30);
+		for (int i = 0; i < 30; i += 3) {
+			cache.remove(key(i));
+		}
+		assertPublished(cache, 30);
+	}
+
+	@Test
+	public void testEvictionWhenCloseFails() {
+		final TestCache cache = new TestCache(4);
+		cache.pinned.add(key(0));
+		cache.pinned.add(key(1));
+		for (int i = 0; i < 10; i++) {
+			cache.put(key(i), "v" + i);
+		}
+		assertEquals("v0", cache.peekConcurrently(key(0)));
+		assertEquals("v1", cache.peekConcurrently(key(1)));
+		assertPublished(cache, 10);
+
+		cache.pinned.clear();
+		for (int i = 0; i < 10; i++) {
+			cache.pinned.add(key(i));
+		}
+		cache.put(key(10), "v10");
+		assertTrue(cache.getOverflow() > 0);
+		assertPublished(cache, 11);
+
+		cache.pinned.clear();
+		assertTrue(cache.shrink());
+		assertEquals(0, cache.getOverflow());
+		assertPublished(cache, 11);
+	}
+
+	@Test
+	public void testFlush() {
+		final TestCache cache = new TestCache(10);
+		for (int i = 0; i < 5; i++) {
+			cache.put(key(i), "v" + i);
+		}
+		assertEquals("v3", cache.getConcurrently(key(3)));
+		cache.flush();
+		for (int i = 0; i < 5; i++) {
+			assertNull(cache.peekConcurrently(key(i)));
+			assertNull(cache.getConcurrently(key(i)));
+		}
+		cache.drainReads();
+		cache.put(key(3), "w3");
+		assertEquals("w3", cache.getConcurrently(key(3)));
+		assertPublished(cache, 5);
+	}
+
+	@Test
+	public void testReplaceValue() {
+		final TestCache cache = new TestCache(10);
+		cache.put(key(0), "v0");
+		cache.put(key(1), "v1");
+		assertEquals("v0", cache.getConcurrently(key(0)));
+		cache.put(key(0), "w0");
+		assertEquals("w0", cache.getConcurrently(key(0)));
+		assertEquals("w0", cache.peek(key(0)));
+		assertEquals("v1", cache.peekConcurrently(key(1)));
+		cache.drainReads();
+		assertPublished(cache, 2);
+	}
+
+	@Test
+	public void testReadsDrainedBeforeShrink() {
+		final TestCache cache = new TestCache(4);
+		for (int i = 0; i < 6; i++) {
+			cache.pinned.add(key(i));
+			cache.put(key(i), "v" + i);
+		}
+		assertTrue(cache.getOverflow() > 0);
+		cache.pinned.clear();
+		assertEquals("v0", cache.getConcurrently(key(0)));
+		cache.ensureSpaceLimit(10, newParent());
+		assertEquals("v0", cache.peek(key(0)));
+		assertNull(cache.peek(key(1)));
+		assertPublished(cache, 6);
+	}
+
+	@Test
+	public void testReadsDrainedBeforeResetSpaceLimit() {
+		final TestCache cache = new TestCache(4);
+		final IModelElement parent = newParent();
+		cache.ensureSpaceLimit(10, parent);
+		for (int i = 0; i < 10; i++) {
+			cache.put(key(i), "v" + i);
+		}
+		assertPublished(cache, 10);
+		assertEquals("v0", cache.getConcurrently(key(0)));
+		cache.resetSpaceLimit(4, parent);
+		assertEquals(4, cache.getSpaceLimit());
+		assertEquals("v0", cache.peek(key(0)));
+		assertNull(cache.peek(key(1)));
+		assertPublished(cache, 10);
+	}
+}
@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.dltk.ast.ASTListNode;
+import org.eclipse.dltk.ast.ASTNode;
+import org.eclipse.dltk.ast.declarations.Argument;
+import org.eclipse.dltk.ast.declarations.FieldDeclaration;
+import org.eclipse.dltk.ast.declarations.MethodDeclaration;
+import org.eclipse.dltk.ast.declarations.ModuleDeclaration;
+import org.eclipse.dltk.ast.declarations.TypeDeclaration;
+import org.eclipse.dltk.ast.expressions.StringLiteral;
+import org.eclipse.dltk.ast.references.SimpleReference;
+import org.eclipse.dltk.ast.references.TypeReference;
+import org.eclipse.dltk.ast.statements.Block;
+import org.eclipse.dltk.internal.core.caching.ASTSerializer;
+import org.eclipse.dltk.internal.core.caching.PersistentASTCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PersistentASTCacheTests {
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("ast", ".cache");
+		file.delete();
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	private static ModuleDeclaration createModule(String typeName) {
+		final ModuleDeclaration module = new ModuleDeclaration(100);
+		final TypeDeclaration type = new TypeDeclaration(typeName, 6, 9, 0,
+				90);
+		final ASTListNode superClasses = new ASTListNode(10, 20);
+		superClasses.addNode(new TypeReference(12, 20, "Base"));
+		type.setSuperClasses(superClasses);
+		final MethodDeclaration method = new MethodDeclaration("run", 30, 33,
+				25, 60);
+		method.addArgument(new Argument(new SimpleReference(34, 35, "a"), 34,
+				null, 0));
+		method.getBody().addStatement(new SimpleReference(40, 41, "a"));
+		final Block body = new Block(10, 90);
+		body.addStatement(method);
+		body.addStatement(new FieldDeclaration("f", 70, 71, 65, 80));
+		type.setBody(body);
+		type.getMethodList().add(method);
+		module.addStatement(type);
+		module.getTypeList().add(type);
+		return module;
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		final ModuleDeclaration restored = ASTSerializer.deserialize(
+				ASTSerializer.serialize(createModule("Foo")));
+		assertEquals(100, restored.sourceEnd());
+		assertEquals(1, restored.getTypes().length);
+		final TypeDeclaration type = restored.getTypes()[0];
+		assertSame(restored.getStatements().get(0), type);
+		assertEquals("Foo", type.getName());
+		assertEquals(6, type.getNameStart());
+		assertEquals(90, type.sourceEnd());
+		assertEquals("Base", type.getSuperClassNames().get(0));
+		final MethodDeclaration method = type.getMethods()[0];
+		assertSame(type.getStatements().get(0), method);
+		assertEquals("run", method.getName());
+		assertEquals(25, method.sourceStart());
+		assertEquals("a", ((Argument) method.getArguments().get(0)).getName());
+		assertEquals(1, method.getStatements().size());
+		assertEquals("f",
+				((FieldDeclaration) type.getStatements().get(1)).getName());
+	}
+
+	@Test
+	public void testUnsupportedNodes() {
+		final ModuleDeclaration module = new ModuleDeclaration(10);
+		module.addStatement(new StringLiteral(0, 10, "value"));
+		assertNull(ASTSerializer.serialize(module));
+		final PersistentASTCache cache = new PersistentASTCache(file,
+				PersistentASTCache.DEFAULT_MAX_SIZE);
+		try {
+			assertFalse(cache.put("key", 1, module));
+			assertEquals(0, cache.size());
+		} finally {
+			cache.close();
+		}
+	}
+
+	@Test
+	public void testPersistence() {
+		PersistentASTCache cache = new PersistentASTCache(file,
+				PersistentASTCache.DEFAULT_MAX_SIZE);
+		try {
+			assertTrue(cache.put("a", 1, createModule("A")));
+			assertTrue(cache.put("b", 2, createModule("B")));
+			assertTrue(cache.put("a", 3, createModule("C")));
+			assertEquals("C", cache.get("a", 3).getTypes()[0].getName());
+			assertNull(cache.get("a", 1));
+			assertTrue(cache.contains("a"));
+			assertFalse(cache.contains("c"));
+		} finally {
+			cache.close();
+		}
+		cache = new PersistentASTCache(file,
+				PersistentASTCache.DEFAULT_MAX_SIZE);
+		try {
+			assertEquals(2, cache.size());
+			assertEquals("B", cache.get("b", 2).getTypes()[0].getName());
+			assertEquals("C", cache.get("a", 3).getTypes()[0].getName());
+			cache.clear();
+		} finally {
+			cache.close();
+		}
+		cache = new PersistentASTCache(file,
+				PersistentASTCache.DEFAULT_MAX_SIZE);
+		try {
+			assertEquals(0, cache.size());
+			assertNull(cache.get("b", 2));
+		} finally {
+			cache.close();
+		}
+	}
+
+	@Test
+	public void testReopenAfterClear() {
+		PersistentASTCache cache = new PersistentASTCache(file,
+				PersistentASTCache.DEFAULT_MAX_SIZE);
+		try {
+			assertTrue(cache.put("a", 1, createModule("A")));
+			assertTrue(cache.put("b", 2, createModule("B")));
+			cache.clear();
+			// the same size, so the stale entry follows it
+			assertTrue(cache.put("a", 3, createModule("C")));
+		} finally {
+			cache.close();
+		}
+		cache = new PersistentASTCache(file,
+				PersistentASTCache.DEFAULT_MAX_SIZE);
+		try {
+			assertEquals(1, cache.size());
+			assertEquals("C", cache.get("a", 3).getTypes()[0].getName());
+			assertNull(cache.get("b", 2));
+		} finally {
+			cache.close();
+		}
+	}
+
+	@Test
+	public void testReopenAfterOverwriteAndCompaction() {
+		PersistentASTCache cache = new PersistentASTCache(file,
+				PersistentASTCache.DEFAULT_MAX_SIZE);
+		try {
+			// the entries of the same size, overwritten twice
+			for (int i = 0; i < 30; ++i) {
+				assertTrue(cache.put("k" + (i % 10), i, createModule("T")));
+			}
+		} finally {
+			cache.close();
+		}
+		cache = new PersistentASTCache(file,
+				PersistentASTCache.DEFAULT_MAX_SIZE);
+		try {
+			// compacted when opened, the new entry ends at the stale one
+			assertEquals(10, cache.size());
+			assertTrue(cache.put("k0", 30, createModule("T")));
+		} finally {
+			cache.close();
+		}
+		cache = new PersistentASTCache(file,
+				PersistentASTCache.DEFAULT_MAX_SIZE);
+		try {
+			assertEquals(10, cache.size());
+			assertNotNull(cache.get("k0", 30));
+			for (int i = 21; i < 30; ++i) {
+				assertNotNull(cache.get("k" + (i % 10), i));
+			}
+		} finally {
+			cache.close();
+		}
+	}
+
+	@Test
+	public void testMaxSize() {
+		final PersistentASTCache cache = new PersistentASTCache(file, 0);
+		try {
+			final int count = 20000;
+			for (int i = 0; i < count; ++i) {
+				assertTrue(cache.put("key" + (i % 100), i, createModule("T")));
+			}
+			assertTrue(file.length() <= 1 << 20);
+			for (int i = count - 100; i < count; ++i) {
+				final ModuleDeclaration module = cache.get("key" + (i % 100),
+						i);
+				assertNotNull(module);
+				final ASTNode type = module.getTypes()[0];
+				assertEquals(90, type.sourceEnd());
+			}
+		} finally {
+			cache.close();
+		}
+	}
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.cache;
+
+import java.lang.reflect.Proxy;
+
+import org.eclipse.dltk.ast.declarations.ModuleDeclaration;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.core.ISourceModuleInfoCache.ISourceModuleInfo;
+import org.eclipse.dltk.internal.core.SourceModuleInfoCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SourceModuleInfoCacheWeightTest extends Assert {
+
+	private static final String AST = "ast";
+
+	/**
+	 * Returns the module without resource, compared by identity.
+	 */
+	private static ISourceModule createModule(String name) {
+		return (ISourceModule) Proxy.newProxyInstance(
+				ISourceModule.class.getClassLoader(),
+				new Class<?>[] { ISourceModule.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					case "getElementName":
+					case "toString":
+						return name;
+					default:
+						return null;
+					}
+				});
+	}
+
+	private static boolean isCached(SourceModuleInfoCache cache,
+			ISourceModule module) {
+		return cache.get(module).get(AST) != null;
+	}
+
+	@Test
+	public void testHitsAndMisses() {
+		final SourceModuleInfoCache cache = new SourceModuleInfoCache(1 << 20);
+		final ISourceModule module = createModule("a");
+		final ModuleDeclaration ast = new ModuleDeclaration(100);
+		cache.get(module).put(AST, ast);
+		assertSame(ast, cache.get(module).get(AST));
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+		assertTrue(cache.getWeight() > 100);
+		cache.remove(module);
+		assertEquals(0, cache.getWeight());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testLargeModulesEvicted() {
+		final SourceModuleInfoCache cache = new SourceModuleInfoCache(
+				100 * 1024);
+		final ISourceModule small = createModule("small");
+		cache.get(small).put(AST, new ModuleDeclaration(100));
+		cache.get(small);
+		final ISourceModule[] large = new ISourceModule[3];
+		for (int i = 0; i < large.length; ++i) {
+			large[i] = createModule("large" + i);
+			cache.get(large[i]).put(AST, new ModuleDeclaration(2560));
+		}
+		assertTrue(cache.getWeight() <= cache.getBudget());
+		assertTrue(cache.getEvictionCount() > 0);
+		assertTrue(isCached(cache, large[2]));
+		assertTrue(isCached(cache, small));
+		assertFalse(isCached(cache, large[0]));
+	}
+
+	@Test
+	public void testFrequentModulesRetained() {
+		final SourceModuleInfoCache cache = new SourceModuleInfoCache(
+				100 * 1024);
+		final ISourceModule frequent = createModule("frequent");
+		cache.get(frequent).put(AST, new ModuleDeclaration(4096));
+		for (int i = 0; i < 5; ++i) {
+			assertTrue(isCached(cache, frequent));
+		}
+		// scanning the modules used once does not evict the frequent one
+		for (int i = 0; i < 10; ++i) {
+			final ISourceModule module = createModule("m" + i);
+			final ISourceModuleInfo info = cache.get(module);
+			info.put(AST, new ModuleDeclaration(4096));
+		}
+		assertTrue(cache.getWeight() <= cache.getBudget());
+		assertTrue(isCached(cache, frequent));
+	}
+
+	@Test
+	public void testReplacedValue() {
+		final SourceModuleInfoCache cache = new SourceModuleInfoCache(1 << 20);
+		final ISourceModuleInfo info = cache.get(createModule("a"));
+		info.put(AST, new ModuleDeclaration(1000));
+		final long weight = cache.getWeight();
+		info.put(AST, new ModuleDeclaration(10));
+		assertTrue(cache.getWeight() < weight);
+		info.remove(AST);
+		info.put(AST, new ModuleDeclaration(1000));
+		assertEquals(weight, cache.getWeight());
+		cache.clear();
+		assertEquals(0, cache.getWeight());
+	}
+}
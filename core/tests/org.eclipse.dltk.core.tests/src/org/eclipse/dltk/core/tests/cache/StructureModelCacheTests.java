@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.dltk.compiler.IElementRequestor.FieldInfo;
+import org.eclipse.dltk.compiler.IElementRequestor.MethodInfo;
+import org.eclipse.dltk.compiler.IElementRequestor.TypeInfo;
+import org.eclipse.dltk.compiler.ISourceElementRequestor;
+import org.eclipse.dltk.compiler.SourceElementRequestorAdaptor;
+import org.eclipse.dltk.core.caching.IStructureConstants;
+import org.eclipse.dltk.core.caching.StructureModelCollector;
+import org.eclipse.dltk.core.caching.StructureModelProcessor;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StructureModelCacheTests extends Assert {
+
+	private static class Recorder extends SourceElementRequestorAdaptor {
+		final List<String> events = new ArrayList<>();
+
+		@Override
+		public void enterModule() {
+			events.add("module");
+		}
+
+		@Override
+		public void exitModule(int declarationEnd) {
+			events.add("/module " + declarationEnd);
+		}
+
+		@Override
+		public void enterNamespace(String[] namespace) {
+			events.add("namespace " + Arrays.toString(namespace));
+		}
+
+		@Override
+		public void exitNamespace() {
+			events.add("/namespace");
+		}
+
+		@Override
+		public void enterType(TypeInfo info) {
+			events.add("type " + info.name + " "
+					+ Arrays.toString(info.superclasses));
+		}
+
+		@Override
+		public void exitType(int declarationEnd) {
+			events.add("/type " + declarationEnd);
+		}
+
+		@Override
+		public void enterMethod(MethodInfo info) {
+			events.add("method " + info.name + " "
+					+ Arrays.toString(info.parameterNames));
+		}
+
+		@Override
+		public void exitMethod(int declarationEnd) {
+			events.add("/method " + declarationEnd);
+		}
+
+		@Override
+		public void enterField(FieldInfo info) {
+			events.add("field " + info.name);
+		}
+
+		@Override
+		public void exitField(int declarationEnd) {
+			events.add("/field " + declarationEnd);
+		}
+
+		@Override
+		public void acceptMethodReference(String methodName, int argCount,
+				int sourcePosition, int sourceEndPosition) {
+			events.add("call " + methodName);
+		}
+	}
+
+	private static TypeInfo type(String name, String... superclasses) {
+		final TypeInfo info = new TypeInfo();
+		info.name = name;
+		// the empty arrays are stored as null
+		info.superclasses = superclasses.length != 0 ? superclasses : null;
+		return info;
+	}
+
+	private static MethodInfo method(String name, String... parameters) {
+		final MethodInfo info = new MethodInfo();
+		info.name = name;
+		info.parameterNames = parameters.length != 0 ? parameters : null;
+		return info;
+	}
+
+	private static FieldInfo field(String name) {
+		final FieldInfo info = new FieldInfo();
+		info.name = name;
+		return info;
+	}
+
+	private static void generate(ISourceElementRequestor requestor) {
+		requestor.enterModule();
+		requestor.enterNamespace(new String[] { "ns" });
+		requestor.enterType(type("Outer", "Base"));
+		requestor.enterMethod(method("run", "a", "b"));
+		requestor.enterField(field("local"));
+		requestor.exitField(20);
+		requestor.acceptMethodReference("print", 1, 21, 30);
+		requestor.exitMethod(40);
+		requestor.enterType(type("Inner"));
+		requestor.enterMethod(method("inner"));
+		requestor.exitMethod(60);
+		requestor.exitType(70);
+		requestor.exitType(80);
+		requestor.exitNamespace();
+		requestor.enterMethod(method("main"));
+		requestor.enterField(field("x"));
+		requestor.exitField(95);
+		requestor.exitMethod(100);
+		requestor.exitModule(110);
+	}
+
+	private static Recorder replay(byte[] data, boolean topLevelOnly)
+			throws IOException {
+		final Recorder recorder = new Recorder();
+		final StructureModelProcessor processor = new StructureModelProcessor(
+				new ByteArrayInputStream(data), recorder);
+		if (topLevelOnly) {
+			processor.setFilter((info, depth) -> false);
+		}
+		processor.perform();
+		return recorder;
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		final Recorder expected = new Recorder();
+		final StructureModelCollector collector = new StructureModelCollector(
+				expected);
+		generate(collector);
+		assertEquals(expected.events,
+				replay(collector.getBytes(), false).events);
+	}
+
+	@Test
+	public void testSkipMembers() throws IOException {
+		final StructureModelCollector collector = new StructureModelCollector(
+				new SourceElementRequestorAdaptor());
+		generate(collector);
+		assertEquals(Arrays.asList("module", "namespace [ns]",
+				"type Outer [Base]", "/type 80", "/namespace",
+				"method main null", "/method 100", "/module 110"),
+				replay(collector.getBytes(), true).events);
+	}
+
+	@Test
+	public void testSkipNestedMembers() throws IOException {
+		final StructureModelCollector collector = new StructureModelCollector(
+				new SourceElementRequestorAdaptor());
+		generate(collector);
+		final Recorder recorder = new Recorder();
+		final StructureModelProcessor processor = new StructureModelProcessor(
+				new ByteArrayInputStream(collector.getBytes()), recorder);
+		processor.setFilter((info, depth) -> depth == 0
+				&& info instanceof TypeInfo);
+		processor.perform();
+		assertEquals(Arrays.asList("module", "namespace [ns]",
+				"type Outer [Base]", "method run [a, b]", "/method 40",
+				"type Inner null", "/type 70", "/type 80", "/namespace",
+				"method main null", "/method 100", "/module 110"),
+				recorder.events);
+	}
+
+	@Test
+	public void testUnversionedFormat() throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0); // no strings
+		out.writeInt(IStructureConstants.TAG_ENTER_MODULE);
+		out.writeInt(IStructureConstants.TAG_ENTER_TYPE);
+		out.writeByte(0); // null name
+		out.writeInt(0);
+		out.writeInt(1);
+		out.writeInt(2);
+		out.writeInt(3);
+		out.writeInt(0); // no superclasses
+		out.writeInt(IStructureConstants.TAG_EXIT_TYPE);
+		out.writeInt(10);
+		out.writeInt(IStructureConstants.TAG_EXIT_MODULE);
+		out.writeInt(20);
+		out.flush();
+		assertEquals(
+				Arrays.asList("module", "type null null", "/type 10",
+						"/module 20"),
+				replay(bytes.toByteArray(), true).events);
+	}
+}
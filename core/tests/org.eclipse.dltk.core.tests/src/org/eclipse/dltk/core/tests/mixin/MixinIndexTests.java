@@ -68,6 +68,36 @@ public class MixinIndexTests {
 		assertEquals("B", docNames[1]);
 	}
 	
+	@Test
+	public void testPrefixQuery() throws IOException {
+		index.addIndexEntry(IIndexConstants.MIXIN, "a{b".toCharArray(), "A");
+		index.addIndexEntry(IIndexConstants.MIXIN, "a".toCharArray(), "A");
+		index.addIndexEntry(IIndexConstants.MIXIN, "b{a".toCharArray(), "B");
+		index.addIndexEntry(IIndexConstants.MIXIN, "ab".toCharArray(), "B");
+		final int rule = SearchPattern.R_EXACT_MATCH
+				| SearchPattern.R_CASE_SENSITIVE | SearchPattern.R_PATTERN_MATCH;
+		assertEquals(3, index.query(new char[][] { IIndexConstants.MIXIN },
+				"a*".toCharArray(), rule).length);
+		assertEquals(1, index.query(new char[][] { IIndexConstants.MIXIN },
+				"a{*".toCharArray(), rule).length);
+		assertEquals(1, index.query(new char[][] { IIndexConstants.MIXIN },
+				"a".toCharArray(), rule).length);
+		assertEquals(2, index.query(new char[][] { IIndexConstants.MIXIN },
+				"*a".toCharArray(), rule).length);
+		// keys added after the query
+		index.addIndexEntry(IIndexConstants.MIXIN, "a{c".toCharArray(), "C");
+		assertEquals(2, index.query(new char[][] { IIndexConstants.MIXIN },
+				"a{*".toCharArray(), rule).length);
+		index.save();
+		index = createIndex(false);
+		final EntryResult[] result = index.query(
+				new char[][] { IIndexConstants.MIXIN }, "a{*".toCharArray(),
+				rule);
+		assertEquals(2, result.length);
+		assertEquals("a{b", new String(result[0].getWord()));
+		assertEquals("a{c", new String(result[1].getWord()));
+	}
+
 	@Test
 	public void testQueryDocumentNames() throws IOException {
 		index.addIndexEntry(IIndexConstants.MIXIN, "key1".toCharArray(), "A");
@@ -12,6 +12,12 @@
  *******************************************************************************/
 package org.eclipse.dltk.core.tests.mixin;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.eclipse.core.resources.IProject;
 import org.eclipse.dltk.core.mixin.IMixinElement;
 import org.eclipse.dltk.core.mixin.MixinModel;
@@ -75,4 +81,47 @@ public class MixinModelTests extends AbstractModelTests {
 			model.stop();
 		}
 	}
+
+	public void testMixinElementTree() throws Throwable {
+		MixinModel model = new MixinModel(TestLanguageToolkit.getDefault());
+		try {
+			IMixinElement element = model.get("{foo");
+			TestCase.assertNotNull(element);
+			TestCase.assertEquals(2, element.getChildren().length);
+			TestCase.assertEquals(1, element.getSourceModules().length);
+			TestCase.assertEquals(3,
+					model.get("Module").getSourceModules().length);
+			TestCase.assertNull(model.get("{bar"));
+		} finally {
+			model.stop();
+		}
+	}
+
+	public void testConcurrentLookups() throws Throwable {
+		final MixinModel model = new MixinModel(
+				TestLanguageToolkit.getDefault());
+		try {
+			final ExecutorService executor = Executors.newFixedThreadPool(4);
+			try {
+				final List<Future<IMixinElement>> results = new ArrayList<>();
+				for (int i = 0; i < 16; ++i) {
+					final String key = i % 2 == 0 ? "Module" : "Module{gamma";
+					results.add(executor.submit(() -> {
+						IMixinElement element = model.get(key);
+						TestCase.assertEquals(3,
+								element.getSourceModules().length);
+						return element;
+					}));
+				}
+				for (int i = 0; i < results.size(); ++i) {
+					TestCase.assertSame(results.get(i % 2).get(),
+							results.get(i).get());
+				}
+			} finally {
+				executor.shutdown();
+			}
+		} finally {
+			model.stop();
+		}
+	}
 }
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.model;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.dltk.core.IType;
+import org.eclipse.dltk.core.WorkingCopyOwner;
+import org.eclipse.dltk.core.tests.WorkspaceAutoBuild;
+import org.eclipse.dltk.internal.core.NameLookup;
+import org.eclipse.dltk.internal.core.ScriptProject;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+/**
+ * Checks that the names of the source modules cached for the
+ * {@link NameLookup} follow the source modules added and removed in the
+ * owning project and in the dependent project.
+ */
+@RunWith(BlockJUnit4ClassRunner.class)
+public class NameLookupTests extends ModifyingResourceTests {
+
+	final static String[] TEST_NATURES = new String[] { ModelTestsPlugin.TEST_NATURE };
+
+	private static final String P = "P";
+	private static final String Q = "Q";
+
+	public NameLookupTests() {
+		super("");
+	}
+
+	@BeforeClass
+	public static void setUpSuite1() throws Exception {
+		WorkspaceAutoBuild.disable();
+		createScriptProject(P, TEST_NATURES, new String[] { "src" });
+		createScriptProject(Q, TEST_NATURES, new String[] { "src" },
+				new String[] { "/" + P });
+		createFolder("P/src/x");
+		createFolder("Q/src/y");
+	}
+
+	@AfterClass
+	public static void tearDownSuite1() throws Exception {
+		AbstractModelTests.deleteProject(Q);
+		AbstractModelTests.deleteProject(P);
+	}
+
+	private static String typeSource(String name) {
+		return "# parseme!\nenterType " + name + "\nexitType\n";
+	}
+
+	private NameLookup newNameLookup(String projectName) throws CoreException {
+		return ((ScriptProject) getScriptProject(projectName))
+				.newNameLookup((WorkingCopyOwner) null);
+	}
+
+	private IType findType(String projectName, String name,
+			boolean partialMatch) throws CoreException {
+		return newNameLookup(projectName).findType(name, partialMatch, 0);
+	}
+
+	private void assertFound(String expectedName, String projectName,
+			String name, boolean partialMatch) throws CoreException {
+		final IType type = findType(projectName, name, partialMatch);
+		assertNotNull(projectName + ": " + name, type);
+		assertEquals(expectedName, type.getElementName());
+	}
+
+	private void assertNotFound(String projectName, String name,
+			boolean partialMatch) throws CoreException {
+		assertNull(projectName + ": " + name,
+				findType(projectName, name, partialMatch));
+	}
+
+	@Test
+	public void testAddSourceModule() throws CoreException {
+		// cache the names of the folder before the source module is added
+		assertNotFound(P, "x.Added", false);
+		assertNotFound(Q, "x.Added", false);
+		assertNotFound(P, "x.Add", true);
+		assertNotFound(Q, "x.Add", true);
+		try {
+			createFile("P/src/x/Added.txt", typeSource("Added"));
+			assertFound("Added", P, "x.Added", false);
+			assertFound("Added", Q, "x.Added", false);
+			assertFound("Added", P, "x.Add", true);
+			assertFound("Added", Q, "x.add", true);
+		} finally {
+			deleteFile("P/src/x/Added.txt");
+		}
+	}
+
+	@Test
+	public void testRemoveSourceModule() throws CoreException {
+		createFile("P/src/x/Removed.txt", typeSource("Removed"));
+		// cache the names of the folder before the source module is removed
+		assertFound("Removed", P, "x.Removed", false);
+		assertFound("Removed", Q, "x.Removed", false);
+		assertFound("Removed", P, "x.Rem", true);
+		assertFound("Removed", Q, "x.rem", true);
+		deleteFile("P/src/x/Removed.txt");
+		assertNotFound(P, "x.Removed", false);
+		assertNotFound(Q, "x.Removed", false);
+		assertNotFound(P, "x.Rem", true);
+		assertNotFound(Q, "x.rem", true);
+	}
+
+	@Test
+	public void testOtherModulesKept() throws CoreException {
+		createFile("P/src/x/Kept.txt", typeSource("Kept"));
+		try {
+			assertFound("Kept", Q, "x.Kept", false);
+			createFile("P/src/x/Keeper.txt", typeSource("Keeper"));
+			assertFound("Kept", Q, "x.Kept", false);
+			assertFound("Keeper", Q, "x.Keeper", false);
+			deleteFile("P/src/x/Keeper.txt");
+			assertFound("Kept", P, "x.Kept", false);
+			assertFound("Kept", Q, "x.Kep", true);
+			assertNotFound(Q, "x.Keeper", false);
+		} finally {
+			deleteFile("P/src/x/Kept.txt");
+		}
+	}
+
+	@Test
+	public void testDependentProjectModule() throws CoreException {
+		assertNotFound(Q, "y.Local", false);
+		assertNotFound(P, "y.Local", false);
+		createFile("Q/src/y/Local.txt", typeSource("Local"));
+		try {
+			assertFound("Local", Q, "y.Local", false);
+			assertFound("Local", Q, "y.Lo", true);
+			// the dependencies are not visible to the required project
+			assertNotFound(P, "y.Local", false);
+		} finally {
+			deleteFile("Q/src/y/Local.txt");
+		}
+		assertNotFound(Q, "y.Local", false);
+		assertNotFound(Q, "y.Lo", true);
+	}
+}
@@ -66,6 +66,12 @@ public class TestSourceElementParser implements ISourceElementParser {
 					ti.declarationStart = currentLineOffset;
 					ti.nameSourceStart = currentLineOffset;
 					ti.nameSourceEnd = currentLineOffset + line.length();
+					if (split.length > 2) {
+						// enterType Name Superclass...
+						ti.superclasses = new String[split.length - 2];
+						System.arraycopy(split, 2, ti.superclasses, 0,
+								ti.superclasses.length);
+					}
 					requestor.enterType(ti);
 				} else if (cmd.equals("enterMethod")) {
 					ISourceElementRequestor.MethodInfo mi = new ISourceElementRequestor.MethodInfo();
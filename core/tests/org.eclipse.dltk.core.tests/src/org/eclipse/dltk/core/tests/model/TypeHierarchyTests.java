@@ -9,6 +9,7 @@
  *******************************************************************************/
 package org.eclipse.dltk.core.tests.model;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -20,6 +21,7 @@ import org.eclipse.dltk.core.IBuffer;
 import org.eclipse.dltk.core.IModelElement;
 import org.eclipse.dltk.core.ISourceModule;
 import org.eclipse.dltk.core.IType;
+import org.eclipse.dltk.core.ITypeHierarchy;
 import org.eclipse.dltk.core.WorkingCopyOwner;
 import org.eclipse.dltk.internal.core.ModelElement;
 import org.eclipse.dltk.internal.core.SourceType;
@@ -483,4 +485,100 @@ public class TypeHierarchyTests extends ModifyingResourceTests {
 		useCacheSuperclass = false;
 		testFullyCyclicHierarchy009();
 	}
+
+	private static String typeSource(String name, String... superclasses) {
+		StringBuilder source = new StringBuilder("# parseme!\nenterType ");
+		source.append(name);
+		for (String superclass : superclasses) {
+			source.append(' ').append(superclass);
+		}
+		return source.append("\nexitType\n").toString();
+	}
+
+	private IType createType(String name, String... superclasses)
+			throws CoreException {
+		String path = "P/src/x/y/" + name + ".txt";
+		createFile(path, typeSource(name, superclasses));
+		return getSourceModule(path).getType(name);
+	}
+
+	private void changeSuperclasses(String name, String... superclasses)
+			throws CoreException {
+		ISourceModule workingCopy = getSourceModule(
+				"P/src/x/y/" + name + ".txt").getWorkingCopy(null);
+		try {
+			workingCopy.getBuffer()
+					.setContents(typeSource(name, superclasses));
+			workingCopy.commitWorkingCopy(true, null);
+		} finally {
+			workingCopy.discardWorkingCopy();
+		}
+	}
+
+	private static String describe(ITypeHierarchy hierarchy, IType focus) {
+		Set<String> lines = new TreeSet<>();
+		Set<IType> types = new HashSet<>();
+		types.add(focus);
+		types.addAll(Arrays.asList(hierarchy.getAllSubtypes(focus)));
+		types.addAll(
+				Arrays.asList(hierarchy.getAllSupertypes(focus)));
+		for (IType type : types) {
+			Set<String> superclasses = new TreeSet<>();
+			for (IType superclass : hierarchy.getSuperclass(type)) {
+				superclasses.add(superclass.getElementName());
+			}
+			lines.add(type.getElementName() + " " + superclasses);
+		}
+		return String.join("\n", lines);
+	}
+
+	/**
+	 * Creates the hierarchy of A: B extends A, C extends B, and the separate
+	 * one: D extends X, E extends D.
+	 */
+	private ITypeHierarchy createHierarchy() throws CoreException {
+		IType a = createType("A");
+		createType("B", "A");
+		createType("C", "B");
+		createType("X");
+		createType("D", "X");
+		createType("E", "D");
+		waitUntilIndexesReady();
+		ITypeHierarchy hierarchy = a.newTypeHierarchy(null);
+		// the changes are collected while there are listeners
+		hierarchy.addTypeHierarchyChangedListener(h -> {
+		});
+		assertEquals("A []\nB [A]\nC [B]", describe(hierarchy, a));
+		return hierarchy;
+	}
+
+	private void assertRefreshed(ITypeHierarchy hierarchy, String expected)
+			throws CoreException {
+		waitUntilIndexesReady();
+		hierarchy.refresh(null);
+		IType focus = hierarchy.getType();
+		assertEquals(expected, describe(hierarchy, focus));
+		assertEquals(describe(focus.newTypeHierarchy(null), focus),
+				describe(hierarchy, focus));
+	}
+
+	public void testRefreshAddedSubtype() throws Exception {
+		ITypeHierarchy hierarchy = createHierarchy();
+		createType("F", "C");
+		assertRefreshed(hierarchy, "A []\nB [A]\nC [B]\nF [C]");
+	}
+
+	public void testRefreshRemovedSubtype() throws Exception {
+		ITypeHierarchy hierarchy = createHierarchy();
+		deleteFile("P/src/x/y/C.txt");
+		assertRefreshed(hierarchy, "A []\nB [A]");
+	}
+
+	public void testRefreshChangedSupertype() throws Exception {
+		ITypeHierarchy hierarchy = createHierarchy();
+		// D with its subtype E joins, C leaves
+		changeSuperclasses("D", "B");
+		changeSuperclasses("C", "X");
+		assertRefreshed(hierarchy, "A []\nB [A]\nD [B]\nE [D]");
+	}
 }
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.search;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.dltk.core.DLTKLanguageManager;
+import org.eclipse.dltk.core.IScriptFolder;
+import org.eclipse.dltk.core.IScriptProject;
+import org.eclipse.dltk.core.ModelException;
+import org.eclipse.dltk.core.tests.WorkspaceAutoBuild;
+import org.eclipse.dltk.core.tests.model.AbstractModelTests;
+import org.eclipse.dltk.core.tests.model.ModelTestsPlugin;
+import org.eclipse.dltk.core.tests.model.ModifyingResourceTests;
+import org.eclipse.dltk.internal.core.search.DLTKSearchScope;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+/**
+ * Checks that the {@link DLTKSearchScope} discards its index of the paths as
+ * the entries are added after the first lookup.
+ */
+@RunWith(BlockJUnit4ClassRunner.class)
+public class DLTKSearchScopeTests extends ModifyingResourceTests {
+
+	final static String[] TEST_NATURES = new String[] { ModelTestsPlugin.TEST_NATURE };
+
+	private static final int FOLDER_COUNT = 12;
+
+	public DLTKSearchScopeTests() {
+		super("");
+	}
+
+	@BeforeClass
+	public static void setUpSuite1() throws Exception {
+		WorkspaceAutoBuild.disable();
+		createScriptProject("P", TEST_NATURES, new String[] { "src" });
+		for (int i = 0; i < FOLDER_COUNT; ++i) {
+			createFolder("P/src/f" + i + "/sub");
+		}
+	}
+
+	@AfterClass
+	public static void tearDownSuite1() throws Exception {
+		AbstractModelTests.deleteProject("P");
+	}
+
+	private IScriptFolder getFolder(int i) throws ModelException {
+		return getScriptFolder("P", "src", new Path("f" + i));
+	}
+
+	private DLTKSearchScope newScope() {
+		final IScriptProject project = getScriptProject("P");
+		return new DLTKSearchScope(
+				DLTKLanguageManager.getLanguageToolkit(project));
+	}
+
+	@Test
+	public void testAddAfterLookup() throws CoreException {
+		final DLTKSearchScope scope = newScope();
+		scope.add(getFolder(0));
+		assertTrue(scope.encloses("/P/src/f0/X.txt"));
+		assertFalse(scope.encloses("/P/src/f1/X.txt"));
+		assertFalse(scope.encloses("/P/src/f0/sub/X.txt"));
+
+		scope.add(getFolder(1));
+		assertTrue(scope.encloses("/P/src/f1/X.txt"));
+		assertTrue(scope.encloses("/P/src/f1/"));
+		assertTrue(scope.encloses("/P/src/f0/X.txt"));
+		assertFalse(scope.encloses("/P/src/f2/X.txt"));
+	}
+
+	@Test
+	public void testAddAfterLookupWithRehash() throws CoreException {
+		final DLTKSearchScope scope = newScope();
+		for (int i = 0; i < FOLDER_COUNT; ++i) {
+			assertFalse(scope.encloses("/P/src/f" + i + "/X.txt"));
+			scope.add(getFolder(i));
+			for (int j = 0; j <= i; ++j) {
+				assertTrue(scope.encloses("/P/src/f" + j + "/X.txt"));
+			}
+			assertFalse(scope.encloses("/P/src/f" + i + "/sub/X.txt"));
+		}
+		scope.add(getScriptProject("P"));
+		assertTrue(scope.encloses("/P/src/f0/sub/X.txt"));
+	}
+}
@@ -0,0 +1,382 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.dltk.core.search.SearchPattern;
+import org.eclipse.dltk.core.search.index.EntryResult;
+import org.eclipse.dltk.core.search.index.Index;
+import org.eclipse.dltk.core.search.indexing.IIndexConstants;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the queries answered from the saved {@link Index}.
+ */
+public class IndexTests {
+
+	private static final char[][] TYPES = { IIndexConstants.TYPE_DECL };
+
+	private File file;
+	private Index index;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("test", ".index");
+		index = new Index(file.getPath(), file.getPath(), false);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		index = null;
+		for (File segment : listSegmentFiles()) {
+			segment.delete();
+		}
+		getSuperTypeGraphFile().delete();
+		file.delete();
+	}
+
+	private void add(String word, String document) {
+		index.addIndexEntry(IIndexConstants.TYPE_DECL, word.toCharArray(),
+				document);
+	}
+
+	private void saveAndReopen() throws IOException {
+		index.save();
+		index = new Index(file.getPath(), file.getPath(), true);
+	}
+
+	private String[] queryWords(String key, int matchRule)
+			throws IOException {
+		EntryResult[] results = index.query(TYPES,
+				key != null ? key.toCharArray() : null, matchRule);
+		if (results == null) {
+			return new String[0];
+		}
+		String[] words = new String[results.length];
+		for (int i = 0; i < results.length; ++i) {
+			words[i] = new String(results[i].getWord());
+		}
+		Arrays.sort(words);
+		return words;
+	}
+
+	private void populate() throws IOException {
+		add("Alpha", "a.txt");
+		add("AlphaBeta", "a.txt");
+		add("AlphaBeta", "b.txt");
+		add("Beta", "b.txt");
+		add("BetaGamma", "c.txt");
+		add("Gamma", "c.txt");
+		add("Жук", "d.txt");
+		saveAndReopen();
+	}
+
+	@Test
+	public void testExactMatch() throws IOException {
+		populate();
+		EntryResult[] results = index.query(TYPES, "AlphaBeta".toCharArray(),
+				SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE);
+		assertNotNull(results);
+		assertEquals(1, results.length);
+		String[] documents = results[0].getDocumentNames(index);
+		Arrays.sort(documents);
+		assertEquals("[a.txt, b.txt]", Arrays.toString(documents));
+		assertNull(index.query(TYPES, "Alph".toCharArray(),
+				SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE));
+		assertEquals("[Жук]",
+				Arrays.toString(queryWords("Жук",
+						SearchPattern.R_EXACT_MATCH
+								| SearchPattern.R_CASE_SENSITIVE)));
+	}
+
+	@Test
+	public void testPrefixMatch() throws IOException {
+		populate();
+		assertEquals("[Alpha, AlphaBeta]", Arrays.toString(queryWords("Alpha",
+				SearchPattern.R_PREFIX_MATCH | SearchPattern.R_CASE_SENSITIVE)));
+		assertEquals("[Beta, BetaGamma]", Arrays.toString(
+				queryWords("beta", SearchPattern.R_PREFIX_MATCH)));
+		assertEquals("[]", Arrays.toString(queryWords("Delta",
+				SearchPattern.R_PREFIX_MATCH | SearchPattern.R_CASE_SENSITIVE)));
+	}
+
+	@Test
+	public void testPatternAndCamelCaseMatch() throws IOException {
+		populate();
+		assertEquals("[AlphaBeta]",
+				Arrays.toString(queryWords("*a?e*",
+						SearchPattern.R_PATTERN_MATCH
+								| SearchPattern.R_CASE_SENSITIVE)));
+		assertEquals("[AlphaBeta]", Arrays.toString(queryWords("AB",
+				SearchPattern.R_CAMELCASE_MATCH
+						| SearchPattern.R_CASE_SENSITIVE)));
+	}
+
+	@Test
+	public void testAllWords() throws IOException {
+		populate();
+		assertEquals(6, queryWords(null, SearchPattern.R_EXACT_MATCH).length);
+	}
+
+	@Test
+	public void testLargeDocumentArrays() throws IOException {
+		for (int i = 0; i < 1000; ++i) {
+			add("Common", "file" + i + ".txt");
+			add("Unique" + i, "file" + i + ".txt");
+		}
+		saveAndReopen();
+		EntryResult[] results = index.query(TYPES, "Common".toCharArray(),
+				SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE);
+		assertNotNull(results);
+		assertEquals(1000, results[0].getDocumentNames(index).length);
+		results = index.query(TYPES, "Unique999".toCharArray(),
+				SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE);
+		assertNotNull(results);
+		assertEquals("[file999.txt]",
+				Arrays.toString(results[0].getDocumentNames(index)));
+		assertEquals(111, queryWords("Unique9",
+				SearchPattern.R_PREFIX_MATCH | SearchPattern.R_CASE_SENSITIVE).length);
+	}
+
+	@Test
+	public void testMatchRules() throws IOException {
+		final String[] prefixes = { "a", "B", "ab", "Ab", "_x", "z", "Z",
+				"ét", "ÉT", "K", "k" };
+		final List<String> words = new ArrayList<>();
+		for (int i = 0; i < 500; ++i) {
+			String word = prefixes[i % prefixes.length]
+					+ (i % 3 == 0 ? "Type" : "type") + i;
+			words.add(word);
+			add(word, "file" + (i % 20) + ".txt");
+		}
+		saveAndReopen();
+		final String[] keys = { "a", "A", "ab", "AB", "abT", "b", "_", "z",
+				"é", "É", "k", "K", "a*5", "*type1*", "?b*",
+				"ATy", "x" };
+		final int[] rules = { SearchPattern.R_EXACT_MATCH,
+				SearchPattern.R_PREFIX_MATCH, SearchPattern.R_PATTERN_MATCH,
+				SearchPattern.R_CAMELCASE_MATCH,
+				SearchPattern.R_PREFIX_MATCH | SearchPattern.R_CAMELCASE_MATCH };
+		for (String key : keys) {
+			for (int rule : rules) {
+				for (int caseSensitive : new int[] { 0,
+						SearchPattern.R_CASE_SENSITIVE }) {
+					final int matchRule = rule | caseSensitive;
+					final List<String> expected = new ArrayList<>();
+					for (String word : words) {
+						if (Index.isMatch(key.toCharArray(),
+								word.toCharArray(), matchRule)) {
+							expected.add(word);
+						}
+					}
+					Collections.sort(expected);
+					assertEquals(key + " " + matchRule, expected.toString(),
+							Arrays.toString(queryWords(key, matchRule)));
+				}
+			}
+		}
+	}
+
+	private File getSuperTypeGraphFile() {
+		return new File(file.getPath() + ".supers");
+	}
+
+	private void addSuperType(String superName, String typeName,
+			String document) {
+		index.addIndexEntry(IIndexConstants.SUPER_REF,
+				(superName + "{{" + typeName + "{{{").toCharArray(), document);
+	}
+
+	private String querySubtypes(String superName) throws IOException {
+		EntryResult[] results = index
+				.querySuperTypeReferences(superName.toCharArray());
+		if (results == null) {
+			return "[]";
+		}
+		List<String> subtypes = new ArrayList<>();
+		for (EntryResult result : results) {
+			for (String document : result.getDocumentNames(index)) {
+				subtypes.add(new String(result.getWord()) + "@" + document);
+			}
+		}
+		Collections.sort(subtypes);
+		return subtypes.toString();
+	}
+
+	private File[] listSegmentFiles() {
+		return file.getParentFile().listFiles(
+				(dir, name) -> name.startsWith(file.getName() + ".")
+						&& name.endsWith(Index.SEGMENT_SUFFIX));
+	}
+
+	private String queryDocuments(String word) throws IOException {
+		EntryResult[] results = index.query(TYPES, word.toCharArray(),
+				SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE);
+		if (results == null || results.length == 0) {
+			return "[]";
+		}
+		String[] documents = results[0].getDocumentNames(index);
+		Arrays.sort(documents);
+		return Arrays.toString(documents);
+	}
+
+	@Test
+	public void testDeltaSegments() throws IOException {
+		populate();
+		for (int i = 0; i < 3; ++i) {
+			index.remove("c.txt");
+			add("Gamma" + i, "c.txt");
+			add("Delta", "e" + i + ".txt");
+			index.save();
+		}
+		index.remove("b.txt");
+		index.save();
+		assertEquals(4, listSegmentFiles().length);
+		final String expectedWords = "[Alpha, AlphaBeta, Delta, Gamma2, Жук]";
+		final String expectedDocuments = "[a.txt, c.txt, d.txt, e0.txt, e1.txt, e2.txt]";
+		assertEquals(expectedWords,
+				Arrays.toString(queryWords(null, SearchPattern.R_EXACT_MATCH)));
+		assertEquals("[a.txt]", queryDocuments("AlphaBeta"));
+		assertEquals("[e0.txt, e1.txt, e2.txt]", queryDocuments("Delta"));
+		assertEquals("[]", queryDocuments("Gamma"));
+		assertEquals("[c.txt]", queryDocuments("Gamma2"));
+		String[] documents = index.queryDocumentNames(null);
+		Arrays.sort(documents);
+		assertEquals(expectedDocuments, Arrays.toString(documents));
+
+		index = new Index(file.getPath(), file.getPath(), true);
+		assertEquals(expectedWords,
+				Arrays.toString(queryWords(null, SearchPattern.R_EXACT_MATCH)));
+		assertTrue(index.shouldCompact());
+		index.compact();
+		assertEquals(0, listSegmentFiles().length);
+		assertEquals(expectedWords,
+				Arrays.toString(queryWords(null, SearchPattern.R_EXACT_MATCH)));
+		assertEquals("[e0.txt, e1.txt, e2.txt]", queryDocuments("Delta"));
+		documents = index.queryDocumentNames(null);
+		Arrays.sort(documents);
+		assertEquals(expectedDocuments, Arrays.toString(documents));
+	}
+
+	@Test
+	public void testNewIndexDeletesSegments() throws IOException {
+		populate();
+		add("Delta", "e.txt");
+		index.save();
+		assertEquals(1, listSegmentFiles().length);
+		index = new Index(file.getPath(), file.getPath(), false);
+		assertEquals(0, listSegmentFiles().length);
+		assertEquals(0, queryWords(null, SearchPattern.R_EXACT_MATCH).length);
+	}
+
+	@Test
+	public void testDiscardedIndexNotCompacted() throws IOException {
+		populate();
+		add("Delta", "e.txt");
+		index.save();
+		final Index discarded = index;
+		discarded.discard();
+		index = new Index(file.getPath(), file.getPath(), false);
+		add("Omega", "z.txt");
+		index.save();
+		discarded.compact();
+		assertEquals("[Omega]",
+				Arrays.toString(queryWords(null, SearchPattern.R_EXACT_MATCH)));
+		assertFalse(new File(file.getPath() + ".compact").exists());
+	}
+
+	@Test
+	public void testDeleteIndexFiles() throws IOException {
+		populate();
+		add("Delta", "e.txt");
+		index.save();
+		assertEquals(1, listSegmentFiles().length);
+		Index.deleteIndexFiles(file.getPath());
+		assertFalse(file.exists());
+		assertEquals(0, listSegmentFiles().length);
+	}
+
+	@Test
+	public void testMergeWithSavedIndex() throws IOException {
+		populate();
+		index.remove("a.txt");
+		add("Delta", "e.txt");
+		saveAndReopen();
+		assertEquals("[AlphaBeta, Beta, BetaGamma, Delta, Gamma, Жук]",
+				Arrays.toString(queryWords(null, SearchPattern.R_EXACT_MATCH)));
+		String[] documents = index.queryDocumentNames(null);
+		Arrays.sort(documents);
+		assertEquals("[b.txt, c.txt, d.txt, e.txt]", Arrays.toString(documents));
+	}
+
+	@Test
+	public void testSuperTypeReferences() throws IOException {
+		populate();
+		addSuperType("Base", "A", "a.txt");
+		addSuperType("Base", "B", "b.txt");
+		addSuperType("A", "C", "c.txt");
+		assertEquals("[Base{{A{{{@a.txt, Base{{B{{{@b.txt]",
+				querySubtypes("Base"));
+		assertEquals("[A{{C{{{@c.txt]", querySubtypes("A"));
+		assertEquals("[]", querySubtypes("C"));
+
+		// the graph is updated with the index
+		index.remove("b.txt");
+		addSuperType("Base", "D", "d.txt");
+		assertEquals("[Base{{A{{{@a.txt, Base{{D{{{@d.txt]",
+				querySubtypes("Base"));
+		index.save();
+		assertTrue(getSuperTypeGraphFile().isFile());
+
+		// saved graph is reused
+		index = new Index(file.getPath(), file.getPath(), true);
+		assertEquals("[Base{{A{{{@a.txt, Base{{D{{{@d.txt]",
+				querySubtypes("Base"));
+		index.remove("a.txt");
+		addSuperType("Other", "A", "a.txt");
+		index.save();
+		index = new Index(file.getPath(), file.getPath(), true);
+		assertEquals("[Base{{D{{{@d.txt]", querySubtypes("Base"));
+		assertEquals("[Other{{A{{{@a.txt]", querySubtypes("Other"));
+	}
+
+	@Test
+	public void testSuperTypeGraphRebuilt() throws IOException {
+		addSuperType("Base", "A", "a.txt");
+		saveAndReopen();
+		assertEquals("[Base{{A{{{@a.txt]", querySubtypes("Base"));
+		assertTrue(getSuperTypeGraphFile().isFile());
+		// the index changed without the graph
+		index.remove("a.txt");
+		addSuperType("Base", "B", "b.txt");
+		index.save();
+		getSuperTypeGraphFile().delete();
+		index = new Index(file.getPath(), file.getPath(), true);
+		assertEquals("[Base{{B{{{@b.txt]", querySubtypes("Base"));
+
+		index = new Index(file.getPath(), file.getPath(), false);
+		assertFalse(getSuperTypeGraphFile().exists());
+		assertEquals("[]", querySubtypes("Base"));
+	}
+}
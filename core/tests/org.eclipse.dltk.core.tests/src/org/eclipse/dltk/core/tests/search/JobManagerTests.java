@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.dltk.internal.core.search.processing.IJob;
+import org.eclipse.dltk.internal.core.search.processing.IParallelJob;
+import org.eclipse.dltk.internal.core.search.processing.JobManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JobManagerTests extends Assert {
+
+	private static final int WORKERS = 3;
+
+	private static class TestJobManager extends JobManager {
+		@Override
+		public String processName() {
+			return "Test Job Manager"; //$NON-NLS-1$
+		}
+
+		@Override
+		protected int getMaxWorkers() {
+			return WORKERS;
+		}
+	}
+
+	private final AtomicInteger running = new AtomicInteger();
+	private final AtomicInteger maxRunning = new AtomicInteger();
+	private final List<String> executed = Collections
+			.synchronizedList(new ArrayList<String>());
+
+	private class TestJob implements IParallelJob {
+		final String key;
+		final String name;
+
+		TestJob(String key, String name) {
+			this.key = key;
+			this.name = name;
+		}
+
+		@Override
+		public Object getJobKey() {
+			return key;
+		}
+
+		@Override
+		public boolean belongsTo(String jobFamily) {
+			return jobFamily.equals(key);
+		}
+
+		@Override
+		public void cancel() {
+		}
+
+		@Override
+		public void ensureReadyToRun() {
+		}
+
+		@Override
+		public boolean execute(IProgressMonitor progress) {
+			final int count = running.incrementAndGet();
+			maxRunning.accumulateAndGet(count, Math::max);
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				// ignore
+			}
+			executed.add(name);
+			running.decrementAndGet();
+			return IJob.COMPLETE;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	private JobManager manager;
+
+	@Before
+	public void setUp() {
+		manager = new TestJobManager();
+		manager.reset();
+	}
+
+	@After
+	public void tearDown() {
+		manager.shutdown();
+	}
+
+	@Test
+	public void testParallelExecution() {
+		for (int i = 0; i < 4 * WORKERS; ++i) {
+			manager.request(new TestJob("key" + i, "job" + i));
+		}
+		manager.waitUntilReady();
+		assertEquals(4 * WORKERS, executed.size());
+		assertTrue(maxRunning.get() > 1);
+		assertTrue(maxRunning.get() <= WORKERS);
+	}
+
+	@Test
+	public void testSameKeyOrder() {
+		for (int i = 0; i < 5; ++i) {
+			manager.request(new TestJob("A", "A" + i));
+			manager.request(new TestJob("B", "B" + i));
+		}
+		manager.waitUntilReady();
+		assertEquals(10, executed.size());
+		final List<String> a = new ArrayList<>();
+		final List<String> b = new ArrayList<>();
+		for (String name : executed) {
+			(name.startsWith("A") ? a : b).add(name);
+		}
+		for (int i = 0; i < 5; ++i) {
+			assertEquals("A" + i, a.get(i));
+			assertEquals("B" + i, b.get(i));
+		}
+	}
+
+	@Test
+	public void testExclusiveJob() {
+		manager.request(new TestJob("A", "A0"));
+		manager.request(new TestJob("B", "B0"));
+		manager.request(new TestJob(null, "X"));
+		manager.request(new TestJob("C", "C0"));
+		manager.waitUntilReady();
+		assertEquals(4, executed.size());
+		assertEquals("X", executed.get(2));
+		assertEquals("C0", executed.get(3));
+	}
+
+	@Test
+	public void testRunInParallel() {
+		manager.request(new TestJob("A", "A0"));
+		manager.waitUntilReady();
+		final int count = 4 * WORKERS;
+		final boolean[] done = new boolean[count];
+		final List<Thread> threads = Collections
+				.synchronizedList(new ArrayList<Thread>());
+		manager.runInParallel(count, i -> {
+			threads.add(Thread.currentThread());
+			final int current = running.incrementAndGet();
+			maxRunning.accumulateAndGet(current, Math::max);
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				// ignore
+			}
+			running.decrementAndGet();
+			done[i] = true;
+		});
+		for (int i = 0; i < count; ++i) {
+			assertTrue(done[i]);
+		}
+		assertTrue(maxRunning.get() > 1);
+		assertTrue(maxRunning.get() <= WORKERS);
+		for (Thread thread : threads) {
+			assertTrue(thread.getName().startsWith("Test Job Manager"));
+		}
+	}
+}
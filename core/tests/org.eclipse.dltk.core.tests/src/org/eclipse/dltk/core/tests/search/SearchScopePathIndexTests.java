@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.dltk.internal.core.search.SearchScopePathIndex;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Compares {@link SearchScopePathIndex} with the linear lookup of the enclosing
+ * entry which was done by the search scope before.
+ */
+public class SearchScopePathIndexTests extends Assert {
+
+	private static class Entries {
+		final List<String> fullPaths = new ArrayList<>();
+		final List<Boolean> packages = new ArrayList<>();
+
+		Entries add(String fullPath, boolean isPackage) {
+			fullPaths.add(fullPath);
+			packages.add(isPackage);
+			return this;
+		}
+
+		Entries addFree() {
+			return add(null, false);
+		}
+
+		String[] fullPaths() {
+			return fullPaths.toArray(new String[fullPaths.size()]);
+		}
+
+		boolean[] packages() {
+			final boolean[] result = new boolean[packages.size()];
+			for (int i = 0; i < result.length; ++i) {
+				result[i] = packages.get(i);
+			}
+			return result;
+		}
+
+		SearchScopePathIndex newIndex() {
+			return new SearchScopePathIndex(fullPaths(), packages());
+		}
+	}
+
+	/*
+	 * Removes trailing slashes from the given path, like the search scope does
+	 */
+	private static String normalize(String path) {
+		int index = path.length() - 1;
+		while (index >= 0 && path.charAt(index) == '/')
+			index--;
+		return path.substring(0, index + 1);
+	}
+
+	/*
+	 * The linear lookup of the search scope before the index was added
+	 */
+	private static int linearIndexOf(String[] fullPaths, boolean[] isPkgPath,
+			String path) {
+		path = normalize(path);
+		for (int i = 0; i < fullPaths.length; i++) {
+			if (fullPaths[i] != null
+					&& encloses(fullPaths[i], path, isPkgPath[i]))
+				return i;
+		}
+		return -1;
+	}
+
+	private static boolean encloses(String enclosingPath, String path,
+			boolean isPkgPath) {
+		int pathLength = path.length();
+		int enclosingLength = enclosingPath.length();
+		if (pathLength < enclosingLength) {
+			return false;
+		}
+		if (enclosingLength == 0) {
+			return true;
+		}
+		if (pathLength == enclosingLength) {
+			return path.equals(enclosingPath);
+		}
+		if (!isPkgPath) {
+			return path.startsWith(enclosingPath)
+					&& path.charAt(enclosingLength) == '/';
+		} else {
+			return path.startsWith(enclosingPath)
+					&& ((enclosingPath.length() == path.lastIndexOf('/'))
+							|| (enclosingPath.length() == path.length()));
+		}
+	}
+
+	private static void assertIndexOf(int expected, Entries entries,
+			String path) {
+		final int linear = linearIndexOf(entries.fullPaths(),
+				entries.packages(), path);
+		assertEquals("linear " + path, expected, linear);
+		assertEquals(path, expected,
+				entries.newIndex().indexOf(normalize(path)));
+	}
+
+	@Test
+	public void testPackageEntries() {
+		final Entries entries = new Entries().add("/P/src/a", true);
+		assertIndexOf(0, entries, "/P/src/a");
+		assertIndexOf(0, entries, "/P/src/a/X.txt");
+		// the direct child folder is enclosed but not its children
+		assertIndexOf(0, entries, "/P/src/a/b");
+		assertIndexOf(-1, entries, "/P/src/a/b/X.txt");
+		assertIndexOf(-1, entries, "/P/src/ab/X.txt");
+		assertIndexOf(-1, entries, "/P/src/X.txt");
+		assertIndexOf(-1, entries, "/P/src");
+	}
+
+	@Test
+	public void testNestedEntries() {
+		final Entries entries = new Entries().add("/P/src/a/b", false)
+				.addFree().add("/P", false).add("/P/src", false)
+				.add("/P/src/a", true);
+		assertIndexOf(0, entries, "/P/src/a/b/X.txt");
+		assertIndexOf(0, entries, "/P/src/a/b");
+		assertIndexOf(2, entries, "/P/src/a/X.txt");
+		assertIndexOf(2, entries, "/P/src/a");
+		assertIndexOf(2, entries, "/P/X.txt");
+		assertIndexOf(-1, entries, "/Q/src/a/X.txt");
+		assertIndexOf(-1, entries, "/PQ");
+
+		final Entries reversed = new Entries().add("/P/src/a", true)
+				.add("/P/src", false).add("/P", false).add("/P/src/a/b", false);
+		assertIndexOf(0, reversed, "/P/src/a/X.txt");
+		assertIndexOf(1, reversed, "/P/src/a/b/X.txt");
+		assertIndexOf(1, reversed, "/P/src/X.txt");
+		assertIndexOf(2, reversed, "/P/X.txt");
+	}
+
+	@Test
+	public void testEmptyPath() {
+		final Entries entries = new Entries().add("/P", false).addFree()
+				.add("", false);
+		assertIndexOf(2, entries, "");
+		assertIndexOf(2, entries, "/Q/X.txt");
+		assertIndexOf(0, entries, "/P/X.txt");
+
+		final Entries packages = new Entries().add("/P/src", false)
+				.add("", true);
+		assertIndexOf(1, packages, "");
+		assertIndexOf(1, packages, "/Q/a/b/X.txt");
+		assertIndexOf(0, packages, "/P/src/X.txt");
+
+		final Entries nonEmpty = new Entries().add("/P", false)
+				.add("/P/src/a", true);
+		assertIndexOf(-1, nonEmpty, "");
+		assertIndexOf(-1, nonEmpty, "/");
+	}
+
+	@Test
+	public void testTrailingSlash() {
+		final Entries entries = new Entries().add("/P/src/a", true)
+				.add("/P/lib", false);
+		assertIndexOf(0, entries, "/P/src/a/");
+		assertIndexOf(0, entries, "/P/src/a/X.txt/");
+		assertIndexOf(0, entries, "/P/src/a/b/");
+		assertIndexOf(-1, entries, "/P/src/a/b/X.txt/");
+		assertIndexOf(1, entries, "/P/lib/");
+		assertIndexOf(1, entries, "/P/lib//");
+		assertIndexOf(1, entries, "/P/lib/a/b/");
+		assertIndexOf(-1, entries, "/P/");
+	}
+
+	@Test
+	public void testSameAsLinear() {
+		final String[] segments = { "a", "b", "ab", "P", "X.txt" };
+		final Random random = new Random(1);
+		for (int round = 0; round < 200; ++round) {
+			final Entries entries = new Entries();
+			final int entryCount = 1 + random.nextInt(12);
+			for (int i = 0; i < entryCount; ++i) {
+				if (random.nextInt(4) == 0) {
+					entries.addFree();
+				} else {
+					entries.add(randomPath(random, segments, 3),
+							random.nextBoolean());
+				}
+			}
+			final String[] fullPaths = entries.fullPaths();
+			final boolean[] packages = entries.packages();
+			final SearchScopePathIndex index = entries.newIndex();
+			for (int i = 0; i < 50; ++i) {
+				String path = randomPath(random, segments, 5);
+				if (random.nextInt(8) == 0) {
+					path += '/';
+				}
+				assertEquals(path, linearIndexOf(fullPaths, packages, path),
+						index.indexOf(normalize(path)));
+			}
+		}
+	}
+
+	private static String randomPath(Random random, String[] segments,
+			int maxDepth) {
+		final StringBuilder sb = new StringBuilder();
+		final int depth = random.nextInt(maxDepth + 1);
+		for (int i = 0; i < depth; ++i) {
+			sb.append('/').append(segments[random.nextInt(segments.length)]);
+		}
+		return sb.toString();
+	}
+}
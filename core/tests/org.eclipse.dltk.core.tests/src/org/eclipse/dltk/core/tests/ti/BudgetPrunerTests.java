@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.ti;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.eclipse.dltk.core.tests.ti.GoalEngineTests.CountingFactory;
+import org.eclipse.dltk.core.tests.ti.GoalEngineTests.LeafCountGoal;
+import org.eclipse.dltk.evaluation.types.AmbiguousType;
+import org.eclipse.dltk.evaluation.types.SimpleType;
+import org.eclipse.dltk.ti.BudgetPruner;
+import org.eclipse.dltk.ti.GoalEngine;
+import org.eclipse.dltk.ti.GoalState;
+import org.eclipse.dltk.ti.IContext;
+import org.eclipse.dltk.ti.goals.AbstractTypeGoal;
+import org.eclipse.dltk.ti.goals.GoalEvaluator;
+import org.eclipse.dltk.ti.goals.IGoal;
+import org.eclipse.dltk.ti.types.IEvaluatedType;
+import org.junit.Test;
+
+public class BudgetPrunerTests {
+
+	private static final IEvaluatedType STRING = new SimpleType(
+			SimpleType.TYPE_STRING);
+	private static final IEvaluatedType NUMBER = new SimpleType(
+			SimpleType.TYPE_NUMBER);
+
+	private final IContext context = () -> null;
+
+	/**
+	 * Evaluates to the given type after the given number of nested subgoals.
+	 */
+	static class ChainGoal extends AbstractTypeGoal {
+		final IEvaluatedType type;
+		final int length;
+
+		ChainGoal(IContext context, IEvaluatedType type, int length) {
+			super(context);
+			this.type = type;
+			this.length = length;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return this == obj;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(this);
+		}
+	}
+
+	/**
+	 * Evaluates to the type of the subgoals, if all of them are evaluated.
+	 */
+	static class AllOfGoal extends AbstractTypeGoal {
+		final IGoal[] subgoals;
+
+		AllOfGoal(IContext context, IGoal... subgoals) {
+			super(context);
+			this.subgoals = subgoals;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return this == obj;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(this);
+		}
+	}
+
+	static class TypeEvaluator extends GoalEvaluator {
+		private Object result;
+		private boolean complete = true;
+
+		TypeEvaluator(IGoal goal) {
+			super(goal);
+		}
+
+		@Override
+		public IGoal[] init() {
+			if (getGoal() instanceof AllOfGoal) {
+				return ((AllOfGoal) getGoal()).subgoals;
+			}
+			final ChainGoal goal = (ChainGoal) getGoal();
+			if (goal.length == 0) {
+				result = goal.type;
+				return IGoal.NO_GOALS;
+			}
+			return new IGoal[] { new ChainGoal(goal.getContext(), goal.type,
+					goal.length - 1) };
+		}
+
+		@Override
+		public IGoal[] subGoalDone(IGoal subgoal, Object result,
+				GoalState state) {
+			if (state != GoalState.DONE || result == null) {
+				complete = false;
+			} else {
+				this.result = result;
+			}
+			return IGoal.NO_GOALS;
+		}
+
+		@Override
+		public Object produceResult() {
+			return complete ? result : null;
+		}
+	}
+
+	@Test
+	public void testClassGoalLimit() {
+		final CountingFactory factory = new CountingFactory();
+		final BudgetPruner pruner = new BudgetPruner(0);
+		pruner.setClassGoalLimit(5);
+		final Object result = new GoalEngine(factory)
+				.evaluateGoal(new LeafCountGoal(context, 1, 3), pruner);
+		assertEquals(5, factory.created.get());
+		assertTrue((Integer) result < 8);
+		// the children of the nodes 3, 4 and 5
+		assertEquals(6, pruner.getPrunedGoals());
+	}
+
+	@Test
+	public void testMaxDepth() {
+		final CountingFactory factory = new CountingFactory();
+		final BudgetPruner pruner = new BudgetPruner(0);
+		pruner.setMaxDepth(2);
+		assertEquals(0, new GoalEngine(factory)
+				.evaluateGoal(new LeafCountGoal(context, 1, 3), pruner));
+		assertEquals(7, factory.created.get());
+		assertEquals(8, pruner.getPrunedGoals());
+	}
+
+	@Test
+	public void testPartialResult() {
+		final BudgetPruner pruner = new BudgetPruner(0);
+		pruner.setMaxDepth(4);
+		final GoalEngine engine = new GoalEngine(TypeEvaluator::new);
+		Object result = engine.evaluateGoal(new AllOfGoal(context,
+				new ChainGoal(context, STRING, 0),
+				new ChainGoal(context, NUMBER, 1),
+				new ChainGoal(context, STRING, 10)), pruner);
+		assertNull(result);
+		result = pruner.getPartialResult(result);
+		assertTrue(result instanceof AmbiguousType);
+		// in the evaluation order
+		assertEquals(Arrays.asList(STRING, NUMBER), Arrays
+				.asList(((AmbiguousType) result).getPossibleTypes()));
+
+		result = engine.evaluateGoal(new AllOfGoal(context,
+				new ChainGoal(context, NUMBER, 2),
+				new ChainGoal(context, STRING, 10)), pruner);
+		assertSame(NUMBER, pruner.getPartialResult(result));
+
+		result = engine.evaluateGoal(new AllOfGoal(context,
+				new ChainGoal(context, NUMBER, 1)), pruner);
+		assertEquals(0, pruner.getPrunedGoals());
+		assertSame(NUMBER, pruner.getPartialResult(result));
+	}
+
+	@Test
+	public void testAverageTimesPerPruner() {
+		final GoalEngine engine = new GoalEngine(
+				goal -> new TypeEvaluator(goal) {
+					@Override
+					public IGoal[] init() {
+						if (goal instanceof ChainGoal) {
+							try {
+								Thread.sleep(100);
+							} catch (InterruptedException e) {
+								// ignore
+							}
+						}
+						return super.init();
+					}
+				});
+		final BudgetPruner pruner = new BudgetPruner(50);
+		assertSame(STRING, engine.evaluateGoal(
+				new AllOfGoal(context, new ChainGoal(context, STRING, 0)),
+				pruner));
+		assertEquals(0, pruner.getPrunedGoals());
+		// the goal class took longer than the time limit
+		assertNull(engine.evaluateGoal(
+				new AllOfGoal(context, new ChainGoal(context, STRING, 0)),
+				pruner));
+		assertEquals(1, pruner.getPrunedGoals());
+		// not known to the other pruners
+		final BudgetPruner other = new BudgetPruner(50);
+		assertSame(STRING, engine.evaluateGoal(
+				new AllOfGoal(context, new ChainGoal(context, STRING, 0)),
+				other));
+		assertEquals(0, other.getPrunedGoals());
+	}
+
+	static class QuickGoal extends ChainGoal {
+		QuickGoal(IContext context, IEvaluatedType type) {
+			super(context, type, 0);
+		}
+	}
+
+	@Test
+	public void testQueuedTimeNotCounted() {
+		final GoalEngine engine = new GoalEngine(
+				goal -> new TypeEvaluator(goal) {
+					@Override
+					public IGoal[] init() {
+						if (goal.getClass() == ChainGoal.class) {
+							try {
+								Thread.sleep(100);
+							} catch (InterruptedException e) {
+								// ignore
+							}
+						}
+						return super.init();
+					}
+				});
+		final BudgetPruner pruner = new BudgetPruner(160);
+		for (int i = 0; i < 2; ++i) {
+			// the quick goal waits for the slow sibling, but takes no time
+			// itself, so it is not pruned when less time remains
+			engine.evaluateGoal(new AllOfGoal(context,
+					new ChainGoal(context, STRING, 0),
+					new QuickGoal(context, NUMBER)), pruner);
+			assertEquals(0, pruner.getPrunedGoals());
+		}
+	}
+}
@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * Copyright (c) 2020 xored software, Inc. and others.
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.ti;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.dltk.ast.declarations.ModuleDeclaration;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.ti.DefaultTypeInferencer;
+import org.eclipse.dltk.ti.EvaluatorStatistics;
+import org.eclipse.dltk.ti.GoalEngine;
+import org.eclipse.dltk.ti.GoalResultCache;
+import org.eclipse.dltk.ti.GoalState;
+import org.eclipse.dltk.ti.IContext;
+import org.eclipse.dltk.ti.IGoalEvaluatorFactory;
+import org.eclipse.dltk.ti.IPruner;
+import org.eclipse.dltk.ti.ISourceModuleContext;
+import org.eclipse.dltk.ti.goals.AbstractGoal;
+import org.eclipse.dltk.ti.goals.GoalEvaluator;
+import org.eclipse.dltk.ti.goals.IGoal;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GoalEngineTests {
+
+	private static class TestContext implements IContext, ISourceModuleContext {
+
+		@Override
+		public String getLangNature() {
+			return null;
+		}
+
+		@Override
+		public ModuleDeclaration getRootNode() {
+			return null;
+		}
+
+		@Override
+		public ISourceModule getSourceModule() {
+			return null;
+		}
+	}
+
+	/**
+	 * Counts the leaves of the complete binary tree of given depth, the
+	 * children of the node with number n are numbered 2n and 2n + 1.
+	 */
+	static class LeafCountGoal extends AbstractGoal {
+		final int node;
+		final int depth;
+
+		LeafCountGoal(IContext context, int node, int depth) {
+			super(context);
+			this.node = node;
+			this.depth = depth;
+		}
+
+		@Override
+		public int hashCode() {
+			return (super.hashCode() * 31 + node) * 31 + depth;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return super.equals(obj) && ((LeafCountGoal) obj).node == node
+					&& ((LeafCountGoal) obj).depth == depth;
+		}
+
+		@Override
+		public String toString() {
+			return "LeafCount " + node + "/" + depth;
+		}
+	}
+
+	static class LeafCountEvaluator extends GoalEvaluator {
+		static final Set<Thread> initThreads = ConcurrentHashMap.newKeySet();
+		private int count;
+
+		LeafCountEvaluator(IGoal goal) {
+			super(goal);
+		}
+
+		@Override
+		public IGoal[] init() {
+			final LeafCountGoal goal = (LeafCountGoal) getGoal();
+			initThreads.add(Thread.currentThread());
+			if (goal.node < 0) {
+				throw new IllegalStateException();
+			}
+			if (goal.depth == 0) {
+				count = 1;
+				return IGoal.NO_GOALS;
+			}
+			return new IGoal[] {
+					new LeafCountGoal(goal.getContext(), goal.node * 2,
+							goal.depth - 1),
+					new LeafCountGoal(goal.getContext(), goal.node * 2 + 1,
+							goal.depth - 1) };
+		}
+
+		@Override
+		public IGoal[] subGoalDone(IGoal subgoal, Object result,
+				GoalState state) {
+			if (result != null) {
+				count += (Integer) result;
+			}
+			return IGoal.NO_GOALS;
+		}
+
+		@Override
+		public Object produceResult() {
+			return count;
+		}
+	}
+
+	static class CountingFactory implements IGoalEvaluatorFactory {
+		final AtomicInteger created = new AtomicInteger();
+
+		@Override
+		public GoalEvaluator createEvaluator(IGoal goal) {
+			created.incrementAndGet();
+			return new LeafCountEvaluator(goal);
+		}
+	}
+
+	private final IContext context = new TestContext();
+	private GoalResultCache cache;
+	private CountingFactory factory;
+
+	@Before
+	public void setUp() {
+		cache = new GoalResultCache(GoalResultCache.DEFAULT_CAPACITY);
+		factory = new CountingFactory();
+	}
+
+	private GoalEngine createEngine(Object scope) {
+		GoalEngine engine = new GoalEngine(factory);
+		engine.setResultCache(cache, scope);
+		return engine;
+	}
+
+	@Test
+	public void testResultsReused() {
+		assertEquals(8, createEngine("a")
+				.evaluateGoal(new LeafCountGoal(context, 1, 3), null));
+		assertEquals(15, factory.created.get());
+		assertEquals(15, cache.size());
+
+		factory.created.set(0);
+		assertEquals(8, createEngine("a")
+				.evaluateGoal(new LeafCountGoal(context, 1, 3), null));
+		assertEquals(4, createEngine("a")
+				.evaluateGoal(new LeafCountGoal(context, 2, 2), null));
+		assertEquals(0, factory.created.get());
+		assertEquals(2, cache.getHitCount());
+		assertTrue(cache.getHitRate() > 0);
+
+		assertEquals(4, createEngine("b")
+				.evaluateGoal(new LeafCountGoal(context, 2, 2), null));
+		assertEquals(7, factory.created.get());
+	}
+
+	private static class TestInferencer extends DefaultTypeInferencer {
+		TestInferencer(IGoalEvaluatorFactory factory) {
+			super(factory);
+		}
+
+		Object evaluate(IGoal goal) {
+			return evaluateGoal(goal, null);
+		}
+	}
+
+	@Test
+	public void testResultsSharedByInferencers() {
+		GoalResultCache.getShared().clear();
+		final CountingFactory first = new CountingFactory();
+		assertEquals(8, new TestInferencer(first)
+				.evaluate(new LeafCountGoal(context, 1, 3)));
+		assertEquals(15, first.created.get());
+
+		// created the same way, e.g. for the next request
+		final CountingFactory second = new CountingFactory();
+		assertEquals(8, new TestInferencer(second)
+				.evaluate(new LeafCountGoal(context, 1, 3)));
+		assertEquals(0, second.created.get());
+
+		final CountingFactory other = new CountingFactory() {
+		};
+		assertEquals(8, new TestInferencer(other)
+				.evaluate(new LeafCountGoal(context, 1, 3)));
+		assertEquals(15, other.created.get());
+		GoalResultCache.getShared().clear();
+	}
+
+	@Test
+	public void testPartialResultsNotCached() {
+		final IPruner pruner = new IPruner() {
+			@Override
+			public void init() {
+			}
+
+			@Override
+			public boolean prune(IGoal goal, EvaluatorStatistics stat) {
+				return ((LeafCountGoal) goal).node == 3;
+			}
+		};
+		assertEquals(4, createEngine("a")
+				.evaluateGoal(new LeafCountGoal(context, 1, 3), pruner));
+		// only the subtree of the node 2 is complete
+		assertEquals(7, cache.size());
+		factory.created.set(0);
+		assertEquals(8, createEngine("a")
+				.evaluateGoal(new LeafCountGoal(context, 1, 3), null));
+		assertEquals(8, factory.created.get());
+	}
+
+	@Test
+	public void testGoalsWithoutSourceModuleContext() {
+		final IContext plain = () -> null;
+		createEngine("a").evaluateGoal(new LeafCountGoal(plain, 1, 3), null);
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getHitCount() + cache.getMissCount());
+	}
+
+	@Test
+	public void testParallelEvaluation() {
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			LeafCountEvaluator.initThreads.clear();
+			final GoalEngine engine = new GoalEngine(factory, pool);
+			for (int i = 0; i < 3; ++i) {
+				assertEquals(512, engine.evaluateGoal(
+						new LeafCountGoal(context, 1, 9), null));
+			}
+			assertEquals(3 * 1023, factory.created.get());
+			assertFalse(LeafCountEvaluator.initThreads
+					.contains(Thread.currentThread()));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testParallelEvaluationWithCacheAndPruner() {
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			final GoalEngine engine = new GoalEngine(factory, pool);
+			engine.setResultCache(cache, "a");
+			final IPruner pruner = new IPruner() {
+				@Override
+				public void init() {
+				}
+
+				@Override
+				public boolean prune(IGoal goal, EvaluatorStatistics stat) {
+					return ((LeafCountGoal) goal).node == 3;
+				}
+			};
+			assertEquals(128, engine
+					.evaluateGoal(new LeafCountGoal(context, 1, 8), pruner));
+			assertEquals(255, cache.size());
+			factory.created.set(0);
+			assertEquals(256, engine
+					.evaluateGoal(new LeafCountGoal(context, 1, 8), null));
+			assertEquals(256, factory.created.get());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testParallelEvaluationFailure() {
+		final ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			final GoalEngine engine = new GoalEngine(factory, pool);
+			try {
+				engine.evaluateGoal(new LeafCountGoal(context, -1, 3), null);
+				fail();
+			} catch (IllegalStateException e) {
+				// expected
+			}
+			assertEquals(8, engine
+					.evaluateGoal(new LeafCountGoal(context, 1, 3), null));
+		} finally {
+			pool.shutdown();
+		}
+	}
+}